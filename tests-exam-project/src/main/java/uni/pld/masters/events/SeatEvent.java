@@ -0,0 +1,113 @@
+package uni.pld.masters.events;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Change of one projection in {@link SeatEventRing}. The events are preallocated slots of the ring and are reused when the ring wraps, so the consumers
+ * must copy the values they need to keep after the event is processed.
+ *
+ * The seats are kept in a bitmap like in {@link uni.pld.masters.model.MovieProjection}, the bitmap of the slot is allocated again only when the event has
+ * more seats words than any previous event in the slot.
+ *
+ * Every event has the change sequence of its projection - {@linkplain uni.pld.masters.model.MovieProjection#getChangesCount()} read after the change, so
+ * the events of one projection could be ordered by it, also when concurrent changes are published in other order than they were made. The events with the
+ * same sequence were published after the same changes, the consumer, which needs the exact state of their seats, could read
+ * {@linkplain uni.pld.masters.model.MovieProjection#getSeatMap()} with at least that {@linkplain uni.pld.masters.model.SeatMapSnapshot#getChangesCount()}.
+ *
+ * @author nstoilov
+ *
+ */
+public class SeatEvent {
+
+    private SeatEventType type;
+    private long projectionId;
+    private int movieId;
+    private long startTimeMillis;
+    private long changeSequence;
+    private long[] seatsMask = new long[1];
+    private int seatsWordsCount;
+
+    SeatEvent() {
+    }
+
+    void set(SeatEventType type, long projectionId, int movieId, long startTimeMillis, long changeSequence) {
+        this.type = type;
+        this.projectionId = projectionId;
+        this.movieId = movieId;
+        this.startTimeMillis = startTimeMillis;
+        this.changeSequence = changeSequence;
+        this.seatsWordsCount = 0;
+    }
+
+    void setSeat(int seatNumber) {
+        int bit = seatNumber - 1;
+        ensureSeatsWords((bit >>> 6) + 1);
+        seatsMask[bit >>> 6] = 1L << bit;
+    }
+
+    void setSeats(long[] seats) {
+        ensureSeatsWords(seats.length);
+        System.arraycopy(seats, 0, seatsMask, 0, seats.length);
+    }
+
+    private void ensureSeatsWords(int wordsCount) {
+        if (seatsMask.length < wordsCount) {
+            seatsMask = new long[wordsCount];
+        } else {
+            Arrays.fill(seatsMask, 0, wordsCount, 0L);
+        }
+        seatsWordsCount = wordsCount;
+    }
+
+    public SeatEventType getType() {
+        return type;
+    }
+
+    public long getProjectionId() {
+        return projectionId;
+    }
+
+    /**
+     * @return The id of the movie in {@link uni.pld.masters.model.MovieCatalog} of the manager
+     */
+    public int getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * @return The start time of the projection in local epoch millis, only for {@linkplain SeatEventType#PROJECTION_SCHEDULED}
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * @return The number of the finished changes of the seats of the projection after the change of this event
+     */
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public boolean isSeatIncluded(int seatNumber) {
+        int bit = seatNumber - 1;
+        return bit >= 0 && (bit >>> 6) < seatsWordsCount && (seatsMask[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public int getSeatsCount() {
+        int seatsCount = 0;
+        for (int wordIndex = 0; wordIndex < seatsWordsCount; wordIndex++) {
+            seatsCount += Long.bitCount(seatsMask[wordIndex]);
+        }
+
+        return seatsCount;
+    }
+
+    /**
+     * @return Copy of the seats bitmap, bit 0 is seat 1
+     */
+    public long[] getSeatsMask() {
+        return Arrays.copyOf(seatsMask, seatsWordsCount);
+    }
+
+}
@@ -0,0 +1,79 @@
+package uni.pld.masters.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Consumer of {@link SeatEventRing} with its own sequence of the last processed event. The consumer must be used by one thread. The publishers wait for
+ * the consumer when the ring is full, so the consumer must be closed when it is not needed anymore. The consumer, which keeps the publishers waiting
+ * longer than the maximum wait of the ring, is removed from the ring and doesn't receive more events.
+ *
+ * @author nstoilov
+ *
+ */
+public class SeatEventConsumer implements AutoCloseable {
+
+    private final SeatEventRing ring;
+    private final AtomicLong sequence;
+    private volatile boolean removed;
+
+    SeatEventConsumer(SeatEventRing ring, long sequence) {
+        this.ring = ring;
+        this.sequence = new AtomicLong(sequence);
+    }
+
+    /**
+     * @return The sequence of the last processed event
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Passes all published events, which are not processed yet, to the handler. Doesn't wait for new events. The event is processed when the handler
+     * returns, so the publishers could reuse its slot. When the consumer is removed from the ring, its events could be overwritten, so the polling stops -
+     * the event, during which handling the consumer was removed or the slot was published again, is not counted as processed.
+     *
+     * @param handler - Mandatory parameter. The handler of the events
+     * @return The number of the processed events
+     */
+    public int poll(SeatEventHandler handler) {
+        long lo = sequence.get() + 1;
+        long hi = ring.getHighestPublished(lo, ring.getCursor());
+
+        for (long current = lo; current <= hi; current++) {
+            if (removed || !ring.isPublished(current)) {
+                return (int) (current - lo);
+            }
+
+            handler.onEvent(ring.get(current), current, current == hi);
+            if (removed || !ring.isPublished(current)) {
+                return (int) (current - lo);
+            }
+
+            sequence.lazySet(current);
+        }
+
+        return (int) (hi - lo + 1);
+    }
+
+    /**
+     * @return true if the consumer was closed or removed from the ring, because it was too slow, so it doesn't receive events
+     */
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    void markRemoved() {
+        removed = true;
+    }
+
+    /**
+     * Removes the consumer from the ring.
+     */
+    @Override
+    public void close() {
+        ring.removeConsumer(this);
+    }
+
+}
@@ -0,0 +1,20 @@
+package uni.pld.masters.events;
+
+/**
+ *
+ * Handler of the events polled by {@link SeatEventConsumer}.
+ *
+ * @author nstoilov
+ *
+ */
+@FunctionalInterface
+public interface SeatEventHandler {
+
+    /**
+     * @param event - the event, it is valid only till the method returns
+     * @param sequence - the sequence of the event in the ring
+     * @param endOfBatch - true if this is the last published event at the moment, so the handler could flush its batched work
+     */
+    void onEvent(SeatEvent event, long sequence, boolean endOfBatch);
+
+}
@@ -0,0 +1,80 @@
+package uni.pld.masters.events;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * Background thread, which passes the events of {@link SeatEventRing} to a handler as soon as they are published. When there are no new events the
+ * thread spins for a while, then parks for {@value #IDLE_PARK_MICROS} microseconds between the checks, so the idle processor doesn't use a whole core.
+ * The thread stops when its consumer is removed from the ring, because the handler was too slow.
+ *
+ * @author nstoilov
+ *
+ */
+public class SeatEventProcessor implements AutoCloseable {
+
+    private static final int IDLE_SPINS = 100;
+    private static final long IDLE_PARK_MICROS = 100L;
+
+    private final SeatEventConsumer consumer;
+    private final SeatEventHandler handler;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Adds consumer to the ring and starts the processing.
+     *
+     * @param ring - the ring, which events are processed
+     * @param handler - the handler of the events, called only from the processor thread
+     * @param name - the name of the processor thread
+     */
+    public SeatEventProcessor(SeatEventRing ring, SeatEventHandler handler, String name) {
+        this.consumer = ring.addConsumer();
+        this.handler = handler;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return The sequence of the last processed event
+     */
+    public long getSequence() {
+        return consumer.getSequence();
+    }
+
+    /**
+     * Stops the processing after the current batch and waits for the thread to finish. The consumer is removed from the ring also when the handler
+     * throws exception, so the publishers never wait for stopped processor.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            int idleCount = 0;
+            while (running && !consumer.isRemoved()) {
+                if (consumer.poll(handler) > 0) {
+                    idleCount = 0;
+                } else if (++idleCount < IDLE_SPINS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(IDLE_PARK_MICROS));
+                }
+            }
+        } finally {
+            consumer.close();
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package uni.pld.masters.events;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.time.TimeSource;
+
+/**
+ *
+ * Preallocated ring buffer of {@link SeatEvent}s in the style of the LMAX Disruptor. The publishers claim a range of sequences with compare-and-set, fill
+ * the events in the claimed slots and publish the range, so publishing doesn't allocate or lock. Every slot has a published flag, so the consumers see
+ * the events of concurrent publishers only after they are filled. A change of many projections is published as one range with one event per projection.
+ *
+ * Every {@link SeatEventConsumer} has its own sequence of the last processed event. The publishers don't overwrite events, which are not processed by all
+ * consumers - when the ring is full they wait for the slowest consumer. When there are no consumers the old events are overwritten. The publisher waits
+ * at most the maximum wait of the ring, then the consumers, which it waits for, are removed, so an abandoned consumer doesn't stop the publishers.
+ *
+ * <pre>
+ * long hi = next(count);
+ * for (long sequence = hi - count + 1; sequence &lt;= hi; sequence++) {
+ *     get(sequence).set(...);
+ * }
+ * publish(hi - count + 1, hi);
+ * </pre>
+ *
+ * @author nstoilov
+ *
+ */
+public class SeatEventRing {
+
+    /**
+     * The maximum time in milliseconds, for which the publishers wait for the slowest consumer, if other time is not given.
+     */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 1000L;
+
+    private static final SeatEventConsumer[] NO_CONSUMERS = new SeatEventConsumer[0];
+
+    private final SeatEvent[] events;
+    private final int mask;
+    private final int indexShift;
+    private final long maxWaitNanos;
+    private final AtomicIntegerArray published;
+    private final AtomicLong cursor = new AtomicLong(-1L);
+    private final AtomicLong gatingSequenceCache = new AtomicLong(-1L);
+    private volatile SeatEventConsumer[] consumers = NO_CONSUMERS;
+
+    /**
+     * @param capacity - the number of the events in the ring, must be power of two
+     */
+    public SeatEventRing(int capacity) {
+        this(capacity, DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * @param capacity - the number of the events in the ring, must be power of two
+     * @param maxWaitMillis - the maximum time, for which the publishers wait for the slowest consumer, must be positive
+     */
+    public SeatEventRing(int capacity, long maxWaitMillis) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be power of two");
+        }
+        if (maxWaitMillis <= 0) {
+            throw new IllegalArgumentException("Max wait time must be positive");
+        }
+
+        events = new SeatEvent[capacity];
+        for (int index = 0; index < capacity; index++) {
+            events[index] = new SeatEvent();
+        }
+        mask = capacity - 1;
+        indexShift = Integer.numberOfTrailingZeros(capacity);
+        maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        published = new AtomicIntegerArray(capacity);
+        for (int index = 0; index < capacity; index++) {
+            published.set(index, -1);
+        }
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * @return The last claimed sequence, the events up to it could be still not published
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Publishes {@linkplain SeatEventType#PROJECTION_SCHEDULED} event for the projection.
+     *
+     * @param projection - Mandatory parameter. The scheduled projection
+     */
+    public void publishScheduled(MovieProjection projection) {
+        long sequence = next(1);
+        get(sequence).set(SeatEventType.PROJECTION_SCHEDULED, projection.getId(), projection.getMovie()
+                .getId(), TimeSource.toEpochMillis(projection.getProjectionStartTime()), projection.getChangesCount());
+        publish(sequence, sequence);
+    }
+
+    /**
+     * Publishes event with one seat for every projection.
+     *
+     * @param type - Mandatory parameter. The type of the change of the seat
+     * @param projections - Mandatory parameter. The changed projections
+     * @param seatNumber - the changed seat
+     */
+    public void publishSeat(SeatEventType type, MovieProjection[] projections, int seatNumber) {
+        publishSeats(type, projections, seatNumber, null);
+    }
+
+    /**
+     * Publishes event with the seats for every projection.
+     *
+     * @param type - Mandatory parameter. The type of the change of the seats
+     * @param projections - Mandatory parameter. The changed projections
+     * @param seatsMask - Mandatory parameter. Bitmap of the changed seats, it is copied to the events
+     */
+    public void publishSeats(SeatEventType type, MovieProjection[] projections, long[] seatsMask) {
+        publishSeats(type, projections, 0, seatsMask);
+    }
+
+    private void publishSeats(SeatEventType type, MovieProjection[] projections, int seatNumber, long[] seatsMask) {
+        int publishedCount = 0;
+        while (publishedCount < projections.length) {
+            int count = Math.min(projections.length - publishedCount, events.length);
+            long hi = next(count);
+            long lo = hi - count + 1;
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                MovieProjection projection = projections[publishedCount++];
+                SeatEvent event = get(sequence);
+                event.set(type, projection.getId(), projection.getMovie()
+                        .getId(), 0L, projection.getChangesCount());
+                if (seatsMask == null) {
+                    event.setSeat(seatNumber);
+                } else {
+                    event.setSeats(seatsMask);
+                }
+            }
+            publish(lo, hi);
+        }
+    }
+
+    /**
+     * Claims the next sequences. Waits while the ring has no space for them, because some consumer is behind, but not longer than the maximum wait -
+     * then the consumers, which are behind, are removed.
+     *
+     * @param count - the number of the events, from 1 to the capacity
+     * @return The last claimed sequence
+     */
+    long next(int count) {
+        if (count < 1 || count > events.length) {
+            throw new IllegalArgumentException("Count must be from 1 to " + events.length);
+        }
+
+        long waitStartNanos = 0L;
+        boolean waiting = false;
+        while (true) {
+            long current = cursor.get();
+            long next = current + count;
+            long wrapPoint = next - events.length;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = getMinimumSequence(current);
+                if (wrapPoint > gatingSequence) {
+                    if (!waiting) {
+                        waiting = true;
+                        waitStartNanos = System.nanoTime();
+                    } else if (System.nanoTime() - waitStartNanos > maxWaitNanos) {
+                        removeConsumersBehind(wrapPoint);
+                        waiting = false;
+                        continue;
+                    }
+                    LockSupport.parkNanos(1L);
+                    continue;
+                }
+
+                gatingSequenceCache.set(gatingSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @param sequence - claimed sequence
+     * @return The event in the slot of the sequence
+     */
+    SeatEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    /**
+     * Makes the events from the claimed range visible to the consumers.
+     *
+     * @param lo - the first sequence of the range
+     * @param hi - the last sequence of the range
+     */
+    void publish(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+        }
+    }
+
+    /**
+     * Adds consumer, which will receive the events published after it is added.
+     *
+     * @return The new consumer
+     */
+    public synchronized SeatEventConsumer addConsumer() {
+        SeatEventConsumer consumer = new SeatEventConsumer(this, cursor.get());
+        SeatEventConsumer[] newConsumers = Arrays.copyOf(consumers, consumers.length + 1);
+        newConsumers[consumers.length] = consumer;
+        consumers = newConsumers;
+
+        return consumer;
+    }
+
+    /**
+     * Removes the consumer, so the publishers don't wait for it.
+     *
+     * @param consumer - the consumer returned by {@linkplain #addConsumer()}
+     */
+    public synchronized void removeConsumer(SeatEventConsumer consumer) {
+        consumer.markRemoved();
+        SeatEventConsumer[] newConsumers = Arrays.stream(consumers)
+                .filter(existing -> existing != consumer)
+                .toArray(SeatEventConsumer[]::new);
+        consumers = newConsumers.length == 0 ? NO_CONSUMERS : newConsumers;
+    }
+
+    /**
+     * Removes the consumers, which didn't process the event before the sequence, so its slot could be reused.
+     */
+    private synchronized void removeConsumersBehind(long sequence) {
+        for (SeatEventConsumer consumer : consumers) {
+            if (consumer.getSequence() < sequence) {
+                removeConsumer(consumer);
+            }
+        }
+    }
+
+    /**
+     * @return The highest sequence from {@linkplain lo} to {@linkplain hi}, up to which all events are published, or {@code lo - 1} if the event for
+     *         {@linkplain lo} is not published
+     */
+    long getHighestPublished(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+
+        return hi;
+    }
+
+    /**
+     * @return true if the slot of the sequence still has the published event of this sequence and not of a later lap of the ring
+     */
+    boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private long getMinimumSequence(long defaultSequence) {
+        long minimum = defaultSequence;
+        for (SeatEventConsumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.getSequence());
+        }
+
+        return minimum;
+    }
+
+}
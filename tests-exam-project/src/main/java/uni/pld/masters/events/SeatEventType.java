@@ -0,0 +1,32 @@
+package uni.pld.masters.events;
+
+/**
+ *
+ * Type of the change in {@link SeatEvent}.
+ *
+ * @author nstoilov
+ *
+ */
+public enum SeatEventType {
+
+    /**
+     * New projection is scheduled, the event has no seats.
+     */
+    PROJECTION_SCHEDULED,
+
+    /**
+     * The seats are reserved.
+     */
+    SEATS_RESERVED,
+
+    /**
+     * The seats are held, they are taken, but could be released if the hold is not confirmed.
+     */
+    SEATS_HELD,
+
+    /**
+     * The seats are free again, because the hold is released or expired.
+     */
+    SEATS_RELEASED
+
+}
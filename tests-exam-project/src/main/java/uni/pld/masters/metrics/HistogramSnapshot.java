@@ -0,0 +1,65 @@
+package uni.pld.masters.metrics;
+
+/**
+ *
+ * Immutable copy of {@link LatencyHistogram}. The percentiles are the biggest value of the bucket, in which they are, but not bigger than the max.
+ *
+ * @author nstoilov
+ *
+ */
+public class HistogramSnapshot {
+
+    private final long[] bucketCounts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    HistogramSnapshot(long[] bucketCounts, long totalNanos, long maxNanos) {
+        long bucketsTotal = 0;
+        for (long bucketCount : bucketCounts) {
+            bucketsTotal += bucketCount;
+        }
+
+        this.bucketCounts = bucketCounts;
+        this.count = bucketsTotal;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return The average of the recorded values or 0 if there are no values
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * @param percentile - from 0 to 100
+     * @return The value, which is bigger or equal to the given percent of the recorded values, or 0 if there are no values
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int index = 0; index < bucketCounts.length; index++) {
+            seen += bucketCounts[index];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketMaxValue(index), maxNanos);
+            }
+        }
+
+        return maxNanos;
+    }
+
+}
@@ -0,0 +1,114 @@
+package uni.pld.masters.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Lock-free histogram of latencies in nanoseconds with fixed memory. The values are counted in log-linear buckets like in HDR histogram - every power of
+ * two range is split in {@value #SUB_BUCKETS_COUNT} equal buckets, so the relative error of the reported values is under 7% for any value from 0 to
+ * {@link Long#MAX_VALUE}.
+ *
+ * Recording is one atomic increment of the bucket, one {@link LongAdder} add and a compare-and-set of the max only when the value is bigger than it. The
+ * snapshots are taken without stopping the recording, so a snapshot could miss the values recorded at the same time.
+ *
+ * @author nstoilov
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos - the latency, the negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts.getAndIncrement(bucketIndex(nanos));
+        totalNanos.add(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Adds the values of other histogram to this one, like they were recorded here.
+     *
+     * @param other - Mandatory parameter. The histogram, which is not changed
+     */
+    public void add(LatencyHistogram other) {
+        for (int index = 0; index < BUCKETS_COUNT; index++) {
+            long count = other.counts.get(index);
+            if (count != 0) {
+                counts.getAndAdd(index, count);
+            }
+        }
+        totalNanos.add(other.totalNanos.sum());
+
+        long otherMax = other.maxNanos.get();
+        long max = maxNanos.get();
+        while (otherMax > max && !maxNanos.compareAndSet(max, otherMax)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * @return Copy of the current state of the histogram
+     */
+    public HistogramSnapshot getSnapshot() {
+        long[] bucketCounts = new long[BUCKETS_COUNT];
+        for (int index = 0; index < BUCKETS_COUNT; index++) {
+            bucketCounts[index] = counts.get(index);
+        }
+
+        return new HistogramSnapshot(bucketCounts, totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Clears the recorded values. The values recorded during the reset could be partly kept.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKETS_COUNT; index++) {
+            counts.set(index, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS_COUNT) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS_COUNT - 1));
+    }
+
+    /**
+     * @return The biggest value, which is counted in the bucket
+     */
+    static long bucketMaxValue(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS_COUNT) {
+            return bucketIndex;
+        }
+
+        int shift = (bucketIndex >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = SUB_BUCKETS_COUNT + (bucketIndex & (SUB_BUCKETS_COUNT - 1));
+        long nextBucketStart = (subBucket + 1) << shift;
+
+        return nextBucketStart < 0 ? Long.MAX_VALUE : nextBucketStart - 1;
+    }
+
+}
@@ -0,0 +1,138 @@
+package uni.pld.masters.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * Registry of the {@link OperationMetrics} by operation name. The metrics of all operations could be disabled at once, the disabled metrics don't read
+ * the clock.
+ *
+ * The operations could be exposed through JMX with {@linkplain #registerMBeans(String)} as MXBeans with name {@code <domain>:type=Operation,name=<name>}.
+ *
+ * @author nstoilov
+ *
+ */
+public class MetricsRegistry {
+
+    private final Map<String, OperationMetrics<?>> operations = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    /**
+     * Returns the metrics of the operation and creates them if they are not there.
+     *
+     * @param name - Mandatory parameter. The name of the operation
+     * @param outcomeType - Mandatory parameter. The enum with the outcomes of the operation
+     * @return The metrics of the operation
+     * @throws IllegalArgumentException if the operation is registered with other outcome type
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Enum<E>> OperationMetrics<E> operation(String name, Class<E> outcomeType) {
+        OperationMetrics<?> metrics = operations.computeIfAbsent(name, operationName -> new OperationMetrics<>(operationName, outcomeType, this));
+        if (metrics.getOutcomeType() != outcomeType) {
+            throw new IllegalArgumentException("Operation " + name + " is registered with outcome type " + metrics.getOutcomeType()
+                    .getName());
+        }
+
+        return (OperationMetrics<E>) metrics;
+    }
+
+    /**
+     * Creates registry with the sum of the metrics of the given registries, for example of the shards of one manager, which record in own registries, so
+     * they don't contend on the same counters. The result is a copy - it doesn't change, when the given registries record more values.
+     *
+     * @param registries - Mandatory parameter. The registries, in which every operation has the same outcome type
+     * @return New registry with every operation of the given registries
+     * @throws IllegalArgumentException if some operation is registered with different outcome types
+     */
+    public static MetricsRegistry merge(Collection<MetricsRegistry> registries) {
+        MetricsRegistry merged = new MetricsRegistry();
+        for (MetricsRegistry registry : registries) {
+            for (OperationMetrics<?> metrics : registry.operations.values()) {
+                merged.add(metrics);
+            }
+        }
+
+        return merged;
+    }
+
+    private <E extends Enum<E>> void add(OperationMetrics<E> metrics) {
+        operation(metrics.getName(), metrics.getOutcomeType()).add(metrics);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return Snapshot of every operation by operation name, ordered by name
+     */
+    public Map<String, OperationSnapshot<?>> getSnapshot() {
+        Map<String, OperationSnapshot<?>> snapshot = new LinkedHashMap<>();
+        operations.keySet()
+                .stream()
+                .sorted()
+                .forEach(name -> snapshot.put(name, operations.get(name)
+                        .getSnapshot()));
+
+        return snapshot;
+    }
+
+    public void reset() {
+        for (OperationMetrics<?> metrics : operations.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Registers the operations in the platform MBean server. The operations added later are not registered.
+     *
+     * @param domain - Mandatory parameter. The domain of the MBean names
+     * @throws IllegalStateException if some of the MBeans couldn't be registered
+     */
+    public void registerMBeans(String domain) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OperationMetrics<?> metrics : operations.values()) {
+                server.registerMBean(metrics, objectName(domain, metrics.getName()));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics couldn't be registered in JMX", e);
+        }
+    }
+
+    /**
+     * Removes the operations from the platform MBean server, the operations which are not registered are skipped.
+     *
+     * @param domain - Mandatory parameter. The domain of the MBean names
+     */
+    public void unregisterMBeans(String domain) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (String name : operations.keySet()) {
+                ObjectName objectName = objectName(domain, name);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics couldn't be unregistered from JMX", e);
+        }
+    }
+
+    static ObjectName objectName(String domain, String name) throws JMException {
+        return new ObjectName(domain + ":type=Operation,name=" + ObjectName.quote(name));
+    }
+
+}
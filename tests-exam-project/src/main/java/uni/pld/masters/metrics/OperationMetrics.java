@@ -0,0 +1,134 @@
+package uni.pld.masters.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * Latency histogram and outcome counters of one operation. The operation is measured like this:
+ *
+ * <pre>
+ * long startNanos = metrics.start();
+ * Status status = operation();
+ * metrics.record(status, startNanos);
+ * </pre>
+ *
+ * When the {@link MetricsRegistry} of the operation is disabled nothing is measured and the only cost is the read of the flag.
+ *
+ * @author nstoilov
+ *
+ * @param <E> - the enum with the outcomes
+ */
+public class OperationMetrics<E extends Enum<E>> implements OperationMetricsMXBean {
+
+    private final String name;
+    private final Class<E> outcomeType;
+    private final MetricsRegistry registry;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final OutcomeCounters<E> outcomes;
+
+    OperationMetrics(String name, Class<E> outcomeType, MetricsRegistry registry) {
+        this.name = name;
+        this.outcomeType = outcomeType;
+        this.registry = registry;
+        this.outcomes = new OutcomeCounters<>(outcomeType);
+    }
+
+    /**
+     * @return The start time for {@linkplain #record(Enum, long)} or 0 if the metrics are disabled
+     */
+    public long start() {
+        return registry.isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the outcome and the time since the start. Nothing is recorded if the metrics were disabled at the start.
+     *
+     * @param outcome - Mandatory parameter. The outcome of the operation
+     * @param startNanos - the value returned by {@linkplain #start()}
+     */
+    public void record(E outcome, long startNanos) {
+        if (startNanos == 0L) {
+            return;
+        }
+
+        latency.record(System.nanoTime() - startNanos);
+        outcomes.increment(outcome);
+    }
+
+    /**
+     * Adds the latencies and the outcomes of other metrics of the same operation to these metrics.
+     */
+    void add(OperationMetrics<E> other) {
+        latency.add(other.latency);
+        outcomes.add(other.outcomes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Class<E> getOutcomeType() {
+        return outcomeType;
+    }
+
+    public OperationSnapshot<E> getSnapshot() {
+        return new OperationSnapshot<>(name, latency.getSnapshot(), outcomes.getSnapshot());
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getSnapshot()
+                .getCount();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return latency.getSnapshot()
+                .getMeanNanos();
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latency.getSnapshot()
+                .getMaxNanos();
+    }
+
+    @Override
+    public long getMedianNanos() {
+        return latency.getSnapshot()
+                .getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getPercentile99Nanos() {
+        return latency.getSnapshot()
+                .getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getPercentile999Nanos() {
+        return latency.getSnapshot()
+                .getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomesByName = new LinkedHashMap<>();
+        for (Map.Entry<E, Long> outcome : outcomes.getSnapshot()
+                .entrySet()) {
+            outcomesByName.put(outcome.getKey()
+                    .name(), outcome.getValue());
+        }
+
+        return Collections.unmodifiableMap(outcomesByName);
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        outcomes.reset();
+    }
+
+}
@@ -0,0 +1,33 @@
+package uni.pld.masters.metrics;
+
+import java.util.Map;
+
+/**
+ *
+ * JMX view of {@link OperationMetrics}. Every getter takes a new snapshot, so the values of different attributes could be from different moments.
+ *
+ * @author nstoilov
+ *
+ */
+public interface OperationMetricsMXBean {
+
+    long getCount();
+
+    double getMeanNanos();
+
+    long getMaxNanos();
+
+    long getMedianNanos();
+
+    long getPercentile99Nanos();
+
+    long getPercentile999Nanos();
+
+    /**
+     * @return The count of every outcome by the name of the outcome
+     */
+    Map<String, Long> getOutcomes();
+
+    void reset();
+
+}
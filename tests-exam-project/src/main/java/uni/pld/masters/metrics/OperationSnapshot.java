@@ -0,0 +1,45 @@
+package uni.pld.masters.metrics;
+
+import java.util.Map;
+
+/**
+ *
+ * Immutable copy of {@link OperationMetrics} - the latencies and the count of every outcome of the operation.
+ *
+ * @author nstoilov
+ *
+ * @param <E> - the enum with the outcomes
+ */
+public class OperationSnapshot<E extends Enum<E>> {
+
+    private final String name;
+    private final HistogramSnapshot latency;
+    private final Map<E, Long> outcomes;
+
+    OperationSnapshot(String name, HistogramSnapshot latency, Map<E, Long> outcomes) {
+        this.name = name;
+        this.latency = latency;
+        this.outcomes = outcomes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return The count of every outcome in the order of the enum constants
+     */
+    public Map<E, Long> getOutcomes() {
+        return outcomes;
+    }
+
+    public long getOutcomeCount(E outcome) {
+        Long count = outcomes.get(outcome);
+        return count == null ? 0 : count;
+    }
+
+}
@@ -0,0 +1,66 @@
+package uni.pld.masters.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Counters of the outcomes of an operation, one for every constant of the outcome enum. The counters are {@link LongAdder}s, which are striped between
+ * the threads, so the threads counting the same outcome don't contend on one memory location.
+ *
+ * @author nstoilov
+ *
+ * @param <E> - the enum with the outcomes
+ */
+public class OutcomeCounters<E extends Enum<E>> {
+
+    private final Class<E> outcomeType;
+    private final LongAdder[] counters;
+
+    public OutcomeCounters(Class<E> outcomeType) {
+        this.outcomeType = outcomeType;
+        this.counters = new LongAdder[outcomeType.getEnumConstants().length];
+        for (int index = 0; index < counters.length; index++) {
+            counters[index] = new LongAdder();
+        }
+    }
+
+    public void increment(E outcome) {
+        counters[outcome.ordinal()].increment();
+    }
+
+    /**
+     * Adds the counts of other counters with the same outcome enum to these counters.
+     *
+     * @param other - Mandatory parameter. The counters, which are not changed
+     */
+    public void add(OutcomeCounters<E> other) {
+        for (int index = 0; index < counters.length; index++) {
+            counters[index].add(other.counters[index].sum());
+        }
+    }
+
+    public long get(E outcome) {
+        return counters[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @return The count of every outcome in the order of the enum constants
+     */
+    public Map<E, Long> getSnapshot() {
+        Map<E, Long> snapshot = new EnumMap<>(outcomeType);
+        for (E outcome : outcomeType.getEnumConstants()) {
+            snapshot.put(outcome, counters[outcome.ordinal()].sum());
+        }
+
+        return snapshot;
+    }
+
+    public void reset() {
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package uni.pld.masters.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 
+ * Read only view of {@link MovieProjection}, which already started and was moved to the archive. Used for reports.
+ * 
+ * @author nstoilov
+ *
+ */
+public class ArchivedProjection {
+
+    private final long id;
+    private final String movieName;
+    private final LocalDateTime projectionStartTime;
+    private final long[] takenSeatsMask;
+
+    public ArchivedProjection(long id, String movieName, LocalDateTime projectionStartTime, long[] takenSeatsMask) {
+        this.id = id;
+        this.movieName = movieName;
+        this.projectionStartTime = projectionStartTime;
+        this.takenSeatsMask = takenSeatsMask;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMovieName() {
+        return movieName;
+    }
+
+    public LocalDateTime getProjectionStartTime() {
+        return projectionStartTime;
+    }
+
+    public boolean isSeatTaken(int seatNumber) {
+        int bit = seatNumber - 1;
+        if (bit < 0 || bit >= takenSeatsMask.length * Long.SIZE) {
+            return false;
+        }
+
+        return (takenSeatsMask[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public int getTakenSeatsCount() {
+        int takenSeatsCount = 0;
+        for (long word : takenSeatsMask) {
+            takenSeatsCount += Long.bitCount(word);
+        }
+
+        return takenSeatsCount;
+    }
+
+}
@@ -0,0 +1,355 @@
+package uni.pld.masters.model;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * Immutable layout of a cinema hall - rows of seats with gaps(aisles) between them and category of every seat. One layout is shared by all projections in
+ * the hall, the projections keep only bitmaps with the state of the seats.
+ * 
+ * The seats are numbered from 1, row by row and from left to right, the gaps are not numbered. Every row is described with a pattern, in which every
+ * character is one position in the row - {@linkplain #GAP} for a gap or the code of {@link SeatCategory} for a seat, for example "SSSS_PPPP_SSSS".
+ * 
+ * The layout keeps only primitive arrays with one entry per seat or per row, so it is cheap also for halls with thousands of seats.
+ * 
+ * {@linkplain #findBestBlock(long[], int)} finds free adjacent seats by scanning the seat bitmaps word by word. Seats are adjacent when they are in the
+ * same row without a gap between them, the first seat of every row and every seat after a gap are marked in a bitmap, so the blocks of adjacent seats
+ * are found with the same word scanning.
+ * 
+ * @author nstoilov
+ *
+ */
+public final class HallLayout {
+
+    public static final char GAP = '_';
+
+    private static final int ROW_DISTANCE_WEIGHT = 2;
+
+    /**
+     * The layout with one row of {@value MovieProjection#SEATS_COUNT} standard seats, which is used when the projection is created without layout.
+     */
+    public static final HallLayout DEFAULT = rectangular("Default", 1, MovieProjection.SEATS_COUNT);
+
+    private final String name;
+    private final int[] rowStarts;
+    private final short[] columns;
+    private final byte[] categories;
+    private final long[] blockStarts;
+
+    private HallLayout(String name, int[] rowStarts, short[] columns, byte[] categories) {
+        this.name = name;
+        this.rowStarts = rowStarts;
+        this.columns = columns;
+        this.categories = categories;
+        this.blockStarts = new long[getSeatsWordsCount()];
+
+        for (int row = 0; row < getRowsCount(); row++) {
+            for (int index = rowStarts[row]; index < rowStarts[row + 1]; index++) {
+                if (index == rowStarts[row] || columns[index] != columns[index - 1] + 1) {
+                    blockStarts[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates layout with the same number of standard seats in every row and without gaps.
+     * 
+     * @param name - unique name of the layout
+     * @param rowsCount - number of the rows
+     * @param seatsPerRow - number of the seats in every row
+     * @return The layout
+     */
+    public static HallLayout rectangular(String name, int rowsCount, int seatsPerRow) {
+        char[] pattern = new char[seatsPerRow];
+        Arrays.fill(pattern, SeatCategory.STANDARD.getCode());
+
+        return builder(name).addRows(rowsCount, new String(pattern))
+                .build();
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSeatsCount() {
+        return columns.length;
+    }
+
+    public int getRowsCount() {
+        return rowStarts.length - 1;
+    }
+
+    /**
+     * @param row - index of the row, from 0
+     * @return Number of the first seat in the row
+     */
+    public int getFirstSeatNumber(int row) {
+        return rowStarts[row] + 1;
+    }
+
+    /**
+     * @param row - index of the row, from 0
+     * @return Number of the seats in the row
+     */
+    public int getRowSeatsCount(int row) {
+        return rowStarts[row + 1] - rowStarts[row];
+    }
+
+    /**
+     * @param seatNumber - number of the seat
+     * @return true if there is such seat in the hall
+     */
+    public boolean isValidSeatNumber(int seatNumber) {
+        return seatNumber >= 1 && seatNumber <= columns.length;
+    }
+
+    /**
+     * @param seatNumber - number of the seat
+     * @return Index of the row of the seat, from 0
+     */
+    public int getRow(int seatNumber) {
+        int index = Arrays.binarySearch(rowStarts, seatNumber - 1);
+
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @param seatNumber - number of the seat
+     * @return Position of the seat in its row, from 0 and counting also the gaps
+     */
+    public int getColumn(int seatNumber) {
+        return columns[seatNumber - 1];
+    }
+
+    public SeatCategory getCategory(int seatNumber) {
+        return SeatCategory.values()[categories[seatNumber - 1]];
+    }
+
+    /**
+     * @return Number of the bitmap words needed for the seats of the layout
+     */
+    public int getSeatsWordsCount() {
+        return (columns.length + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Finds the best block of free adjacent seats. The best block is the one closest to the middle of the hall - the distance to the middle row is weighted
+     * more than the distance to the middle of the row.
+     * 
+     * The rows are visited from the middle of the hall and the search stops when the distance to the middle row is bigger than the distance of the best
+     * block found till then. In every row only the runs of free seats are visited, they are found by scanning the bitmap words, so the time depends on the
+     * number of the runs and not on the number of the seats.
+     * 
+     * @param takenSeats - bitmap of the taken seats, bit (seatNumber - 1) is set for taken seat, the missing words are treated as free seats
+     * @param seatsCount - number of the needed seats
+     * @return Number of the first seat of the block or 0 if there is no such block
+     */
+    public int findBestBlock(long[] takenSeats, int seatsCount) {
+        if (seatsCount < 1) {
+            return 0;
+        }
+
+        int bestSeatIndex = -1;
+        long bestScore = Long.MAX_VALUE;
+        int lowerRow = (getRowsCount() - 1) / 2;
+        int upperRow = getRowsCount() / 2;
+        while (lowerRow >= 0) {
+            long rowScore = (long) (upperRow - lowerRow) * ROW_DISTANCE_WEIGHT;
+            if (rowScore >= bestScore) {
+                break;
+            }
+
+            for (int row = lowerRow; row <= upperRow; row += Math.max(upperRow - lowerRow, 1)) {
+                int rowCenter = columns[rowStarts[row]] + columns[rowStarts[row + 1] - 1];
+                int rowEnd = rowStarts[row + 1];
+                int runStart = nextFreeSeat(takenSeats, rowStarts[row], rowEnd);
+                while (runStart < rowEnd) {
+                    int runEnd = Math.min(nextTakenSeat(takenSeats, runStart + 1, rowEnd), nextBlockStart(runStart + 1, rowEnd));
+                    if (runEnd - runStart >= seatsCount) {
+                        int runColumn = columns[runStart];
+                        int column = Math.max(runColumn, Math.min((rowCenter - seatsCount + 1) / 2, runColumn + runEnd - runStart - seatsCount));
+                        long score = rowScore + Math.abs(2 * column + seatsCount - 1 - rowCenter);
+
+                        if (score < bestScore) {
+                            bestScore = score;
+                            bestSeatIndex = runStart + column - runColumn;
+                        }
+                    }
+
+                    runStart = nextFreeSeat(takenSeats, runEnd, rowEnd);
+                }
+            }
+
+            lowerRow--;
+            upperRow++;
+        }
+
+        return bestSeatIndex + 1;
+    }
+
+    /**
+     * @return Index of the first free seat from the given index or the end index if there is no such seat before it
+     */
+    private static int nextFreeSeat(long[] takenSeats, int fromIndex, int toIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= takenSeats.length) {
+            return Math.min(fromIndex, toIndex);
+        }
+
+        long word = ~takenSeats[wordIndex] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == takenSeats.length || wordIndex * Long.SIZE >= toIndex) {
+                return Math.min(wordIndex * Long.SIZE, toIndex);
+            }
+            word = ~takenSeats[wordIndex];
+        }
+
+        return Math.min(wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word), toIndex);
+    }
+
+    /**
+     * @return Index of the first taken seat from the given index or the end index if there is no such seat before it
+     */
+    private static int nextTakenSeat(long[] takenSeats, int fromIndex, int toIndex) {
+        return nextSetBit(takenSeats, fromIndex, toIndex);
+    }
+
+    /**
+     * @return Index of the first seat of a block of adjacent seats from the given index or the end index if there is no such seat before it
+     */
+    private int nextBlockStart(int fromIndex, int toIndex) {
+        return nextSetBit(blockStarts, fromIndex, toIndex);
+    }
+
+    private static int nextSetBit(long[] words, int fromIndex, int toIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= words.length || fromIndex >= toIndex) {
+            return toIndex;
+        }
+
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == words.length || wordIndex * Long.SIZE >= toIndex) {
+                return toIndex;
+            }
+            word = words[wordIndex];
+        }
+
+        return Math.min(wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word), toIndex);
+    }
+
+    /**
+     * The layouts are equal when they have the same name, rows, seat positions and categories, e.g. the same layout built again from the configuration.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof HallLayout)) {
+            return false;
+        }
+
+        HallLayout otherLayout = (HallLayout) other;
+        return name.equals(otherLayout.name) && Arrays.equals(rowStarts, otherLayout.rowStarts) && Arrays.equals(columns, otherLayout.columns)
+                && Arrays.equals(categories, otherLayout.categories);
+    }
+
+    @Override
+    public int hashCode() {
+        return (name.hashCode() * 31 + Arrays.hashCode(rowStarts)) * 31 + Arrays.hashCode(columns);
+    }
+
+    /**
+     * Builder for {@link HallLayout}, the rows are added from the first to the last one.
+     */
+    public static final class Builder {
+
+        private final String name;
+        private final StringBuilder seats = new StringBuilder();
+        private int[] rowStarts = new int[] { 0 };
+        private short[] columns = new short[0];
+
+        private Builder(String name) {
+            if (name == null) {
+                throw new IllegalArgumentException("Layout name mustn`t be null");
+            }
+
+            this.name = name;
+        }
+
+        /**
+         * @param pattern - the row pattern, {@linkplain HallLayout#GAP} for a gap or the code of {@link SeatCategory} for a seat
+         * @return This builder
+         */
+        public Builder addRow(String pattern) {
+            if (pattern.length() > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Row is too long: " + pattern.length());
+            }
+
+            int rowStart = seats.length();
+            for (int column = 0; column < pattern.length(); column++) {
+                char code = pattern.charAt(column);
+                if (code == GAP) {
+                    continue;
+                }
+
+                SeatCategory category = SeatCategory.forCode(code);
+                if (category == null) {
+                    throw new IllegalArgumentException("Unknown seat code: " + code);
+                }
+
+                if (seats.length() == columns.length) {
+                    columns = Arrays.copyOf(columns, Math.max(16, columns.length * 2));
+                }
+                columns[seats.length()] = (short) column;
+                seats.append((char) category.ordinal());
+            }
+
+            if (rowStart == seats.length()) {
+                throw new IllegalArgumentException("Row without seats");
+            }
+
+            rowStarts = Arrays.copyOf(rowStarts, rowStarts.length + 1);
+            rowStarts[rowStarts.length - 1] = seats.length();
+
+            return this;
+        }
+
+        /**
+         * Adds many rows with the same pattern.
+         * 
+         * @param rowsCount - number of the rows
+         * @param pattern - the row pattern, the same as for {@linkplain #addRow(String)}
+         * @return This builder
+         */
+        public Builder addRows(int rowsCount, String pattern) {
+            for (int row = 0; row < rowsCount; row++) {
+                addRow(pattern);
+            }
+
+            return this;
+        }
+
+        public HallLayout build() {
+            if (seats.length() == 0) {
+                throw new IllegalArgumentException("Layout without seats");
+            }
+
+            byte[] categories = new byte[seats.length()];
+            for (int index = 0; index < categories.length; index++) {
+                categories[index] = (byte) seats.charAt(index);
+            }
+
+            return new HallLayout(name, rowStarts.clone(), Arrays.copyOf(columns, seats.length()), categories);
+        }
+
+    }
+
+}
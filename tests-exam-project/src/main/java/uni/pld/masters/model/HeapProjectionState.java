@@ -0,0 +1,113 @@
+package uni.pld.masters.model;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * {@link ProjectionState} kept in objects on the heap, the seat bitmaps are {@link AtomicLongArray}s. Used by the projections created with the
+ * constructors of {@link MovieProjection}.
+ *
+ * @author nstoilov
+ *
+ */
+final class HeapProjectionState extends ProjectionState {
+
+    private volatile long id;
+    private volatile Movie movie;
+    private volatile LocalDateTime startTime;
+    private final AtomicLongArray takenSeats;
+    private final AtomicLongArray heldSeats;
+    private final AtomicInteger freeSeatsCount;
+    private final AtomicLong changesStarted = new AtomicLong();
+    private final AtomicLong changesFinished = new AtomicLong();
+
+    HeapProjectionState(HallLayout layout) {
+        this.takenSeats = new AtomicLongArray(layout.getSeatsWordsCount());
+        this.heldSeats = new AtomicLongArray(layout.getSeatsWordsCount());
+        this.freeSeatsCount = new AtomicInteger(layout.getSeatsCount());
+    }
+
+    @Override
+    long getId() {
+        return id;
+    }
+
+    @Override
+    void setId(long id) {
+        this.id = id;
+    }
+
+    @Override
+    Movie getMovie() {
+        return movie;
+    }
+
+    @Override
+    void setMovie(Movie movie) {
+        this.movie = movie;
+    }
+
+    @Override
+    LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    @Override
+    long getTakenWord(int wordIndex) {
+        return takenSeats.get(wordIndex);
+    }
+
+    @Override
+    boolean compareAndSetTakenWord(int wordIndex, long expectedWord, long newWord) {
+        return takenSeats.compareAndSet(wordIndex, expectedWord, newWord);
+    }
+
+    @Override
+    long getHeldWord(int wordIndex) {
+        return heldSeats.get(wordIndex);
+    }
+
+    @Override
+    boolean compareAndSetHeldWord(int wordIndex, long expectedWord, long newWord) {
+        return heldSeats.compareAndSet(wordIndex, expectedWord, newWord);
+    }
+
+    @Override
+    int getFreeSeatsCount() {
+        return freeSeatsCount.get();
+    }
+
+    @Override
+    int addFreeSeatsCount(int delta) {
+        return freeSeatsCount.addAndGet(delta);
+    }
+
+    @Override
+    void startChange() {
+        changesStarted.incrementAndGet();
+    }
+
+    @Override
+    void finishChange() {
+        changesFinished.incrementAndGet();
+    }
+
+    @Override
+    long getChangesStarted() {
+        return changesStarted.get();
+    }
+
+    @Override
+    long getChangesFinished() {
+        return changesFinished.get();
+    }
+
+}
@@ -3,14 +3,44 @@ package uni.pld.masters.model;
 /**
  * Class that represent a movie
  * 
+ * The movies created with {@link MovieCatalog} are canonical - they have id, which is unique in the catalog, and they can't be changed. The movies created
+ * with the constructor have id 0 and they are matched with the canonical movies by name.
+ * 
  * @author nstoilov
  *
  */
 public class Movie {
 
+    private final int id;
+    private final MovieCatalog catalog;
     private String name;
 
+    public Movie() {
+        this.id = 0;
+        this.catalog = null;
+    }
+
+    Movie(int id, String name, MovieCatalog catalog) {
+        this.id = id;
+        this.name = name;
+        this.catalog = catalog;
+    }
+
+    /**
+     * @return The id of the movie in its catalog or 0 if the movie is not canonical
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the movie is canonical
+     */
     public void setName(String name) {
+        if (catalog != null) {
+            throw new UnsupportedOperationException("Canonical movie can't be changed");
+        }
+
         this.name = name;
     }
 
@@ -18,4 +48,30 @@ public class Movie {
         return name;
     }
 
+    MovieCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * The movies are equal when they have the same name.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof Movie)) {
+            return false;
+        }
+
+        String otherName = ((Movie) other).name;
+        return name == null ? otherName == null : name.equals(otherName);
+    }
+
+    @Override
+    public int hashCode() {
+        return name == null ? 0 : name.hashCode();
+    }
+
 }
@@ -0,0 +1,90 @@
+package uni.pld.masters.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 
+ * Catalog, which gives every distinct movie name a stable int id and one canonical {@link Movie}. The ids start from 1 and have no gaps, so the structures
+ * keeping data per movie could be arrays indexed by the id.
+ * 
+ * The canonical movie of the catalog is resolved to its id without reading the name, the other movies are looked up by name once.
+ * 
+ * @author nstoilov
+ *
+ */
+public class MovieCatalog {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Movie> moviesByName = new ConcurrentHashMap<>();
+    private volatile Movie[] moviesById = new Movie[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the canonical movie for the name and adds it to the catalog if it is not there.
+     * 
+     * @param name - Mandatory parameter. The name of the movie
+     * @return The canonical movie
+     */
+    public Movie getOrAdd(String name) {
+        Movie movie = moviesByName.get(name);
+        if (movie != null) {
+            return movie;
+        }
+
+        synchronized (this) {
+            movie = moviesByName.get(name);
+            if (movie == null) {
+                movie = new Movie(size + 1, name, this);
+                Movie[] movies = moviesById;
+                if (movie.getId() == movies.length) {
+                    movies = Arrays.copyOf(movies, movies.length * 2);
+                }
+                movies[movie.getId()] = movie;
+                moviesById = movies;
+                size++;
+                moviesByName.put(name, movie);
+            }
+
+            return movie;
+        }
+    }
+
+    /**
+     * @param name - the name of the movie
+     * @return The canonical movie or null if there is no movie with this name
+     */
+    public Movie get(String name) {
+        return name == null ? null : moviesByName.get(name);
+    }
+
+    /**
+     * @param id - the id of the movie
+     * @return The canonical movie or null if there is no movie with this id
+     */
+    public Movie get(int id) {
+        Movie[] movies = moviesById;
+
+        return id > 0 && id < movies.length ? movies[id] : null;
+    }
+
+    /**
+     * @param movie - canonical movie of this catalog or other movie with the same name
+     * @return The id of the movie or 0 if the movie is not in the catalog
+     */
+    public int getId(Movie movie) {
+        if (movie.getCatalog() == this) {
+            return movie.getId();
+        }
+
+        Movie canonicalMovie = get(movie.getName());
+        return canonicalMovie == null ? 0 : canonicalMovie.getId();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+}
@@ -1,60 +1,524 @@
 package uni.pld.masters.model;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 
- * Class that represents Movie projection, which is for {@link Movie}. Each movie projection has start time and 30 available seats in the beginning.
+ * Class that represents Movie projection, which is for {@link Movie}. Each movie projection has start time and the seats of its {@link HallLayout}, all
+ * available in the beginning. The projections created without layout have {@linkplain HallLayout#DEFAULT} with 30 seats.
+ * 
+ * The layout is shared between the projections, every projection keeps only the state of the seats. The data of the projection is stored in
+ * {@link ProjectionState} - in objects on the heap for the projections created with the constructors, or in a slot of {@link ProjectionInventory} for
+ * the projections returned by the inventory, which are views over the slot. The seats are kept as a bitmap - bit (seatNumber - 1) is set when the seat is taken. {@link Seat} objects are created only when
+ * {@linkplain #getSeats()} is called and they are views over the bitmap.
+ * 
+ * The seat operations are thread safe and lock free - every change of a seat is a compare-and-set on the word that holds the seat bit, so when many threads
+ * try to take the same seat at the same time only one of them succeeds.
+ * 
+ * The number of the free seats is kept in a counter, which is changed with every take and release, so it is read without counting the bits. The listener
+ * of the projection is notified for every change of the counter.
+ * 
+ * A taken seat could be also held - it is taken only till the hold is confirmed or expires. The held seats are kept in a second bitmap with the same format.
+ * 
+ * Consistent views of all seats are returned by {@linkplain #getSeatMap()} as immutable {@link SeatMapSnapshot}s. Every change of the seats counts the
+ * started and the finished changes, the snapshot is copied from the bitmaps only when no change was running during the copy. The copy is made by the first
+ * reader after a change and published for all next readers, so the changes don't copy the seats.
  * 
  * @author nstoilov
  *
  */
 public class MovieProjection {
 
-    private Movie movie;
-    private LocalDateTime projectionStartTime;
-    private List<Seat> seats = new ArrayList<>();
+    /**
+     * Number of the seats in {@linkplain HallLayout#DEFAULT}.
+     */
+    public static final int SEATS_COUNT = 30;
+
+    private static final int SEAT_MAP_COPY_ATTEMPTS = 16;
+
+    private final HallLayout layout;
+    private final ProjectionState state;
+    private final AtomicReference<SeatMapSnapshot> seatMap;
+    private volatile List<Seat> seats;
+    private volatile MovieProjectionListener listener;
 
     public MovieProjection() {
-        for (int index = 1; index <= 30; index++) {
-            Seat seat = new Seat((byte) index);
+        this(HallLayout.DEFAULT);
+    }
 
-            seats.add(seat);
-        }
+    /**
+     * @param layout - layout of the hall, in which the projection is
+     */
+    public MovieProjection(HallLayout layout) {
+        this(layout, new HeapProjectionState(layout));
+    }
+
+    /**
+     * @param layout - layout of the hall, in which the projection is
+     * @param state - the storage of the projection data for the layout
+     */
+    MovieProjection(HallLayout layout, ProjectionState state) {
+        this(layout, state, SeatMapSnapshot.empty(layout));
+    }
+
+    /**
+     * @param layout - layout of the hall, in which the projection is
+     * @param state - the storage of the projection data for the layout
+     * @param emptySeatMap - snapshot with all seats free, version 0 and no changes, it could be shared by many projections
+     */
+    MovieProjection(HallLayout layout, ProjectionState state, SeatMapSnapshot emptySeatMap) {
+        this.layout = layout;
+        this.state = state;
+        this.seatMap = new AtomicReference<>(emptySeatMap);
+    }
+
+    public void setId(long id) {
+        state.setId(id);
+    }
+
+    public long getId() {
+        return state.getId();
     }
 
     public void setMovie(Movie movie) {
-        this.movie = movie;
+        state.setMovie(movie);
     }
 
     public Movie getMovie() {
-        return movie;
+        return state.getMovie();
     }
 
     public void setProjectionStartTime(LocalDateTime projectionStartTime) {
-        this.projectionStartTime = projectionStartTime;
+        LocalDateTime oldStartTime = state.getStartTime();
+        state.setStartTime(projectionStartTime);
+
+        MovieProjectionListener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.projectionStartTimeChanged(this, oldStartTime);
+        }
     }
 
     public LocalDateTime getProjectionStartTime() {
-        return projectionStartTime;
+        return state.getStartTime();
+    }
+
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Sets the listener, which will be notified for the changes of the projection.
+     * 
+     * @param listener - the listener or null to remove the current one
+     */
+    public void setListener(MovieProjectionListener listener) {
+        this.listener = listener;
     }
 
+    /**
+     * Returns unmodifiable list with all seats for the projection. The list is created on the first call and the {@link Seat} objects in it always show
+     * the current state of the seats, for consistent view of the seats use {@linkplain #getSeatMap()}.
+     * 
+     * @return All seats for the projection
+     */
     public List<Seat> getSeats() {
-        return new ArrayList<>(seats);
+        if (seats == null) {
+            Seat[] seatViews = new Seat[layout.getSeatsCount()];
+            for (int index = 0; index < seatViews.length; index++) {
+                seatViews[index] = new Seat(index + 1, this);
+            }
+
+            seats = Collections.unmodifiableList(Arrays.asList(seatViews));
+        }
+
+        return seats;
     }
 
-    public void takeSeat(byte seatNumber) {
-        Optional<Seat> seat = seats.stream()
-                .filter(s -> s.getNumber() == seatNumber)
-                .findFirst();
+    public void takeSeat(int seatNumber) {
+        tryTakeSeat(seatNumber);
+    }
+
+    /**
+     * Atomically takes the seat if it is free.
+     * 
+     * @param seatNumber - number of the seat(from 1 to the seats count of the layout)
+     * @return true if the seat was free and now is taken by this call, false if the seat was already taken or there is no such seat
+     */
+    public boolean tryTakeSeat(int seatNumber) {
+        state.startChange();
+        try {
+            if (!isValidSeatNumber(seatNumber)) {
+                return false;
+            }
+
+            int bit = seatNumber - 1;
+            int wordIndex = bit >>> 6;
+            long mask = 1L << bit;
+            while (true) {
+                long word = state.getTakenWord(wordIndex);
+                if ((word & mask) != 0) {
+                    return false;
+                }
 
-        if (seat.isPresent()) {
-            seat.get()
-                    .setTaken(true);
+                if (state.compareAndSetTakenWord(wordIndex, word, word | mask)) {
+                    changeFreeSeatsCount(-1);
+                    return true;
+                }
+            }
+        } finally {
+            state.finishChange();
         }
     }
 
+    /**
+     * Atomically takes all seats from the mask or none of them. The mask is applied with one compare-and-set per word, if some seat is already taken the
+     * words taken till then are released.
+     * 
+     * @param seatsMask - seats mask created with {@linkplain #toSeatsMask(Collection)}
+     * @return true if all seats were free and now are taken by this call, false if nothing was taken or some seat is not in the layout
+     */
+    public boolean tryTakeSeats(long[] seatsMask) {
+        state.startChange();
+        try {
+            if (!isInLayout(seatsMask)) {
+                return false;
+            }
+
+            for (int wordIndex = 0; wordIndex < seatsMask.length; wordIndex++) {
+                long mask = seatsMask[wordIndex];
+                if (mask == 0) {
+                    continue;
+                }
+
+                while (true) {
+                    long word = state.getTakenWord(wordIndex);
+                    if ((word & mask) != 0) {
+                        releaseSeats(seatsMask, wordIndex);
+                        return false;
+                    }
+
+                    if (state.compareAndSetTakenWord(wordIndex, word, word | mask)) {
+                        changeFreeSeatsCount(-Long.bitCount(mask));
+                        break;
+                    }
+                }
+            }
+
+            return true;
+        } finally {
+            state.finishChange();
+        }
+    }
+
+    /**
+     * Atomically takes the free seats from the mask and leaves the taken ones, with one compare-and-set per word.
+     * 
+     * @param seatsMask - seats mask created with {@linkplain #toSeatsMask(Collection)}
+     * @return Mask of the seats, which were free and now are taken by this call, the seats not in the layout are never taken
+     */
+    public long[] takeFreeSeats(long[] seatsMask) {
+        state.startChange();
+        try {
+            long[] takenByCall = new long[seatsMask.length];
+            for (int wordIndex = 0; wordIndex < seatsMask.length; wordIndex++) {
+                long mask = seatsMask[wordIndex] & getLayoutWord(wordIndex);
+                while (mask != 0) {
+                    long word = state.getTakenWord(wordIndex);
+                    long freeSeats = mask & ~word;
+                    if (freeSeats == 0 || state.compareAndSetTakenWord(wordIndex, word, word | freeSeats)) {
+                        takenByCall[wordIndex] = freeSeats;
+                        changeFreeSeatsCount(-Long.bitCount(freeSeats));
+                        break;
+                    }
+                }
+            }
+
+            return takenByCall;
+        } finally {
+            state.finishChange();
+        }
+    }
+
+    /**
+     * Releases all seats from the mask.
+     * 
+     * @param seatsMask - seats mask created with {@linkplain #toSeatsMask(Collection)}
+     */
+    public void releaseSeats(long[] seatsMask) {
+        state.startChange();
+        try {
+            releaseSeats(seatsMask, Math.min(seatsMask.length, layout.getSeatsWordsCount()));
+        } finally {
+            state.finishChange();
+        }
+    }
+
+    public void releaseSeat(int seatNumber) {
+        state.startChange();
+        try {
+            if (!isValidSeatNumber(seatNumber)) {
+                return;
+            }
+
+            int bit = seatNumber - 1;
+            int wordIndex = bit >>> 6;
+            long mask = 1L << bit;
+            while (true) {
+                long word = state.getTakenWord(wordIndex);
+                if ((word & mask) == 0) {
+                    return;
+                }
+
+                if (state.compareAndSetTakenWord(wordIndex, word, word & ~mask)) {
+                    changeFreeSeatsCount(1);
+                    return;
+                }
+            }
+        } finally {
+            state.finishChange();
+        }
+    }
+
+    /**
+     * @param seatNumber - number of the seat(from 1 to the seats count of the layout)
+     * @return true if the seat is taken, false if it is free or there is no such seat in the projection
+     */
+    public boolean isSeatTaken(int seatNumber) {
+        if (!isValidSeatNumber(seatNumber)) {
+            return false;
+        }
+
+        int bit = seatNumber - 1;
+        return (state.getTakenWord(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * @param seatNumber - number of the seat(from 1 to the seats count of the layout)
+     * @return true if the seat is taken by a hold, which is not confirmed yet
+     */
+    public boolean isSeatHeld(int seatNumber) {
+        if (!isValidSeatNumber(seatNumber)) {
+            return false;
+        }
+
+        int bit = seatNumber - 1;
+        return (state.getHeldWord(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Marks the seat as held or removes the mark. The mark doesn't change if the seat is taken - the seat should be taken before it is held and released
+     * after the hold mark is removed.
+     * 
+     * @param seatNumber - number of the seat(from 1 to the seats count of the layout)
+     * @param held - true to mark the seat as held, false to remove the mark
+     */
+    public void setSeatHeld(int seatNumber, boolean held) {
+        state.startChange();
+        try {
+            if (!isValidSeatNumber(seatNumber)) {
+                return;
+            }
+
+            int bit = seatNumber - 1;
+            int wordIndex = bit >>> 6;
+            long mask = 1L << bit;
+            while (true) {
+                long word = state.getHeldWord(wordIndex);
+                long newWord = held ? word | mask : word & ~mask;
+                if (word == newWord || state.compareAndSetHeldWord(wordIndex, word, newWord)) {
+                    return;
+                }
+            }
+        } finally {
+            state.finishChange();
+        }
+    }
+
+    /**
+     * @return Copy of the taken seats bitmap in the format of {@linkplain #toSeatsMask(Collection)}, every word is read atomically
+     */
+    public long[] getTakenSeatsMask() {
+        long[] seatsMask = new long[layout.getSeatsWordsCount()];
+        for (int index = 0; index < seatsMask.length; index++) {
+            seatsMask[index] = state.getTakenWord(index);
+        }
+
+        return seatsMask;
+    }
+
+    /**
+     * @return Copy of the taken seats bitmap without the held seats, in the format of {@linkplain #toSeatsMask(Collection)}
+     */
+    public long[] getReservedSeatsMask() {
+        long[] seatsMask = new long[layout.getSeatsWordsCount()];
+        for (int index = 0; index < seatsMask.length; index++) {
+            seatsMask[index] = state.getTakenWord(index) & ~state.getHeldWord(index);
+        }
+
+        return seatsMask;
+    }
+
+    public int getFreeSeatsCount() {
+        return state.getFreeSeatsCount();
+    }
+
+    /**
+     * Returns immutable snapshot of the seats. When the seats didn't change since the last snapshot, the last snapshot is returned without copying. If
+     * the seats change all the time, the last snapshot is returned after {@value #SEAT_MAP_COPY_ATTEMPTS} attempts to copy them, so the readers never wait
+     * for the writers.
+     * 
+     * @return The snapshot of the seats
+     */
+    public SeatMapSnapshot getSeatMap() {
+        for (int attempt = 0; attempt < SEAT_MAP_COPY_ATTEMPTS; attempt++) {
+            SeatMapSnapshot current = seatMap.get();
+            long finished = state.getChangesFinished();
+            if (current.getChangesCount() >= finished) {
+                return current;
+            }
+
+            if (state.getChangesStarted() != finished) {
+                Thread.yield();
+                continue;
+            }
+
+            long[] taken = new long[layout.getSeatsWordsCount()];
+            long[] held = new long[layout.getSeatsWordsCount()];
+            for (int index = 0; index < taken.length; index++) {
+                taken[index] = state.getTakenWord(index);
+                held[index] = state.getHeldWord(index);
+            }
+
+            if (state.getChangesStarted() != finished) {
+                continue;
+            }
+
+            long version = state.getSeatMapVersion(finished, current.getChangesCount(), current.getVersion(), current.hasSameSeats(taken, held));
+            if (version < 0) {
+                continue;
+            }
+
+            SeatMapSnapshot snapshot = new SeatMapSnapshot(layout, version, finished, taken, held);
+            if (seatMap.compareAndSet(current, snapshot)) {
+                return snapshot;
+            }
+        }
+
+        return seatMap.get();
+    }
+
+    /**
+     * @return The number of the finished changes of the seats, it grows with every change, also with a change that is reverted later
+     */
+    public long getChangesCount() {
+        return state.getChangesFinished();
+    }
+
+    /**
+     * @param knownVersion - version of the snapshot, which the reader already has
+     * @return The snapshot of the seats or null if its version is the known version
+     */
+    public SeatMapSnapshot getSeatMapIfChanged(long knownVersion) {
+        SeatMapSnapshot snapshot = getSeatMap();
+        return snapshot.getVersion() == knownVersion ? null : snapshot;
+    }
+
+    /**
+     * Creates seats mask, which could be used for taking many seats at once. The mask has as many words as needed for the biggest seat number, the seats
+     * are checked against the layout when the mask is used.
+     * 
+     * @param seatNumbers - numbers of the seats(from 1)
+     * @return The seats mask or null if some of the seat numbers is not valid
+     */
+    public static long[] toSeatsMask(Collection<? extends Number> seatNumbers) {
+        int maxSeatNumber = 0;
+        for (Number seatNumber : seatNumbers) {
+            if (seatNumber == null || seatNumber.intValue() < 1) {
+                return null;
+            }
+
+            maxSeatNumber = Math.max(maxSeatNumber, seatNumber.intValue());
+        }
+
+        long[] seatsMask = new long[(maxSeatNumber + Long.SIZE - 1) / Long.SIZE];
+        for (Number seatNumber : seatNumbers) {
+            int bit = seatNumber.intValue() - 1;
+            seatsMask[bit >>> 6] |= 1L << bit;
+        }
+
+        return seatsMask;
+    }
+
+    /**
+     * @param seatNumber - number of the seat(from 1)
+     * @return Seats mask with only the given seat or null if the seat number is not valid
+     */
+    public static long[] toSeatsMask(int seatNumber) {
+        if (seatNumber < 1) {
+            return null;
+        }
+
+        long[] seatsMask = new long[(seatNumber + Long.SIZE - 1) / Long.SIZE];
+        int bit = seatNumber - 1;
+        seatsMask[bit >>> 6] |= 1L << bit;
+
+        return seatsMask;
+    }
+
+    private void releaseSeats(long[] seatsMask, int wordsCount) {
+        for (int wordIndex = 0; wordIndex < wordsCount; wordIndex++) {
+            long mask = seatsMask[wordIndex];
+            while (mask != 0) {
+                long word = state.getTakenWord(wordIndex);
+                if (state.compareAndSetTakenWord(wordIndex, word, word & ~mask)) {
+                    changeFreeSeatsCount(Long.bitCount(word & mask));
+                    break;
+                }
+            }
+        }
+    }
+
+    private void changeFreeSeatsCount(int delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        int newCount = state.addFreeSeatsCount(delta);
+        MovieProjectionListener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.freeSeatsCountChanged(this, newCount - delta, newCount);
+        }
+    }
+
+    private boolean isValidSeatNumber(int seatNumber) {
+        return layout.isValidSeatNumber(seatNumber);
+    }
+
+    private boolean isInLayout(long[] seatsMask) {
+        for (int wordIndex = 0; wordIndex < seatsMask.length; wordIndex++) {
+            if ((seatsMask[wordIndex] & ~getLayoutWord(wordIndex)) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Bitmap word with set bits for the seats of the layout
+     */
+    private long getLayoutWord(int wordIndex) {
+        int seatsInWord = layout.getSeatsCount() - wordIndex * Long.SIZE;
+        if (seatsInWord <= 0) {
+            return 0L;
+        }
+
+        return seatsInWord >= Long.SIZE ? -1L : (1L << seatsInWord) - 1;
+    }
+
 }
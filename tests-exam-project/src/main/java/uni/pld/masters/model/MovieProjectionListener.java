@@ -0,0 +1,33 @@
+package uni.pld.masters.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 
+ * Listener, which is notified for changes of a {@link MovieProjection}. Used by the structures that keep the projections ordered or indexed, so they could
+ * be updated when the projection changes.
+ * 
+ * @author nstoilov
+ *
+ */
+public interface MovieProjectionListener {
+
+    /**
+     * Called after the start time of the projection is changed.
+     * 
+     * @param projection - the changed projection
+     * @param oldStartTime - the start time before the change
+     */
+    void projectionStartTimeChanged(MovieProjection projection, LocalDateTime oldStartTime);
+
+    /**
+     * Called after some seats of the projection are taken or released. It is called from the thread, which changed the seats, so it must be fast.
+     * 
+     * @param projection - the changed projection
+     * @param oldFreeSeatsCount - the number of the free seats before the change
+     * @param newFreeSeatsCount - the number of the free seats after the change
+     */
+    default void freeSeatsCountChanged(MovieProjection projection, int oldFreeSeatsCount, int newFreeSeatsCount) {
+    }
+
+}
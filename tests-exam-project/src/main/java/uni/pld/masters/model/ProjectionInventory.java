@@ -0,0 +1,540 @@
+package uni.pld.masters.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import uni.pld.masters.time.TimeSource;
+
+/**
+ *
+ * Off-heap store of {@link MovieProjection}s with the same {@link HallLayout}, for schedules with millions of projections. Every projection is one
+ * fixed-size slot in direct or memory-mapped {@link ByteBuffer}s - id, start time, changes counters, movie id, free seats count, seat map version and
+ * the taken and held seat bitmaps, 56 bytes plus 16 bytes per 64 seats. The heap usage of the inventory doesn't depend on the number of the
+ * projections, so the garbage collector doesn't trace them.
+ *
+ * The projections are read and changed through {@linkplain #get(int)}, which returns {@link MovieProjection} view over the slot. The view has the same
+ * operations as the heap projection and keeps no data, except its last {@link SeatMapSnapshot}. The views are flyweights - they are kept in a cache of
+ * {@value #VIEWS_CACHE_SIZE} views indexed by the slot, so the repeated calls for the same slot return the same view, till other slot with the same
+ * index takes its place. All views over one slot see the changes of each other and report the same seat map versions, because the version is kept in the
+ * slot, the seat objects of a view are only in that view. Every view gets the listener of the inventory, so the changes are reported also when the view,
+ * which made them, is not kept - the structures indexing the projections could keep their slots instead of the views.
+ *
+ * The movies are kept as ids of the {@link MovieCatalog} of the inventory and the start times as epoch millis in the scale of {@link TimeSource}, so
+ * the start times are stored with millisecond precision.
+ *
+ * Java 8 has no compare-and-set on {@link ByteBuffer} and {@code sun.misc.Unsafe} on the address of the buffer is not supported API, so the words of
+ * the slots are read and changed under one of {@value #LOCKS_COUNT} striped locks and the seat operations of the views are thread safe, but not lock
+ * free.
+ *
+ * The slots are split in segments of up to 1 GB, so the capacity is not limited by the size of one buffer. The inventory created with
+ * {@linkplain #map(Path, MovieCatalog, HallLayout, int)} keeps the slots in a file and is opened again with all its projections.
+ *
+ * @author nstoilov
+ *
+ */
+public final class ProjectionInventory implements Closeable {
+
+    /**
+     * Returned by {@linkplain #add(long, Movie, LocalDateTime)} when the inventory is full.
+     */
+    public static final int NO_SLOT = -1;
+
+    private static final int MAGIC = 0x50524f4a;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_POSITION = 0;
+    private static final int SLOT_SIZE_POSITION = 4;
+    private static final int SIZE_POSITION = 8;
+
+    private static final int ID_OFFSET = 0;
+    private static final int START_TIME_OFFSET = 8;
+    private static final int CHANGES_STARTED_OFFSET = 16;
+    private static final int CHANGES_FINISHED_OFFSET = 24;
+    private static final int MOVIE_ID_OFFSET = 32;
+    private static final int FREE_SEATS_OFFSET = 36;
+    private static final int SEAT_MAP_VERSION_OFFSET = 40;
+    private static final int SEAT_MAP_CHANGES_OFFSET = 48;
+    private static final int SEATS_OFFSET = 56;
+
+    private static final long NO_START_TIME = Long.MIN_VALUE;
+    private static final int MAX_SEGMENT_SIZE = 1 << 30;
+    private static final int LOCKS_COUNT = 256;
+    private static final int VIEWS_CACHE_SIZE = 1024;
+
+    private final MovieCatalog catalog;
+    private final HallLayout layout;
+    private final int slotSize;
+    private final int capacity;
+    private final int segmentShift;
+    private final ByteBuffer[] segments;
+    private final Object[] locks = new Object[LOCKS_COUNT];
+    private final FileChannel channel;
+    private final ByteBuffer header;
+    private final SeatMapSnapshot emptySeatMap;
+    private final AtomicReferenceArray<SlotState> views;
+    private volatile MovieProjectionListener listener;
+    private volatile int size;
+
+    private ProjectionInventory(MovieCatalog catalog, HallLayout layout, int capacity, FileChannel channel) throws IOException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity mustn`t be negative: " + capacity);
+        }
+
+        this.catalog = catalog;
+        this.layout = layout;
+        this.slotSize = getSlotSize(layout);
+        this.capacity = capacity;
+        this.segmentShift = 31 - Integer.numberOfLeadingZeros(MAX_SEGMENT_SIZE / slotSize);
+        this.channel = channel;
+        this.emptySeatMap = SeatMapSnapshot.empty(layout);
+        this.views = new AtomicReferenceArray<>(Math.min(VIEWS_CACHE_SIZE, Integer.highestOneBit(Math.max(capacity, 1))));
+        for (int index = 0; index < locks.length; index++) {
+            locks[index] = new Object();
+        }
+
+        int slotsPerSegment = 1 << segmentShift;
+        this.segments = new ByteBuffer[(capacity + slotsPerSegment - 1) >>> segmentShift];
+        for (int index = 0; index < segments.length; index++) {
+            int segmentSize = Math.min(slotsPerSegment, capacity - index * slotsPerSegment) * slotSize;
+            segments[index] = (channel == null ? ByteBuffer.allocateDirect(segmentSize)
+                    : channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + ((long) index << segmentShift) * slotSize, segmentSize))
+                            .order(ByteOrder.nativeOrder());
+        }
+
+        this.header = channel == null ? null
+                : channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE)
+                        .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates inventory in direct buffers, which are freed when the inventory is garbage collected.
+     *
+     * @param catalog - Mandatory parameter. The catalog of the movies of the projections
+     * @param layout - Mandatory parameter. The layout of all projections
+     * @param capacity - the maximum number of the projections
+     * @return The empty inventory
+     */
+    public static ProjectionInventory allocateDirect(MovieCatalog catalog, HallLayout layout, int capacity) {
+        try {
+            return new ProjectionInventory(catalog, layout, capacity, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Opens inventory kept in memory-mapped file. The file is created if it doesn't exist, otherwise its projections are in the inventory. The changes
+     * are written to the file by the operating system, {@linkplain #close()} writes them before it returns.
+     *
+     * @param file - Mandatory parameter. The inventory file
+     * @param catalog - Mandatory parameter. The catalog of the movies of the projections, must have the same movie ids as when the file was written
+     * @param layout - Mandatory parameter. The layout of all projections, must be the same as when the file was written
+     * @param capacity - the maximum number of the projections, not less than the projections in the file
+     * @return The inventory
+     * @throws IOException if the file can't be opened or it is not inventory for the layout and the capacity
+     */
+    public static ProjectionInventory map(Path file, MovieCatalog catalog, HallLayout layout, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean isNew = channel.size() == 0L;
+            if (!isNew) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .order(ByteOrder.nativeOrder());
+                int readBytes;
+                do {
+                    readBytes = channel.read(header, header.position());
+                } while (readBytes > 0 && header.hasRemaining());
+                if (header.hasRemaining() || header.getInt(MAGIC_POSITION) != MAGIC || header.getInt(SLOT_SIZE_POSITION) != getSlotSize(layout) || header
+                        .getInt(SIZE_POSITION) > capacity) {
+                    throw new IOException("Not a projection inventory for layout " + layout.getName() + " and capacity " + capacity + ": " + file);
+                }
+            }
+
+            ProjectionInventory inventory = new ProjectionInventory(catalog, layout, capacity, channel);
+            if (isNew) {
+                inventory.header.putInt(MAGIC_POSITION, MAGIC);
+                inventory.header.putInt(SLOT_SIZE_POSITION, inventory.slotSize);
+            }
+            inventory.size = inventory.header.getInt(SIZE_POSITION);
+
+            return inventory;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param layout - the layout of the projections
+     * @return The size in bytes of one slot
+     */
+    public static int getSlotSize(HallLayout layout) {
+        return SEATS_OFFSET + 2 * layout.getSeatsWordsCount() * Long.BYTES;
+    }
+
+    /**
+     * Adds projection with all seats free.
+     *
+     * @param projectionId - id of the projection
+     * @param movie - Mandatory parameter. The movie, it is added to the catalog of the inventory if it is not there
+     * @param startTime - Mandatory parameter. The start time of the projection
+     * @return The slot of the projection or {@linkplain #NO_SLOT} if the inventory is full
+     */
+    public synchronized int add(long projectionId, Movie movie, LocalDateTime startTime) {
+        int slot = size;
+        if (slot == capacity) {
+            return NO_SLOT;
+        }
+
+        ByteBuffer segment = getSegment(slot);
+        int offset = getOffset(slot);
+        synchronized (getLock(slot)) {
+            for (int position = offset; position < offset + slotSize; position += Long.BYTES) {
+                segment.putLong(position, 0L);
+            }
+            segment.putLong(offset + ID_OFFSET, projectionId);
+            segment.putLong(offset + START_TIME_OFFSET, TimeSource.toEpochMillis(startTime));
+            segment.putInt(offset + MOVIE_ID_OFFSET, catalog.getOrAdd(movie.getName())
+                    .getId());
+            segment.putInt(offset + FREE_SEATS_OFFSET, layout.getSeatsCount());
+        }
+
+        size = slot + 1;
+        if (header != null) {
+            header.putInt(SIZE_POSITION, size);
+        }
+
+        return slot;
+    }
+
+    /**
+     * @param slot - slot from 0 to {@linkplain #size()} - 1
+     * @return The cached view over the projection in the slot or new view, if the cache has other slot at its place
+     * @throws IndexOutOfBoundsException if there is no projection in the slot
+     */
+    public MovieProjection get(int slot) {
+        checkSlot(slot);
+
+        int index = slot & (views.length() - 1);
+        SlotState state = views.get(index);
+        if (state == null || state.slot != slot) {
+            state = new SlotState(slot);
+            views.set(index, state);
+        }
+
+        return state.view;
+    }
+
+    /**
+     * Reads the id without creating view, for scanning the inventory.
+     *
+     * @param slot - slot from 0 to {@linkplain #size()} - 1
+     * @return The id of the projection in the slot
+     */
+    public long getProjectionId(int slot) {
+        checkSlot(slot);
+        synchronized (getLock(slot)) {
+            return getSegment(slot).getLong(getOffset(slot) + ID_OFFSET);
+        }
+    }
+
+    /**
+     * Reads the start time without creating view, for scanning the inventory.
+     *
+     * @param slot - slot from 0 to {@linkplain #size()} - 1
+     * @return The start time in epoch millis of the projection in the slot
+     */
+    public long getStartTimeMillis(int slot) {
+        checkSlot(slot);
+        synchronized (getLock(slot)) {
+            return getSegment(slot).getLong(getOffset(slot) + START_TIME_OFFSET);
+        }
+    }
+
+    /**
+     * Reads the movie id without creating view, for scanning the inventory.
+     *
+     * @param slot - slot from 0 to {@linkplain #size()} - 1
+     * @return The id in the catalog of the inventory of the movie of the projection in the slot
+     */
+    public int getMovieId(int slot) {
+        checkSlot(slot);
+        synchronized (getLock(slot)) {
+            return getSegment(slot).getInt(getOffset(slot) + MOVIE_ID_OFFSET);
+        }
+    }
+
+    /**
+     * Reads the free seats count without creating view, for scanning the inventory.
+     *
+     * @param slot - slot from 0 to {@linkplain #size()} - 1
+     * @return The free seats count of the projection in the slot
+     */
+    public int getFreeSeatsCount(int slot) {
+        checkSlot(slot);
+        synchronized (getLock(slot)) {
+            return getSegment(slot).getInt(getOffset(slot) + FREE_SEATS_OFFSET);
+        }
+    }
+
+    /**
+     * @return The number of the projections
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return The catalog of the movies of the projections
+     */
+    public MovieCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Sets the listener of all views - the cached views and the views created later.
+     *
+     * @param listener - the listener or null to remove the current one
+     */
+    public void setListener(MovieProjectionListener listener) {
+        this.listener = listener;
+        for (int index = 0; index < views.length(); index++) {
+            SlotState state = views.get(index);
+            if (state != null) {
+                state.view.setListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes of the memory-mapped inventory to the file and closes it, the views mustn't be used after that. Does nothing for direct
+     * inventory.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        synchronized (this) {
+            for (ByteBuffer segment : segments) {
+                ((MappedByteBuffer) segment).force();
+            }
+            ((MappedByteBuffer) header).force();
+        }
+        channel.close();
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " of " + size + " projections");
+        }
+    }
+
+    private ByteBuffer getSegment(int slot) {
+        return segments[slot >>> segmentShift];
+    }
+
+    private int getOffset(int slot) {
+        return (slot & ((1 << segmentShift) - 1)) * slotSize;
+    }
+
+    private Object getLock(int slot) {
+        return locks[slot & (LOCKS_COUNT - 1)];
+    }
+
+    /**
+     * {@link ProjectionState} over one slot, every read and write is under the lock of the slot.
+     */
+    private final class SlotState extends ProjectionState {
+
+        private final int slot;
+        private final ByteBuffer segment;
+        private final int offset;
+        private final int heldSeatsOffset;
+        private final Object lock;
+        private final MovieProjection view;
+
+        SlotState(int slot) {
+            this.slot = slot;
+            this.segment = getSegment(slot);
+            this.offset = getOffset(slot);
+            this.heldSeatsOffset = offset + SEATS_OFFSET + layout.getSeatsWordsCount() * Long.BYTES;
+            this.lock = getLock(slot);
+            this.view = new MovieProjection(layout, this, emptySeatMap);
+            this.view.setListener(listener);
+        }
+
+        @Override
+        long getId() {
+            synchronized (lock) {
+                return segment.getLong(offset + ID_OFFSET);
+            }
+        }
+
+        @Override
+        void setId(long id) {
+            synchronized (lock) {
+                segment.putLong(offset + ID_OFFSET, id);
+            }
+        }
+
+        @Override
+        Movie getMovie() {
+            synchronized (lock) {
+                return catalog.get(segment.getInt(offset + MOVIE_ID_OFFSET));
+            }
+        }
+
+        @Override
+        void setMovie(Movie movie) {
+            int movieId = movie == null || movie.getName() == null ? 0 : catalog.getOrAdd(movie.getName())
+                    .getId();
+            synchronized (lock) {
+                segment.putInt(offset + MOVIE_ID_OFFSET, movieId);
+            }
+        }
+
+        @Override
+        LocalDateTime getStartTime() {
+            long startTimeMillis;
+            synchronized (lock) {
+                startTimeMillis = segment.getLong(offset + START_TIME_OFFSET);
+            }
+
+            return startTimeMillis == NO_START_TIME ? null : TimeSource.toLocalDateTime(startTimeMillis);
+        }
+
+        @Override
+        void setStartTime(LocalDateTime startTime) {
+            long startTimeMillis = startTime == null ? NO_START_TIME : TimeSource.toEpochMillis(startTime);
+            synchronized (lock) {
+                segment.putLong(offset + START_TIME_OFFSET, startTimeMillis);
+            }
+        }
+
+        @Override
+        long getTakenWord(int wordIndex) {
+            return getWord(offset + SEATS_OFFSET + wordIndex * Long.BYTES);
+        }
+
+        @Override
+        boolean compareAndSetTakenWord(int wordIndex, long expectedWord, long newWord) {
+            return compareAndSetWord(offset + SEATS_OFFSET + wordIndex * Long.BYTES, expectedWord, newWord);
+        }
+
+        @Override
+        long getHeldWord(int wordIndex) {
+            return getWord(heldSeatsOffset + wordIndex * Long.BYTES);
+        }
+
+        @Override
+        boolean compareAndSetHeldWord(int wordIndex, long expectedWord, long newWord) {
+            return compareAndSetWord(heldSeatsOffset + wordIndex * Long.BYTES, expectedWord, newWord);
+        }
+
+        @Override
+        int getFreeSeatsCount() {
+            synchronized (lock) {
+                return segment.getInt(offset + FREE_SEATS_OFFSET);
+            }
+        }
+
+        @Override
+        int addFreeSeatsCount(int delta) {
+            synchronized (lock) {
+                int freeSeatsCount = segment.getInt(offset + FREE_SEATS_OFFSET) + delta;
+                segment.putInt(offset + FREE_SEATS_OFFSET, freeSeatsCount);
+                return freeSeatsCount;
+            }
+        }
+
+        @Override
+        void startChange() {
+            incrementWord(offset + CHANGES_STARTED_OFFSET);
+        }
+
+        @Override
+        void finishChange() {
+            incrementWord(offset + CHANGES_FINISHED_OFFSET);
+        }
+
+        @Override
+        long getChangesStarted() {
+            return getWord(offset + CHANGES_STARTED_OFFSET);
+        }
+
+        @Override
+        long getChangesFinished() {
+            return getWord(offset + CHANGES_FINISHED_OFFSET);
+        }
+
+        /**
+         * The version in the slot is for the seats after the changes count in the slot. The seats of the view are compared with them only if the last
+         * snapshot of the view is for the same changes, otherwise the version grows without comparing.
+         */
+        @Override
+        long getSeatMapVersion(long changesCount, long knownChangesCount, long knownVersion, boolean sameSeats) {
+            synchronized (lock) {
+                long version = segment.getLong(offset + SEAT_MAP_VERSION_OFFSET);
+                long versionChangesCount = segment.getLong(offset + SEAT_MAP_CHANGES_OFFSET);
+                if (versionChangesCount == changesCount) {
+                    return version;
+                }
+                if (versionChangesCount > changesCount) {
+                    return -1L;
+                }
+
+                if (knownChangesCount != versionChangesCount || !sameSeats) {
+                    version++;
+                }
+                segment.putLong(offset + SEAT_MAP_VERSION_OFFSET, version);
+                segment.putLong(offset + SEAT_MAP_CHANGES_OFFSET, changesCount);
+
+                return version;
+            }
+        }
+
+        private long getWord(int position) {
+            synchronized (lock) {
+                return segment.getLong(position);
+            }
+        }
+
+        private boolean compareAndSetWord(int position, long expectedWord, long newWord) {
+            synchronized (lock) {
+                if (segment.getLong(position) != expectedWord) {
+                    return false;
+                }
+
+                segment.putLong(position, newWord);
+                return true;
+            }
+        }
+
+        private void incrementWord(int position) {
+            synchronized (lock) {
+                segment.putLong(position, segment.getLong(position) + 1);
+            }
+        }
+
+    }
+
+}
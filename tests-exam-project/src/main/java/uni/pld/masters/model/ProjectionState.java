@@ -0,0 +1,69 @@
+package uni.pld.masters.model;
+
+import java.time.LocalDateTime;
+
+/**
+ *
+ * Storage of the fields and the seat bitmaps of one {@link MovieProjection}. The projection keeps the logic - the seat operations, the snapshots and the
+ * listener, and reads and writes its data only through the state, so the same projection could be backed by objects on the heap or by a slot of
+ * {@link ProjectionInventory}.
+ *
+ * The seat words have the format of {@linkplain MovieProjection#toSeatsMask(java.util.Collection)} and every word is changed only with compare-and-set.
+ * The changes counters are kept in the state, so all projections over the same state see the changes of each other.
+ *
+ * @author nstoilov
+ *
+ */
+abstract class ProjectionState {
+
+    abstract long getId();
+
+    abstract void setId(long id);
+
+    abstract Movie getMovie();
+
+    abstract void setMovie(Movie movie);
+
+    abstract LocalDateTime getStartTime();
+
+    abstract void setStartTime(LocalDateTime startTime);
+
+    abstract long getTakenWord(int wordIndex);
+
+    abstract boolean compareAndSetTakenWord(int wordIndex, long expectedWord, long newWord);
+
+    abstract long getHeldWord(int wordIndex);
+
+    abstract boolean compareAndSetHeldWord(int wordIndex, long expectedWord, long newWord);
+
+    abstract int getFreeSeatsCount();
+
+    /**
+     * @return The free seats count after the change
+     */
+    abstract int addFreeSeatsCount(int delta);
+
+    abstract void startChange();
+
+    abstract void finishChange();
+
+    abstract long getChangesStarted();
+
+    abstract long getChangesFinished();
+
+    /**
+     * Returns the version of the seats copied after the given number of finished changes. The heap state has only one projection, so the version is
+     * computed from the last snapshot of the projection. The states shared by many projections override it and keep the last version, so all their
+     * projections report the same versions.
+     *
+     * @param changesCount - the number of the finished changes, after which the seats were copied
+     * @param knownChangesCount - the number of the finished changes of the last snapshot of the projection
+     * @param knownVersion - the version of the last snapshot of the projection
+     * @param sameSeats - true if the copied seats are the same as in the last snapshot of the projection
+     * @return The version of the copied seats or -1 if the seats were copied before a newer version, so they must be copied again
+     */
+    long getSeatMapVersion(long changesCount, long knownChangesCount, long knownVersion, boolean sameSeats) {
+        return sameSeats ? knownVersion : knownVersion + 1;
+    }
+
+}
@@ -4,28 +4,42 @@ package uni.pld.masters.model;
  * 
  * Class that represent a single Seat(place) for a {@link MovieProjection}. {@linkplain Seat} can be taken or free
  * 
+ * Seats returned from {@link MovieProjection#getSeats()} are views over the projection seats, so changing them changes the projection.
+ * 
  * @author nstoilov
  *
  */
 public class Seat {
 
-    private byte number;
+    private int number;
     private boolean taken;
+    private MovieProjection projection;
+
+    public Seat(int number) {
+        this.number = number;
+    }
 
-    public Seat(byte number) {
+    Seat(int number, MovieProjection projection) {
         this.number = number;
+        this.projection = projection;
     }
 
-    public byte getNumber() {
+    public int getNumber() {
         return number;
     }
 
     public void setTaken(boolean taken) {
-        this.taken = taken;
+        if (projection == null) {
+            this.taken = taken;
+        } else if (taken) {
+            projection.takeSeat(number);
+        } else {
+            projection.releaseSeat(number);
+        }
     }
 
     public boolean isTaken() {
-        return taken;
+        return projection == null ? taken : projection.isSeatTaken(number);
     }
 
 }
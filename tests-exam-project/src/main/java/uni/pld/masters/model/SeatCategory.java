@@ -0,0 +1,41 @@
+package uni.pld.masters.model;
+
+/**
+ * 
+ * Category of a seat in {@link HallLayout}. Every category has a code, which is used for it in the row patterns of the layout.
+ * 
+ * @author nstoilov
+ *
+ */
+public enum SeatCategory {
+
+    STANDARD('S'),
+    PREMIUM('P'),
+    VIP('V'),
+    ACCESSIBLE('A');
+
+    private final char code;
+
+    private SeatCategory(char code) {
+        this.code = code;
+    }
+
+    public char getCode() {
+        return code;
+    }
+
+    /**
+     * @param code - code of the category
+     * @return The category with the given code or null if there is no such category
+     */
+    public static SeatCategory forCode(char code) {
+        for (SeatCategory category : values()) {
+            if (category.code == code) {
+                return category;
+            }
+        }
+
+        return null;
+    }
+
+}
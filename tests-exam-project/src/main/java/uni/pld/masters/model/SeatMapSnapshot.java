@@ -0,0 +1,121 @@
+package uni.pld.masters.model;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Immutable state of all seats of a {@link MovieProjection} at one moment. The snapshots are returned by {@linkplain MovieProjection#getSeatMap()}, the
+ * same snapshot is shared by all readers till the seats change, so reading it doesn't copy anything.
+ *
+ * Every snapshot has a version, which grows by one with every snapshot of the projection with different seats. Readers could keep the last snapshot they
+ * showed and send only the seats from {@linkplain #getChangedSeatsMask(SeatMapSnapshot)}. The version of the projections of {@link ProjectionInventory} is
+ * kept in the slot, so all views over the slot report the same versions, there it could grow also for the same seats, when the view didn't see the
+ * previous version.
+ *
+ * @author nstoilov
+ *
+ */
+public class SeatMapSnapshot {
+
+    private final HallLayout layout;
+    private final long version;
+    private final long changesCount;
+    private final long[] takenSeats;
+    private final long[] heldSeats;
+    private final int freeSeatsCount;
+
+    /**
+     * @return Snapshot with all seats of the layout free, version 0 and no changes
+     */
+    static SeatMapSnapshot empty(HallLayout layout) {
+        return new SeatMapSnapshot(layout, 0L, 0L, new long[layout.getSeatsWordsCount()], new long[layout.getSeatsWordsCount()]);
+    }
+
+    SeatMapSnapshot(HallLayout layout, long version, long changesCount, long[] takenSeats, long[] heldSeats) {
+        this.layout = layout;
+        this.version = version;
+        this.changesCount = changesCount;
+        this.takenSeats = takenSeats;
+        this.heldSeats = heldSeats;
+
+        int takenSeatsCount = 0;
+        for (long word : takenSeats) {
+            takenSeatsCount += Long.bitCount(word);
+        }
+        this.freeSeatsCount = layout.getSeatsCount() - takenSeatsCount;
+    }
+
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return The version of the seats, 0 for a projection without changes
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getFreeSeatsCount() {
+        return freeSeatsCount;
+    }
+
+    /**
+     * @param seatNumber - number of the seat(from 1 to the seats count of the layout)
+     * @return true if the seat is taken, false if it is free or there is no such seat in the layout
+     */
+    public boolean isSeatTaken(int seatNumber) {
+        return isSet(takenSeats, seatNumber);
+    }
+
+    /**
+     * @param seatNumber - number of the seat(from 1 to the seats count of the layout)
+     * @return true if the seat is taken by a hold, which is not confirmed yet
+     */
+    public boolean isSeatHeld(int seatNumber) {
+        return isSet(heldSeats, seatNumber);
+    }
+
+    /**
+     * @return Copy of the taken seats bitmap in the format of {@linkplain MovieProjection#toSeatsMask(java.util.Collection)}
+     */
+    public long[] getTakenSeatsMask() {
+        return takenSeats.clone();
+    }
+
+    /**
+     * Returns the seats, which are taken, released, held or not held anymore since the older snapshot.
+     *
+     * @param older - Mandatory parameter. Older snapshot of the same projection
+     * @return Bitmap of the changed seats, empty if the seats are the same
+     */
+    public long[] getChangedSeatsMask(SeatMapSnapshot older) {
+        long[] changedSeats = new long[takenSeats.length];
+        for (int wordIndex = 0; wordIndex < changedSeats.length; wordIndex++) {
+            changedSeats[wordIndex] = (takenSeats[wordIndex] ^ older.takenSeats[wordIndex]) | (heldSeats[wordIndex] ^ older.heldSeats[wordIndex]);
+        }
+
+        return changedSeats;
+    }
+
+    /**
+     * @return The number of the finished changes of the projection, when the snapshot was taken
+     */
+    public long getChangesCount() {
+        return changesCount;
+    }
+
+    boolean hasSameSeats(long[] otherTakenSeats, long[] otherHeldSeats) {
+        return Arrays.equals(takenSeats, otherTakenSeats) && Arrays.equals(heldSeats, otherHeldSeats);
+    }
+
+    private boolean isSet(long[] seatsMask, int seatNumber) {
+        if (!layout.isValidSeatNumber(seatNumber)) {
+            return false;
+        }
+
+        int bit = seatNumber - 1;
+        return (seatsMask[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+}
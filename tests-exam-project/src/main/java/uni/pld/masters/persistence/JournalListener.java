@@ -0,0 +1,50 @@
+package uni.pld.masters.persistence;
+
+import uni.pld.masters.model.Viewer;
+
+/**
+ * 
+ * Listener, which receives the records of {@link ReservationJournal} in the order they were written, when the journal is replayed. It is used also for
+ * restoring {@link ScheduleSnapshot}.
+ * 
+ * The arrays given to the listener could be reused for the next records, so they mustn't be kept after the call.
+ * 
+ * @author nstoilov
+ *
+ */
+public interface JournalListener {
+
+    /**
+     * @param projectionId - id of the scheduled projection
+     * @param movieName - name of the movie
+     * @param layoutName - name of the hall layout of the projection or null for the records written before the layouts were added
+     * @param startTimeMillis - start time of the projection as epoch millis in the scale of {@link uni.pld.masters.time.TimeSource}
+     */
+    void projectionScheduled(long projectionId, String movieName, String layoutName, long startTimeMillis);
+
+    /**
+     * @param projectionIds - ids of the projections, in which the seats were reserved
+     * @param seatsMask - mask of the reserved seats
+     */
+    void seatsReserved(long[] projectionIds, long[] seatsMask);
+
+    /**
+     * The same as {@linkplain #seatsReserved(long[], long[])}, but with the viewers, who reserved the seats.
+     * 
+     * @param projectionIds - ids of the projections, in which the seats were reserved
+     * @param seatsMask - mask of the reserved seats
+     * @param viewers - one viewer, who reserved all seats, or the viewer of every seat in the order of the seat numbers, null for the records written
+     *            without viewers
+     */
+    default void seatsReserved(long[] projectionIds, long[] seatsMask, Viewer[] viewers) {
+        seatsReserved(projectionIds, seatsMask);
+    }
+
+    /**
+     * @param projectionIds - ids of the projections, in which the reserved seats were released
+     * @param seatsMask - mask of the released seats
+     */
+    default void seatsReleased(long[] projectionIds, long[] seatsMask) {
+    }
+
+}
@@ -0,0 +1,567 @@
+package uni.pld.masters.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import uni.pld.masters.model.Viewer;
+
+/**
+ * 
+ * Append only journal of the schedule and reservation events. Every record is written as [payload length][CRC32 of the payload][payload].
+ * 
+ * The records are appended to an in-memory buffer and written to the file by a single flusher thread. While the flusher writes and forces one batch, the
+ * next records are collected in the other buffer, so many concurrent writers share one fsync(group commit). {@linkplain #awaitDurable(long)} waits till the
+ * record is forced to the disk.
+ * 
+ * The positions of the records are counted from the first record ever written to the journal, also after the records before some position are removed
+ * with {@linkplain #compact(long)}. The compacted file starts with a record, which keeps the position of the file start, so the positions stay the same
+ * after the journal is opened again. {@link ScheduleSnapshot} keeps the position of the journal at the time it was written and the journal is replayed
+ * only after this position with {@linkplain #open(Path, JournalListener, long)}.
+ * 
+ * The reservation records end with the names of the viewers, who reserved the seats. The reservation records written before the viewers were added end
+ * after the projection ids, they are still replayed and the listener gets no viewers for them.
+ * 
+ * @author nstoilov
+ *
+ */
+public class ReservationJournal implements AutoCloseable {
+
+    private static final byte SCHEDULE_RECORD = 1;
+    private static final byte RESERVATION_RECORD = 2;
+    private static final byte RELEASE_RECORD = 3;
+    private static final byte START_RECORD = 4;
+    private static final int START_RECORD_PAYLOAD_SIZE = 1 + Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path journalFile;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordsAppended = lock.newCondition();
+    private final Condition recordsFlushed = lock.newCondition();
+    private final Condition compactionFinished = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+
+    private ByteBuffer activeBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer flushingBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private FileChannel channel;
+    private long filePosition;
+    private long appendedPosition;
+    private long durablePosition;
+    private IOException failure;
+    private boolean closed;
+    private boolean compacting;
+
+    private ReservationJournal(Path journalFile, FileChannel channel, long filePosition, long position) {
+        this.journalFile = journalFile;
+        this.channel = channel;
+        this.filePosition = filePosition;
+        this.appendedPosition = position;
+        this.durablePosition = position;
+        this.flusher = new Thread(this::flushLoop, "reservation-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Replays the journal file to the listener and opens it for appending. If the end of the file has incomplete or corrupted record(e.g. after crash during
+     * writing), it is cut off.
+     * 
+     * @param journalFile - the journal file, created if it doesn't exist
+     * @param listener - listener, which receives the records already in the file
+     * @return The opened journal
+     * @throws IOException if the file can't be read or opened
+     */
+    public static ReservationJournal open(Path journalFile, JournalListener listener) throws IOException {
+        return open(journalFile, listener, 0L);
+    }
+
+    /**
+     * The same as {@linkplain #open(Path, JournalListener)}, but only the records after the position are replayed.
+     * 
+     * @param journalFile - the journal file, created if it doesn't exist
+     * @param listener - listener, which receives the records already in the file after the position
+     * @param fromPosition - position returned by {@linkplain #getPosition()}, e.g. kept in {@link ScheduleSnapshot}
+     * @return The opened journal
+     * @throws IOException if the file can't be read or opened or the records after the position were removed with {@linkplain #compact(long)}
+     */
+    public static ReservationJournal open(Path journalFile, JournalListener listener, long fromPosition) throws IOException {
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long filePosition = readFilePosition(channel);
+            if (fromPosition < filePosition) {
+                throw new IOException("The journal is compacted after position " + fromPosition + ": " + journalFile);
+            }
+
+            long validLength = replay(channel, listener, fromPosition - filePosition);
+            channel.truncate(validLength);
+            channel.position(validLength);
+
+            return new ReservationJournal(journalFile, channel, filePosition, filePosition + validLength);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The position after the last appended record
+     */
+    public long getPosition() {
+        lock.lock();
+        try {
+            return appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the records before the position from the file. The appends wait while the records after the position are copied to new file, which then
+     * atomically replaces the journal file.
+     * 
+     * @param position - position returned by {@linkplain #getPosition()} or by some of the append methods
+     * @return The number of removed bytes
+     * @throws IOException if the new file can't be written or the journal write failed
+     */
+    public long compact(long position) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Reservation journal is closed");
+            }
+            if (position > appendedPosition) {
+                throw new IllegalArgumentException("Position after the end of the journal: " + position);
+            }
+
+            long removedLength = position - filePosition - startRecordSize();
+            if (removedLength <= 0L) {
+                return 0L;
+            }
+
+            compacting = true;
+            try {
+                while (durablePosition < appendedPosition && failure == null) {
+                    recordsFlushed.awaitUninterruptibly();
+                }
+                if (failure != null) {
+                    throw new IOException("Reservation journal write failed", failure);
+                }
+
+                replaceFile(position);
+                return removedLength;
+            } finally {
+                compacting = false;
+                compactionFinished.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends schedule record.
+     * 
+     * @return The position after the record, which could be passed to {@linkplain #awaitDurable(long)}
+     * @throws UncheckedIOException if writing of the journal already failed, so the record would never be durable
+     */
+    public long appendSchedule(long projectionId, String movieName, String layoutName, long startTimeMillis) {
+        byte[] name = movieName.getBytes(StandardCharsets.UTF_8);
+        byte[] layout = layoutName.getBytes(StandardCharsets.UTF_8);
+        int payloadSize = 1 + 2 * Long.BYTES + 2 * Integer.BYTES + name.length + layout.length;
+
+        lock.lock();
+        try {
+            ByteBuffer buffer = startRecord(payloadSize);
+            buffer.put(SCHEDULE_RECORD);
+            buffer.putLong(projectionId);
+            buffer.putLong(startTimeMillis);
+            buffer.putInt(name.length);
+            buffer.put(name);
+            buffer.putInt(layout.length);
+            buffer.put(layout);
+
+            return finishRecord(buffer, payloadSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends reservation record.
+     * 
+     * @return The position after the record, which could be passed to {@linkplain #awaitDurable(long)}
+     * @throws UncheckedIOException if writing of the journal already failed
+     */
+    public long appendReservation(long[] projectionIds, long[] seatsMask) {
+        return appendSeats(RESERVATION_RECORD, projectionIds, seatsMask, null);
+    }
+
+    /**
+     * Appends reservation record with the viewers, who reserved the seats.
+     * 
+     * @param viewers - one viewer, who reserved all seats, or the viewer of every seat in the order of the seat numbers
+     * @return The position after the record, which could be passed to {@linkplain #awaitDurable(long)}
+     * @throws UncheckedIOException if writing of the journal already failed
+     */
+    public long appendReservation(long[] projectionIds, long[] seatsMask, Viewer[] viewers) {
+        return appendSeats(RESERVATION_RECORD, projectionIds, seatsMask, viewers);
+    }
+
+    /**
+     * Appends record for seats, which were reserved and are free again.
+     * 
+     * @return The position after the record, which could be passed to {@linkplain #awaitDurable(long)}
+     * @throws UncheckedIOException if writing of the journal already failed
+     */
+    public long appendRelease(long[] projectionIds, long[] seatsMask) {
+        return appendSeats(RELEASE_RECORD, projectionIds, seatsMask, null);
+    }
+
+    private long appendSeats(byte recordType, long[] projectionIds, long[] seatsMask, Viewer[] viewers) {
+        byte[][] viewerNames = viewers == null ? null : new byte[viewers.length * 2][];
+        int payloadSize = 1 + 2 * Integer.BYTES + (seatsMask.length + projectionIds.length) * Long.BYTES;
+        if (viewerNames != null) {
+            payloadSize += Integer.BYTES;
+            for (int index = 0; index < viewers.length; index++) {
+                viewerNames[2 * index] = viewers[index].getFirstName()
+                        .getBytes(StandardCharsets.UTF_8);
+                viewerNames[2 * index + 1] = viewers[index].getLastName()
+                        .getBytes(StandardCharsets.UTF_8);
+                payloadSize += 2 * Integer.BYTES + viewerNames[2 * index].length + viewerNames[2 * index + 1].length;
+            }
+        }
+
+        lock.lock();
+        try {
+            ByteBuffer buffer = startRecord(payloadSize);
+            buffer.put(recordType);
+            buffer.putInt(seatsMask.length);
+            for (long word : seatsMask) {
+                buffer.putLong(word);
+            }
+            buffer.putInt(projectionIds.length);
+            for (long projectionId : projectionIds) {
+                buffer.putLong(projectionId);
+            }
+            if (viewerNames != null) {
+                buffer.putInt(viewers.length);
+                for (byte[] name : viewerNames) {
+                    buffer.putInt(name.length);
+                    buffer.put(name);
+                }
+            }
+
+            return finishRecord(buffer, payloadSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits till all records up to the given position are forced to the disk.
+     * 
+     * @param position - position returned by some of the append methods
+     * @throws UncheckedIOException if writing of the journal failed
+     */
+    public void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durablePosition < position && failure == null) {
+                recordsFlushed.awaitUninterruptibly();
+            }
+
+            if (durablePosition < position) {
+                throw new UncheckedIOException("Reservation journal write failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the appended records and closes the journal file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            while (compacting) {
+                compactionFinished.awaitUninterruptibly();
+            }
+            closed = true;
+            recordsAppended.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+        }
+        channel.close();
+    }
+
+    private ByteBuffer startRecord(int payloadSize) {
+        while (compacting) {
+            compactionFinished.awaitUninterruptibly();
+        }
+        if (closed) {
+            throw new IllegalStateException("Reservation journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Reservation journal write failed", failure);
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + payloadSize;
+        if (activeBuffer.remaining() < recordSize) {
+            ByteBuffer biggerBuffer = ByteBuffer.allocate(Math.max(activeBuffer.capacity() * 2, activeBuffer.position() + recordSize));
+            activeBuffer.flip();
+            biggerBuffer.put(activeBuffer);
+            activeBuffer = biggerBuffer;
+        }
+
+        activeBuffer.putInt(payloadSize);
+        activeBuffer.putInt(0);
+
+        return activeBuffer;
+    }
+
+    private long finishRecord(ByteBuffer buffer, int payloadSize) {
+        int payloadStart = buffer.position() - payloadSize;
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + payloadStart, payloadSize);
+        buffer.putInt(payloadStart - Integer.BYTES, (int) crc.getValue());
+
+        appendedPosition += RECORD_HEADER_SIZE + payloadSize;
+        recordsAppended.signal();
+
+        return appendedPosition;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel batchChannel;
+            long batchEndPosition;
+
+            lock.lock();
+            try {
+                while (activeBuffer.position() == 0 && !closed) {
+                    recordsAppended.awaitUninterruptibly();
+                }
+
+                if (activeBuffer.position() == 0) {
+                    return;
+                }
+
+                batch = activeBuffer;
+                activeBuffer = flushingBuffer;
+                flushingBuffer = batch;
+                batchChannel = channel;
+                batchEndPosition = appendedPosition;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    batchChannel.write(batch);
+                }
+                batchChannel.force(false);
+                batch.clear();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    recordsFlushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durablePosition = batchEndPosition;
+                recordsFlushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Copies the records from the position to new file after start record and replaces the journal file with it. Called with the lock held, while all
+     * appended records are durable.
+     */
+    private void replaceFile(long position) throws IOException {
+        long newFilePosition = position - startRecordSize();
+        Path temporaryFile = Files.createTempFile(journalFile.toAbsolutePath()
+                .getParent(), journalFile.getFileName()
+                        .toString(), ".tmp");
+        try (FileChannel target = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+            ByteBuffer startRecord = ByteBuffer.allocate(startRecordSize());
+            startRecord.putInt(START_RECORD_PAYLOAD_SIZE);
+            startRecord.putInt(0);
+            startRecord.put(START_RECORD);
+            startRecord.putLong(newFilePosition);
+            CRC32 startCrc = new CRC32();
+            startCrc.update(startRecord.array(), RECORD_HEADER_SIZE, START_RECORD_PAYLOAD_SIZE);
+            startRecord.putInt(Integer.BYTES, (int) startCrc.getValue());
+            startRecord.flip();
+            while (startRecord.hasRemaining()) {
+                target.write(startRecord);
+            }
+
+            long copyFrom = position - filePosition;
+            long copyEnd = appendedPosition - filePosition;
+            while (copyFrom < copyEnd) {
+                copyFrom += channel.transferTo(copyFrom, copyEnd - copyFrom, target);
+            }
+            target.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+
+        Files.move(temporaryFile, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        FileChannel newChannel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        newChannel.position(newChannel.size());
+        channel.close();
+        channel = newChannel;
+        filePosition = newFilePosition;
+    }
+
+    private static int startRecordSize() {
+        return RECORD_HEADER_SIZE + START_RECORD_PAYLOAD_SIZE;
+    }
+
+    /**
+     * @return The position of the start of the file, kept in the first record of compacted file, or 0 for file, which was never compacted
+     */
+    private static long readFilePosition(FileChannel channel) throws IOException {
+        ByteBuffer startRecord = ByteBuffer.allocate(startRecordSize());
+        channel.position(0L);
+        while (startRecord.hasRemaining() && channel.read(startRecord) >= 0) {
+        }
+        startRecord.flip();
+        if (startRecord.remaining() < startRecordSize() || startRecord.getInt() != START_RECORD_PAYLOAD_SIZE) {
+            return 0L;
+        }
+
+        int checksum = startRecord.getInt();
+        CRC32 startCrc = new CRC32();
+        startCrc.update(startRecord.array(), RECORD_HEADER_SIZE, START_RECORD_PAYLOAD_SIZE);
+        if ((int) startCrc.getValue() != checksum || startRecord.get() != START_RECORD) {
+            return 0L;
+        }
+
+        return startRecord.getLong();
+    }
+
+    /**
+     * @param fromOffset - offset in the file, the records ending at or before it are not given to the listener
+     * @return The length of the valid records in the file
+     */
+    private static long replay(FileChannel channel, JournalListener listener, long fromOffset) throws IOException {
+        channel.position(0L);
+        InputStream channelInput = Channels.newInputStream(channel);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(channelInput, INITIAL_BUFFER_SIZE));
+        CRC32 recordCrc = new CRC32();
+        long validLength = 0L;
+
+        while (true) {
+            byte[] payload;
+            try {
+                int payloadSize = input.readInt();
+                int checksum = input.readInt();
+                if (payloadSize <= 0 || payloadSize > channel.size() - validLength - RECORD_HEADER_SIZE) {
+                    return validLength;
+                }
+
+                payload = new byte[payloadSize];
+                input.readFully(payload);
+
+                recordCrc.reset();
+                recordCrc.update(payload, 0, payloadSize);
+                if ((int) recordCrc.getValue() != checksum) {
+                    return validLength;
+                }
+            } catch (EOFException e) {
+                return validLength;
+            }
+
+            validLength += RECORD_HEADER_SIZE + payload.length;
+            if (validLength > fromOffset) {
+                dispatch(ByteBuffer.wrap(payload), listener);
+            }
+        }
+    }
+
+    private static void dispatch(ByteBuffer payload, JournalListener listener) {
+        byte type = payload.get();
+        if (type == SCHEDULE_RECORD) {
+            long projectionId = payload.getLong();
+            long startTimeMillis = payload.getLong();
+            byte[] name = new byte[payload.getInt()];
+            payload.get(name);
+            String layoutName = null;
+            if (payload.hasRemaining()) {
+                byte[] layout = new byte[payload.getInt()];
+                payload.get(layout);
+                layoutName = new String(layout, StandardCharsets.UTF_8);
+            }
+
+            listener.projectionScheduled(projectionId, new String(name, StandardCharsets.UTF_8), layoutName, startTimeMillis);
+        } else if (type == RESERVATION_RECORD || type == RELEASE_RECORD) {
+            long[] seatsMask = new long[payload.getInt()];
+            for (int index = 0; index < seatsMask.length; index++) {
+                seatsMask[index] = payload.getLong();
+            }
+            long[] projectionIds = new long[payload.getInt()];
+            for (int index = 0; index < projectionIds.length; index++) {
+                projectionIds[index] = payload.getLong();
+            }
+
+            if (type == RESERVATION_RECORD) {
+                Viewer[] viewers = null;
+                if (payload.hasRemaining()) {
+                    viewers = new Viewer[payload.getInt()];
+                    for (int index = 0; index < viewers.length; index++) {
+                        viewers[index] = new Viewer(readString(payload), readString(payload));
+                    }
+                }
+                listener.seatsReserved(projectionIds, seatsMask, viewers);
+            } else {
+                listener.seatsReleased(projectionIds, seatsMask);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,24 @@
+package uni.pld.masters.persistence;
+
+import uni.pld.masters.model.Viewer;
+
+/**
+ * 
+ * One reserved seat with the viewer, who reserved it, which is written to {@link ScheduleSnapshot}, so the reservations could be listed and cancelled
+ * after the snapshot is restored.
+ * 
+ * @author nstoilov
+ *
+ */
+public interface ReservedSeat {
+
+    /**
+     * @return The ids of all projections, in which the seat is reserved, ordered by start time
+     */
+    long[] getProjectionIds();
+
+    int getSeatNumber();
+
+    Viewer getViewer();
+
+}
@@ -0,0 +1,286 @@
+package uni.pld.masters.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.time.TimeSource;
+
+/**
+ * 
+ * Compact binary snapshot of {@link MovieProjection}s. The file has the following parts:
+ * <ul>
+ * <li>header - magic number and format version</li>
+ * <li>projections - for every projection id, indexes of the movie name and the hall layout name in the names table, start time and the taken seats
+ * bitmap</li>
+ * <li>reservations - for every {@link ReservedSeat} the ids of its projections, the seat number and indexes of the viewer names in the names table</li>
+ * <li>names table - every movie, layout and viewer name written only once</li>
+ * <li>footer - position of {@link ReservationJournal} and position of the names table</li>
+ * </ul>
+ * The names table is written after the projections, so the snapshot is written in one pass over the projections without stopping the reservations. Every
+ * bitmap word is read atomically, the reservations made during the writing may or may not be in the snapshot, so the journal should be replayed after
+ * restoring it. The snapshot has all changes journaled before the kept journal position, so only the records after it are replayed and the records
+ * before it could be removed with {@linkplain ReservationJournal#compact(long)}.
+ * 
+ * The snapshot is written to temporary file in the same directory, which is forced to the disk and then atomically moved over the snapshot file, so a
+ * crash during the writing leaves the previous snapshot as it was.
+ * 
+ * The snapshots of format version 1 don't have layout names, they are still read and the layout name given to the listener is null. The snapshots of
+ * format versions 1 and 2 don't have journal position, the whole journal is replayed after them. The snapshots before format version 4 don't have
+ * reservations, only the taken seats are restored from them.
+ * 
+ * @author nstoilov
+ *
+ */
+public final class ScheduleSnapshot {
+
+    private static final int MAGIC = 0x4D505353;
+    private static final int FORMAT_VERSION = 4;
+    private static final int FIRST_FORMAT_VERSION = 1;
+    private static final int LAYOUTS_FORMAT_VERSION = 2;
+    private static final int JOURNAL_POSITION_FORMAT_VERSION = 3;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte PROJECTION_RECORD = 1;
+    private static final byte RESERVATION_RECORD = 2;
+    private static final byte END_RECORD = 0;
+
+    private ScheduleSnapshot() {
+    }
+
+    /**
+     * Writes snapshot of the projections without journal position to the file, the whole journal is replayed after it.
+     * 
+     * @param snapshotFile - the snapshot file
+     * @param projections - the projections, they could be changed while the snapshot is written
+     * @return The number of written projections
+     * @throws IOException if the file can't be written
+     */
+    public static long write(Path snapshotFile, Iterable<MovieProjection> projections) throws IOException {
+        return write(snapshotFile, projections, 0L);
+    }
+
+    /**
+     * Writes snapshot of the projections to the file. The file is replaced atomically if it exists.
+     * 
+     * @param snapshotFile - the snapshot file
+     * @param projections - the projections, they could be changed while the snapshot is written
+     * @param journalPosition - position of the journal taken before the writing started, all changes journaled before it must be in the projections
+     * @return The number of written projections
+     * @throws IOException if the file can't be written
+     */
+    public static long write(Path snapshotFile, Iterable<MovieProjection> projections, long journalPosition) throws IOException {
+        return write(snapshotFile, projections, Collections.emptyList(), journalPosition);
+    }
+
+    /**
+     * Writes snapshot of the projections and the reserved seats to the file. The file is replaced atomically if it exists.
+     * 
+     * @param snapshotFile - the snapshot file
+     * @param projections - the projections
+     * @param reservedSeats - the reserved seats of the projections with their viewers, the seats must be taken in the projections
+     * @param journalPosition - position of the journal taken before the writing started, all changes journaled before it must be in the projections and
+     *            in the reserved seats
+     * @return The number of written projections
+     * @throws IOException if the file can't be written
+     */
+    public static long write(Path snapshotFile, Iterable<MovieProjection> projections, Iterable<? extends ReservedSeat> reservedSeats,
+            long journalPosition) throws IOException {
+        Map<String, Integer> nameIndexes = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        long projectionsCount = 0L;
+
+        Path temporaryFile = Files.createTempFile(snapshotFile.toAbsolutePath()
+                .getParent(), snapshotFile.getFileName()
+                        .toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+
+            for (MovieProjection projection : projections) {
+                long[] takenSeats = projection.getReservedSeatsMask();
+                output.writeByte(PROJECTION_RECORD);
+                output.writeLong(projection.getId());
+                output.writeInt(getNameIndex(projection.getMovie()
+                        .getName(), nameIndexes, names));
+                output.writeInt(getNameIndex(projection.getLayout()
+                        .getName(), nameIndexes, names));
+                output.writeLong(TimeSource.toEpochMillis(projection.getProjectionStartTime()));
+                output.writeShort(takenSeats.length);
+                for (long word : takenSeats) {
+                    output.writeLong(word);
+                }
+                projectionsCount++;
+            }
+            for (ReservedSeat reservedSeat : reservedSeats) {
+                long[] projectionIds = reservedSeat.getProjectionIds();
+                output.writeByte(RESERVATION_RECORD);
+                output.writeShort(projectionIds.length);
+                for (long projectionId : projectionIds) {
+                    output.writeLong(projectionId);
+                }
+                output.writeInt(reservedSeat.getSeatNumber());
+                output.writeInt(getNameIndex(reservedSeat.getViewer()
+                        .getFirstName(), nameIndexes, names));
+                output.writeInt(getNameIndex(reservedSeat.getViewer()
+                        .getLastName(), nameIndexes, names));
+            }
+            output.writeByte(END_RECORD);
+
+            output.flush();
+            long namesTablePosition = channel.position();
+
+            output.writeInt(names.size());
+            for (String name : names) {
+                output.writeUTF(name);
+            }
+            output.writeLong(journalPosition);
+            output.writeLong(namesTablePosition);
+            output.flush();
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+
+        try {
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+
+        return projectionsCount;
+    }
+
+    /**
+     * Reads the snapshot and gives every projection to the listener as one schedule and one reservation record and then every reserved seat as one
+     * reservation record with its viewer.
+     * 
+     * @param snapshotFile - the snapshot file
+     * @param listener - the listener, which restores the projections
+     * @return The number of read projections
+     * @throws IOException if the file can't be read or it is not a valid snapshot
+     */
+    public static long read(Path snapshotFile, JournalListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            String[] names = readNames(channel);
+
+            channel.position(0L);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            int version = readVersion(input, snapshotFile);
+
+            long projectionsCount = 0L;
+            long[] projectionIds = new long[1];
+            byte recordType;
+            while ((recordType = input.readByte()) == PROJECTION_RECORD) {
+                long projectionId = input.readLong();
+                String movieName = names[input.readInt()];
+                String layoutName = version == FIRST_FORMAT_VERSION ? null : names[input.readInt()];
+                long startTimeMillis = input.readLong();
+                long[] takenSeats = new long[version == FIRST_FORMAT_VERSION ? input.readUnsignedByte() : input.readUnsignedShort()];
+                boolean hasTakenSeats = false;
+                for (int index = 0; index < takenSeats.length; index++) {
+                    takenSeats[index] = input.readLong();
+                    hasTakenSeats |= takenSeats[index] != 0;
+                }
+
+                listener.projectionScheduled(projectionId, movieName, layoutName, startTimeMillis);
+                if (hasTakenSeats) {
+                    projectionIds[0] = projectionId;
+                    listener.seatsReserved(projectionIds, takenSeats);
+                }
+                projectionsCount++;
+            }
+
+            Viewer[] viewers = new Viewer[1];
+            while (recordType == RESERVATION_RECORD) {
+                long[] bookingProjectionIds = new long[input.readUnsignedShort()];
+                for (int index = 0; index < bookingProjectionIds.length; index++) {
+                    bookingProjectionIds[index] = input.readLong();
+                }
+                long[] seatsMask = MovieProjection.toSeatsMask(input.readInt());
+                viewers[0] = new Viewer(names[input.readInt()], names[input.readInt()]);
+
+                listener.seatsReserved(bookingProjectionIds, seatsMask, viewers);
+                recordType = input.readByte();
+            }
+
+            return projectionsCount;
+        }
+    }
+
+    /**
+     * @param snapshotFile - the snapshot file
+     * @return The position of the journal kept in the snapshot or 0 for the snapshots written without it
+     * @throws IOException if the file can't be read or it is not a valid snapshot
+     */
+    public static long readJournalPosition(Path snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            int version = readVersion(new DataInputStream(Channels.newInputStream(channel)), snapshotFile);
+            if (version < JOURNAL_POSITION_FORMAT_VERSION) {
+                return 0L;
+            }
+
+            return readFooterLong(channel, channel.size() - 2 * Long.BYTES);
+        }
+    }
+
+    private static int readVersion(DataInputStream input, Path snapshotFile) throws IOException {
+        int version = input.readInt() == MAGIC ? input.readInt() : -1;
+        if (version < FIRST_FORMAT_VERSION || version > FORMAT_VERSION) {
+            throw new IOException("Not a schedule snapshot: " + snapshotFile);
+        }
+
+        return version;
+    }
+
+    private static int getNameIndex(String name, Map<String, Integer> nameIndexes, List<String> names) {
+        Integer nameIndex = nameIndexes.get(name);
+        if (nameIndex == null) {
+            nameIndex = names.size();
+            nameIndexes.put(name, nameIndex);
+            names.add(name);
+        }
+
+        return nameIndex;
+    }
+
+    private static String[] readNames(FileChannel channel) throws IOException {
+        channel.position(readFooterLong(channel, channel.size() - Long.BYTES));
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        String[] names = new String[input.readInt()];
+        for (int index = 0; index < names.length; index++) {
+            names[index] = input.readUTF();
+        }
+
+        return names;
+    }
+
+    private static long readFooterLong(FileChannel channel, long position) throws IOException {
+        ByteBuffer footer = ByteBuffer.allocate(Long.BYTES);
+        channel.position(position);
+        while (footer.hasRemaining() && channel.read(footer) >= 0) {
+        }
+        footer.flip();
+
+        return footer.getLong();
+    }
+
+}
@@ -0,0 +1,226 @@
+package uni.pld.masters.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.Viewer;
+
+/**
+ * 
+ * Asynchronous reservation API over {@link MovieProjectionManager}. The requests are queued per movie and drained in micro batches, every batch is applied
+ * with {@linkplain MovieProjectionManager#reserveBatch(Movie, Viewer[], int[], int, ReservationStatus[])}, so the validation, the pass over the seat state
+ * and the journal write are shared by all requests in the batch. Only one batch per movie is drained at a time. The queue of the movie is removed when it is
+ * drained and stays empty, so the movies without waiting requests don't keep queues.
+ * 
+ * The batches are drained on the given {@link Executor}. On JDK with virtual threads {@code Executors.newVirtualThreadPerTaskExecutor()} could be used, the
+ * callers could also wait for the futures on virtual threads. If the executor rejects the drain, the waiting requests of the movie are completed
+ * exceptionally with the {@link RejectedExecutionException}.
+ * 
+ * @author nstoilov
+ *
+ */
+public class AsyncReservationService implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private final MovieProjectionManager manager;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final int maxBatchSize;
+    private final Map<String, MovieQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the service with own thread pool with one thread per available processor, which is stopped with {@linkplain #close()}.
+     * 
+     * @param manager - the manager, which makes the reservations
+     */
+    public AsyncReservationService(MovieProjectionManager manager) {
+        this(manager, Executors.newFixedThreadPool(Runtime.getRuntime()
+                .availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "async-reservation");
+                    thread.setDaemon(true);
+                    return thread;
+                }), DEFAULT_MAX_BATCH_SIZE, true);
+    }
+
+    /**
+     * @param manager - the manager, which makes the reservations
+     * @param executor - the executor, which drains the batches
+     * @param maxBatchSize - maximum number of requests in one batch
+     */
+    public AsyncReservationService(MovieProjectionManager manager, Executor executor, int maxBatchSize) {
+        this(manager, executor, maxBatchSize, false);
+    }
+
+    private AsyncReservationService(MovieProjectionManager manager, Executor executor, int maxBatchSize, boolean ownsExecutor) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+
+        this.manager = manager;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+    }
+
+    /**
+     * Asynchronous version of {@linkplain MovieProjectionManager#reserve(Viewer, Movie, int)}.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param movie - Mandatory(with filled name). This is for which movie the user want to make reservation.
+     * @param seatNumber - Mandatory(values from 1-30 available). This is the number of the desired seat
+     * 
+     * @return Future, which is completed with the status of the reservation or exceptionally if the executor rejects the drain
+     */
+    public CompletableFuture<ReservationStatus> reserve(Viewer viewer, Movie movie, int seatNumber) {
+        if (movie == null || movie.getName() == null) {
+            return CompletableFuture.completedFuture(manager.reserve(viewer, movie, seatNumber));
+        }
+
+        ReservationRequest request = new ReservationRequest(viewer, seatNumber);
+        MovieQueue queue = queues.computeIfAbsent(movie.getName(), name -> new MovieQueue(movie, maxBatchSize));
+        queue.requests.add(request);
+        scheduleDrain(queue);
+
+        return request.result;
+    }
+
+    /**
+     * Stops the own thread pool, if the service was created with one.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * @return The number of the movies, which have queue with waiting or draining requests
+     */
+    int getQueuesCount() {
+        return queues.size();
+    }
+
+    private void scheduleDrain(MovieQueue queue) {
+        if (!queue.requests.isEmpty() && queue.draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(queue));
+            } catch (RejectedExecutionException e) {
+                queue.draining.set(false);
+                failRequests(queue, e);
+                removeIfIdle(queue);
+            }
+        }
+    }
+
+    private static void failRequests(MovieQueue queue, RejectedExecutionException e) {
+        ReservationRequest request;
+        while ((request = queue.requests.poll()) != null) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Removes the drained queue from the map. A request, which was added to the queue after the check, is not lost - the caller of
+     * {@linkplain #reserve(Viewer, Movie, int)} schedules the drain of the removed queue and the next request of the movie makes new queue, so for a
+     * short time two batches of the movie could be drained at once, which is safe, because the batches take the seats with compare-and-set.
+     */
+    private void removeIfIdle(MovieQueue queue) {
+        if (queue.requests.isEmpty()) {
+            queues.remove(queue.movie.getName(), queue);
+        }
+    }
+
+    /**
+     * Drains the queue with its scratch arrays, which are not shared, because only one thread drains the queue at a time.
+     */
+    private void drain(MovieQueue queue) {
+        ReservationRequest[] batch = queue.batch;
+        ReservationStatus[] results = queue.results;
+
+        try {
+            int count;
+            while ((count = pollBatch(queue)) > 0) {
+                try {
+                    manager.reserveBatch(queue.movie, queue.viewers, queue.seatNumbers, count, results);
+                    for (int index = 0; index < count; index++) {
+                        batch[index].result.complete(results[index]);
+                    }
+                } catch (RuntimeException e) {
+                    for (int index = 0; index < count; index++) {
+                        batch[index].result.completeExceptionally(e);
+                    }
+                } finally {
+                    Arrays.fill(batch, 0, count, null);
+                    Arrays.fill(queue.viewers, 0, count, null);
+                }
+            }
+        } finally {
+            queue.draining.set(false);
+            removeIfIdle(queue);
+            scheduleDrain(queue);
+        }
+    }
+
+    private int pollBatch(MovieQueue queue) {
+        int count = 0;
+        ReservationRequest request;
+        while (count < maxBatchSize && (request = queue.requests.poll()) != null) {
+            queue.batch[count] = request;
+            queue.viewers[count] = request.viewer;
+            queue.seatNumbers[count] = request.seatNumber;
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * The requests of one movie with the scratch arrays for their batches, which are allocated once per queue and are cleared after every batch, so they
+     * don't keep the completed requests.
+     */
+    private static final class MovieQueue {
+
+        private final Movie movie;
+        private final Queue<ReservationRequest> requests = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final Viewer[] viewers;
+        private final int[] seatNumbers;
+        private final ReservationRequest[] batch;
+        private final ReservationStatus[] results;
+
+        MovieQueue(Movie movie, int maxBatchSize) {
+            this.movie = movie;
+            this.viewers = new Viewer[maxBatchSize];
+            this.seatNumbers = new int[maxBatchSize];
+            this.batch = new ReservationRequest[maxBatchSize];
+            this.results = new ReservationStatus[maxBatchSize];
+        }
+
+    }
+
+    private static final class ReservationRequest {
+
+        private final Viewer viewer;
+        private final int seatNumber;
+        private final CompletableFuture<ReservationStatus> result = new CompletableFuture<>();
+
+        ReservationRequest(Viewer viewer, int seatNumber) {
+            this.viewer = viewer;
+            this.seatNumber = seatNumber;
+        }
+
+    }
+
+}
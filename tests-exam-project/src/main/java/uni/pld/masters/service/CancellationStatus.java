@@ -0,0 +1,30 @@
+package uni.pld.masters.service;
+
+/**
+ * 
+ * Result of {@linkplain MovieProjectionManager#cancelReservation(long)}.
+ * 
+ * @author nstoilov
+ *
+ */
+public enum CancellationStatus {
+
+    SUCCESS("Reservation was cancelled successfully"),
+    RESERVATION_NOT_FOUND("Reservation doesn`t exist or is already cancelled"),
+    TOO_LATE("Too late for cancellation of this reservation");
+
+    private final String message;
+
+    private CancellationStatus(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccessful() {
+        return this == SUCCESS;
+    }
+
+}
@@ -0,0 +1,23 @@
+package uni.pld.masters.service;
+
+/**
+ * 
+ * Background task, which periodically releases the seats of the expired holds of {@link MovieProjectionManager}. Every run moves the timing wheel of
+ * the manager only to the current time, so it doesn't scan the active holds.
+ * 
+ * @author nstoilov
+ *
+ */
+public class HoldExpirer extends PeriodicTask {
+
+    /**
+     * Starts the expiry.
+     * 
+     * @param manager - the manager, which holds are expired
+     * @param periodMillis - how often the expired holds are released
+     */
+    public HoldExpirer(MovieProjectionManager manager, long periodMillis) {
+        super("hold-expirer", manager::expireHolds, periodMillis);
+    }
+
+}
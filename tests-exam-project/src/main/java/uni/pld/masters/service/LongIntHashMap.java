@@ -0,0 +1,117 @@
+package uni.pld.masters.service;
+
+/**
+ *
+ * Open addressing hash map from long to int without boxing. The keys are kept in one long array and the values in one int array, the collisions are
+ * resolved with linear probing and the removed entries are filled by shifting back the next entries of the same probe chain, so there are no tombstones.
+ *
+ * The map is not thread safe.
+ *
+ * @author nstoilov
+ *
+ */
+class LongIntHashMap {
+
+    private static final long EMPTY_KEY = 0L;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroKeyValue;
+
+    /**
+     * @return The value for the key or {@linkplain defaultValue} if the key is not in the map
+     */
+    int get(long key, int defaultValue) {
+        if (key == EMPTY_KEY) {
+            return hasZeroKey ? zeroKeyValue : defaultValue;
+        }
+
+        int mask = keys.length - 1;
+        for (int index = index(key, mask); keys[index] != EMPTY_KEY; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+
+        return defaultValue;
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY_KEY) {
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int index = index(key, mask);
+        while (keys[index] != EMPTY_KEY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > keys.length / 2) {
+            resize();
+        }
+    }
+
+    void remove(long key) {
+        if (key == EMPTY_KEY) {
+            hasZeroKey = false;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int index = index(key, mask);
+        while (keys[index] != key) {
+            if (keys[index] == EMPTY_KEY) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        size--;
+        int next = (index + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            int home = index(keys[next], mask);
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[index] = EMPTY_KEY;
+    }
+
+    int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        size = 0;
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldKeys[index] != EMPTY_KEY) {
+                put(oldKeys[index], oldValues[index]);
+            }
+        }
+    }
+
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
@@ -1,25 +1,261 @@
 package uni.pld.masters.service;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import uni.pld.masters.events.SeatEventRing;
+import uni.pld.masters.events.SeatEventType;
+import uni.pld.masters.metrics.MetricsRegistry;
+import uni.pld.masters.metrics.OperationMetrics;
+import uni.pld.masters.model.HallLayout;
 import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieCatalog;
 import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.ProjectionInventory;
 import uni.pld.masters.model.Seat;
 import uni.pld.masters.model.Viewer;
+import uni.pld.masters.persistence.JournalListener;
+import uni.pld.masters.persistence.ReservationJournal;
+import uni.pld.masters.persistence.ScheduleSnapshot;
+import uni.pld.masters.time.TimeSource;
+import uni.pld.masters.time.TimingWheel;
 
 /**
  * 
  * Class that is managing the whole functionality for {@link MovieProjection}.
  * 
+ * The manager is thread safe without a global lock. Seats are claimed with compare-and-set in {@link MovieProjection}, so from many concurrent
+ * reservations for the same seat exactly one is successful.
+ * 
+ * The projections are kept in {@link ProjectionSchedule} ordered by start time, so the listing queries and the reservation cutoff check don't scan the
+ * whole schedule.
+ * 
+ * The current time is taken from {@link TimeSource} given in the constructor, the cutoff checks compare epoch millis and don't create
+ * {@link LocalDateTime} objects.
+ * 
+ * When journal is opened with {@linkplain #openJournal(Path)} every scheduled projection and every reservation is written to {@link ReservationJournal}
+ * and the methods return only after the record is on the disk. The snapshot written with {@linkplain #writeSnapshot(Path)} keeps the position of the
+ * journal, so after {@linkplain #restoreSnapshot(Path)} only the newer records are replayed and the older ones could be removed with
+ * {@linkplain #compactJournal()}. Every change of the seats, the ledger and the schedule is made with the read lock of one read-write lock, from the
+ * claim of the seats till they are journaled or released again, so the changes don't wait for each other. The snapshot takes the write lock only while
+ * it reads the journal position and copies the seats.
+ *
+ * The movies are registered in {@link MovieCatalog}, the projections have the canonical movie from the catalog and they are found by the movie id, so
+ * the movie name is looked up once per call.
+ * 
+ * The reservations by movie take the seat in all projections of the movie. {@linkplain #scheduleProjection(Movie, LocalDateTime)} returns the id of the
+ * new projection and the reservations by projection id take the seats only in that projection, which is found by id in constant time, so they are not
+ * blocked by the other projections of the movie.
+ * 
+ * Every projection is in a hall with {@link HallLayout}, the layouts are registered in the manager by name, so the projections could be restored from
+ * the journal and the snapshots. A seat number is valid for a movie only if the seat exists in the layouts of all its projections.
+ * 
+ * The manager created with {@link ProjectionInventory} keeps the projections in the layout of the inventory off-heap, in the slots of the inventory, and
+ * the other projections on the heap. The projections of the inventory are the same {@link MovieProjection}s for the rest of the manager, so all
+ * operations work with them. The schedule keeps only their slots, the views over the slots are read from the inventory when they are needed.
+ * 
+ * Seats could be held with {@linkplain #holdSeat(Viewer, Movie, int, long)} while the viewer is paying. The holds are expired by {@link TimingWheel}, so
+ * the expiry doesn't scan the active holds. The held seats are written to the journal only when the hold is confirmed.
+ * 
+ * When event feed is opened with {@linkplain #openEventFeed(int)} every scheduled projection and every reserved, held and released seat is published to
+ * {@link SeatEventRing}, so the changes could be followed without reading the seats of the projections.
+ * 
+ * Every reserved seat is recorded in {@link ReservationLedger} with the viewer, who reserved it, so the reservations could be listed by viewer or by
+ * projection and cancelled with {@linkplain #cancelReservation(long)}. The viewers are journaled with the seats and written to the snapshots with the
+ * ledger, so the restored reservations could be listed and cancelled too.
+ * 
+ * When a seat is taken, the viewer could join the waitlist of the projection with {@linkplain #joinWaitlist(Viewer, long, int, int)} for this seat or for
+ * any seat. When a seat is released by cancellation or by released or expired hold, it is reserved for the next waiting viewer, so the viewers don't
+ * retry the reservations.
+ * 
+ * The latency and the outcome of every scheduling, reservation, group reservation, best available reservation, hold, confirmed or released hold and
+ * cancellation are recorded in {@link MetricsRegistry} under the operation names {@value #SCHEDULE_OPERATION}, {@value #RESERVE_OPERATION},
+ * {@value #RESERVE_GROUP_OPERATION}, {@value #RESERVE_BEST_AVAILABLE_OPERATION}, {@value #HOLD_OPERATION}, {@value #CONFIRM_HOLD_OPERATION},
+ * {@value #RELEASE_HOLD_OPERATION} and {@value #CANCEL_OPERATION}.
+ * 
  * @author nstoilov
  *
  */
 public class MovieProjectionManager {
 
-    private List<MovieProjection> movieProjections = new ArrayList<>();
+    public static final String SCHEDULE_OPERATION = "schedule";
+    public static final String RESERVE_OPERATION = "reserve";
+    public static final String RESERVE_GROUP_OPERATION = "reserveGroup";
+    public static final String RESERVE_BEST_AVAILABLE_OPERATION = "reserveBestAvailable";
+    public static final String HOLD_OPERATION = "hold";
+    public static final String CONFIRM_HOLD_OPERATION = "confirmHold";
+    public static final String RELEASE_HOLD_OPERATION = "releaseHold";
+    public static final String CANCEL_OPERATION = "cancel";
+
+    /**
+     * Returned by {@linkplain #scheduleProjection(Movie, LocalDateTime, HallLayout)} when the projection is not scheduled, the ids of the projections start
+     * from 1.
+     */
+    public static final long NO_PROJECTION_ID = 0L;
+
+    /**
+     * The maximum number of the viewers waiting in the waitlist of one projection.
+     */
+    public static final int WAITLIST_CAPACITY = 1024;
+
+    private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+    private static final long MIN_SCHEDULING_TIME_MILLIS = 2L * HOUR_MILLIS;
+    private static final long MIN_RESERVATION_TIME_MILLIS = HOUR_MILLIS;
+    private static final long HOLD_EXPIRY_TICK_MILLIS = 100L;
+    private static final int BEST_AVAILABLE_ATTEMPTS = 8;
+
+    private TimeSource timeSource;
+    private ProjectionSchedule schedule;
+    private AtomicLong projectionIdSequence = new AtomicLong();
+    private int projectionIdOffset;
+    private int projectionIdStep;
+    private volatile ReservationJournal journal;
+    private volatile long snapshotJournalPosition;
+    private ReadWriteLock changesLock = new ReentrantReadWriteLock();
+    private volatile SeatEventRing events;
+    private ProjectionArchive archive = new ProjectionArchive();
+    private TimingWheel<SeatHold> holdExpiry;
+    private Map<String, HallLayout> layouts = new ConcurrentHashMap<>();
+    private MovieCatalog catalog;
+    private ProjectionInventory inventory;
+    private ReservationLedger ledger = new ReservationLedger();
+    private Map<Long, ProjectionWaitlist> waitlists = new ConcurrentHashMap<>();
+    private MetricsRegistry metrics;
+    private OperationMetrics<ScheduleStatus> scheduleMetrics;
+    private OperationMetrics<ReservationStatus> reserveMetrics;
+    private OperationMetrics<ReservationStatus> reserveGroupMetrics;
+    private OperationMetrics<ReservationStatus> reserveBestAvailableMetrics;
+    private OperationMetrics<ReservationStatus> holdMetrics;
+    private OperationMetrics<ReservationStatus> confirmHoldMetrics;
+    private OperationMetrics<ReservationStatus> releaseHoldMetrics;
+    private OperationMetrics<CancellationStatus> cancelMetrics;
+
+    public MovieProjectionManager() {
+        this(TimeSource.system());
+    }
+
+    /**
+     * @param timeSource - source of the current time for scheduling and reservation cutoffs
+     */
+    public MovieProjectionManager(TimeSource timeSource) {
+        this(timeSource, new MetricsRegistry());
+    }
+
+    /**
+     * @param timeSource - source of the current time for scheduling and reservation cutoffs
+     * @param metrics - registry for the metrics of the manager, could be shared with other managers
+     */
+    public MovieProjectionManager(TimeSource timeSource, MetricsRegistry metrics) {
+        this(timeSource, metrics, 0, 1);
+    }
+
+    /**
+     * Creates manager, which ids of the projections are {@code projectionIdOffset + n * projectionIdStep} for n from 1, so the managers with the same step
+     * and different offsets never give the same id and the offset of the manager is the id modulo the step.
+     * 
+     * @param timeSource - source of the current time for scheduling and reservation cutoffs
+     * @param metrics - registry for the metrics of the manager
+     * @param projectionIdOffset - from 0 to the step
+     * @param projectionIdStep - positive step between the ids
+     */
+    MovieProjectionManager(TimeSource timeSource, MetricsRegistry metrics, int projectionIdOffset, int projectionIdStep) {
+        this(timeSource, metrics, null, projectionIdOffset, projectionIdStep);
+    }
+
+    /**
+     * Creates manager, which keeps the projections in the layout of the inventory in its slots, while the inventory has free slots. The other projections
+     * are kept on the heap. The slots are not reused, when the projections start and are removed from the schedule, so the inventory must have capacity
+     * for all projections scheduled and restored by the manager. The manager uses the movie catalog of the inventory.
+     * 
+     * The projections already in the inventory, e.g. in inventory opened with {@linkplain ProjectionInventory#map(java.nio.file.Path, MovieCatalog,
+     * HallLayout, int)}, are scheduled with their seats and the new projections get greater ids. The journal and the snapshots don't schedule them again,
+     * they only take and release their seats and restore their reservations in the ledger.
+     * 
+     * @param timeSource - source of the current time for scheduling and reservation cutoffs
+     * @param metrics - registry for the metrics of the manager, could be shared with other managers
+     * @param inventory - Mandatory parameter. Inventory, which is used only by this manager
+     */
+    public MovieProjectionManager(TimeSource timeSource, MetricsRegistry metrics, ProjectionInventory inventory) {
+        this(timeSource, metrics, inventory, 0, 1);
+    }
+
+    private MovieProjectionManager(TimeSource timeSource, MetricsRegistry metrics, ProjectionInventory inventory, int projectionIdOffset,
+            int projectionIdStep) {
+        if (projectionIdStep < 1 || projectionIdOffset < 0 || projectionIdOffset >= projectionIdStep) {
+            throw new IllegalArgumentException("Projection id offset must be from 0 to the positive step");
+        }
+        this.inventory = inventory;
+        this.catalog = inventory == null ? new MovieCatalog() : inventory.getCatalog();
+        this.schedule = new ProjectionSchedule(inventory);
+
+        this.projectionIdOffset = projectionIdOffset;
+        this.projectionIdStep = projectionIdStep;
+        this.timeSource = timeSource;
+        this.metrics = metrics;
+        this.scheduleMetrics = metrics.operation(SCHEDULE_OPERATION, ScheduleStatus.class);
+        this.reserveMetrics = metrics.operation(RESERVE_OPERATION, ReservationStatus.class);
+        this.reserveGroupMetrics = metrics.operation(RESERVE_GROUP_OPERATION, ReservationStatus.class);
+        this.reserveBestAvailableMetrics = metrics.operation(RESERVE_BEST_AVAILABLE_OPERATION, ReservationStatus.class);
+        this.holdMetrics = metrics.operation(HOLD_OPERATION, ReservationStatus.class);
+        this.confirmHoldMetrics = metrics.operation(CONFIRM_HOLD_OPERATION, ReservationStatus.class);
+        this.releaseHoldMetrics = metrics.operation(RELEASE_HOLD_OPERATION, ReservationStatus.class);
+        this.cancelMetrics = metrics.operation(CANCEL_OPERATION, CancellationStatus.class);
+        this.holdExpiry = new TimingWheel<>(timeSource, HOLD_EXPIRY_TICK_MILLIS, this::expireHold);
+        this.layouts.put(HallLayout.DEFAULT.getName(), HallLayout.DEFAULT);
+        if (inventory != null) {
+            registerLayout(inventory.getLayout());
+            for (int slot = 0; slot < inventory.size(); slot++) {
+                schedule.add(slot);
+                updateProjectionIdSequence(inventory.getProjectionId(slot));
+            }
+        }
+    }
+
+    /**
+     * @return The registry with the latency and outcome metrics of the manager
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The ledger with the active reservations made by this manager
+     */
+    public ReservationLedger getReservationLedger() {
+        return ledger;
+    }
+
+    /**
+     * @return The catalog with the canonical movies of the scheduled projections. Its movies are resolved to id without lookup by name.
+     */
+    public MovieCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Registers the hall layout, so the projections in it could be restored from the journal or snapshot. The layouts used for scheduling are registered
+     * automatically.
+     * 
+     * @param layout - Mandatory parameter. The layout
+     * @throws IllegalArgumentException if different layout with the same name is already registered, equal layouts could be registered many times
+     */
+    public void registerLayout(HallLayout layout) {
+        HallLayout registeredLayout = layouts.putIfAbsent(layout.getName(), layout);
+        if (registeredLayout != null && !registeredLayout.equals(layout)) {
+            throw new IllegalArgumentException("Other hall layout is registered with name " + layout.getName());
+        }
+    }
 
     /**
      * The method is used for creation of {@link MovieProjection}.
@@ -33,27 +269,180 @@ public class MovieProjectionManager {
      * @return Message with an error message or success message for the given parameters.
      */
     public String scheduleMovieProjection(Movie movie, LocalDateTime projectionTime) {
+        return schedule(movie, projectionTime).getMessage();
+    }
+
+    /**
+     * The same as {@linkplain #scheduleMovieProjection(Movie, LocalDateTime)}, but for projection in hall with the given layout.
+     * 
+     * @param movie - Mandatory parameter(also name is mandatory) - This is the movie name
+     * @param projectionTime - Mandatory parameter. This is when the movie projection will be started. Must be set for at least after 2 hours from now
+     * @param layout - Mandatory parameter. The layout of the hall, in which is the projection
+     * 
+     * @return Message with an error message or success message for the given parameters.
+     */
+    public String scheduleMovieProjection(Movie movie, LocalDateTime projectionTime, HallLayout layout) {
+        return schedule(movie, projectionTime, layout).getMessage();
+    }
+
+    /**
+     * The same as {@linkplain #scheduleMovieProjection(Movie, LocalDateTime)}, but returns {@link ScheduleStatus} instead of message.
+     * 
+     * @param movie - Mandatory parameter(also name is mandatory) - This is the movie name
+     * @param projectionTime - Mandatory parameter. This is when the movie projection will be started. Must be set for at least after 2 hours from now
+     * 
+     * @return The status of the scheduling
+     */
+    public ScheduleStatus schedule(Movie movie, LocalDateTime projectionTime) {
+        return schedule(movie, projectionTime, HallLayout.DEFAULT);
+    }
+
+    /**
+     * The same as {@linkplain #scheduleMovieProjection(Movie, LocalDateTime, HallLayout)}, but returns {@link ScheduleStatus} instead of message.
+     * 
+     * @param movie - Mandatory parameter(also name is mandatory) - This is the movie name
+     * @param projectionTime - Mandatory parameter. This is when the movie projection will be started. Must be set for at least after 2 hours from now
+     * @param layout - Mandatory parameter. The layout of the hall, in which is the projection
+     * 
+     * @return The status of the scheduling
+     * @throws IllegalArgumentException if other layout with the same name is already registered
+     */
+    public ScheduleStatus schedule(Movie movie, LocalDateTime projectionTime, HallLayout layout) {
+        long startNanos = scheduleMetrics.start();
+        ScheduleStatus status = validateSchedule(movie, projectionTime, layout);
+        if (status == null) {
+            lockChanges();
+            try {
+                addProjection(movie, projectionTime, layout);
+            } finally {
+                unlockChanges();
+            }
+            status = ScheduleStatus.SUCCESS;
+        }
+        scheduleMetrics.record(status, startNanos);
+
+        return status;
+    }
+
+    /**
+     * The same as {@linkplain #scheduleMovieProjection(Movie, LocalDateTime)}, but returns the id of the new projection, which could be used for
+     * reservations in this projection only.
+     * 
+     * @param movie - Mandatory parameter(also name is mandatory) - This is the movie name
+     * @param projectionTime - Mandatory parameter. This is when the movie projection will be started. Must be set for at least after 2 hours from now
+     * 
+     * @return The id of the projection or {@linkplain #NO_PROJECTION_ID} if it is not scheduled, the reason is returned by
+     *         {@linkplain #schedule(Movie, LocalDateTime)}
+     */
+    public long scheduleProjection(Movie movie, LocalDateTime projectionTime) {
+        return scheduleProjection(movie, projectionTime, HallLayout.DEFAULT);
+    }
+
+    /**
+     * The same as {@linkplain #scheduleProjection(Movie, LocalDateTime)}, but for projection in hall with the given layout.
+     * 
+     * @param movie - Mandatory parameter(also name is mandatory) - This is the movie name
+     * @param projectionTime - Mandatory parameter. This is when the movie projection will be started. Must be set for at least after 2 hours from now
+     * @param layout - Mandatory parameter. The layout of the hall, in which is the projection
+     * 
+     * @return The id of the projection or {@linkplain #NO_PROJECTION_ID} if it is not scheduled
+     * @throws IllegalArgumentException if other layout with the same name is already registered
+     */
+    public long scheduleProjection(Movie movie, LocalDateTime projectionTime, HallLayout layout) {
+        long startNanos = scheduleMetrics.start();
+        ScheduleStatus status = validateSchedule(movie, projectionTime, layout);
+        long projectionId = NO_PROJECTION_ID;
+        if (status == null) {
+            lockChanges();
+            try {
+                projectionId = addProjection(movie, projectionTime, layout).getId();
+            } finally {
+                unlockChanges();
+            }
+            status = ScheduleStatus.SUCCESS;
+        }
+        scheduleMetrics.record(status, startNanos);
+
+        return projectionId;
+    }
+
+    /**
+     * @param projectionId - id of the projection
+     * @return The scheduled projection with the id or null if there is no such projection or it has already started and is evicted
+     */
+    public MovieProjection getProjection(long projectionId) {
+        return schedule.get(projectionId);
+    }
+
+    private ScheduleStatus validateSchedule(Movie movie, LocalDateTime projectionTime, HallLayout layout) {
         if (movie == null || movie.getName() == null) {
-            return "Movie name mustn`t be null or empty";
+            return ScheduleStatus.MOVIE_NAME_MISSING;
         }
 
         if (projectionTime == null) {
-            return "Projection date time mustn`t be null";
+            return ScheduleStatus.PROJECTION_TIME_NULL;
+        }
+
+        if (TimeSource.toEpochMillis(projectionTime) < timeSource.currentTimeMillis() + MIN_SCHEDULING_TIME_MILLIS) {
+            return ScheduleStatus.PROJECTION_TIME_TOO_EARLY;
+        }
+
+        if (layout == null) {
+            return ScheduleStatus.HALL_LAYOUT_NULL;
+        }
+
+        return null;
+    }
+
+    private MovieProjection addProjection(Movie movie, LocalDateTime projectionTime, HallLayout layout) {
+        registerLayout(layout);
+
+        long projectionId = projectionIdOffset + projectionIdSequence.incrementAndGet() * projectionIdStep;
+        MovieProjection movieProjection = addToSchedule(projectionId, catalog.getOrAdd(movie.getName()), projectionTime, layout);
+
+        SeatEventRing currentEvents = events;
+        if (currentEvents != null) {
+            currentEvents.publishScheduled(movieProjection);
+        }
+
+        ReservationJournal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.awaitDurable(currentJournal.appendSchedule(movieProjection.getId(), movie.getName(), layout.getName(),
+                    TimeSource.toEpochMillis(projectionTime)));
         }
 
-        if (LocalDateTime.now()
-                .plusHours(2L)
-                .isAfter(projectionTime)) {
-            return "Projection date time must be at least after 2 hours from now";
+        return movieProjection;
+    }
+
+    /**
+     * Adds new projection to the schedule - in free slot of the inventory, if it has the layout, or on the heap.
+     * 
+     * @return The new projection or the view over its slot
+     */
+    private MovieProjection addToSchedule(long projectionId, Movie movie, LocalDateTime startTime, HallLayout layout) {
+        if (inventory != null && inventory.getLayout()
+                .equals(layout)) {
+            int slot = inventory.add(projectionId, movie, startTime);
+            if (slot != ProjectionInventory.NO_SLOT) {
+                schedule.add(slot);
+                return inventory.get(slot);
+            }
         }
 
-        MovieProjection movieProjection = new MovieProjection();
+        MovieProjection movieProjection = new MovieProjection(layout);
+        movieProjection.setId(projectionId);
         movieProjection.setMovie(movie);
-        movieProjection.setProjectionStartTime(projectionTime);
+        movieProjection.setProjectionStartTime(startTime);
+        schedule.add(movieProjection);
 
-        movieProjections.add(movieProjection);
+        return movieProjection;
+    }
 
-        return "Movie projection scheduled successfully";
+    /**
+     * Makes the next projection ids greater than the given id.
+     */
+    private void updateProjectionIdSequence(long projectionId) {
+        projectionIdSequence.accumulateAndGet((projectionId - projectionIdOffset) / projectionIdStep, Math::max);
     }
 
     /**
@@ -63,126 +452,1534 @@ public class MovieProjectionManager {
      * 
      * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
      * @param movie - Mandatory(with filled name). This is for which movie the user want to make reservation.
-     * @param seatNumber - Mandatory(values from 1-30 available). This is the number of the desired seat, reservation is only successful if the
-     *            {@linkplain seatNumber} for the {@linkplain movie} is free.
+     * @param seatNumber - Mandatory(values from 1-30 available or up to the seats count of the hall layouts). This is the number of the desired seat,
+     *            reservation is only successful if the {@linkplain seatNumber} for the {@linkplain movie} is free.
      * 
      * @return Message with an error message or success message for the given parameters.
      */
-    public String makeReservation(Viewer viewer, Movie movie, byte seatNumber) {
-        String errorMessage = null;
+    public String makeReservation(Viewer viewer, Movie movie, int seatNumber) {
+        return reserve(viewer, movie, seatNumber).getMessage();
+    }
+
+    /**
+     * The same as {@linkplain #makeReservation(Viewer, Movie, int)}, but returns {@link ReservationStatus} instead of message. The rejected reservations
+     * don't allocate.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param movie - Mandatory(with filled name). This is for which movie the user want to make reservation.
+     * @param seatNumber - Mandatory(values from 1-30 available). This is the number of the desired seat
+     * 
+     * @return The status of the reservation
+     */
+    public ReservationStatus reserve(Viewer viewer, Movie movie, int seatNumber) {
+        long startNanos = reserveMetrics.start();
+        ReservationStatus status;
+        lockChanges();
+        try {
+            status = reserveSeat(viewer, movie, seatNumber);
+        } finally {
+            unlockChanges();
+        }
+        reserveMetrics.record(status, startNanos);
+
+        return status;
+    }
+
+    private ReservationStatus reserveSeat(Viewer viewer, Movie movie, int seatNumber) {
+        ReservationStatus status = validateViewer(viewer);
+        if (status != null) {
+            return status;
+        }
 
-        errorMessage = validateViewer(viewer);
-        if (errorMessage != null) {
-            return errorMessage;
+        status = validateMovie(movie);
+        if (status != null) {
+            return status;
         }
 
-        errorMessage = validateMovie(movie);
-        if (errorMessage != null) {
-            return errorMessage;
+        int movieId = catalog.getId(movie);
+        status = validateSeatNumber(movieId, seatNumber);
+        if (status != null) {
+            return status;
         }
 
-        errorMessage = validateSeatNumber(movie, seatNumber);
-        if (errorMessage != null) {
-            return errorMessage;
+        status = validateReservationTime(movieId);
+        if (status != null) {
+            return status;
         }
 
-        errorMessage = validateReservationTime(movie);
-        if (errorMessage != null) {
-            return errorMessage;
+        MovieProjection[] projections = takeSeatInAllProjections(movieId, seatNumber);
+        if (projections == null) {
+            return ReservationStatus.SEAT_TAKEN;
         }
 
-        String desiredMovieName = movie.getName();
-        movieProjections.stream()
-                .filter(projection -> desiredMovieName.equals(projection.getMovie()
-                        .getName()))
-                .forEach(projection -> projection.takeSeat(seatNumber));
+        if (journal != null && projections.length > 0) {
+            journalReservation(projections, MovieProjection.toSeatsMask(seatNumber), viewer);
+        }
+        ledger.add(viewer, projections, seatNumber);
+        publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, seatNumber);
 
-        return "Reservation was made successfully";
+        return ReservationStatus.SUCCESS;
     }
 
-    List<MovieProjection> getMovieProjections() {
-        return movieProjections;
+    /**
+     * The method is used for reserving a {@link Seat} in one projection. Unlike {@linkplain #makeReservation(Viewer, Movie, int)}, the seat is taken only
+     * in this projection, the projection is found by its id in constant time and the other projections of the movie don't affect the reservation.
+     * 
+     * @Important Reservations could be made only till 1 hour before the projection start.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param projectionId - Mandatory. The id of the projection returned by {@linkplain #scheduleProjection(Movie, LocalDateTime)}
+     * @param seatNumber - Mandatory(values from 1 to the seats count of the hall layout of the projection). This is the number of the desired seat
+     * 
+     * @return Message with an error message or success message for the given parameters.
+     */
+    public String makeReservation(Viewer viewer, long projectionId, int seatNumber) {
+        return reserve(viewer, projectionId, seatNumber).getMessage();
     }
 
-    private String validateViewer(Viewer viewer) {
-        if (viewer == null) {
-            return "Viewer mustn`t be null";
+    /**
+     * The same as {@linkplain #makeReservation(Viewer, long, int)}, but returns {@link ReservationStatus} instead of message.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param projectionId - Mandatory. The id of the projection
+     * @param seatNumber - Mandatory(values from 1 to the seats count of the hall layout of the projection). This is the number of the desired seat
+     * 
+     * @return The status of the reservation
+     */
+    public ReservationStatus reserve(Viewer viewer, long projectionId, int seatNumber) {
+        long startNanos = reserveMetrics.start();
+        ReservationStatus status;
+        lockChanges();
+        try {
+            status = reserveSeat(viewer, projectionId, seatNumber);
+        } finally {
+            unlockChanges();
         }
+        reserveMetrics.record(status, startNanos);
 
-        if (viewer.getFirstName() == null || viewer.getLastName() == null) {
-            return "Viewer names mustn`t be null";
+        return status;
+    }
+
+    private ReservationStatus reserveSeat(Viewer viewer, long projectionId, int seatNumber) {
+        ReservationStatus status = validateViewer(viewer);
+        if (status != null) {
+            return status;
         }
 
-        if (viewer.getFirstName()
-                .trim()
-                .isEmpty()
-                || viewer.getLastName()
-                        .trim()
-                        .isEmpty()) {
-            return "Viewer names mustn`t be empty";
+        MovieProjection projection = schedule.get(projectionId);
+        if (projection == null) {
+            return ReservationStatus.PROJECTION_NOT_FOUND;
         }
 
-        return null;
+        if (seatNumber < 1 || seatNumber > projection.getLayout()
+                .getSeatsCount()) {
+            return ReservationStatus.INVALID_SEAT;
+        }
+
+        if (projection.isSeatTaken(seatNumber)) {
+            return ReservationStatus.SEAT_TAKEN;
+        }
+
+        status = validateReservationTime(projection);
+        if (status != null) {
+            return status;
+        }
+
+        if (!projection.tryTakeSeat(seatNumber)) {
+            return ReservationStatus.SEAT_TAKEN;
+        }
+
+        MovieProjection[] projections = { projection };
+        if (journal != null) {
+            journalReservation(projections, MovieProjection.toSeatsMask(seatNumber), viewer);
+        }
+        ledger.add(viewer, projections, seatNumber);
+        publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, seatNumber);
+
+        return ReservationStatus.SUCCESS;
     }
 
-    private String validateMovie(Movie movie) {
-        if (movie == null) {
-            return "Movie mustn`t be null";
+    /**
+     * The method is used for reserving many {@link Seat}s for certain movie at once. Either all seats are reserved or none of them.
+     * 
+     * @Important Reservations could be made only till 1 hour before the projection start.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param movie - Mandatory(with filled name). This is for which movie the user want to make reservation.
+     * @param seatNumbers - Mandatory, not empty(values from 1-30 available). These are the numbers of the desired seats, reservation is only successful if
+     *            all {@linkplain seatNumbers} for the {@linkplain movie} are free.
+     * 
+     * @return Message with an error message or success message for the given parameters.
+     */
+    public String makeGroupReservation(Viewer viewer, Movie movie, Set<? extends Number> seatNumbers) {
+        return reserveGroup(viewer, movie, seatNumbers).getMessage();
+    }
+
+    /**
+     * The same as {@linkplain #makeGroupReservation(Viewer, Movie, Set)}, but returns {@link ReservationStatus} instead of message.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param movie - Mandatory(with filled name). This is for which movie the user want to make reservation.
+     * @param seatNumbers - Mandatory, not empty(values from 1-30 available). These are the numbers of the desired seats
+     * 
+     * @return The status of the reservation
+     */
+    public ReservationStatus reserveGroup(Viewer viewer, Movie movie, Set<? extends Number> seatNumbers) {
+        long startNanos = reserveGroupMetrics.start();
+        ReservationStatus status;
+        lockChanges();
+        try {
+            status = reserveSeats(viewer, movie, seatNumbers);
+        } finally {
+            unlockChanges();
         }
+        reserveGroupMetrics.record(status, startNanos);
 
-        if (movie.getName() == null) {
-            return "Movie name mustn`t be null";
+        return status;
+    }
+
+    private ReservationStatus reserveSeats(Viewer viewer, Movie movie, Set<? extends Number> seatNumbers) {
+        ReservationStatus status = validateViewer(viewer);
+        if (status != null) {
+            return status;
         }
 
-        if (movie.getName()
-                .trim()
-                .isEmpty()) {
-            return "Movie name mustn`t be empty";
+        status = validateMovie(movie);
+        if (status != null) {
+            return status;
         }
 
-        return null;
+        int movieId = catalog.getId(movie);
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            return ReservationStatus.SEAT_NUMBERS_EMPTY;
+        }
+
+        long[] seatsMask = MovieProjection.toSeatsMask(seatNumbers);
+        if (seatsMask == null || seatsMask.length * Long.SIZE - Long.numberOfLeadingZeros(seatsMask[seatsMask.length - 1]) > getSeatsCount(movieId)) {
+            return ReservationStatus.INVALID_SEAT;
+        }
+
+        status = validateReservationTime(movieId);
+        if (status != null) {
+            return status;
+        }
+
+        MovieProjection[] projections = takeSeatsInAllProjections(movieId, seatsMask);
+        if (projections == null) {
+            return ReservationStatus.SEAT_TAKEN;
+        }
+
+        if (journal != null && projections.length > 0) {
+            journalReservation(projections, seatsMask, viewer);
+        }
+        ledger.add(viewer, projections, seatsMask);
+        publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, seatsMask);
+
+        return ReservationStatus.SUCCESS;
+    }
+
+    /**
+     * The same as {@linkplain #reserveGroup(Viewer, Movie, Set)}, but the seats are taken only in the projection with the given id, like
+     * {@linkplain #reserve(Viewer, long, int)}.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param projectionId - Mandatory. The id of the projection
+     * @param seatNumbers - Mandatory, not empty(values from 1 to the seats count of the hall layout of the projection). These are the numbers of the
+     *            desired seats
+     * 
+     * @return The status of the reservation
+     */
+    public ReservationStatus reserveGroup(Viewer viewer, long projectionId, Set<? extends Number> seatNumbers) {
+        long startNanos = reserveGroupMetrics.start();
+        ReservationStatus status;
+        lockChanges();
+        try {
+            status = reserveSeats(viewer, projectionId, seatNumbers);
+        } finally {
+            unlockChanges();
+        }
+        reserveGroupMetrics.record(status, startNanos);
+
+        return status;
     }
 
-    private String validateSeatNumber(Movie movie, byte seatNumber) {
-        if (seatNumber < 0 || seatNumber > 30) {
-            return "Invalid seat number, seat number must be from 0 to 30";
+    private ReservationStatus reserveSeats(Viewer viewer, long projectionId, Set<? extends Number> seatNumbers) {
+        ReservationStatus status = validateViewer(viewer);
+        if (status != null) {
+            return status;
+        }
+
+        MovieProjection projection = schedule.get(projectionId);
+        if (projection == null) {
+            return ReservationStatus.PROJECTION_NOT_FOUND;
         }
 
-        Predicate<MovieProjection> movieMatcher = dto -> dto
-                .getMovie()
-                .getName()
-                .equals(movie.getName());
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            return ReservationStatus.SEAT_NUMBERS_EMPTY;
+        }
 
-        Predicate<MovieProjection> seatTaken = dto -> dto
-                .getSeats()
-                .stream()
-                .anyMatch(seat -> seat.getNumber() == seatNumber && seat.isTaken());
+        long[] seatsMask = MovieProjection.toSeatsMask(seatNumbers);
+        if (seatsMask == null || seatsMask.length * Long.SIZE - Long.numberOfLeadingZeros(seatsMask[seatsMask.length - 1]) > projection.getLayout()
+                .getSeatsCount()) {
+            return ReservationStatus.INVALID_SEAT;
+        }
 
-        if (movieProjections.stream()
-                .anyMatch(projection -> movieMatcher.test(projection) && seatTaken.test(projection))) {
-            return "Seat is already taken";
+        status = validateReservationTime(projection);
+        if (status != null) {
+            return status;
         }
-        
-        return null;
+
+        if (!projection.tryTakeSeats(seatsMask)) {
+            return ReservationStatus.SEAT_TAKEN;
+        }
+
+        MovieProjection[] projections = { projection };
+        if (journal != null) {
+            journalReservation(projections, seatsMask, viewer);
+        }
+        ledger.add(viewer, projections, seatsMask);
+        publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, seatsMask);
+
+        return ReservationStatus.SUCCESS;
     }
 
-    private String validateReservationTime(Movie movie) {
-        Predicate<MovieProjection> movieNameMatcher = projection ->  projection
-                .getMovie()
-                .getName()
-                .equals(movie.getName());
-        
-        Predicate<MovieProjection> notEnoughTimeForReservationMathcer = projection -> projection.getProjectionStartTime()
-                .isBefore(LocalDateTime
-                        .now()
-                        .plusHours(1L));
-        
-        if (movieProjections.stream()
-                .anyMatch(projection -> movieNameMatcher.test(projection) && notEnoughTimeForReservationMathcer.test(projection))) {
-            return "Too late for reservation for this movie";
+    /**
+     * Finds the best block of free adjacent seats for a group and reserves it at once, so the client doesn't have to choose seats and retry. The block is
+     * searched with {@linkplain HallLayout#findBestBlock(long[], int)} in the layout of the projections, a seat is free only if it is free in all
+     * projections of the movie. If other reservation takes some of the seats before the block is reserved, the search is repeated. The same seat numbers
+     * are not adjacent in halls with different layouts, so the block is not reserved, if the projections of the movie are in different layouts.
+     * 
+     * @Important Reservations could be made only till 1 hour before the projection start.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param movie - Mandatory(with filled name). This is for which movie the user want to make reservation.
+     * @param seatsCount - Mandatory, positive. The number of the needed seats
+     * 
+     * @return The reserved block, its status shows if the seats were reserved. The status is {@linkplain ReservationStatus#NO_ADJACENT_SEATS} also when
+     *         the projections of the movie are in different layouts
+     */
+    public SeatBlock reserveBestAvailable(Viewer viewer, Movie movie, int seatsCount) {
+        long startNanos = reserveBestAvailableMetrics.start();
+        SeatBlock block;
+        lockChanges();
+        try {
+            block = reserveBestBlock(viewer, movie, seatsCount);
+        } finally {
+            unlockChanges();
         }
+        reserveBestAvailableMetrics.record(block.getStatus(), startNanos);
 
-        return null;
+        return block;
+    }
+
+    private SeatBlock reserveBestBlock(Viewer viewer, Movie movie, int seatsCount) {
+        ReservationStatus status = validateViewer(viewer);
+        if (status == null) {
+            status = validateMovie(movie);
+        }
+        int movieId = status == null ? catalog.getId(movie) : 0;
+        if (status == null && seatsCount < 1) {
+            status = ReservationStatus.SEAT_NUMBERS_EMPTY;
+        }
+        if (status == null) {
+            status = validateReservationTime(movieId);
+        }
+        if (status != null) {
+            return SeatBlock.rejected(status);
+        }
+
+        MovieProjection[] projections = getProjectionsForMovie(movieId).toArray(new MovieProjection[0]);
+        if (projections.length == 0) {
+            return SeatBlock.rejected(ReservationStatus.NO_ADJACENT_SEATS);
+        }
+
+        return takeBestBlock(viewer, projections, seatsCount);
+    }
+
+    /**
+     * The same as {@linkplain #reserveBestAvailable(Viewer, Movie, int)}, but the block is searched and reserved only in the projection with the given id,
+     * like {@linkplain #reserveGroup(Viewer, long, Set)}.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param projectionId - Mandatory. The id of the projection
+     * @param seatsCount - Mandatory, positive. The number of the needed seats
+     * 
+     * @return The reserved block, its status shows if the seats were reserved
+     */
+    public SeatBlock reserveBestAvailable(Viewer viewer, long projectionId, int seatsCount) {
+        long startNanos = reserveBestAvailableMetrics.start();
+        SeatBlock block;
+        lockChanges();
+        try {
+            block = reserveBestBlock(viewer, projectionId, seatsCount);
+        } finally {
+            unlockChanges();
+        }
+        reserveBestAvailableMetrics.record(block.getStatus(), startNanos);
+
+        return block;
+    }
+
+    private SeatBlock reserveBestBlock(Viewer viewer, long projectionId, int seatsCount) {
+        ReservationStatus status = validateViewer(viewer);
+        MovieProjection projection = status == null ? schedule.get(projectionId) : null;
+        if (status == null && projection == null) {
+            status = ReservationStatus.PROJECTION_NOT_FOUND;
+        }
+        if (status == null && seatsCount < 1) {
+            status = ReservationStatus.SEAT_NUMBERS_EMPTY;
+        }
+        if (status == null) {
+            status = validateReservationTime(projection);
+        }
+        if (status != null) {
+            return SeatBlock.rejected(status);
+        }
+
+        return takeBestBlock(viewer, new MovieProjection[] { projection }, seatsCount);
+    }
+
+    private SeatBlock takeBestBlock(Viewer viewer, MovieProjection[] projections, int seatsCount) {
+        HallLayout layout = projections[0].getLayout();
+        for (MovieProjection projection : projections) {
+            if (!layout.equals(projection.getLayout())) {
+                return SeatBlock.rejected(ReservationStatus.NO_ADJACENT_SEATS);
+            }
+        }
+
+        for (int attempt = 0; attempt < BEST_AVAILABLE_ATTEMPTS; attempt++) {
+            int firstSeatNumber = layout.findBestBlock(getTakenSeatsInAnyProjection(projections), seatsCount);
+            if (firstSeatNumber == 0) {
+                return SeatBlock.rejected(ReservationStatus.NO_ADJACENT_SEATS);
+            }
+
+            long[] seatsMask = new long[layout.getSeatsWordsCount()];
+            for (int bit = firstSeatNumber - 1; bit < firstSeatNumber - 1 + seatsCount; bit++) {
+                seatsMask[bit >>> 6] |= 1L << bit;
+            }
+
+            if (takeSeatsInAllProjections(projections, seatsMask)) {
+                if (journal != null) {
+                    journalReservation(projections, seatsMask, viewer);
+                }
+                ledger.add(viewer, projections, seatsMask);
+                publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, seatsMask);
+
+                return new SeatBlock(firstSeatNumber, seatsCount);
+            }
+        }
+
+        return SeatBlock.rejected(ReservationStatus.SEAT_TAKEN);
+    }
+
+    /**
+     * Holds a {@link Seat} for certain movie for limited time. The seat is taken till the hold is confirmed with {@linkplain #confirmHold(SeatHold)},
+     * released with {@linkplain #releaseHold(SeatHold)} or expires. The validation is the same as for {@linkplain #reserve(Viewer, Movie, int)}.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the hold will be
+     * @param movie - Mandatory(with filled name). This is for which movie the user want to hold a seat.
+     * @param seatNumber - Mandatory(values from 1-30 available). This is the number of the desired seat
+     * @param holdMillis - how long the seat is held, must be positive
+     * 
+     * @return The hold, its status shows if the seat was held
+     */
+    public SeatHold holdSeat(Viewer viewer, Movie movie, int seatNumber, long holdMillis) {
+        if (holdMillis <= 0) {
+            throw new IllegalArgumentException("Hold time must be positive");
+        }
+
+        long startNanos = holdMetrics.start();
+        SeatHold hold;
+        lockChanges();
+        try {
+            hold = holdFreeSeat(viewer, movie, seatNumber, holdMillis);
+        } finally {
+            unlockChanges();
+        }
+        holdMetrics.record(hold.getStatus(), startNanos);
+
+        return hold;
+    }
+
+    private SeatHold holdFreeSeat(Viewer viewer, Movie movie, int seatNumber, long holdMillis) {
+        ReservationStatus status = validateViewer(viewer);
+        if (status == null) {
+            status = validateMovie(movie);
+        }
+        int movieId = status == null ? catalog.getId(movie) : 0;
+        if (status == null) {
+            status = validateSeatNumber(movieId, seatNumber);
+        }
+        if (status == null) {
+            status = validateReservationTime(movieId);
+        }
+        if (status != null) {
+            return SeatHold.rejected(status);
+        }
+
+        MovieProjection[] projections = takeSeatInAllProjections(movieId, seatNumber);
+        if (projections == null) {
+            return SeatHold.rejected(ReservationStatus.SEAT_TAKEN);
+        }
+
+        for (MovieProjection projection : projections) {
+            projection.setSeatHeld(seatNumber, true);
+        }
+        publishSeatEvents(SeatEventType.SEATS_HELD, projections, seatNumber);
+
+        SeatHold hold = new SeatHold(viewer, projections, seatNumber, timeSource.currentTimeMillis() + holdMillis);
+        holdExpiry.schedule(hold, hold.getExpiresAtMillis());
+
+        return hold;
+    }
+
+    /**
+     * Turns the hold into reservation. Confirming already confirmed hold has no effect.
+     * 
+     * @param hold - Mandatory parameter. The hold returned from {@linkplain #holdSeat(Viewer, Movie, int, long)}
+     * 
+     * @return {@linkplain ReservationStatus#SUCCESS} if the hold is confirmed, {@linkplain ReservationStatus#HOLD_EXPIRED} if it expired or was released
+     *         and the status of the hold if the seat was not held
+     */
+    public ReservationStatus confirmHold(SeatHold hold) {
+        long startNanos = confirmHoldMetrics.start();
+        ReservationStatus status;
+        lockChanges();
+        try {
+            status = confirmHeldSeat(hold);
+        } finally {
+            unlockChanges();
+        }
+        confirmHoldMetrics.record(status, startNanos);
+
+        return status;
+    }
+
+    private ReservationStatus confirmHeldSeat(SeatHold hold) {
+        if (!hold.getStatus()
+                .isSuccessful()) {
+            return hold.getStatus();
+        }
+
+        if (timeSource.currentTimeMillis() >= hold.getExpiresAtMillis()) {
+            expireHold(hold);
+        }
+
+        if (!hold.finish(SeatHold.CONFIRMED)) {
+            return hold.getState() == SeatHold.CONFIRMED ? ReservationStatus.SUCCESS : ReservationStatus.HOLD_EXPIRED;
+        }
+
+        MovieProjection[] projections = hold.getProjections();
+        for (MovieProjection projection : projections) {
+            projection.setSeatHeld(hold.getSeatNumber(), false);
+        }
+
+        if (journal != null && projections.length > 0) {
+            journalReservation(projections, MovieProjection.toSeatsMask(hold.getSeatNumber()), hold.getViewer());
+        }
+        ledger.add(hold.getViewer(), projections, hold.getSeatNumber());
+        publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, hold.getSeatNumber());
+
+        return ReservationStatus.SUCCESS;
+    }
+
+    /**
+     * Releases the seat of the hold before it expires.
+     * 
+     * @param hold - Mandatory parameter. The hold returned from {@linkplain #holdSeat(Viewer, Movie, int, long)}
+     * 
+     * @return true if the hold was active and the seat is released, false if the hold is already confirmed, released or expired
+     */
+    public boolean releaseHold(SeatHold hold) {
+        long startNanos = releaseHoldMetrics.start();
+        if (!hold.finish(SeatHold.RELEASED)) {
+            releaseHoldMetrics.record(ReservationStatus.HOLD_EXPIRED, startNanos);
+            return false;
+        }
+
+        lockChanges();
+        try {
+            freeHeldSeat(hold);
+        } finally {
+            unlockChanges();
+        }
+        releaseHoldMetrics.record(ReservationStatus.SUCCESS, startNanos);
+        return true;
+    }
+
+    /**
+     * Releases the seats of the holds, which expired. Could be called periodically with {@link HoldExpirer}.
+     */
+    public void expireHolds() {
+        lockChanges();
+        try {
+            holdExpiry.advance();
+        } finally {
+            unlockChanges();
+        }
+    }
+
+    /**
+     * Makes many single seat reservations for the same movie at once. The movie and the reservation time are validated once, the seats are taken with
+     * one pass over the seat state of every projection and all successful reservations are written with one journal record. When the same seat is
+     * requested more than once, only the first request could be successful. The outcome of every reservation is recorded under
+     * {@value #RESERVE_OPERATION} with the latency of the whole batch, which is the time the caller waited for it.
+     * 
+     * @param movie - the movie for all reservations
+     * @param viewers - the viewers of the reservations
+     * @param seatNumbers - the seat numbers of the reservations
+     * @param count - the number of reservations in the arrays
+     * @param results - array, which receives the status of every reservation
+     */
+    void reserveBatch(Movie movie, Viewer[] viewers, int[] seatNumbers, int count, ReservationStatus[] results) {
+        long startNanos = reserveMetrics.start();
+        lockChanges();
+        try {
+            reserveSeats(movie, viewers, seatNumbers, count, results);
+        } finally {
+            unlockChanges();
+        }
+        for (int index = 0; index < count; index++) {
+            reserveMetrics.record(results[index], startNanos);
+        }
+    }
+
+    private void reserveSeats(Movie movie, Viewer[] viewers, int[] seatNumbers, int count, ReservationStatus[] results) {
+        ReservationStatus movieStatus = validateMovie(movie);
+        int movieId = movieStatus == null ? catalog.getId(movie) : 0;
+        int seatsCount = movieStatus == null ? getSeatsCount(movieId) : 0;
+        long[] requestedSeats = new long[(seatsCount + Long.SIZE - 1) / Long.SIZE];
+
+        for (int index = 0; index < count; index++) {
+            ReservationStatus status = validateViewer(viewers[index]);
+            if (status == null) {
+                status = movieStatus;
+            }
+            if (status == null && (seatNumbers[index] < 1 || seatNumbers[index] > seatsCount)) {
+                status = ReservationStatus.INVALID_SEAT;
+            }
+            if (status == null) {
+                int bit = seatNumbers[index] - 1;
+                if ((requestedSeats[bit >>> 6] & (1L << bit)) != 0) {
+                    status = ReservationStatus.SEAT_TAKEN;
+                } else {
+                    requestedSeats[bit >>> 6] |= 1L << bit;
+                }
+            }
+
+            results[index] = status;
+        }
+
+        if (movieStatus != null) {
+            return;
+        }
+
+        MovieProjection[] projections = getProjectionsForMovie(movieId).toArray(new MovieProjection[0]);
+        boolean tooLate = validateReservationTime(movieId) != null;
+        long[] reservedSeats = requestedSeats;
+        if (tooLate) {
+            reservedSeats = new long[requestedSeats.length];
+        } else if (projections.length > 0) {
+            reservedSeats = takeFreeSeatsInAllProjections(projections, requestedSeats);
+        }
+
+        for (int index = 0; index < count; index++) {
+            if (results[index] != null) {
+                continue;
+            }
+
+            int bit = seatNumbers[index] - 1;
+            if ((reservedSeats[bit >>> 6] & (1L << bit)) != 0) {
+                results[index] = ReservationStatus.SUCCESS;
+            } else if (tooLate && !isSeatTakenInAnyProjection(projections, seatNumbers[index])) {
+                results[index] = ReservationStatus.TOO_LATE;
+            } else {
+                results[index] = ReservationStatus.SEAT_TAKEN;
+            }
+        }
+
+        if (projections.length > 0 && !isEmpty(reservedSeats)) {
+            if (journal != null) {
+                journalReservation(projections, reservedSeats, getSeatViewers(reservedSeats, viewers, seatNumbers, count, results));
+            }
+            for (int index = 0; index < count; index++) {
+                if (results[index].isSuccessful()) {
+                    ledger.add(viewers[index], projections, seatNumbers[index]);
+                }
+            }
+            publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, reservedSeats);
+        }
+    }
+
+    /**
+     * Cancels the reservation of one seat and releases the seat in all projections of the booking. Reservations could be cancelled only till 1 hour before
+     * the start of every projection of the booking, like they are made.
+     * 
+     * @param reservationId - id of the reservation from {@link ReservationLedger}
+     * 
+     * @return The status of the cancellation
+     */
+    public CancellationStatus cancelReservation(long reservationId) {
+        long startNanos = cancelMetrics.start();
+        CancellationStatus status;
+        lockChanges();
+        try {
+            status = cancelSeat(reservationId);
+        } finally {
+            unlockChanges();
+        }
+        cancelMetrics.record(status, startNanos);
+
+        return status;
+    }
+
+    private CancellationStatus cancelSeat(long reservationId) {
+        Reservation reservation = ledger.get(reservationId);
+        if (reservation == null) {
+            return CancellationStatus.RESERVATION_NOT_FOUND;
+        }
+
+        MovieProjection[] projections = reservation.getProjections();
+        for (MovieProjection projection : projections) {
+            if (validateReservationTime(projection) != null) {
+                return CancellationStatus.TOO_LATE;
+            }
+        }
+
+        // The entry is removed first, so only one cancellation of the reservation releases the seat. It is added back if the release fails.
+        if (!ledger.remove(reservationId)) {
+            return CancellationStatus.RESERVATION_NOT_FOUND;
+        }
+
+        // The release is journaled while the seat is still taken, so a reservation of the released seat is always journaled after the release.
+        int seatNumber = reservation.getSeatNumber();
+        try {
+            journalRelease(projections, MovieProjection.toSeatsMask(seatNumber));
+            releaseSeat(projections, seatNumber);
+        } catch (RuntimeException e) {
+            ledger.restore(reservation);
+            throw e;
+        }
+        publishSeatEvents(SeatEventType.SEATS_RELEASED, projections, seatNumber);
+        for (MovieProjection projection : projections) {
+            promoteWaiter(projection, seatNumber);
+        }
+
+        return CancellationStatus.SUCCESS;
+    }
+
+    /**
+     * The same as {@linkplain #joinWaitlist(Viewer, long, int, int)} with priority 0, so the viewers are promoted in the order they joined.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param projectionId - Mandatory. The id of the projection
+     * @param seatNumber - The number of the desired seat or {@linkplain WaitlistEntry#ANY_SEAT}
+     * 
+     * @return The entry in the waitlist, its status shows if the viewer joined the waitlist
+     */
+    public WaitlistEntry joinWaitlist(Viewer viewer, long projectionId, int seatNumber) {
+        return joinWaitlist(viewer, projectionId, seatNumber, 0);
+    }
+
+    /**
+     * Adds the viewer to the waitlist of the projection. When the seat or any seat for {@linkplain WaitlistEntry#ANY_SEAT} is released, it is reserved in
+     * this projection for the first waiting viewer - with the highest priority and the earliest joined among the viewers with the same priority. If the
+     * seat is free when the viewer joins, it is reserved right away.
+     * 
+     * @Important The viewers are promoted only till 1 hour before the projection start, the entries expire when the projection starts.
+     * 
+     * @param viewer - Mandatory parameter(names are also mandatory) - This is to which name the reservation will be
+     * @param projectionId - Mandatory. The id of the projection
+     * @param seatNumber - The number of the desired seat(from 1 to the seats count of the hall layout) or {@linkplain WaitlistEntry#ANY_SEAT}
+     * @param priority - The priority of the viewer, higher priority is promoted first
+     * 
+     * @return The entry in the waitlist, its status is {@linkplain ReservationStatus#WAITLIST_FULL} if there are already
+     *         {@value #WAITLIST_CAPACITY} waiting viewers
+     */
+    public WaitlistEntry joinWaitlist(Viewer viewer, long projectionId, int seatNumber, int priority) {
+        ReservationStatus status = validateViewer(viewer);
+        MovieProjection projection = status == null ? schedule.get(projectionId) : null;
+        if (status == null && projection == null) {
+            status = ReservationStatus.PROJECTION_NOT_FOUND;
+        }
+        if (status == null && seatNumber != WaitlistEntry.ANY_SEAT && !projection.getLayout()
+                .isValidSeatNumber(seatNumber)) {
+            status = ReservationStatus.INVALID_SEAT;
+        }
+        if (status == null) {
+            status = validateReservationTime(projection);
+        }
+        if (status != null) {
+            return WaitlistEntry.rejected(status, viewer, projectionId, seatNumber);
+        }
+
+        ProjectionWaitlist waitlist = waitlists.computeIfAbsent(projectionId, id -> new ProjectionWaitlist(WAITLIST_CAPACITY));
+        WaitlistEntry entry = new WaitlistEntry(viewer, projectionId, seatNumber, priority, waitlist.nextSequence());
+        if (!waitlist.add(entry)) {
+            return WaitlistEntry.rejected(ReservationStatus.WAITLIST_FULL, viewer, projectionId, seatNumber);
+        }
+
+        lockChanges();
+        try {
+            if (seatNumber != WaitlistEntry.ANY_SEAT) {
+                if (!projection.isSeatTaken(seatNumber)) {
+                    promoteWaiter(projection, seatNumber);
+                }
+            } else if (projection.getFreeSeatsCount() > 0) {
+                promoteToFreeSeats(projection, entry);
+            }
+        } finally {
+            unlockChanges();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Removes the viewer from the waitlist. The entry is marked as left first, so it is not promoted also when it is already removed from the waitlist for
+     * promotion, which didn't mark it as promoted yet.
+     * 
+     * @param entry - Mandatory parameter. The entry returned from {@linkplain #joinWaitlist(Viewer, long, int, int)}
+     * 
+     * @return true if the viewer was waiting and is removed, false if the entry is already promoted, removed or expired
+     */
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        if (!entry.finish(WaitlistEntry.LEFT)) {
+            return false;
+        }
+
+        ProjectionWaitlist waitlist = waitlists.get(entry.getProjectionId());
+        if (waitlist != null) {
+            waitlist.remove(entry);
+        }
+        return true;
+    }
+
+    /**
+     * @param projectionId - id of the projection
+     * @return The number of the viewers waiting for seats in the projection
+     */
+    public int getWaitlistSize(long projectionId) {
+        ProjectionWaitlist waitlist = waitlists.get(projectionId);
+
+        return waitlist == null ? 0 : waitlist.size();
+    }
+
+    /**
+     * Replays the journal file to this manager and starts writing the next changes to it. Must be called before the manager is used, the replayed
+     * projections and reservations are restored without validation. If snapshot was restored before, only the records after the journal position of the
+     * snapshot are replayed. The hall layouts of the projections must be registered with {@linkplain #registerLayout(HallLayout)} before.
+     * 
+     * @param journalFile - Mandatory parameter. The journal file, it is created if it doesn't exist
+     * @throws IOException if the journal file can't be read or opened or it was compacted after the position of the restored snapshot
+     */
+    public void openJournal(Path journalFile) throws IOException {
+        journal = ReservationJournal.open(journalFile, new JournalReplay(), snapshotJournalPosition);
+    }
+
+    /**
+     * Removes from the journal the records before the journal position of the last snapshot written or restored by this manager. The changes are stopped
+     * while the rest of the journal is copied.
+     * 
+     * @return The number of removed bytes
+     * @throws IOException if the journal can't be compacted
+     */
+    public long compactJournal() throws IOException {
+        ReservationJournal currentJournal = journal;
+        if (currentJournal == null) {
+            return 0L;
+        }
+
+        return currentJournal.compact(snapshotJournalPosition);
+    }
+
+    /**
+     * Stops writing to the journal and closes it.
+     * 
+     * @throws IOException if the journal can't be closed
+     */
+    public void closeJournal() throws IOException {
+        ReservationJournal currentJournal = journal;
+        journal = null;
+        if (currentJournal != null) {
+            currentJournal.close();
+        }
+    }
+
+    /**
+     * Starts publishing the changes of the projections and the seats to new event feed. The events published before the consumer is added to the feed
+     * are not received by it.
+     * 
+     * @param capacity - the number of the events in the feed, must be power of two. When the slowest consumer is so many events behind, the reservations
+     *            wait for it at most {@value SeatEventRing#DEFAULT_MAX_WAIT_MILLIS} milliseconds, then it is removed from the feed
+     * @return The event feed
+     */
+    public SeatEventRing openEventFeed(int capacity) {
+        return openEventFeed(capacity, SeatEventRing.DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * The same as {@linkplain #openEventFeed(int)}, but with other maximum wait for the slowest consumer.
+     * 
+     * @param capacity - the number of the events in the feed, must be power of two
+     * @param maxWaitMillis - the maximum time, for which the reservations wait for the slowest consumer, before it is removed from the feed
+     * @return The event feed
+     */
+    public SeatEventRing openEventFeed(int capacity, long maxWaitMillis) {
+        SeatEventRing newEvents = new SeatEventRing(capacity, maxWaitMillis);
+        events = newEvents;
+
+        return newEvents;
+    }
+
+    /**
+     * Stops publishing to the event feed. The consumers could still receive the events already published.
+     */
+    public void closeEventFeed() {
+        events = null;
+    }
+
+    /**
+     * Moves the projections, which already started, from the schedule to the archive, removes their reservations from the ledger and expires their
+     * waitlists. Could be called periodically with {@link ProjectionEvictor}.
+     * 
+     * @return The number of moved projections
+     */
+    public int evictStartedProjections() {
+        lockChanges();
+        try {
+            return schedule.removeStartingBefore(timeSource.currentTimeMillis(), projection -> {
+                archive.add(projection);
+                ledger.removeForProjection(projection.getId());
+                ProjectionWaitlist waitlist = waitlists.remove(projection.getId());
+                if (waitlist != null) {
+                    for (WaitlistEntry entry : waitlist.removeAll()) {
+                        entry.finish(WaitlistEntry.EXPIRED);
+                    }
+                }
+            });
+        } finally {
+            unlockChanges();
+        }
+    }
+
+    /**
+     * @return The archive with the projections, which already started
+     */
+    public ProjectionArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Writes snapshot of all projections, their reserved seats and the reservations in the ledger to the file with the current position of the journal. The changes are stopped only
+     * while the journal position is read and the seats of the projections are copied, so the snapshot has exactly the changes journaled before the
+     * position and no seat, which is taken by a change still in progress and could be released when the change fails. The reservations are not stopped
+     * while the copy is written.
+     * 
+     * @param snapshotFile - Mandatory parameter. The snapshot file, it is replaced if it exists
+     * @return The number of written projections
+     * @throws IOException if the snapshot file can't be written
+     */
+    public long writeSnapshot(Path snapshotFile) throws IOException {
+        List<MovieProjection> projections = new ArrayList<>();
+        List<Reservation> reservations;
+        long journalPosition = 0L;
+        changesLock.writeLock()
+                .lock();
+        try {
+            ReservationJournal currentJournal = journal;
+            if (currentJournal != null) {
+                journalPosition = currentJournal.getPosition();
+            }
+            for (MovieProjection projection : schedule.getAll()) {
+                projections.add(copyReservedSeats(projection));
+            }
+            reservations = ledger.getAll();
+        } finally {
+            changesLock.writeLock()
+                    .unlock();
+        }
+
+        long projectionsCount = ScheduleSnapshot.write(snapshotFile, projections, reservations, journalPosition);
+        snapshotJournalPosition = journalPosition;
+
+        return projectionsCount;
+    }
+
+    /**
+     * Restores the projections and their taken seats from snapshot file. Must be called before the manager is used and before
+     * {@linkplain #openJournal(Path)}, which then replays only the journal records after the journal position of the snapshot. The hall layouts of the
+     * projections must be registered with {@linkplain #registerLayout(HallLayout)} before.
+     * 
+     * @param snapshotFile - Mandatory parameter. The snapshot file
+     * @return The number of restored projections
+     * @throws IOException if the snapshot file can't be read
+     */
+    public long restoreSnapshot(Path snapshotFile) throws IOException {
+        long journalPosition = ScheduleSnapshot.readJournalPosition(snapshotFile);
+        long projectionsCount = ScheduleSnapshot.read(snapshotFile, new JournalReplay());
+        snapshotJournalPosition = journalPosition;
+
+        return projectionsCount;
+    }
+
+    /**
+     * Returns the projections, which start in the given period.
+     * 
+     * @param from - Mandatory parameter. Inclusive start of the period
+     * @param to - Mandatory parameter. Exclusive end of the period
+     * 
+     * @return The projections ordered by start time
+     */
+    public List<MovieProjection> getProjectionsBetween(LocalDateTime from, LocalDateTime to) {
+        return schedule.getBetween(TimeSource.toEpochMillis(from), TimeSource.toEpochMillis(to));
+    }
+
+    /**
+     * Returns the next projections for the movie, which are not started yet.
+     * 
+     * @param movie - Mandatory(with filled name). The movie, which projections are needed
+     * @param count - Maximum number of returned projections
+     * 
+     * @return Up to {@linkplain count} projections ordered by start time
+     */
+    public List<MovieProjection> getNextProjections(Movie movie, int count) {
+        return schedule.getNextForMovie(catalog.getId(movie), timeSource.currentTimeMillis(), count);
+    }
+
+    /**
+     * Returns the projections for the movie, for which reservations could still be made and which have enough free seats for a group. The query uses the
+     * free seats counters of the projections and doesn't read their seats.
+     * 
+     * @param movie - Mandatory(with filled name). The movie, which projections are needed
+     * @param minFreeSeats - Minimum number of free seats
+     * 
+     * @return The projections ordered by start time
+     */
+    public List<MovieProjection> getProjectionsWithFreeSeats(Movie movie, int minFreeSeats) {
+        return schedule.getWithFreeSeats(catalog.getId(movie), timeSource.currentTimeMillis() + MIN_RESERVATION_TIME_MILLIS, minFreeSeats);
+    }
+
+    /**
+     * Returns the projections, for which reservations could still be made(starting after at least 1 hour).
+     * 
+     * @return The projections ordered by start time
+     */
+    public List<MovieProjection> getProjectionsOpenForReservation() {
+        return schedule.getStartingFrom(timeSource.currentTimeMillis() + MIN_RESERVATION_TIME_MILLIS);
+    }
+
+    Collection<MovieProjection> getMovieProjections() {
+        return schedule.getAll();
+    }
+
+    /**
+     * Returns the projections scheduled for the given movie, looked up by movie id in the schedule.
+     * 
+     * @param movieId - id of the movie in the catalog, which projections are needed
+     * @return The projections for the movie ordered by start time or empty collection if there are no projections for it
+     */
+    private Collection<MovieProjection> getProjectionsForMovie(int movieId) {
+        return schedule.getForMovie(movieId);
+    }
+
+    /**
+     * Takes the seat in every projection of the movie. The seats are claimed always in the same order, so when two reservations race for the same seat the
+     * first claim decides which one wins. If the seat is already taken in some projection, the seats taken till then are released.
+     * 
+     * @return The projections, in which the seat was taken or null if nothing was taken
+     */
+    private MovieProjection[] takeSeatInAllProjections(int movieId, int seatNumber) {
+        MovieProjection[] projections = getProjectionsForMovie(movieId).toArray(new MovieProjection[0]);
+
+        for (int index = 0; index < projections.length; index++) {
+            if (!projections[index].tryTakeSeat(seatNumber)) {
+                for (int taken = 0; taken < index; taken++) {
+                    projections[taken].releaseSeat(seatNumber);
+                }
+
+                return null;
+            }
+        }
+
+        return projections;
+    }
+
+    /**
+     * Takes the seats from the mask in every projection of the movie, the same way as {@linkplain #takeSeatInAllProjections(int, int)}.
+     * 
+     * @return The projections, in which the seats were taken or null if nothing was taken
+     */
+    private MovieProjection[] takeSeatsInAllProjections(int movieId, long[] seatsMask) {
+        MovieProjection[] projections = getProjectionsForMovie(movieId).toArray(new MovieProjection[0]);
+
+        return takeSeatsInAllProjections(projections, seatsMask) ? projections : null;
+    }
+
+    /**
+     * @return true if the seats were taken in all projections, false if nothing was taken
+     */
+    private static boolean takeSeatsInAllProjections(MovieProjection[] projections, long[] seatsMask) {
+        for (int index = 0; index < projections.length; index++) {
+            if (!projections[index].tryTakeSeats(seatsMask)) {
+                for (int taken = 0; taken < index; taken++) {
+                    projections[taken].releaseSeats(seatsMask);
+                }
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Bitmap of the seats, which are taken in some of the projections with the same layout
+     */
+    private static long[] getTakenSeatsInAnyProjection(MovieProjection[] projections) {
+        long[] takenSeats = new long[projections[0].getLayout()
+                .getSeatsWordsCount()];
+        for (MovieProjection projection : projections) {
+            long[] projectionSeats = projection.getTakenSeatsMask();
+            for (int wordIndex = 0; wordIndex < takenSeats.length; wordIndex++) {
+                takenSeats[wordIndex] |= projectionSeats[wordIndex];
+            }
+        }
+
+        return takenSeats;
+    }
+
+    /**
+     * Takes the free seats from the mask in every projection. A seat is reserved only if it was free in all projections, it is released from the projections
+     * where it was taken, if some later projection had it already taken.
+     * 
+     * @return Mask of the seats taken in all projections
+     */
+    private long[] takeFreeSeatsInAllProjections(MovieProjection[] projections, long[] seatsMask) {
+        long[][] takenSeats = new long[projections.length][];
+        long[] reservedSeats = seatsMask.clone();
+
+        for (int index = 0; index < projections.length; index++) {
+            takenSeats[index] = projections[index].takeFreeSeats(reservedSeats);
+            reservedSeats = takenSeats[index];
+        }
+
+        for (int index = 0; index < projections.length - 1; index++) {
+            long[] notReservedSeats = new long[reservedSeats.length];
+            boolean hasNotReservedSeats = false;
+            for (int wordIndex = 0; wordIndex < reservedSeats.length; wordIndex++) {
+                notReservedSeats[wordIndex] = takenSeats[index][wordIndex] & ~reservedSeats[wordIndex];
+                hasNotReservedSeats |= notReservedSeats[wordIndex] != 0;
+            }
+
+            if (hasNotReservedSeats) {
+                projections[index].releaseSeats(notReservedSeats);
+            }
+        }
+
+        return reservedSeats;
+    }
+
+    /**
+     * @return Projection on the heap with the id, movie, start time and layout of the projection and with its reserved seats taken
+     */
+    private static MovieProjection copyReservedSeats(MovieProjection projection) {
+        MovieProjection copy = new MovieProjection(projection.getLayout());
+        copy.setId(projection.getId());
+        copy.setMovie(projection.getMovie());
+        copy.setProjectionStartTime(projection.getProjectionStartTime());
+        copy.takeFreeSeats(projection.getReservedSeatsMask());
+
+        return copy;
+    }
+
+    /**
+     * Starts change of the seats, the ledger or the schedule, which is not stopped by other changes, but only by {@linkplain #writeSnapshot(Path)}.
+     */
+    private void lockChanges() {
+        changesLock.readLock()
+                .lock();
+    }
+
+    private void unlockChanges() {
+        changesLock.readLock()
+                .unlock();
+    }
+
+    private void expireHold(SeatHold hold) {
+        if (hold.finish(SeatHold.EXPIRED)) {
+            freeHeldSeat(hold);
+        }
+    }
+
+    private void freeHeldSeat(SeatHold hold) {
+        for (MovieProjection projection : hold.getProjections()) {
+            projection.setSeatHeld(hold.getSeatNumber(), false);
+            projection.releaseSeat(hold.getSeatNumber());
+        }
+        publishSeatEvents(SeatEventType.SEATS_RELEASED, hold.getProjections(), hold.getSeatNumber());
+        for (MovieProjection projection : hold.getProjections()) {
+            promoteWaiter(projection, hold.getSeatNumber());
+        }
+    }
+
+    /**
+     * Offers the free seats of the projection to the waiting entry for any seat, while it waits. The free seats are found with one pass over the words of
+     * the taken seats bitmap.
+     */
+    private void promoteToFreeSeats(MovieProjection projection, WaitlistEntry entry) {
+        long[] takenSeats = projection.getTakenSeatsMask();
+        int seatsCount = projection.getLayout()
+                .getSeatsCount();
+        for (int wordIndex = 0; wordIndex < takenSeats.length && entry.isWaiting(); wordIndex++) {
+            int seatsInWord = Math.min(Long.SIZE, seatsCount - wordIndex * Long.SIZE);
+            long freeSeats = ~takenSeats[wordIndex] & (seatsInWord == Long.SIZE ? -1L : (1L << seatsInWord) - 1);
+            for (; freeSeats != 0 && entry.isWaiting(); freeSeats &= freeSeats - 1) {
+                promoteWaiter(projection, wordIndex * Long.SIZE + Long.numberOfTrailingZeros(freeSeats) + 1);
+            }
+        }
+    }
+
+    /**
+     * Reserves the released seat for the first viewer waiting for it in the projection. If the seat is taken by other reservation before that, the viewer
+     * gets back its place in the waitlist. The seat is reserved only after the entry is marked as promoted, otherwise it is released and offered to the
+     * next waiting entry. If the reservation can't be journaled, the seat is released and the entry is rejected, but the failure is not thrown to the
+     * caller, which released the seat, because its own change is already made.
+     */
+    private void promoteWaiter(MovieProjection projection, int seatNumber) {
+        ProjectionWaitlist waitlist = waitlists.get(projection.getId());
+        if (waitlist == null || waitlist.size() == 0 || validateReservationTime(projection) != null) {
+            return;
+        }
+
+        WaitlistEntry entry;
+        while (true) {
+            entry = waitlist.pollFor(seatNumber);
+            if (entry == null) {
+                return;
+            }
+
+            if (!projection.tryTakeSeat(seatNumber)) {
+                if (!waitlist.restore(entry)) {
+                    entry.finish(WaitlistEntry.REJECTED);
+                }
+                return;
+            }
+
+            if (entry.promote(seatNumber)) {
+                break;
+            }
+            projection.releaseSeat(seatNumber);
+        }
+
+        MovieProjection[] projections = { projection };
+        try {
+            journalReservation(projections, MovieProjection.toSeatsMask(seatNumber), entry.getViewer());
+        } catch (RuntimeException e) {
+            entry.failPromotion();
+            return;
+        }
+        ledger.add(entry.getViewer(), projections, seatNumber);
+        publishSeatEvents(SeatEventType.SEATS_RESERVED, projections, seatNumber);
+        entry.completePromotion();
+    }
+
+    private void publishSeatEvents(SeatEventType type, MovieProjection[] projections, int seatNumber) {
+        SeatEventRing currentEvents = events;
+        if (currentEvents != null && projections.length > 0) {
+            currentEvents.publishSeat(type, projections, seatNumber);
+        }
+    }
+
+    private void publishSeatEvents(SeatEventType type, MovieProjection[] projections, long[] seatsMask) {
+        SeatEventRing currentEvents = events;
+        if (currentEvents != null && projections.length > 0) {
+            currentEvents.publishSeats(type, projections, seatsMask);
+        }
+    }
+
+    /**
+     * @return The viewers of the successful reservations in the order of their seat numbers, one viewer for every seat of the mask
+     */
+    private static Viewer[] getSeatViewers(long[] reservedSeats, Viewer[] viewers, int[] seatNumbers, int count, ReservationStatus[] results) {
+        int[] seatsBeforeWord = new int[reservedSeats.length];
+        for (int wordIndex = 1; wordIndex < reservedSeats.length; wordIndex++) {
+            seatsBeforeWord[wordIndex] = seatsBeforeWord[wordIndex - 1] + Long.bitCount(reservedSeats[wordIndex - 1]);
+        }
+
+        Viewer[] seatViewers = new Viewer[seatsBeforeWord[reservedSeats.length - 1] + Long.bitCount(reservedSeats[reservedSeats.length - 1])];
+        for (int index = 0; index < count; index++) {
+            if (results[index].isSuccessful()) {
+                int bit = seatNumbers[index] - 1;
+                seatViewers[seatsBeforeWord[bit >>> 6] + Long.bitCount(reservedSeats[bit >>> 6] & ((1L << bit) - 1))] = viewers[index];
+            }
+        }
+
+        return seatViewers;
+    }
+
+    private static boolean isSeatTakenInAnyProjection(MovieProjection[] projections, int seatNumber) {
+        for (MovieProjection projection : projections) {
+            if (projection.isSeatTaken(seatNumber)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isEmpty(long[] seatsMask) {
+        for (long word : seatsMask) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The number of seats, which exist in the layouts of all projections of the movie or the seats count of {@linkplain HallLayout#DEFAULT} if
+     *         there are no projections
+     */
+    private int getSeatsCount(int movieId) {
+        int seatsCount = Integer.MAX_VALUE;
+        for (MovieProjection projection : getProjectionsForMovie(movieId)) {
+            seatsCount = Math.min(seatsCount, projection.getLayout()
+                    .getSeatsCount());
+        }
+
+        return seatsCount == Integer.MAX_VALUE ? HallLayout.DEFAULT.getSeatsCount() : seatsCount;
+    }
+
+    private void journalReservation(MovieProjection[] projections, long[] seatsMask, Viewer viewer) {
+        if (journal != null) {
+            journalReservation(projections, seatsMask, new Viewer[] { viewer });
+        }
+    }
+
+    /**
+     * Journals the seats, which are already taken in the projections, with the viewers, who reserved them. If the journal write fails, the seats are
+     * released before the exception is thrown, so the seats, which are not in the journal and in the ledger, don't stay taken.
+     * 
+     * @param viewers - one viewer for all seats or the viewer of every seat in the order of the seat numbers
+     */
+    private void journalReservation(MovieProjection[] projections, long[] seatsMask, Viewer[] viewers) {
+        ReservationJournal currentJournal = journal;
+        if (currentJournal == null) {
+            return;
+        }
+
+        long[] projectionIds = new long[projections.length];
+        for (int index = 0; index < projections.length; index++) {
+            projectionIds[index] = projections[index].getId();
+        }
+
+        try {
+            currentJournal.awaitDurable(currentJournal.appendReservation(projectionIds, seatsMask, viewers));
+        } catch (RuntimeException e) {
+            for (MovieProjection projection : projections) {
+                projection.releaseSeats(seatsMask);
+            }
+            throw e;
+        }
+    }
+
+    private static void releaseSeat(MovieProjection[] projections, int seatNumber) {
+        for (MovieProjection projection : projections) {
+            projection.releaseSeat(seatNumber);
+        }
+    }
+
+    private void journalRelease(MovieProjection[] projections, long[] seatsMask) {
+        ReservationJournal currentJournal = journal;
+        if (currentJournal == null) {
+            return;
+        }
+
+        long[] projectionIds = new long[projections.length];
+        for (int index = 0; index < projections.length; index++) {
+            projectionIds[index] = projections[index].getId();
+        }
+
+        currentJournal.awaitDurable(currentJournal.appendRelease(projectionIds, seatsMask));
+    }
+
+    private ReservationStatus validateViewer(Viewer viewer) {
+        if (viewer == null) {
+            return ReservationStatus.VIEWER_NULL;
+        }
+
+        if (viewer.getFirstName() == null || viewer.getLastName() == null) {
+            return ReservationStatus.VIEWER_NAMES_NULL;
+        }
+
+        if (isBlank(viewer.getFirstName()) || isBlank(viewer.getLastName())) {
+            return ReservationStatus.VIEWER_NAMES_EMPTY;
+        }
+
+        return null;
+    }
+
+    private ReservationStatus validateMovie(Movie movie) {
+        if (movie == null) {
+            return ReservationStatus.MOVIE_NULL;
+        }
+
+        if (movie.getName() == null) {
+            return ReservationStatus.MOVIE_NAME_NULL;
+        }
+
+        if (isBlank(movie.getName())) {
+            return ReservationStatus.MOVIE_NAME_EMPTY;
+        }
+
+        return null;
+    }
+
+    private ReservationStatus validateSeatNumber(int movieId, int seatNumber) {
+        if (seatNumber < 1 || seatNumber > getSeatsCount(movieId)) {
+            return ReservationStatus.INVALID_SEAT;
+        }
+
+        for (MovieProjection projection : getProjectionsForMovie(movieId)) {
+            if (projection.isSeatTaken(seatNumber)) {
+                return ReservationStatus.SEAT_TAKEN;
+            }
+        }
+
+        return null;
+    }
+
+    private ReservationStatus validateReservationTime(int movieId) {
+        if (schedule.getFirstStartTimeMillis(movieId) < timeSource.currentTimeMillis() + MIN_RESERVATION_TIME_MILLIS) {
+            return ReservationStatus.TOO_LATE;
+        }
+
+        return null;
+    }
+
+    private ReservationStatus validateReservationTime(MovieProjection projection) {
+        if (TimeSource.toEpochMillis(projection.getProjectionStartTime()) < timeSource.currentTimeMillis() + MIN_RESERVATION_TIME_MILLIS) {
+            return ReservationStatus.TOO_LATE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Restores the projections and the reservations from the journal or snapshot records. The projections, which are already in the manager are not
+     * scheduled again. The records only set the seats bits - the reserved seats are taken if they are free and the released seats are freed, so a record
+     * could be replayed over state, which already has some of its seats, e.g. restored from snapshot of older format written while the record was made.
+     * 
+     * The reservation records with viewers add the seats to the ledger in the projections of the record, which are still scheduled, and the release
+     * records remove them from it, so the restored reservations could be listed and cancelled. The ledger entries are not checked for duplicates, the
+     * snapshot has exactly the reservations journaled before its position, so the same reservation is never restored twice.
+     */
+    private class JournalReplay implements JournalListener {
+
+        @Override
+        public void projectionScheduled(long projectionId, String movieName, String layoutName, long startTimeMillis) {
+            if (schedule.get(projectionId) != null) {
+                return;
+            }
+
+            HallLayout layout = layoutName == null ? HallLayout.DEFAULT : layouts.get(layoutName);
+            if (layout == null) {
+                throw new IllegalStateException("Hall layout is not registered: " + layoutName);
+            }
+
+            addToSchedule(projectionId, catalog.getOrAdd(movieName), TimeSource.toLocalDateTime(startTimeMillis), layout);
+            updateProjectionIdSequence(projectionId);
+        }
+
+        @Override
+        public void seatsReserved(long[] projectionIds, long[] seatsMask) {
+            seatsReserved(projectionIds, seatsMask, null);
+        }
+
+        @Override
+        public void seatsReserved(long[] projectionIds, long[] seatsMask, Viewer[] viewers) {
+            MovieProjection[] projections = getScheduledProjections(projectionIds);
+            for (MovieProjection movieProjection : projections) {
+                movieProjection.takeFreeSeats(seatsMask);
+            }
+
+            if (viewers == null || projections.length == 0) {
+                return;
+            }
+
+            if (viewers.length == 1) {
+                ledger.add(viewers[0], projections, seatsMask);
+                return;
+            }
+
+            int viewerIndex = 0;
+            for (int wordIndex = 0; wordIndex < seatsMask.length; wordIndex++) {
+                for (long word = seatsMask[wordIndex]; word != 0; word &= word - 1) {
+                    ledger.add(viewers[viewerIndex++], projections, wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word) + 1);
+                }
+            }
+        }
+
+        /**
+         * Releases the seats and removes their entries, which have the same projection ids, from the ledger. The entries are found among the entries listed
+         * under the last projection, which are visited once for the whole record.
+         */
+        @Override
+        public void seatsReleased(long[] projectionIds, long[] seatsMask) {
+            MovieProjection[] projections = getScheduledProjections(projectionIds);
+            for (MovieProjection movieProjection : projections) {
+                movieProjection.releaseSeats(seatsMask);
+            }
+
+            if (projections.length == 0) {
+                return;
+            }
+
+            long[] scheduledIds = new long[projections.length];
+            for (int index = 0; index < projections.length; index++) {
+                scheduledIds[index] = projections[index].getId();
+            }
+
+            for (Reservation reservation : ledger.getForProjection(scheduledIds[scheduledIds.length - 1])) {
+                int bit = reservation.getSeatNumber() - 1;
+                if ((bit >>> 6) < seatsMask.length && (seatsMask[bit >>> 6] & (1L << bit)) != 0 && Arrays.equals(reservation.getProjectionIds(),
+                        scheduledIds)) {
+                    ledger.remove(reservation.getId());
+                }
+            }
+        }
+
+        /**
+         * @return The projections with the ids, which are still in the schedule, in the order of the ids
+         */
+        private MovieProjection[] getScheduledProjections(long[] projectionIds) {
+            MovieProjection[] projections = new MovieProjection[projectionIds.length];
+            int count = 0;
+            for (long projectionId : projectionIds) {
+                MovieProjection movieProjection = schedule.get(projectionId);
+                if (movieProjection != null) {
+                    projections[count++] = movieProjection;
+                }
+            }
+
+            return count == projections.length ? projections : Arrays.copyOf(projections, count);
+        }
+
+    }
+
+    /**
+     * The same as {@code value.trim().isEmpty()}, but without creating new string.
+     */
+    private static boolean isBlank(String value) {
+        for (int index = 0; index < value.length(); index++) {
+            if (value.charAt(index) > ' ') {
+                return false;
+            }
+        }
+
+        return true;
     }
 
 }
@@ -0,0 +1,43 @@
+package uni.pld.masters.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 
+ * Background task of {@link MovieProjectionManager}, which runs on its own daemon thread with fixed delay between the runs, till it is closed.
+ * 
+ * @author nstoilov
+ *
+ */
+public class PeriodicTask implements AutoCloseable {
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Starts the task.
+     * 
+     * @param threadName - name of the thread of the task
+     * @param task - the task
+     * @param periodMillis - how often the task runs
+     */
+    protected PeriodicTask(String threadName, Runnable task, long periodMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleWithFixedDelay(task, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the task.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,210 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uni.pld.masters.model.ArchivedProjection;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.time.TimeSource;
+
+/**
+ * 
+ * Compact store for the projections, which already started. The projections are not kept as objects, but in parallel primitive arrays - id, start time,
+ * index of the movie name and the taken seats bitmap words. The bitmaps of all projections are kept in one array, because the projections could have
+ * different hall layouts. Every movie name is kept only once.
+ * 
+ * The records are appended in the order they are archived, which is not always the order of the start times, because the projections could be evicted
+ * from more threads at once. The record numbers are kept ordered by start time in one array for the period queries, which use binary search, and per
+ * movie for the movie queries, which visit only the records of the movie. Inserting a record number is usually appending, because the projections are
+ * evicted roughly in the order they start. The number of the taken seats is summed per movie, when the projection is archived. The queries return
+ * {@link ArchivedProjection} objects created for the result.
+ * 
+ * @author nstoilov
+ *
+ */
+public class ProjectionArchive {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_MOVIE_CAPACITY = 16;
+
+    private final Map<String, Integer> movieIndexes = new HashMap<>();
+    private final List<String> movieNames = new ArrayList<>();
+    private final List<MovieRecords> movieRecords = new ArrayList<>();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+    private int[] movies = new int[INITIAL_CAPACITY];
+    private int[] seatsOffsets = new int[INITIAL_CAPACITY + 1];
+    private long[] takenSeats = new long[INITIAL_CAPACITY];
+    private int[] startTimeOrder = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds the projection to the archive.
+     * 
+     * @param projection - the projection, its seats are copied at the moment of archiving
+     */
+    synchronized void add(MovieProjection projection) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            startTimes = Arrays.copyOf(startTimes, capacity);
+            movies = Arrays.copyOf(movies, capacity);
+            seatsOffsets = Arrays.copyOf(seatsOffsets, capacity + 1);
+            startTimeOrder = Arrays.copyOf(startTimeOrder, capacity);
+        }
+
+        long[] reservedSeats = projection.getReservedSeatsMask();
+        int seatsOffset = seatsOffsets[size];
+        if (seatsOffset + reservedSeats.length > takenSeats.length) {
+            takenSeats = Arrays.copyOf(takenSeats, Math.max(takenSeats.length * 2, seatsOffset + reservedSeats.length));
+        }
+
+        String movieName = projection.getMovie()
+                .getName();
+        Integer movieIndex = movieIndexes.get(movieName);
+        if (movieIndex == null) {
+            movieIndex = movieNames.size();
+            movieIndexes.put(movieName, movieIndex);
+            movieNames.add(movieName);
+            movieRecords.add(new MovieRecords());
+        }
+
+        int record = size;
+        long startTimeMillis = TimeSource.toEpochMillis(projection.getProjectionStartTime());
+        ids[record] = projection.getId();
+        startTimes[record] = startTimeMillis;
+        movies[record] = movieIndex;
+        System.arraycopy(reservedSeats, 0, takenSeats, seatsOffset, reservedSeats.length);
+        seatsOffsets[record + 1] = seatsOffset + reservedSeats.length;
+        insertByStartTime(startTimeOrder, size, record);
+        size++;
+
+        MovieRecords recordsOfMovie = movieRecords.get(movieIndex);
+        if (recordsOfMovie.size == recordsOfMovie.records.length) {
+            recordsOfMovie.records = Arrays.copyOf(recordsOfMovie.records, recordsOfMovie.size * 2);
+        }
+        insertByStartTime(recordsOfMovie.records, recordsOfMovie.size, record);
+        recordsOfMovie.size++;
+        for (long word : reservedSeats) {
+            recordsOfMovie.takenSeatsCount += Long.bitCount(word);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param from - inclusive start of the period
+     * @param to - exclusive end of the period
+     * @return The archived projections, which started in the period ordered by start time
+     */
+    public synchronized List<ArchivedProjection> getProjectionsBetween(LocalDateTime from, LocalDateTime to) {
+        int fromIndex = lowerBound(startTimeOrder, size, TimeSource.toEpochMillis(from));
+        int toIndex = lowerBound(startTimeOrder, size, TimeSource.toEpochMillis(to));
+
+        List<ArchivedProjection> result = new ArrayList<>(Math.max(toIndex - fromIndex, 0));
+        for (int index = fromIndex; index < toIndex; index++) {
+            result.add(toArchivedProjection(startTimeOrder[index]));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param movieName - name of the movie
+     * @return The archived projections for the movie ordered by start time
+     */
+    public synchronized List<ArchivedProjection> getProjectionsForMovie(String movieName) {
+        Integer movieIndex = movieIndexes.get(movieName);
+        if (movieIndex == null) {
+            return new ArrayList<>();
+        }
+
+        MovieRecords recordsOfMovie = movieRecords.get(movieIndex);
+        List<ArchivedProjection> result = new ArrayList<>(recordsOfMovie.size);
+        for (int index = 0; index < recordsOfMovie.size; index++) {
+            result.add(toArchivedProjection(recordsOfMovie.records[index]));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param movieName - name of the movie
+     * @return The number of taken seats in all archived projections for the movie
+     */
+    public synchronized long getTakenSeatsCount(String movieName) {
+        Integer movieIndex = movieIndexes.get(movieName);
+
+        return movieIndex == null ? 0L : movieRecords.get(movieIndex).takenSeatsCount;
+    }
+
+    /**
+     * Inserts the record number after the records with the same or earlier start time, so the records with the same start time stay in the order they
+     * were archived.
+     */
+    private void insertByStartTime(int[] order, int orderSize, int record) {
+        int index = upperBound(order, orderSize, startTimes[record]);
+        System.arraycopy(order, index, order, index + 1, orderSize - index);
+        order[index] = record;
+    }
+
+    /**
+     * @return Index of the first record in the order, which starts at or after the given time
+     */
+    private int lowerBound(int[] order, int orderSize, long startTimeMillis) {
+        int low = 0;
+        int high = orderSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startTimes[order[middle]] < startTimeMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return Index of the first record in the order, which starts after the given time
+     */
+    private int upperBound(int[] order, int orderSize, long startTimeMillis) {
+        int low = 0;
+        int high = orderSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startTimes[order[middle]] <= startTimeMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private ArchivedProjection toArchivedProjection(int record) {
+        return new ArchivedProjection(ids[record], movieNames.get(movies[record]), TimeSource.toLocalDateTime(startTimes[record]),
+                Arrays.copyOfRange(takenSeats, seatsOffsets[record], seatsOffsets[record + 1]));
+    }
+
+    /**
+     * The record numbers of the archived projections of one movie ordered by start time and the sum of their taken seats.
+     */
+    private static final class MovieRecords {
+
+        private int[] records = new int[INITIAL_MOVIE_CAPACITY];
+        private int size;
+        private long takenSeatsCount;
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package uni.pld.masters.service;
+
+/**
+ * 
+ * Background task, which periodically moves the started projections of {@link MovieProjectionManager} to its {@link ProjectionArchive}. Every run takes
+ * only the projections from the beginning of the time-ordered schedule, so it doesn't scan the upcoming projections.
+ * 
+ * @author nstoilov
+ *
+ */
+public class ProjectionEvictor extends PeriodicTask {
+
+    /**
+     * Starts the eviction.
+     * 
+     * @param manager - the manager, which projections are evicted
+     * @param periodMillis - how often the started projections are evicted
+     */
+    public ProjectionEvictor(MovieProjectionManager manager, long periodMillis) {
+        super("projection-evictor", manager::evictStartedProjections, periodMillis);
+    }
+
+}
@@ -0,0 +1,513 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import uni.pld.masters.model.MovieCatalog;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.MovieProjectionListener;
+import uni.pld.masters.model.ProjectionInventory;
+import uni.pld.masters.time.TimeSource;
+
+/**
+ * 
+ * Schedule of {@link MovieProjection}s ordered by {@linkplain MovieProjection#getProjectionStartTime()}. The projections are kept in one skip list for the
+ * whole schedule and in one skip list per movie, so the range queries run in logarithmic time plus the size of the result. The times are given as epoch
+ * millis in the scale of {@link TimeSource}.
+ * 
+ * The movies of the projections must be canonical movies from {@link MovieCatalog}, the data per movie is kept in array indexed by the movie id.
+ * 
+ * The projections are indexed also by id in a hash map, so one projection is found in constant time.
+ * 
+ * The skip lists have keys with the start time and the id of the projection. The key of a projection on the heap keeps the projection, the key of a
+ * projection in {@link ProjectionInventory} keeps only its slot and the view over the slot is read from the inventory when the projection is returned,
+ * so the schedule doesn't keep views over the inventory. The inventory projections are added by slot, reading their fields without views.
+ * 
+ * The schedule listens for start time changes of its projections and moves them to their new place. It listens for the changes of all views of its
+ * inventory.
+ * 
+ * Every movie has also availability index - the projections are split in buckets by the number of their free seats, bucket b has the projections with
+ * free seats from 2^(b-1) to 2^b - 1 and every bucket is a skip list ordered by start time. The projection is moved to other bucket only when its free
+ * seats count crosses a power of two, so most of the reservations only compare the old and the new bucket. The query for projections with at least N free
+ * seats merges the buckets, which could have such projections, without reading the seats.
+ * 
+ * @author nstoilov
+ *
+ */
+class ProjectionSchedule implements MovieProjectionListener {
+
+    private final ProjectionInventory inventory;
+    private final ConcurrentSkipListSet<ScheduleKey> projectionsByTime = new ConcurrentSkipListSet<>();
+    private final Map<Long, ScheduleEntry> entries = new ConcurrentHashMap<>();
+    private volatile MovieSchedule[] movieSchedules = new MovieSchedule[16];
+
+    ProjectionSchedule() {
+        this(null);
+    }
+
+    /**
+     * @param inventory - the inventory of the projections added with {@linkplain #add(int)} or null, the schedule becomes the listener of its views
+     */
+    ProjectionSchedule(ProjectionInventory inventory) {
+        this.inventory = inventory;
+        if (inventory != null) {
+            inventory.setListener(this);
+        }
+    }
+
+    /**
+     * Adds the projection to the schedule. The projection must have id, canonical movie and start time set.
+     * 
+     * @param projection - the projection to add
+     */
+    void add(MovieProjection projection) {
+        ScheduleEntry entry = addEntry(new ScheduleKey(TimeSource.toEpochMillis(projection.getProjectionStartTime()), projection.getId(), projection,
+                ProjectionInventory.NO_SLOT), projection.getMovie()
+                        .getId());
+
+        projection.setListener(this);
+        moveToCurrentBucket(entry);
+    }
+
+    /**
+     * Adds the projection in the slot of the inventory of the schedule, without creating view over it.
+     * 
+     * @param slot - slot of the projection in the inventory
+     */
+    void add(int slot) {
+        ScheduleEntry entry = addEntry(new ScheduleKey(inventory.getStartTimeMillis(slot), inventory.getProjectionId(slot), null, slot), inventory
+                .getMovieId(slot));
+
+        moveToCurrentBucket(entry);
+    }
+
+    /**
+     * @param projectionId - id of the projection
+     * @return The projection with the id or null if it isn't in the schedule
+     */
+    MovieProjection get(long projectionId) {
+        ScheduleEntry entry = entries.get(projectionId);
+
+        return entry == null ? null : getProjection(entry.key);
+    }
+
+    /**
+     * @return All projections in the schedule ordered by start time
+     */
+    Collection<MovieProjection> getAll() {
+        return new Projections(projectionsByTime);
+    }
+
+    /**
+     * @param movieId - id of the movie
+     * @return The projections for the movie ordered by start time
+     */
+    Collection<MovieProjection> getForMovie(int movieId) {
+        MovieSchedule movieSchedule = getMovieSchedule(movieId);
+
+        return movieSchedule == null ? Collections.emptyList() : new Projections(movieSchedule.projections);
+    }
+
+    /**
+     * @param movieId - id of the movie
+     * @return The start time in epoch millis of the first projection for the movie or {@link Long#MAX_VALUE} if the movie has no projections
+     */
+    long getFirstStartTimeMillis(int movieId) {
+        MovieSchedule movieSchedule = getMovieSchedule(movieId);
+        if (movieSchedule == null) {
+            return Long.MAX_VALUE;
+        }
+
+        ScheduleKey first = first(movieSchedule.projections);
+        return first == null ? Long.MAX_VALUE : first.startTimeMillis;
+    }
+
+    /**
+     * @param fromMillis - inclusive start of the period
+     * @param toMillis - exclusive end of the period
+     * @return The projections starting in the period ordered by start time
+     */
+    List<MovieProjection> getBetween(long fromMillis, long toMillis) {
+        if (fromMillis >= toMillis) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<>(new Projections(projectionsByTime.subSet(ScheduleKey.lowerBound(fromMillis), ScheduleKey.lowerBound(toMillis))));
+    }
+
+    /**
+     * @param fromMillis - inclusive start time
+     * @return The projections starting at or after the given time ordered by start time
+     */
+    List<MovieProjection> getStartingFrom(long fromMillis) {
+        return new ArrayList<>(new Projections(projectionsByTime.tailSet(ScheduleKey.lowerBound(fromMillis))));
+    }
+
+    /**
+     * @param movieId - id of the movie
+     * @param fromMillis - inclusive start time
+     * @param count - maximum number of returned projections
+     * @return Up to {@linkplain count} projections for the movie starting at or after the given time ordered by start time
+     */
+    List<MovieProjection> getNextForMovie(int movieId, long fromMillis, int count) {
+        MovieSchedule movieSchedule = getMovieSchedule(movieId);
+        if (movieSchedule == null || count <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<MovieProjection> result = new ArrayList<>(Math.min(count, 16));
+        for (MovieProjection projection : new Projections(movieSchedule.projections.tailSet(ScheduleKey.lowerBound(fromMillis)))) {
+            result.add(projection);
+            if (result.size() == count) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param movieId - id of the movie
+     * @param fromMillis - inclusive start time
+     * @param minFreeSeats - minimum number of free seats
+     * @return The projections for the movie starting at or after the given time, which have at least {@linkplain minFreeSeats} free seats, ordered by start
+     *         time
+     */
+    List<MovieProjection> getWithFreeSeats(int movieId, long fromMillis, int minFreeSeats) {
+        MovieSchedule movieSchedule = getMovieSchedule(movieId);
+        if (movieSchedule == null) {
+            return Collections.emptyList();
+        }
+
+        PriorityQueue<BucketCursor> cursors = new PriorityQueue<>();
+        for (int bucket = bucket(Math.max(minFreeSeats, 0)); bucket < MovieSchedule.BUCKETS_COUNT; bucket++) {
+            ConcurrentSkipListSet<ScheduleKey> keys = movieSchedule.buckets.get(bucket);
+            if (keys != null) {
+                BucketCursor cursor = new BucketCursor(keys.tailSet(ScheduleKey.lowerBound(fromMillis))
+                        .iterator());
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+
+        List<MovieProjection> result = new ArrayList<>();
+        BucketCursor cursor;
+        while ((cursor = cursors.poll()) != null) {
+            if (getFreeSeatsCount(cursor.current) >= minFreeSeats) {
+                result.add(getProjection(cursor.current));
+            }
+
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the projections, which start before the given time, from the beginning of the schedule.
+     * 
+     * @param beforeMillis - exclusive end time of the removed projections
+     * @param removedProjectionConsumer - receives every removed projection
+     * @return The number of removed projections
+     */
+    int removeStartingBefore(long beforeMillis, Consumer<MovieProjection> removedProjectionConsumer) {
+        int removedCount = 0;
+        ScheduleKey first;
+        while ((first = first(projectionsByTime)) != null && first.startTimeMillis < beforeMillis) {
+            if (!projectionsByTime.remove(first)) {
+                continue;
+            }
+
+            if (first.projection != null) {
+                first.projection.setListener(null);
+            }
+
+            ScheduleEntry entry = entries.remove(first.id);
+            if (entry != null) {
+                synchronized (entry) {
+                    entry.movieSchedule.projections.remove(entry.key);
+                    entry.movieSchedule.getBucket(entry.bucket)
+                            .remove(entry.key);
+                }
+            }
+
+            removedProjectionConsumer.accept(getProjection(first));
+            removedCount++;
+        }
+
+        return removedCount;
+    }
+
+    @Override
+    public void projectionStartTimeChanged(MovieProjection projection, LocalDateTime oldStartTime) {
+        ScheduleEntry entry = entries.get(projection.getId());
+        if (entry == null) {
+            return;
+        }
+
+        synchronized (entry) {
+            ScheduleKey oldKey = entry.key;
+            ScheduleKey newKey = new ScheduleKey(TimeSource.toEpochMillis(projection.getProjectionStartTime()), oldKey.id, oldKey.projection, oldKey.slot);
+            if (entry.movieSchedule.projections.remove(oldKey)) {
+                entry.movieSchedule.projections.add(newKey);
+            }
+
+            if (projectionsByTime.remove(oldKey)) {
+                projectionsByTime.add(newKey);
+            }
+
+            ConcurrentSkipListSet<ScheduleKey> bucketKeys = entry.movieSchedule.getBucket(entry.bucket);
+            if (bucketKeys.remove(oldKey)) {
+                bucketKeys.add(newKey);
+            }
+            entry.key = newKey;
+        }
+    }
+
+    @Override
+    public void freeSeatsCountChanged(MovieProjection projection, int oldFreeSeatsCount, int newFreeSeatsCount) {
+        if (bucket(oldFreeSeatsCount) == bucket(newFreeSeatsCount)) {
+            return;
+        }
+
+        ScheduleEntry entry = entries.get(projection.getId());
+        if (entry != null) {
+            moveToCurrentBucket(entry);
+        }
+    }
+
+    private ScheduleEntry addEntry(ScheduleKey key, int movieId) {
+        MovieSchedule movieSchedule = getOrCreateMovieSchedule(movieId);
+        ScheduleEntry entry = new ScheduleEntry(movieSchedule, key);
+        entries.put(key.id, entry);
+        synchronized (entry) {
+            movieSchedule.projections.add(key);
+            projectionsByTime.add(key);
+            entry.bucket = bucket(getFreeSeatsCount(key));
+            movieSchedule.getBucket(entry.bucket)
+                    .add(key);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Moves the projection to the bucket for its current free seats count. The count is read again under the lock of the entry, so when concurrent changes
+     * move the projection, the last move puts it in the right bucket.
+     */
+    private void moveToCurrentBucket(ScheduleEntry entry) {
+        synchronized (entry) {
+            int bucket = bucket(getFreeSeatsCount(entry.key));
+            if (bucket != entry.bucket && entry.movieSchedule.getBucket(entry.bucket)
+                    .remove(entry.key)) {
+                entry.bucket = bucket;
+                entry.movieSchedule.getBucket(bucket)
+                        .add(entry.key);
+            }
+        }
+    }
+
+    /**
+     * @return The projection of the key or the view over its slot
+     */
+    private MovieProjection getProjection(ScheduleKey key) {
+        return key.projection != null ? key.projection : inventory.get(key.slot);
+    }
+
+    private int getFreeSeatsCount(ScheduleKey key) {
+        return key.projection != null ? key.projection.getFreeSeatsCount() : inventory.getFreeSeatsCount(key.slot);
+    }
+
+    private MovieSchedule getMovieSchedule(int movieId) {
+        MovieSchedule[] schedules = movieSchedules;
+
+        return movieId > 0 && movieId < schedules.length ? schedules[movieId] : null;
+    }
+
+    private synchronized MovieSchedule getOrCreateMovieSchedule(int movieId) {
+        MovieSchedule[] schedules = movieSchedules;
+        if (movieId >= schedules.length) {
+            schedules = Arrays.copyOf(schedules, Math.max(schedules.length * 2, movieId + 1));
+        }
+
+        if (schedules[movieId] == null) {
+            schedules[movieId] = new MovieSchedule();
+        }
+        movieSchedules = schedules;
+
+        return schedules[movieId];
+    }
+
+    /**
+     * @return Index of the bucket for the free seats count - 0 for no free seats, b for counts from 2^(b-1) to 2^b - 1
+     */
+    private static int bucket(int freeSeatsCount) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(freeSeatsCount);
+    }
+
+    private static ScheduleKey first(ConcurrentSkipListSet<ScheduleKey> keys) {
+        Iterator<ScheduleKey> iterator = keys.iterator();
+
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * The projections of one movie ordered by start time and the availability buckets, which are created when the first projection gets in them.
+     */
+    private static final class MovieSchedule {
+
+        private static final int BUCKETS_COUNT = Integer.SIZE + 1;
+
+        private final ConcurrentSkipListSet<ScheduleKey> projections = new ConcurrentSkipListSet<>();
+        private final AtomicReferenceArray<ConcurrentSkipListSet<ScheduleKey>> buckets = new AtomicReferenceArray<>(BUCKETS_COUNT);
+
+        ConcurrentSkipListSet<ScheduleKey> getBucket(int bucket) {
+            ConcurrentSkipListSet<ScheduleKey> keys = buckets.get(bucket);
+            if (keys == null) {
+                buckets.compareAndSet(bucket, null, new ConcurrentSkipListSet<>());
+                keys = buckets.get(bucket);
+            }
+
+            return keys;
+        }
+
+    }
+
+    /**
+     * The current key of one projection and its place in the availability index, changed only under the lock of the entry.
+     */
+    private static final class ScheduleEntry {
+
+        private final MovieSchedule movieSchedule;
+        private volatile ScheduleKey key;
+        private int bucket;
+
+        ScheduleEntry(MovieSchedule movieSchedule, ScheduleKey key) {
+            this.movieSchedule = movieSchedule;
+            this.key = key;
+        }
+
+    }
+
+    /**
+     * The projections of the keys in their order, the views over the slots are read while iterating.
+     */
+    private final class Projections extends AbstractCollection<MovieProjection> {
+
+        private final Collection<ScheduleKey> keys;
+
+        Projections(Collection<ScheduleKey> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public Iterator<MovieProjection> iterator() {
+            Iterator<ScheduleKey> iterator = keys.iterator();
+            return new Iterator<MovieProjection>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public MovieProjection next() {
+                    return getProjection(iterator.next());
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return keys.size();
+        }
+
+    }
+
+    /**
+     * Iterator over one bucket, ordered by its current key, used for merging the buckets.
+     */
+    private static final class BucketCursor implements Comparable<BucketCursor> {
+
+        private final Iterator<ScheduleKey> iterator;
+        private ScheduleKey current;
+
+        BucketCursor(Iterator<ScheduleKey> iterator) {
+            this.iterator = iterator;
+        }
+
+        boolean next() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public int compareTo(BucketCursor other) {
+            return current.compareTo(other.current);
+        }
+
+    }
+
+    /**
+     * Key of a projection in the schedule - the start time as epoch millis and the projection id, used when two projections start at the same time. The
+     * key keeps the projection on the heap or the slot of the projection in the inventory, they are not compared.
+     */
+    private static final class ScheduleKey implements Comparable<ScheduleKey> {
+
+        private final long startTimeMillis;
+        private final long id;
+        private final MovieProjection projection;
+        private final int slot;
+
+        ScheduleKey(long startTimeMillis, long id, MovieProjection projection, int slot) {
+            this.startTimeMillis = startTimeMillis;
+            this.id = id;
+            this.projection = projection;
+            this.slot = slot;
+        }
+
+        static ScheduleKey lowerBound(long startTimeMillis) {
+            return new ScheduleKey(startTimeMillis, Long.MIN_VALUE, null, ProjectionInventory.NO_SLOT);
+        }
+
+        @Override
+        public int compareTo(ScheduleKey other) {
+            int result = Long.compare(startTimeMillis, other.startTimeMillis);
+
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ScheduleKey)) {
+                return false;
+            }
+
+            ScheduleKey otherKey = (ScheduleKey) other;
+            return startTimeMillis == otherKey.startTimeMillis && id == otherKey.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(startTimeMillis) * 31 + Long.hashCode(id);
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+package uni.pld.masters.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Bounded waitlist of one projection. The entries waiting for one seat are in one skip list per seat and the entries waiting for any seat are in one more
+ * skip list, all ordered by {@linkplain WaitlistEntry#compareTo(WaitlistEntry)}. The next entry for a released seat is the first of the two heads - of
+ * the seat list and of the any seat list, so the promotion doesn't scan the entries waiting for other seats.
+ *
+ * When promotion and leaving race, the state of the entry decides which of them gets it - both change it from waiting with compare-and-set, also
+ * when the entry is already removed from its list for the promotion. The entries, which don't wait anymore, are dropped when they are polled, so the
+ * promotion doesn't get them. The number of the entries is limited with compare-and-set on the size counter before the entry is added.
+ *
+ * @author nstoilov
+ *
+ */
+class ProjectionWaitlist {
+
+    private final int capacity;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentSkipListSet<WaitlistEntry> anySeatEntries = new ConcurrentSkipListSet<>();
+    private final Map<Integer, ConcurrentSkipListSet<WaitlistEntry>> seatEntries = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity - the maximum number of the waiting entries
+     */
+    ProjectionWaitlist(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return The join order of the next entry
+     */
+    long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * @return true if the entry is added, false if the waitlist is full
+     */
+    boolean add(WaitlistEntry entry) {
+        int currentSize;
+        do {
+            currentSize = size.get();
+            if (currentSize >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(currentSize, currentSize + 1));
+
+        getEntries(entry).add(entry);
+        return true;
+    }
+
+    /**
+     * Adds back entry, which was removed for promotion, but didn't get the seat. The entry keeps its place, because it keeps its sequence. The capacity is
+     * checked like in {@linkplain #add(WaitlistEntry)}, because other entries could join after this one was removed. The entry is not added, if it
+     * doesn't wait anymore, and it is removed again, if it left while it was added.
+     *
+     * @return true if the entry is added back or doesn't wait anymore, false if the waitlist is full
+     */
+    boolean restore(WaitlistEntry entry) {
+        if (!entry.isWaiting()) {
+            return true;
+        }
+
+        if (!add(entry)) {
+            return false;
+        }
+
+        if (!entry.isWaiting()) {
+            remove(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the first entry, which waits for the seat or for any seat. The entries before it, which don't wait anymore, are removed too.
+     *
+     * @param seatNumber - number of the released seat
+     * @return The removed entry or null if no entry waits for the seat
+     */
+    WaitlistEntry pollFor(int seatNumber) {
+        ConcurrentSkipListSet<WaitlistEntry> entries = seatEntries.get(seatNumber);
+        while (true) {
+            WaitlistEntry seatFirst = first(entries);
+            WaitlistEntry anySeatFirst = first(anySeatEntries);
+            WaitlistEntry candidate = seatFirst == null || (anySeatFirst != null && anySeatFirst.compareTo(seatFirst) < 0) ? anySeatFirst : seatFirst;
+            if (candidate == null) {
+                return null;
+            }
+
+            if (remove(candidate) && candidate.isWaiting()) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * @return true if the entry was in the waitlist and is removed by this call
+     */
+    boolean remove(WaitlistEntry entry) {
+        ConcurrentSkipListSet<WaitlistEntry> entries = entry.isAnySeat() ? anySeatEntries : seatEntries.get(entry.getSeatNumber());
+        if (entries == null || !entries.remove(entry)) {
+            return false;
+        }
+
+        size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return The removed entries
+     */
+    List<WaitlistEntry> removeAll() {
+        List<WaitlistEntry> removed = new ArrayList<>();
+        WaitlistEntry entry;
+        while ((entry = anySeatEntries.pollFirst()) != null) {
+            size.decrementAndGet();
+            removed.add(entry);
+        }
+        for (ConcurrentSkipListSet<WaitlistEntry> entries : seatEntries.values()) {
+            while ((entry = entries.pollFirst()) != null) {
+                size.decrementAndGet();
+                removed.add(entry);
+            }
+        }
+
+        return removed;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private ConcurrentSkipListSet<WaitlistEntry> getEntries(WaitlistEntry entry) {
+        return entry.isAnySeat() ? anySeatEntries : seatEntries.computeIfAbsent(entry.getSeatNumber(), seatNumber -> new ConcurrentSkipListSet<>());
+    }
+
+    private static WaitlistEntry first(ConcurrentSkipListSet<WaitlistEntry> entries) {
+        if (entries == null) {
+            return null;
+        }
+
+        Iterator<WaitlistEntry> iterator = entries.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+}
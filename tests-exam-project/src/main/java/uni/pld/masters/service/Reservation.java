@@ -0,0 +1,79 @@
+package uni.pld.masters.service;
+
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.persistence.ReservedSeat;
+
+/**
+ *
+ * One reserved seat in the projections of one booking, copied from {@link ReservationLedger}. The id could be passed to
+ * {@linkplain MovieProjectionManager#cancelReservation(long)}.
+ *
+ * @author nstoilov
+ *
+ */
+public final class Reservation implements ReservedSeat {
+
+    private final long id;
+    private final Viewer viewer;
+    private final int movieId;
+    private final MovieProjection[] projections;
+    private final int seatNumber;
+
+    Reservation(long id, Viewer viewer, int movieId, MovieProjection[] projections, int seatNumber) {
+        this.id = id;
+        this.viewer = viewer;
+        this.movieId = movieId;
+        this.projections = projections;
+        this.seatNumber = seatNumber;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return The first viewer with the names of the viewer, who made the reservation
+     */
+    @Override
+    public Viewer getViewer() {
+        return viewer;
+    }
+
+    /**
+     * @return The id of the movie in {@link uni.pld.masters.model.MovieCatalog} of the manager
+     */
+    public int getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * @return The id of the last projection of the booking, under which the reservation is listed
+     */
+    public long getProjectionId() {
+        return projections[projections.length - 1].getId();
+    }
+
+    /**
+     * @return The ids of all projections, in which the seat is reserved, ordered by start time
+     */
+    @Override
+    public long[] getProjectionIds() {
+        long[] projectionIds = new long[projections.length];
+        for (int index = 0; index < projections.length; index++) {
+            projectionIds[index] = projections[index].getId();
+        }
+
+        return projectionIds;
+    }
+
+    @Override
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    MovieProjection[] getProjections() {
+        return projections;
+    }
+
+}
@@ -0,0 +1,550 @@
+package uni.pld.masters.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+
+/**
+ *
+ * Ledger of the active reservations of {@link MovieProjectionManager} - which viewer reserved which seat in which projections. Every reserved seat of
+ * one booking is one entry, also when the booking took the seat in all projections of the movie. The entry keeps the projections of the booking and is
+ * listed under the last of them, the one which starts last, so the entry lives till all projections of the booking are evicted.
+ *
+ * The ledger is split in {@value #STRIPES_COUNT} stripes by the id of the listing projection and every stripe has its own lock, so the reservations in
+ * different projections don't wait for each other. The entries of one stripe are kept in parallel primitive arrays indexed by slot, about 40 bytes per entry, and
+ * the free slots are reused. The entries of one viewer and the entries of one projection are linked in two doubly linked lists through the slots, so
+ * the lookups by viewer or projection visit only their entries and the cancellation removes the entry in constant time. The viewers get dense int ids
+ * by their names in every stripe from open addressing table of ints, which is probed with the hash codes of the names, so finding the viewer builds no
+ * key. The id of a viewer is reused when the last entry of the viewer is removed. The list heads of the viewers are in an array indexed by the viewer
+ * id and the list heads of the projections are in {@link LongIntHashMap}.
+ *
+ * The reservation id has the stripe in the low {@value #STRIPE_BITS} bits, the slot in the next bits up to 32 and the generation of the slot in the high
+ * 32 bits, so the id of a cancelled reservation doesn't find the next reservation in the same slot.
+ *
+ * Every change locks only the stripe of the projection and is a constant number of array writes. The lookups by viewer visit all stripes one by one.
+ *
+ * @author nstoilov
+ *
+ */
+public class ReservationLedger {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES_COUNT = 1 << STRIPE_BITS;
+    private static final int MAX_SLOTS_COUNT = 1 << (Integer.SIZE - STRIPE_BITS);
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES_COUNT];
+
+    public ReservationLedger() {
+        for (int index = 0; index < STRIPES_COUNT; index++) {
+            stripes[index] = new Stripe(index);
+        }
+    }
+
+    /**
+     * Adds one entry for the seat in all projections of the booking.
+     *
+     * @param projections - the projections of the booking ordered by start time
+     */
+    void add(Viewer viewer, MovieProjection[] projections, int seatNumber) {
+        if (projections.length > 0) {
+            getStripe(getListingProjection(projections).getId()).add(viewer, projections, seatNumber);
+        }
+    }
+
+    /**
+     * Adds one entry for every seat of the mask in all projections of the booking.
+     *
+     * @param projections - the projections of the booking ordered by start time
+     */
+    void add(Viewer viewer, MovieProjection[] projections, long[] seatsMask) {
+        if (projections.length > 0) {
+            getStripe(getListingProjection(projections).getId()).add(viewer, projections, seatsMask);
+        }
+    }
+
+    /**
+     * Removes the entry.
+     *
+     * @param reservationId - id of the reservation
+     * @return true if the reservation was active and is removed
+     */
+    boolean remove(long reservationId) {
+        return stripes[(int) reservationId & (STRIPES_COUNT - 1)].remove(reservationId);
+    }
+
+    /**
+     * Adds back the removed entry with its id, e.g. when the cancellation failed after the entry was removed. If the slot of the entry was already reused,
+     * the entry gets new id.
+     *
+     * @param reservation - the removed reservation
+     */
+    void restore(Reservation reservation) {
+        stripes[(int) reservation.getId() & (STRIPES_COUNT - 1)].restore(reservation);
+    }
+
+    /**
+     * Removes all entries listed under the projection.
+     *
+     * @param projectionId - id of the projection
+     * @return The number of the removed entries
+     */
+    int removeForProjection(long projectionId) {
+        return getStripe(projectionId).removeForProjection(projectionId);
+    }
+
+    /**
+     * @param reservationId - id of the reservation
+     * @return The reservation or null if there is no active reservation with this id
+     */
+    public Reservation get(long reservationId) {
+        return stripes[(int) reservationId & (STRIPES_COUNT - 1)].get(reservationId);
+    }
+
+    /**
+     * @param viewer - Mandatory parameter. The viewer, the viewers with the same names have the same reservations
+     * @return The active reservations of the viewer, the last made first in every stripe
+     */
+    public List<Reservation> getForViewer(Viewer viewer) {
+        List<Reservation> reservations = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.addForViewer(viewer, reservations);
+        }
+
+        return reservations;
+    }
+
+    /**
+     * @param projectionId - id of the projection
+     * @return The active reservations listed under the projection - made only for it or for it and projections, which start before it, the last made first
+     */
+    public List<Reservation> getForProjection(long projectionId) {
+        List<Reservation> reservations = new ArrayList<>();
+        getStripe(projectionId).addForProjection(projectionId, reservations);
+
+        return reservations;
+    }
+
+    /**
+     * @return All active reservations, e.g. for writing them to snapshot
+     */
+    public List<Reservation> getAll() {
+        List<Reservation> reservations = new ArrayList<>(size());
+        for (Stripe stripe : stripes) {
+            stripe.addAll(reservations);
+        }
+
+        return reservations;
+    }
+
+    /**
+     * @return The number of the active reservations
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+
+        return size;
+    }
+
+    private static MovieProjection getListingProjection(MovieProjection[] projections) {
+        return projections[projections.length - 1];
+    }
+
+    private Stripe getStripe(long projectionId) {
+        return stripes[(int) (projectionId ^ (projectionId >>> 32)) & (STRIPES_COUNT - 1)];
+    }
+
+    /**
+     * The entries listed under the projections with the same stripe index. All methods are synchronized on the stripe.
+     */
+    private static final class Stripe {
+
+        private final int index;
+        private int[] viewerTable = new int[INITIAL_CAPACITY * 2];
+        private Viewer[] viewers = new Viewer[INITIAL_CAPACITY];
+        private int[] viewerHeads = new int[INITIAL_CAPACITY];
+        private int usedViewerIdsCount;
+        private int freeViewerIdsHead = NONE;
+        private int viewersCount;
+        private final LongIntHashMap projectionHeads = new LongIntHashMap();
+
+        private int[] generations = new int[INITIAL_CAPACITY];
+        private int[] viewerIdsBySlot = new int[INITIAL_CAPACITY];
+        private int[] movieIds = new int[INITIAL_CAPACITY];
+        private long[] projectionIds = new long[INITIAL_CAPACITY];
+        private MovieProjection[][] projections = new MovieProjection[INITIAL_CAPACITY][];
+        private int[] seatNumbers = new int[INITIAL_CAPACITY];
+        private int[] nextByViewer = new int[INITIAL_CAPACITY];
+        private int[] previousByViewer = new int[INITIAL_CAPACITY];
+        private int[] nextByProjection = new int[INITIAL_CAPACITY];
+        private int[] previousByProjection = new int[INITIAL_CAPACITY];
+        private int usedSlotsCount;
+        private int freeSlotsHead = NONE;
+        private int size;
+
+        Stripe(int index) {
+            this.index = index;
+        }
+
+        synchronized void add(Viewer viewer, MovieProjection[] bookingProjections, int seatNumber) {
+            addEntry(getOrAddViewerId(viewer), bookingProjections, seatNumber);
+        }
+
+        synchronized void add(Viewer viewer, MovieProjection[] bookingProjections, long[] seatsMask) {
+            int viewerId = getOrAddViewerId(viewer);
+            for (int wordIndex = 0; wordIndex < seatsMask.length; wordIndex++) {
+                for (long word = seatsMask[wordIndex]; word != 0; word &= word - 1) {
+                    addEntry(viewerId, bookingProjections, wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word) + 1);
+                }
+            }
+            if (viewerHeads[viewerId] == NONE) {
+                removeViewerId(viewerId);
+            }
+        }
+
+        synchronized boolean remove(long reservationId) {
+            int slot = findSlot(reservationId);
+            if (slot == NONE) {
+                return false;
+            }
+
+            removeSlot(slot);
+            return true;
+        }
+
+        synchronized void restore(Reservation reservation) {
+            int viewerId = getOrAddViewerId(reservation.getViewer());
+            int slot = (int) reservation.getId() >>> STRIPE_BITS;
+            int generation = (int) (reservation.getId() >>> 32);
+            if (slot < usedSlotsCount && generations[slot] == generation + 1 && unlinkFreeSlot(slot)) {
+                generations[slot] = generation;
+                linkEntry(slot, viewerId, reservation.getProjections(), reservation.getSeatNumber());
+            } else {
+                addEntry(viewerId, reservation.getProjections(), reservation.getSeatNumber());
+            }
+        }
+
+        synchronized int removeForProjection(long projectionId) {
+            int removedCount = 0;
+            int slot = projectionHeads.get(projectionId, NONE);
+            while (slot != NONE) {
+                int next = nextByProjection[slot];
+                removeSlot(slot);
+                removedCount++;
+                slot = next;
+            }
+
+            return removedCount;
+        }
+
+        synchronized Reservation get(long reservationId) {
+            int slot = findSlot(reservationId);
+            return slot == NONE ? null : toReservation(slot);
+        }
+
+        synchronized void addForViewer(Viewer viewer, List<Reservation> reservations) {
+            int viewerId = findViewerId(viewer);
+            if (viewerId != NONE) {
+                for (int slot = viewerHeads[viewerId]; slot != NONE; slot = nextByViewer[slot]) {
+                    reservations.add(toReservation(slot));
+                }
+            }
+        }
+
+        synchronized void addForProjection(long projectionId, List<Reservation> reservations) {
+            for (int slot = projectionHeads.get(projectionId, NONE); slot != NONE; slot = nextByProjection[slot]) {
+                reservations.add(toReservation(slot));
+            }
+        }
+
+        synchronized void addAll(List<Reservation> reservations) {
+            for (int slot = 0; slot < usedSlotsCount; slot++) {
+                if (!isFree(slot)) {
+                    reservations.add(toReservation(slot));
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void addEntry(int viewerId, MovieProjection[] bookingProjections, int seatNumber) {
+            linkEntry(allocateSlot(), viewerId, bookingProjections, seatNumber);
+        }
+
+        private void linkEntry(int slot, int viewerId, MovieProjection[] bookingProjections, int seatNumber) {
+            MovieProjection projection = getListingProjection(bookingProjections);
+            viewerIdsBySlot[slot] = viewerId;
+            movieIds[slot] = projection.getMovie()
+                    .getId();
+            projectionIds[slot] = projection.getId();
+            projections[slot] = bookingProjections;
+            seatNumbers[slot] = seatNumber;
+
+            int viewerHead = viewerHeads[viewerId];
+            nextByViewer[slot] = viewerHead;
+            previousByViewer[slot] = NONE;
+            if (viewerHead != NONE) {
+                previousByViewer[viewerHead] = slot;
+            }
+            viewerHeads[viewerId] = slot;
+
+            int projectionHead = projectionHeads.get(projection.getId(), NONE);
+            nextByProjection[slot] = projectionHead;
+            previousByProjection[slot] = NONE;
+            if (projectionHead != NONE) {
+                previousByProjection[projectionHead] = slot;
+            }
+            projectionHeads.put(projection.getId(), slot);
+
+            size++;
+        }
+
+        private void removeSlot(int slot) {
+            int next = nextByViewer[slot];
+            int previous = previousByViewer[slot];
+            if (previous == NONE) {
+                if (next == NONE) {
+                    removeViewerId(viewerIdsBySlot[slot]);
+                } else {
+                    viewerHeads[viewerIdsBySlot[slot]] = next;
+                }
+            } else {
+                nextByViewer[previous] = next;
+            }
+            if (next != NONE) {
+                previousByViewer[next] = previous;
+            }
+
+            next = nextByProjection[slot];
+            previous = previousByProjection[slot];
+            if (previous == NONE) {
+                if (next == NONE) {
+                    projectionHeads.remove(projectionIds[slot]);
+                } else {
+                    projectionHeads.put(projectionIds[slot], next);
+                }
+            } else {
+                nextByProjection[previous] = next;
+            }
+            if (next != NONE) {
+                previousByProjection[next] = previous;
+            }
+
+            generations[slot]++;
+            projections[slot] = null;
+            nextByViewer[slot] = freeSlotsHead;
+            freeSlotsHead = slot;
+            size--;
+        }
+
+        private int allocateSlot() {
+            if (freeSlotsHead != NONE) {
+                int slot = freeSlotsHead;
+                freeSlotsHead = nextByViewer[slot];
+                generations[slot]++;
+                return slot;
+            }
+
+            if (usedSlotsCount == MAX_SLOTS_COUNT) {
+                throw new IllegalStateException("The reservation ledger stripe is full");
+            }
+
+            if (usedSlotsCount == generations.length) {
+                int capacity = generations.length * 2;
+                generations = Arrays.copyOf(generations, capacity);
+                viewerIdsBySlot = Arrays.copyOf(viewerIdsBySlot, capacity);
+                movieIds = Arrays.copyOf(movieIds, capacity);
+                projectionIds = Arrays.copyOf(projectionIds, capacity);
+                projections = Arrays.copyOf(projections, capacity);
+                seatNumbers = Arrays.copyOf(seatNumbers, capacity);
+                nextByViewer = Arrays.copyOf(nextByViewer, capacity);
+                previousByViewer = Arrays.copyOf(previousByViewer, capacity);
+                nextByProjection = Arrays.copyOf(nextByProjection, capacity);
+                previousByProjection = Arrays.copyOf(previousByProjection, capacity);
+            }
+
+            int slot = usedSlotsCount++;
+            generations[slot] = 1;
+            return slot;
+        }
+
+        /**
+         * Removes the slot from the list of the free slots. The removed slots are added at the head of the list, so the slot of just removed entry is
+         * found at once.
+         *
+         * @return true if the slot was free
+         */
+        private boolean unlinkFreeSlot(int slot) {
+            int previous = NONE;
+            for (int free = freeSlotsHead; free != NONE; previous = free, free = nextByViewer[free]) {
+                if (free == slot) {
+                    if (previous == NONE) {
+                        freeSlotsHead = nextByViewer[free];
+                    } else {
+                        nextByViewer[previous] = nextByViewer[free];
+                    }
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @return The slot of the active reservation or {@linkplain #NONE} if there is no active reservation with this id
+         */
+        private int findSlot(long reservationId) {
+            int slot = (int) reservationId >>> STRIPE_BITS;
+            int generation = (int) (reservationId >>> 32);
+            if (slot >= usedSlotsCount || generations[slot] != generation) {
+                return NONE;
+            }
+
+            return isFree(slot) ? NONE : slot;
+        }
+
+        /**
+         * The generation of the slot is incremented when the slot is allocated again and when the reservation is removed, so the active slots have odd
+         * generation and the free slots have even generation.
+         */
+        private boolean isFree(int slot) {
+            return (generations[slot] & 1) == 0;
+        }
+
+        /**
+         * @return The id of the viewer with the same names or {@linkplain #NONE} if the viewer has no entries in the stripe
+         */
+        private int findViewerId(Viewer viewer) {
+            int mask = viewerTable.length - 1;
+            for (int index = viewerIndex(hash(viewer), mask); viewerTable[index] != 0; index = (index + 1) & mask) {
+                int viewerId = viewerTable[index] - 1;
+                if (hasSameNames(viewers[viewerId], viewer)) {
+                    return viewerId;
+                }
+            }
+
+            return NONE;
+        }
+
+        /**
+         * The table keeps the viewer id + 1, so the zeros are the empty cells.
+         */
+        private int getOrAddViewerId(Viewer viewer) {
+            int mask = viewerTable.length - 1;
+            int index = viewerIndex(hash(viewer), mask);
+            while (viewerTable[index] != 0) {
+                int viewerId = viewerTable[index] - 1;
+                if (hasSameNames(viewers[viewerId], viewer)) {
+                    return viewerId;
+                }
+                index = (index + 1) & mask;
+            }
+
+            int newViewerId = allocateViewerId();
+            viewers[newViewerId] = viewer;
+            viewerHeads[newViewerId] = NONE;
+            viewerTable[index] = newViewerId + 1;
+            if (++viewersCount > viewerTable.length / 2) {
+                resizeViewerTable();
+            }
+
+            return newViewerId;
+        }
+
+        /**
+         * The free viewer ids are linked through {@linkplain #viewerHeads}, like the free slots are linked through {@linkplain #nextByViewer}.
+         */
+        private int allocateViewerId() {
+            if (freeViewerIdsHead != NONE) {
+                int viewerId = freeViewerIdsHead;
+                freeViewerIdsHead = viewerHeads[viewerId];
+                return viewerId;
+            }
+
+            if (usedViewerIdsCount == viewers.length) {
+                viewers = Arrays.copyOf(viewers, viewers.length * 2);
+                viewerHeads = Arrays.copyOf(viewerHeads, viewerHeads.length * 2);
+            }
+
+            return usedViewerIdsCount++;
+        }
+
+        /**
+         * Removes the viewer without entries from the table and frees its id. The next cells of the same probe chain are shifted back, so there are no
+         * tombstones.
+         */
+        private void removeViewerId(int viewerId) {
+            int mask = viewerTable.length - 1;
+            int index = viewerIndex(hash(viewers[viewerId]), mask);
+            while (viewerTable[index] != viewerId + 1) {
+                index = (index + 1) & mask;
+            }
+
+            int next = (index + 1) & mask;
+            while (viewerTable[next] != 0) {
+                int home = viewerIndex(hash(viewers[viewerTable[next] - 1]), mask);
+                if (((next - home) & mask) >= ((next - index) & mask)) {
+                    viewerTable[index] = viewerTable[next];
+                    index = next;
+                }
+                next = (next + 1) & mask;
+            }
+            viewerTable[index] = 0;
+            viewersCount--;
+
+            viewers[viewerId] = null;
+            viewerHeads[viewerId] = freeViewerIdsHead;
+            freeViewerIdsHead = viewerId;
+        }
+
+        private void resizeViewerTable() {
+            int[] oldTable = viewerTable;
+            viewerTable = new int[oldTable.length * 2];
+            int mask = viewerTable.length - 1;
+            for (int cell : oldTable) {
+                if (cell != 0) {
+                    int index = viewerIndex(hash(viewers[cell - 1]), mask);
+                    while (viewerTable[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    viewerTable[index] = cell;
+                }
+            }
+        }
+
+        private static int hash(Viewer viewer) {
+            return viewer.getFirstName()
+                    .hashCode() * 31
+                    + viewer.getLastName()
+                            .hashCode();
+        }
+
+        private static int viewerIndex(int hash, int mask) {
+            int mixedHash = hash * 0x9E3779B9;
+            return (mixedHash ^ (mixedHash >>> 16)) & mask;
+        }
+
+        private static boolean hasSameNames(Viewer viewer, Viewer otherViewer) {
+            return viewer.getFirstName()
+                    .equals(otherViewer.getFirstName())
+                    && viewer.getLastName()
+                            .equals(otherViewer.getLastName());
+        }
+
+        private Reservation toReservation(int slot) {
+            long reservationId = ((long) generations[slot] << 32) | ((long) slot << STRIPE_BITS) | index;
+            return new Reservation(reservationId, viewers[viewerIdsBySlot[slot]], movieIds[slot], projections[slot], seatNumbers[slot]);
+        }
+
+    }
+
+}
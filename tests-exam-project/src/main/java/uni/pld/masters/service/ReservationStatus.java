@@ -0,0 +1,43 @@
+package uni.pld.masters.service;
+
+/**
+ * 
+ * Result of a reservation made with {@link MovieProjectionManager}. Every status has a message, which is the same as the message returned by the methods
+ * returning {@link String}.
+ * 
+ * @author nstoilov
+ *
+ */
+public enum ReservationStatus {
+
+    SUCCESS("Reservation was made successfully"),
+    VIEWER_NULL("Viewer mustn`t be null"),
+    VIEWER_NAMES_NULL("Viewer names mustn`t be null"),
+    VIEWER_NAMES_EMPTY("Viewer names mustn`t be empty"),
+    MOVIE_NULL("Movie mustn`t be null"),
+    MOVIE_NAME_NULL("Movie name mustn`t be null"),
+    MOVIE_NAME_EMPTY("Movie name mustn`t be empty"),
+    SEAT_NUMBERS_EMPTY("Seat numbers mustn`t be empty"),
+    INVALID_SEAT("Invalid seat number, seat number must be from 1 to the seats count of the hall"),
+    SEAT_TAKEN("Seat is already taken"),
+    TOO_LATE("Too late for reservation for this movie"),
+    HOLD_EXPIRED("Seat hold has expired"),
+    NO_ADJACENT_SEATS("There are not enough free seats next to each other"),
+    PROJECTION_NOT_FOUND("Movie projection doesn`t exist or has already started"),
+    WAITLIST_FULL("Waitlist for this movie projection is full");
+
+    private final String message;
+
+    private ReservationStatus(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccessful() {
+        return this == SUCCESS;
+    }
+
+}
@@ -0,0 +1,33 @@
+package uni.pld.masters.service;
+
+/**
+ * 
+ * Result of scheduling a movie projection with {@link MovieProjectionManager}. Every status has a message, which is the same as the message returned by
+ * the methods returning {@link String}.
+ * 
+ * @author nstoilov
+ *
+ */
+public enum ScheduleStatus {
+
+    SUCCESS("Movie projection scheduled successfully"),
+    MOVIE_NAME_MISSING("Movie name mustn`t be null or empty"),
+    PROJECTION_TIME_NULL("Projection date time mustn`t be null"),
+    PROJECTION_TIME_TOO_EARLY("Projection date time must be at least after 2 hours from now"),
+    HALL_LAYOUT_NULL("Hall layout mustn`t be null");
+
+    private final String message;
+
+    private ScheduleStatus(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccessful() {
+        return this == SUCCESS;
+    }
+
+}
@@ -0,0 +1,84 @@
+package uni.pld.masters.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.Viewer;
+
+/**
+ * 
+ * Block of adjacent seats reserved with {@linkplain MovieProjectionManager#reserveBestAvailable(Viewer, Movie, int)}. The seats of the block have
+ * consecutive numbers.
+ * 
+ * @author nstoilov
+ *
+ */
+public final class SeatBlock {
+
+    private static final Map<ReservationStatus, SeatBlock> REJECTED_BLOCKS = new EnumMap<>(ReservationStatus.class);
+
+    static {
+        for (ReservationStatus status : ReservationStatus.values()) {
+            if (!status.isSuccessful()) {
+                REJECTED_BLOCKS.put(status, new SeatBlock(status, 0, 0));
+            }
+        }
+    }
+
+    private final ReservationStatus status;
+    private final int firstSeatNumber;
+    private final int seatsCount;
+
+    SeatBlock(int firstSeatNumber, int seatsCount) {
+        this(ReservationStatus.SUCCESS, firstSeatNumber, seatsCount);
+    }
+
+    private SeatBlock(ReservationStatus status, int firstSeatNumber, int seatsCount) {
+        this.status = status;
+        this.firstSeatNumber = firstSeatNumber;
+        this.seatsCount = seatsCount;
+    }
+
+    /**
+     * @param status - the reason of the rejection
+     * @return Shared block object for the rejected status
+     */
+    static SeatBlock rejected(ReservationStatus status) {
+        return REJECTED_BLOCKS.get(status);
+    }
+
+    /**
+     * @return {@linkplain ReservationStatus#SUCCESS} if the seats were reserved or the reason why they weren't
+     */
+    public ReservationStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Number of the first seat of the block or 0 if nothing was reserved
+     */
+    public int getFirstSeatNumber() {
+        return firstSeatNumber;
+    }
+
+    /**
+     * @return Number of the reserved seats
+     */
+    public int getSeatsCount() {
+        return seatsCount;
+    }
+
+    /**
+     * @return Numbers of the reserved seats
+     */
+    public int[] getSeatNumbers() {
+        int[] seatNumbers = new int[seatsCount];
+        for (int index = 0; index < seatsCount; index++) {
+            seatNumbers[index] = firstSeatNumber + index;
+        }
+
+        return seatNumbers;
+    }
+
+}
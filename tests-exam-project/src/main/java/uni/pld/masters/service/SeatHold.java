@@ -0,0 +1,120 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.time.TimeSource;
+
+/**
+ * 
+ * Temporary hold of a seat made with {@linkplain MovieProjectionManager#holdSeat(Viewer, uni.pld.masters.model.Movie, int, long)}. The seat is taken
+ * while the hold is active and it is reserved when the hold is confirmed or released when the hold expires or is released.
+ * 
+ * The hold changes its state only once - from active to confirmed, released or expired, with compare-and-set. So when confirmation and expiry race, only
+ * one of them changes the seats.
+ * 
+ * @author nstoilov
+ *
+ */
+public final class SeatHold {
+
+    static final int ACTIVE = 0;
+    static final int CONFIRMED = 1;
+    static final int RELEASED = 2;
+    static final int EXPIRED = 3;
+
+    private static final MovieProjection[] NO_PROJECTIONS = new MovieProjection[0];
+    private static final Map<ReservationStatus, SeatHold> REJECTED_HOLDS = new EnumMap<>(ReservationStatus.class);
+
+    static {
+        for (ReservationStatus status : ReservationStatus.values()) {
+            if (!status.isSuccessful()) {
+                REJECTED_HOLDS.put(status, new SeatHold(status, null, NO_PROJECTIONS, 0, 0, RELEASED));
+            }
+        }
+    }
+
+    private final ReservationStatus status;
+    private final Viewer viewer;
+    private final MovieProjection[] projections;
+    private final int seatNumber;
+    private final long expiresAtMillis;
+    private final AtomicInteger state;
+
+    SeatHold(Viewer viewer, MovieProjection[] projections, int seatNumber, long expiresAtMillis) {
+        this(ReservationStatus.SUCCESS, viewer, projections, seatNumber, expiresAtMillis, ACTIVE);
+    }
+
+    private SeatHold(ReservationStatus status, Viewer viewer, MovieProjection[] projections, int seatNumber, long expiresAtMillis, int state) {
+        this.status = status;
+        this.viewer = viewer;
+        this.projections = projections;
+        this.seatNumber = seatNumber;
+        this.expiresAtMillis = expiresAtMillis;
+        this.state = new AtomicInteger(state);
+    }
+
+    /**
+     * @param status - the reason of the rejection
+     * @return Shared hold object for the rejected status
+     */
+    static SeatHold rejected(ReservationStatus status) {
+        return REJECTED_HOLDS.get(status);
+    }
+
+    /**
+     * @return {@linkplain ReservationStatus#SUCCESS} if the seat was held or the reason why it wasn't
+     */
+    public ReservationStatus getStatus() {
+        return status;
+    }
+
+    public Viewer getViewer() {
+        return viewer;
+    }
+
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return TimeSource.toLocalDateTime(expiresAtMillis);
+    }
+
+    /**
+     * @return true if the seat is still held - the hold is not confirmed, released or expired
+     */
+    public boolean isActive() {
+        return state.get() == ACTIVE;
+    }
+
+    public boolean isConfirmed() {
+        return state.get() == CONFIRMED;
+    }
+
+    long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    MovieProjection[] getProjections() {
+        return projections;
+    }
+
+    int getState() {
+        return state.get();
+    }
+
+    /**
+     * Changes the state of the active hold.
+     * 
+     * @return true if the hold was active and the state was changed by this call
+     */
+    boolean finish(int newState) {
+        return state.compareAndSet(ACTIVE, newState);
+    }
+
+}
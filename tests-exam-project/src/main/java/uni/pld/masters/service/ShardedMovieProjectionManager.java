@@ -0,0 +1,371 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import uni.pld.masters.metrics.MetricsRegistry;
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.time.TimeSource;
+
+/**
+ * 
+ * Partitioned version of {@link MovieProjectionManager} with the same scheduling and reservation methods. Every movie is routed by the hash of its name
+ * to one shard. Each shard has its own {@link MovieProjectionManager} and a single thread, which makes all changes in the shard, so the shards never
+ * contend with each other.
+ * 
+ * The ids of the projections of shard {@code i} are {@code i + n * shardsCount}, so the ids of different shards never collide and the calls with
+ * projection id are routed to the shard, which is the id modulo the shards count.
+ * 
+ * The calls wait for the shard thread to finish the operation and throw the exception of the operation itself. The manager must be closed to stop the
+ * shard threads.
+ * 
+ * The holds, the waitlist entries and the reservations are routed to the shard by the ids of their projections. The reservation ids are given by the
+ * ledger of every shard and are not unique across the shards, so the reservations are cancelled with {@linkplain #cancelReservation(Reservation)}
+ * instead of by id. The expired holds are released with {@linkplain #expireHolds()}.
+ * 
+ * Every shard records its metrics in own {@link MetricsRegistry}, so the shard threads don't contend on the same counters, and
+ * {@linkplain #getMetrics()} merges them into the metrics of the whole manager.
+ * 
+ * @author nstoilov
+ *
+ */
+public class ShardedMovieProjectionManager implements AutoCloseable {
+
+    private final MovieProjectionManager[] shards;
+    private final ExecutorService[] shardExecutors;
+    private final List<MetricsRegistry> shardMetrics = new ArrayList<>();
+
+    /**
+     * @param shardsCount - number of shards, usually the number of the available cores
+     */
+    public ShardedMovieProjectionManager(int shardsCount) {
+        this(shardsCount, TimeSource.system());
+    }
+
+    /**
+     * @param shardsCount - number of shards, usually the number of the available cores
+     * @param timeSource - source of the current time for all shards
+     */
+    public ShardedMovieProjectionManager(int shardsCount, TimeSource timeSource) {
+        if (shardsCount <= 0) {
+            throw new IllegalArgumentException("Shards count must be positive");
+        }
+
+        shards = new MovieProjectionManager[shardsCount];
+        shardExecutors = new ExecutorService[shardsCount];
+        for (int index = 0; index < shardsCount; index++) {
+            int shardIndex = index;
+            MetricsRegistry metrics = new MetricsRegistry();
+            shardMetrics.add(metrics);
+            shards[index] = new MovieProjectionManager(timeSource, metrics, index, shardsCount);
+            shardExecutors[index] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "movie-projection-shard-" + shardIndex);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @see MovieProjectionManager#scheduleMovieProjection(Movie, LocalDateTime)
+     */
+    public String scheduleMovieProjection(Movie movie, LocalDateTime projectionTime) {
+        return schedule(movie, projectionTime).getMessage();
+    }
+
+    /**
+     * @see MovieProjectionManager#schedule(Movie, LocalDateTime)
+     */
+    public ScheduleStatus schedule(Movie movie, LocalDateTime projectionTime) {
+        int shardIndex = shardIndex(movie);
+
+        return execute(shardIndex, () -> shards[shardIndex].schedule(movie, projectionTime));
+    }
+
+    /**
+     * @see MovieProjectionManager#scheduleProjection(Movie, LocalDateTime)
+     */
+    public long scheduleProjection(Movie movie, LocalDateTime projectionTime) {
+        return scheduleProjection(movie, projectionTime, HallLayout.DEFAULT);
+    }
+
+    /**
+     * @see MovieProjectionManager#scheduleProjection(Movie, LocalDateTime, HallLayout)
+     */
+    public long scheduleProjection(Movie movie, LocalDateTime projectionTime, HallLayout layout) {
+        int shardIndex = shardIndex(movie);
+
+        return execute(shardIndex, () -> shards[shardIndex].scheduleProjection(movie, projectionTime, layout));
+    }
+
+    /**
+     * @see MovieProjectionManager#getProjection(long)
+     */
+    public MovieProjection getProjection(long projectionId) {
+        return shards[shardIndex(projectionId)].getProjection(projectionId);
+    }
+
+    /**
+     * @see MovieProjectionManager#makeReservation(Viewer, Movie, int)
+     */
+    public String makeReservation(Viewer viewer, Movie movie, int seatNumber) {
+        return reserve(viewer, movie, seatNumber).getMessage();
+    }
+
+    /**
+     * @see MovieProjectionManager#reserve(Viewer, Movie, int)
+     */
+    public ReservationStatus reserve(Viewer viewer, Movie movie, int seatNumber) {
+        int shardIndex = shardIndex(movie);
+
+        return execute(shardIndex, () -> shards[shardIndex].reserve(viewer, movie, seatNumber));
+    }
+
+    /**
+     * @see MovieProjectionManager#makeReservation(Viewer, long, int)
+     */
+    public String makeReservation(Viewer viewer, long projectionId, int seatNumber) {
+        return reserve(viewer, projectionId, seatNumber).getMessage();
+    }
+
+    /**
+     * @see MovieProjectionManager#reserve(Viewer, long, int)
+     */
+    public ReservationStatus reserve(Viewer viewer, long projectionId, int seatNumber) {
+        int shardIndex = shardIndex(projectionId);
+
+        return execute(shardIndex, () -> shards[shardIndex].reserve(viewer, projectionId, seatNumber));
+    }
+
+    /**
+     * @see MovieProjectionManager#makeGroupReservation(Viewer, Movie, Set)
+     */
+    public String makeGroupReservation(Viewer viewer, Movie movie, Set<? extends Number> seatNumbers) {
+        return reserveGroup(viewer, movie, seatNumbers).getMessage();
+    }
+
+    /**
+     * @see MovieProjectionManager#reserveGroup(Viewer, Movie, Set)
+     */
+    public ReservationStatus reserveGroup(Viewer viewer, Movie movie, Set<? extends Number> seatNumbers) {
+        int shardIndex = shardIndex(movie);
+
+        return execute(shardIndex, () -> shards[shardIndex].reserveGroup(viewer, movie, seatNumbers));
+    }
+
+    /**
+     * @see MovieProjectionManager#reserveBestAvailable(Viewer, Movie, int)
+     */
+    public SeatBlock reserveBestAvailable(Viewer viewer, Movie movie, int seatsCount) {
+        int shardIndex = shardIndex(movie);
+
+        return execute(shardIndex, () -> shards[shardIndex].reserveBestAvailable(viewer, movie, seatsCount));
+    }
+
+    /**
+     * @see MovieProjectionManager#reserveBestAvailable(Viewer, long, int)
+     */
+    public SeatBlock reserveBestAvailable(Viewer viewer, long projectionId, int seatsCount) {
+        int shardIndex = shardIndex(projectionId);
+
+        return execute(shardIndex, () -> shards[shardIndex].reserveBestAvailable(viewer, projectionId, seatsCount));
+    }
+
+    /**
+     * @see MovieProjectionManager#holdSeat(Viewer, Movie, int, long)
+     */
+    public SeatHold holdSeat(Viewer viewer, Movie movie, int seatNumber, long holdMillis) {
+        int shardIndex = shardIndex(movie);
+
+        return execute(shardIndex, () -> shards[shardIndex].holdSeat(viewer, movie, seatNumber, holdMillis));
+    }
+
+    /**
+     * @see MovieProjectionManager#confirmHold(SeatHold)
+     */
+    public ReservationStatus confirmHold(SeatHold hold) {
+        int shardIndex = shardIndex(hold);
+
+        return execute(shardIndex, () -> shards[shardIndex].confirmHold(hold));
+    }
+
+    /**
+     * @see MovieProjectionManager#releaseHold(SeatHold)
+     */
+    public boolean releaseHold(SeatHold hold) {
+        int shardIndex = shardIndex(hold);
+
+        return execute(shardIndex, () -> shards[shardIndex].releaseHold(hold));
+    }
+
+    /**
+     * Releases the seats of the expired holds in all shards, every shard on its own thread.
+     * 
+     * @see MovieProjectionManager#expireHolds()
+     */
+    public void expireHolds() {
+        for (int index = 0; index < shards.length; index++) {
+            int shardIndex = index;
+            execute(shardIndex, () -> {
+                shards[shardIndex].expireHolds();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * The same as {@linkplain MovieProjectionManager#cancelReservation(long)}, but the reservation is routed to its shard by the id of its projection.
+     * 
+     * @param reservation - Mandatory parameter. The reservation from {@linkplain #getReservationsForViewer(Viewer)}
+     * @return The status of the cancellation
+     */
+    public CancellationStatus cancelReservation(Reservation reservation) {
+        int shardIndex = shardIndex(reservation.getProjectionId());
+
+        return execute(shardIndex, () -> shards[shardIndex].cancelReservation(reservation.getId()));
+    }
+
+    /**
+     * @param viewer - Mandatory parameter. The viewer, the viewers with the same names have the same reservations
+     * @return The active reservations of the viewer in all shards
+     * @see ReservationLedger#getForViewer(Viewer)
+     */
+    public List<Reservation> getReservationsForViewer(Viewer viewer) {
+        List<Reservation> reservations = new ArrayList<>();
+        for (MovieProjectionManager shard : shards) {
+            reservations.addAll(shard.getReservationLedger()
+                    .getForViewer(viewer));
+        }
+
+        return reservations;
+    }
+
+    /**
+     * @see MovieProjectionManager#joinWaitlist(Viewer, long, int, int)
+     */
+    public WaitlistEntry joinWaitlist(Viewer viewer, long projectionId, int seatNumber, int priority) {
+        int shardIndex = shardIndex(projectionId);
+
+        return execute(shardIndex, () -> shards[shardIndex].joinWaitlist(viewer, projectionId, seatNumber, priority));
+    }
+
+    /**
+     * @see MovieProjectionManager#leaveWaitlist(WaitlistEntry)
+     */
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        int shardIndex = shardIndex(entry.getProjectionId());
+
+        return execute(shardIndex, () -> shards[shardIndex].leaveWaitlist(entry));
+    }
+
+    /**
+     * @see MovieProjectionManager#getNextProjections(Movie, int)
+     */
+    public List<MovieProjection> getNextProjections(Movie movie, int count) {
+        return shards[shardIndex(movie)].getNextProjections(movie, count);
+    }
+
+    /**
+     * @see MovieProjectionManager#getProjectionsWithFreeSeats(Movie, int)
+     */
+    public List<MovieProjection> getProjectionsWithFreeSeats(Movie movie, int minFreeSeats) {
+        return shards[shardIndex(movie)].getProjectionsWithFreeSeats(movie, minFreeSeats);
+    }
+
+    /**
+     * @return New registry with the sum of the metrics of all shards at the moment of the call
+     * @see MovieProjectionManager#getMetrics()
+     */
+    public MetricsRegistry getMetrics() {
+        return MetricsRegistry.merge(shardMetrics);
+    }
+
+    /**
+     * Enables or disables the metrics of all shards.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        for (MetricsRegistry metrics : shardMetrics) {
+            metrics.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * Clears the metrics of all shards.
+     */
+    public void resetMetrics() {
+        for (MetricsRegistry metrics : shardMetrics) {
+            metrics.reset();
+        }
+    }
+
+    public int getShardsCount() {
+        return shards.length;
+    }
+
+    /**
+     * Stops the shard threads. The operations already submitted are finished.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService shardExecutor : shardExecutors) {
+            shardExecutor.shutdown();
+        }
+    }
+
+    private int shardIndex(Movie movie) {
+        if (movie == null || movie.getName() == null) {
+            return 0;
+        }
+
+        int hash = movie.getName()
+                .hashCode();
+        hash ^= hash >>> 16;
+
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    private int shardIndex(long projectionId) {
+        return (int) Math.floorMod(projectionId, (long) shards.length);
+    }
+
+    /**
+     * @return The shard of the projections of the hold or the first shard for rejected hold, which has no projections
+     */
+    private int shardIndex(SeatHold hold) {
+        MovieProjection[] projections = hold.getProjections();
+
+        return projections.length == 0 ? 0 : shardIndex(projections[0].getId());
+    }
+
+    /**
+     * Runs the operation on the thread of the shard and waits for it. The exception of the operation is thrown as it is, not wrapped in
+     * {@link CompletionException}.
+     */
+    private <T> T execute(int shardIndex, Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, shardExecutors[shardIndex])
+                    .join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw e;
+        }
+    }
+
+}
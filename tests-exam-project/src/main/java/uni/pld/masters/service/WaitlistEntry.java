@@ -0,0 +1,188 @@
+package uni.pld.masters.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uni.pld.masters.model.Viewer;
+
+/**
+ *
+ * Place of a viewer in the waitlist of one projection, made with {@linkplain MovieProjectionManager#joinWaitlist(Viewer, long, int, int)}. The viewer
+ * waits for one seat or for any seat of the projection and when such seat is released the entry is promoted - the seat is reserved for the viewer.
+ *
+ * The entry changes its state from waiting only once - to promoted, left, expired or rejected, when it lost its place in full waitlist, so the viewer
+ * could wait for {@linkplain #whenFinished()} instead of retrying the reservation. The promoted entry is rejected, if the reservation of its seat
+ * can't be journaled.
+ *
+ * @author nstoilov
+ *
+ */
+public final class WaitlistEntry implements Comparable<WaitlistEntry> {
+
+    /**
+     * Seat number of the entries, which wait for any seat of the projection.
+     */
+    public static final int ANY_SEAT = 0;
+
+    static final int WAITING = 0;
+    static final int PROMOTED = 1;
+    static final int LEFT = 2;
+    static final int EXPIRED = 3;
+    static final int REJECTED = 4;
+
+    private final ReservationStatus status;
+    private final Viewer viewer;
+    private final long projectionId;
+    private final int seatNumber;
+    private final int priority;
+    private final long sequence;
+    private final AtomicInteger state;
+    private final CompletableFuture<WaitlistEntry> finished = new CompletableFuture<>();
+    private volatile int promotedSeatNumber;
+
+    WaitlistEntry(Viewer viewer, long projectionId, int seatNumber, int priority, long sequence) {
+        this(ReservationStatus.SUCCESS, viewer, projectionId, seatNumber, priority, sequence, WAITING);
+    }
+
+    private WaitlistEntry(ReservationStatus status, Viewer viewer, long projectionId, int seatNumber, int priority, long sequence, int state) {
+        this.status = status;
+        this.viewer = viewer;
+        this.projectionId = projectionId;
+        this.seatNumber = seatNumber;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.state = new AtomicInteger(state);
+        if (state != WAITING) {
+            finished.complete(this);
+        }
+    }
+
+    /**
+     * @param status - the reason of the rejection
+     * @return Finished entry for the rejected status
+     */
+    static WaitlistEntry rejected(ReservationStatus status, Viewer viewer, long projectionId, int seatNumber) {
+        return new WaitlistEntry(status, viewer, projectionId, seatNumber, 0, 0L, REJECTED);
+    }
+
+    /**
+     * @return {@linkplain ReservationStatus#SUCCESS} if the viewer joined the waitlist or the reason why it didn't
+     */
+    public ReservationStatus getStatus() {
+        return status;
+    }
+
+    public Viewer getViewer() {
+        return viewer;
+    }
+
+    public long getProjectionId() {
+        return projectionId;
+    }
+
+    /**
+     * @return The seat, for which the viewer waits, or {@linkplain #ANY_SEAT}
+     */
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    /**
+     * @return The priority of the entry, the entries with higher priority are promoted first and the entries with the same priority in the order they
+     *         joined
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return true if the viewer still waits
+     */
+    public boolean isWaiting() {
+        return state.get() == WAITING;
+    }
+
+    /**
+     * @return true if a seat was reserved for the viewer
+     */
+    public boolean isPromoted() {
+        return state.get() == PROMOTED;
+    }
+
+    /**
+     * @return The reserved seat if the entry is promoted or {@linkplain #ANY_SEAT} otherwise
+     */
+    public int getPromotedSeatNumber() {
+        return promotedSeatNumber;
+    }
+
+    /**
+     * @return Future, which is completed with this entry when it is promoted, leaves the waitlist, expires, because the projection starts, or is rejected
+     */
+    public CompletableFuture<WaitlistEntry> whenFinished() {
+        return finished;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    boolean isAnySeat() {
+        return seatNumber == ANY_SEAT;
+    }
+
+    /**
+     * Marks the waiting entry as promoted to the seat. The future is completed later with {@linkplain #completePromotion()}, when the reservation is
+     * made.
+     *
+     * @return true if the entry was waiting and is promoted by this call
+     */
+    boolean promote(int seatNumber) {
+        promotedSeatNumber = seatNumber;
+        if (!state.compareAndSet(WAITING, PROMOTED)) {
+            promotedSeatNumber = ANY_SEAT;
+            return false;
+        }
+
+        return true;
+    }
+
+    void completePromotion() {
+        finished.complete(this);
+    }
+
+    /**
+     * Rejects the promoted entry, which reservation failed, and completes the future.
+     */
+    void failPromotion() {
+        if (state.compareAndSet(PROMOTED, REJECTED)) {
+            promotedSeatNumber = ANY_SEAT;
+            finished.complete(this);
+        }
+    }
+
+    /**
+     * Changes the state of the waiting entry.
+     *
+     * @return true if the entry was waiting and the state was changed by this call
+     */
+    boolean finish(int newState) {
+        if (!state.compareAndSet(WAITING, newState)) {
+            return false;
+        }
+
+        finished.complete(this);
+        return true;
+    }
+
+    /**
+     * The entries are ordered by priority descending and then by the order they joined.
+     */
+    @Override
+    public int compareTo(WaitlistEntry other) {
+        int result = Integer.compare(other.priority, priority);
+
+        return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+
+}
@@ -0,0 +1,56 @@
+package uni.pld.masters.time;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 
+ * Coarse grained {@link TimeSource}, which reads another time source only on every tick and returns the cached value between the ticks. Reading the time
+ * is a single volatile read.
+ * 
+ * The ticks are made by a daemon thread, which is stopped with {@linkplain #close()}.
+ * 
+ * @author nstoilov
+ *
+ */
+public class CachedTimeSource implements TimeSource, AutoCloseable {
+
+    private final TimeSource source;
+    private final ScheduledExecutorService ticker;
+    private volatile long currentTimeMillis;
+
+    /**
+     * @param source - the time source, which will be cached
+     * @param tickMillis - how often the cached time is refreshed, this is also the maximum error of the returned time
+     */
+    public CachedTimeSource(TimeSource source, long tickMillis) {
+        this.source = source;
+        this.currentTimeMillis = source.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cached-time-source");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ticker.scheduleAtFixedRate(this::refresh, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    /**
+     * Reads the current time from the cached time source, without waiting for the next tick.
+     */
+    public void refresh() {
+        currentTimeMillis = source.currentTimeMillis();
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+}
@@ -0,0 +1,39 @@
+package uni.pld.masters.time;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.zone.ZoneRules;
+
+/**
+ * 
+ * {@link TimeSource}, which reads a {@link Clock} on every call. When the clock zone has fixed offset the offset is computed only once.
+ * 
+ * @author nstoilov
+ *
+ */
+class ClockTimeSource implements TimeSource {
+
+    private final Clock clock;
+    private final ZoneRules zoneRules;
+    private final long fixedOffsetMillis;
+
+    ClockTimeSource(Clock clock) {
+        this.clock = clock;
+        this.zoneRules = clock.getZone()
+                .getRules();
+        this.fixedOffsetMillis = zoneRules.isFixedOffset() ? zoneRules.getOffset(Instant.EPOCH)
+                .getTotalSeconds() * 1000L : Long.MIN_VALUE;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        long millis = clock.millis();
+        if (fixedOffsetMillis != Long.MIN_VALUE) {
+            return millis + fixedOffsetMillis;
+        }
+
+        return millis + zoneRules.getOffset(Instant.ofEpochMilli(millis))
+                .getTotalSeconds() * 1000L;
+    }
+
+}
@@ -0,0 +1,56 @@
+package uni.pld.masters.time;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 
+ * Source of the current time used for scheduling and reservation cutoffs.
+ * 
+ * The time is local date time expressed as epoch millis at UTC offset, so it could be compared directly with {@linkplain #toEpochMillis(LocalDateTime)} of
+ * the projection start times, without creating {@link LocalDateTime} objects for every comparison.
+ * 
+ * @author nstoilov
+ *
+ */
+@FunctionalInterface
+public interface TimeSource {
+
+    /**
+     * @return The current local date time as epoch millis at UTC offset
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return The current local date time
+     */
+    default LocalDateTime now() {
+        return toLocalDateTime(currentTimeMillis());
+    }
+
+    /**
+     * @return Time source, which reads the system clock in the default time zone on every call
+     */
+    static TimeSource system() {
+        return of(Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock - the clock, which will be read on every call
+     * @return Time source, which reads the given clock in its time zone
+     */
+    static TimeSource of(Clock clock) {
+        return new ClockTimeSource(clock);
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC)
+                .toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L), (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+}
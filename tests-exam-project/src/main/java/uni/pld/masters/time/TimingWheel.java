@@ -0,0 +1,176 @@
+package uni.pld.masters.time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 
+ * Hierarchical timing wheel for expiring many items without timer thread or full scan per item. There are 4 wheels with 64 slots each, the first wheel
+ * slot is one tick, every next wheel slot covers the whole previous wheel. Scheduling is O(1) - the item is put in the slot of the wheel, which range
+ * contains its deadline. When the lower wheel makes a full turn, the items from the current slot of the upper wheel are moved down(cascaded). Deadlines
+ * after the range of the last wheel are kept in its last slot and cascaded again when reached.
+ * 
+ * Items could be scheduled from any thread. The wheel is moved with {@linkplain #advance()} from one thread at a time, it reads the {@link TimeSource} and
+ * gives every item, which deadline passed, to the expiry consumer. The consumer is called after the wheel is unlocked, so it could be called from more
+ * threads at once. There is no cancellation - the consumer should ignore the items, which are not active anymore.
+ * 
+ * @author nstoilov
+ *
+ * @param <T> - type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final TimeSource timeSource;
+    private final long tickMillis;
+    private final Consumer<T> expiryConsumer;
+    private final Queue<Timeout<T>> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final List<List<Timeout<T>>> slots = new ArrayList<>(LEVELS * WHEEL_SIZE);
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param timeSource - source of the current time
+     * @param tickMillis - duration of one tick, the items expire with up to one tick delay
+     * @param expiryConsumer - receives the expired items
+     */
+    public TimingWheel(TimeSource timeSource, long tickMillis, Consumer<T> expiryConsumer) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+
+        this.timeSource = timeSource;
+        this.tickMillis = tickMillis;
+        this.expiryConsumer = expiryConsumer;
+        this.currentTick = timeSource.currentTimeMillis() / tickMillis;
+        for (int index = 0; index < LEVELS * WHEEL_SIZE; index++) {
+            slots.add(new ArrayList<>(0));
+        }
+    }
+
+    /**
+     * Schedules the item for expiry.
+     * 
+     * @param item - the item
+     * @param deadlineMillis - when the item expires, in the scale of the {@link TimeSource}
+     */
+    public void schedule(T item, long deadlineMillis) {
+        scheduledTimeouts.add(new Timeout<>(item, (deadlineMillis + tickMillis - 1) / tickMillis));
+    }
+
+    /**
+     * Moves the wheel to the current time and expires all items, which deadline passed. The expired items are collected while the wheel is locked and are
+     * given to the expiry consumer after it is unlocked, so slow expiry, e.g. with disk write, doesn't block the other callers of the wheel.
+     * 
+     * @return The number of expired items
+     */
+    public int advance() {
+        List<List<Timeout<T>>> expiredSlots = new ArrayList<>(0);
+        int expiredCount = 0;
+
+        synchronized (this) {
+            long targetTick = timeSource.currentTimeMillis() / tickMillis;
+
+            Timeout<T> timeout;
+            while ((timeout = scheduledTimeouts.poll()) != null) {
+                place(timeout);
+            }
+
+            expiredCount += expireCurrentSlot(expiredSlots);
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                expiredCount += expireCurrentSlot(expiredSlots);
+            }
+        }
+
+        for (List<Timeout<T>> timeouts : expiredSlots) {
+            for (Timeout<T> timeout : timeouts) {
+                expiryConsumer.accept(timeout.item);
+            }
+        }
+
+        return expiredCount;
+    }
+
+    /**
+     * @return The number of items in the wheel, without the items scheduled after the last {@linkplain #advance()}
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delay = timeout.deadlineTick - currentTick;
+        long placementTick = delay > MAX_DELAY_TICKS ? currentTick + MAX_DELAY_TICKS : Math.max(timeout.deadlineTick, currentTick);
+        delay = placementTick - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+
+        int slot = (int) (placementTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+        slots.get(level * WHEEL_SIZE + slot)
+                .add(timeout);
+        size++;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >>> (WHEEL_BITS * (level - 1))) & WHEEL_MASK) != 0) {
+                return;
+            }
+
+            int slot = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+            List<Timeout<T>> timeouts = slots.get(level * WHEEL_SIZE + slot);
+            if (timeouts.isEmpty()) {
+                continue;
+            }
+
+            slots.set(level * WHEEL_SIZE + slot, new ArrayList<>(0));
+            size -= timeouts.size();
+            for (Timeout<T> timeout : timeouts) {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * Removes the items of the current slot from the wheel and adds them to the expired slots.
+     */
+    private int expireCurrentSlot(List<List<Timeout<T>>> expiredSlots) {
+        int slot = (int) currentTick & WHEEL_MASK;
+        List<Timeout<T>> timeouts = slots.get(slot);
+        if (timeouts.isEmpty()) {
+            return 0;
+        }
+
+        slots.set(slot, new ArrayList<>(0));
+        size -= timeouts.size();
+        expiredSlots.add(timeouts);
+
+        return timeouts.size();
+    }
+
+    private static final class Timeout<T> {
+
+        private final T item;
+        private final long deadlineTick;
+
+        Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package uni.pld.masters.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 
+ * Runs the benchmarks from this package once for every thread count with the GC profiler, so the allocation rate is reported next to the time.
+ * 
+ * Used by the "benchmark" Maven profile:
+ * 
+ * <pre>
+ * mvn -P benchmark test -Dbenchmark.include=BookingBenchmark -Dbenchmark.threads=1,4,8
+ * </pre>
+ * 
+ * @author nstoilov
+ *
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 && !args[0].isEmpty() ? args[0] : BenchmarkRunner.class.getPackage()
+                .getName() + ".*Benchmark";
+        String threads = args.length > 1 && !args[1].isEmpty() ? args[1] : "1";
+
+        for (String threadCount : threads.split(",")) {
+            Options options = new OptionsBuilder().include(include)
+                    .threads(Integer.parseInt(threadCount.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+package uni.pld.masters.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Seat;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.MovieProjectionManager;
+import uni.pld.masters.service.Reservation;
+import uni.pld.masters.service.ReservationStatus;
+import uni.pld.masters.service.ScheduleStatus;
+
+/**
+ * 
+ * Benchmarks for the booking core - {@link MovieProjectionManager} and {@link MovieProjection}. The schedule has {@linkplain projectionCount} projections
+ * spread over {@linkplain movieCount} movies. The number of threads is given with the JMH -t option or with {@link BenchmarkRunner}.
+ * 
+ * @author nstoilov
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Schedule {
+
+        @Param({ "1000", "100000" })
+        int projectionCount;
+
+        @Param({ "10", "1000" })
+        int movieCount;
+
+        MovieProjectionManager manager;
+        Movie[] movies;
+        Movie lateMovie;
+        LocalDateTime projectionTime;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            manager = new MovieProjectionManager();
+            movies = new Movie[movieCount];
+            for (int index = 0; index < movieCount; index++) {
+                movies[index] = new Movie();
+                movies[index].setName("Movie " + index);
+            }
+
+            projectionTime = LocalDateTime.now()
+                    .plusDays(1L);
+            for (int index = 0; index < projectionCount; index++) {
+                manager.scheduleMovieProjection(movies[index % movieCount], projectionTime.plusMinutes(index));
+            }
+
+            lateMovie = new Movie();
+            lateMovie.setName("Late movie");
+            manager.scheduleMovieProjection(lateMovie, LocalDateTime.now()
+                    .plusHours(3L));
+            manager.getNextProjections(lateMovie, 1)
+                    .get(0)
+                    .setProjectionStartTime(LocalDateTime.now()
+                            .plusMinutes(30L));
+        }
+
+    }
+
+    /**
+     * Separate manager for the scheduling benchmark, created again for every iteration so the schedule doesn't grow during the whole run.
+     */
+    @State(Scope.Benchmark)
+    public static class Scheduling {
+
+        MovieProjectionManager manager;
+        Movie movie;
+        LocalDateTime projectionTime;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            manager = new MovieProjectionManager();
+            movie = new Movie();
+            movie.setName("Scheduled movie");
+            projectionTime = LocalDateTime.now()
+                    .plusDays(1L);
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Booking {
+
+        Viewer viewer;
+        Movie movie;
+        byte freeSeat;
+        byte takenSeat;
+        List<MovieProjection> projections;
+        MovieProjection projection;
+
+        @Setup(Level.Trial)
+        public void setup(Schedule schedule, ThreadParams threadParams) {
+            viewer = new Viewer("bench", "viewer " + threadParams.getThreadIndex());
+            movie = schedule.movies[threadParams.getThreadIndex() % schedule.movieCount];
+            projections = schedule.manager.getNextProjections(movie, Integer.MAX_VALUE);
+            projection = projections.get(0);
+
+            freeSeat = (byte) (threadParams.getThreadIndex() % (MovieProjection.SEATS_COUNT - 1) + 2);
+            takenSeat = 1;
+            schedule.manager.reserve(viewer, movie, takenSeat);
+        }
+
+    }
+
+    /**
+     * Cancels the reservations of the free seat made by the thread after every invocation, so every invocation reserves a free seat and the ledger doesn't
+     * grow during the run. The cancellation isn't measured.
+     */
+    @State(Scope.Thread)
+    public static class Cancellation {
+
+        @TearDown(Level.Invocation)
+        public void cancelReservations(Schedule schedule, Booking booking) {
+            for (Reservation reservation : schedule.manager.getReservationLedger()
+                    .getForViewer(booking.viewer)) {
+                if (reservation.getSeatNumber() == booking.freeSeat) {
+                    schedule.manager.cancelReservation(reservation.getId());
+                }
+            }
+        }
+
+    }
+
+    @Benchmark
+    public ScheduleStatus scheduleMovieProjection(Scheduling scheduling) {
+        return scheduling.manager.schedule(scheduling.movie, scheduling.projectionTime);
+    }
+
+    /**
+     * Successful reservation. The reservation is cancelled after the invocation with {@link Cancellation}, so every invocation reserves a free seat.
+     */
+    @Benchmark
+    public ReservationStatus makeReservation_Success(Schedule schedule, Booking booking, Cancellation cancellation) {
+        return schedule.manager.reserve(booking.viewer, booking.movie, booking.freeSeat);
+    }
+
+    /**
+     * Reservation rejected, because the seat is already taken.
+     */
+    @Benchmark
+    public ReservationStatus makeReservation_SeatTaken(Schedule schedule, Booking booking) {
+        return schedule.manager.reserve(booking.viewer, booking.movie, booking.takenSeat);
+    }
+
+    /**
+     * Reservation rejected, because the movie has projection, which starts in less than 1 hour.
+     */
+    @Benchmark
+    public ReservationStatus makeReservation_TooLate(Schedule schedule, Booking booking) {
+        return schedule.manager.reserve(booking.viewer, schedule.lateMovie, booking.freeSeat);
+    }
+
+    @Benchmark
+    public List<Seat> getSeats(Booking booking) {
+        return booking.projection.getSeats();
+    }
+
+    @Benchmark
+    public boolean isSeatTaken(Booking booking) {
+        return booking.projection.isSeatTaken(booking.freeSeat);
+    }
+
+    @Benchmark
+    public int getFreeSeatsCount(Booking booking) {
+        return booking.projection.getFreeSeatsCount();
+    }
+
+}
@@ -0,0 +1,101 @@
+package uni.pld.masters.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.MovieProjectionManager;
+import uni.pld.masters.service.ReservationStatus;
+
+/**
+ * 
+ * Benchmark for sustained bookings per second with opened journal, every successful reservation waits for its record to be forced to the disk. Run it
+ * with different thread counts to see how the group commit shares one fsync between the concurrent bookings.
+ * 
+ * @author nstoilov
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class JournaledManager {
+
+        MovieProjectionManager manager;
+        Path journalFile;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            journalFile = Files.createTempFile("reservations", ".journal");
+            manager = new MovieProjectionManager();
+            manager.openJournal(journalFile);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            manager.closeJournal();
+            Files.deleteIfExists(journalFile);
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Booking {
+
+        Viewer viewer;
+        Movie movie;
+        MovieProjection projection;
+        byte seatNumber = 1;
+
+        @Setup(Level.Trial)
+        public void setup(JournaledManager journaledManager, ThreadParams threadParams) {
+            viewer = new Viewer("bench", "viewer " + threadParams.getThreadIndex());
+            movie = new Movie();
+            movie.setName("Journaled movie " + threadParams.getThreadIndex());
+            journaledManager.manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                    .plusDays(1L));
+            projection = journaledManager.manager.getNextProjections(movie, 1)
+                    .get(0);
+        }
+
+    }
+
+    /**
+     * Durable reservation of the next seat of the thread own projection. When all seats are taken they are released in memory, the journal keeps growing.
+     */
+    @Benchmark
+    public ReservationStatus durableReservation(JournaledManager journaledManager, Booking booking) {
+        if (booking.seatNumber > MovieProjection.SEATS_COUNT) {
+            for (byte seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+                booking.projection.releaseSeat(seatNumber);
+            }
+            booking.seatNumber = 1;
+        }
+
+        return journaledManager.manager.reserve(booking.viewer, booking.movie, booking.seatNumber++);
+    }
+
+}
@@ -0,0 +1,54 @@
+package uni.pld.masters.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uni.pld.masters.metrics.MetricsRegistry;
+import uni.pld.masters.metrics.OperationMetrics;
+import uni.pld.masters.service.ReservationStatus;
+
+/**
+ *
+ * Benchmark that measures the overhead of measuring one operation - reading the clock at the start and recording the latency and the outcome at the end.
+ * With {@linkplain enabled} false it measures the cost of the disabled metrics.
+ *
+ * @author nstoilov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({ "true", "false" })
+    private boolean enabled;
+
+    private OperationMetrics<ReservationStatus> metrics;
+
+    @Setup
+    public void setup() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.setEnabled(enabled);
+        metrics = registry.operation("reserve", ReservationStatus.class);
+    }
+
+    @Benchmark
+    public void startAndRecord() {
+        metrics.record(ReservationStatus.SEAT_TAKEN, metrics.start());
+    }
+
+}
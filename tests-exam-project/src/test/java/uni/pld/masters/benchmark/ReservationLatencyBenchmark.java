@@ -0,0 +1,75 @@
+package uni.pld.masters.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.MovieProjectionManager;
+
+/**
+ * 
+ * Benchmark that measures the latency of makeReservation for one movie, while the total number of scheduled projections grows. Every movie has the same
+ * number of projections, so the latency should stay the same for all {@linkplain projectionCount} values.
+ * 
+ * @author nstoilov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationLatencyBenchmark {
+
+    private static final int PROJECTIONS_PER_MOVIE = 10;
+
+    @Param({ "100", "10000", "100000" })
+    private int projectionCount;
+
+    private MovieProjectionManager movieProjectionManager;
+    private Viewer viewer;
+    private Movie movie;
+
+    @Setup
+    public void setup() {
+        movieProjectionManager = new MovieProjectionManager();
+        viewer = new Viewer("bench", "viewer");
+
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .plusDays(1L);
+        for (int index = 0; index < projectionCount; index++) {
+            Movie scheduledMovie = new Movie();
+            scheduledMovie.setName("Movie " + index / PROJECTIONS_PER_MOVIE);
+
+            movieProjectionManager.scheduleMovieProjection(scheduledMovie, projectionTime.plusMinutes(index));
+        }
+
+        movie = new Movie();
+        movie.setName("Movie " + (projectionCount / PROJECTIONS_PER_MOVIE - 1));
+        movieProjectionManager.makeReservation(viewer, movie, (byte) 1);
+    }
+
+    /**
+     * Reservation for already taken seat - goes through the whole validation for the movie, but doesn't change the state, so every invocation does the same
+     * work.
+     */
+    @Benchmark
+    public String makeReservation_SeatTaken() {
+        return movieProjectionManager.makeReservation(viewer, movie, (byte) 1);
+    }
+
+}
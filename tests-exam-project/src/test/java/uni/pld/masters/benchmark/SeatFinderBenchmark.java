@@ -0,0 +1,68 @@
+package uni.pld.masters.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.MovieProjection;
+
+/**
+ * 
+ * Benchmark that measures the search of the best block of adjacent seats in a hall with 5000 seats, which is filled to {@linkplain occupancyPercent}. The
+ * search doesn't change the seats, so every invocation does the same work.
+ * 
+ * @author nstoilov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatFinderBenchmark {
+
+    @Param({ "10", "50", "90" })
+    private int occupancyPercent;
+
+    @Param({ "2", "6" })
+    private int seatsCount;
+
+    private HallLayout layout;
+    private long[] takenSeats;
+
+    @Setup
+    public void setup() {
+        layout = HallLayout.builder("Arena")
+                .addRows(50, "SSSSSSSSSSSSSSSSSSSSSSSSS_SSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSS_SSSSSSSSSSSSSSSSSSSSSSSSS")
+                .build();
+
+        MovieProjection projection = new MovieProjection(layout);
+        Random random = new Random(42L);
+        for (int seatNumber = 1; seatNumber <= layout.getSeatsCount(); seatNumber++) {
+            if (random.nextInt(100) < occupancyPercent) {
+                projection.tryTakeSeat(seatNumber);
+            }
+        }
+
+        takenSeats = projection.getTakenSeatsMask();
+    }
+
+    @Benchmark
+    public int findBestBlock() {
+        return layout.findBestBlock(takenSeats, seatsCount);
+    }
+
+}
@@ -0,0 +1,98 @@
+package uni.pld.masters.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.ReservationStatus;
+import uni.pld.masters.service.ShardedMovieProjectionManager;
+
+/**
+ * 
+ * Throughput of {@link ShardedMovieProjectionManager} for different number of shards. Every thread books its own movie with many projections, so the
+ * threads are spread over the shards. Run it with thread count at least equal to the biggest {@linkplain shardsCount}.
+ * 
+ * @author nstoilov
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedBenchmark {
+
+    private static final int MOVIES_COUNT = 64;
+    private static final int PROJECTIONS_PER_MOVIE = 50;
+
+    @State(Scope.Benchmark)
+    public static class Shards {
+
+        @Param({ "1", "2", "4", "8" })
+        int shardsCount;
+
+        ShardedMovieProjectionManager manager;
+        Movie[] movies;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            manager = new ShardedMovieProjectionManager(shardsCount);
+            movies = new Movie[MOVIES_COUNT];
+            LocalDateTime projectionTime = LocalDateTime.now()
+                    .plusDays(1L);
+            for (int movieIndex = 0; movieIndex < MOVIES_COUNT; movieIndex++) {
+                movies[movieIndex] = new Movie();
+                movies[movieIndex].setName("Sharded movie " + movieIndex);
+                for (int index = 0; index < PROJECTIONS_PER_MOVIE; index++) {
+                    manager.schedule(movies[movieIndex], projectionTime.plusMinutes(index));
+                }
+                manager.reserve(new Viewer("bench", "viewer"), movies[movieIndex], (byte) 1);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            manager.close();
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Booking {
+
+        Viewer viewer;
+        Movie movie;
+
+        @Setup(Level.Trial)
+        public void setup(Shards shards, ThreadParams threadParams) {
+            viewer = new Viewer("bench", "viewer " + threadParams.getThreadIndex());
+            movie = shards.movies[threadParams.getThreadIndex() % MOVIES_COUNT];
+        }
+
+    }
+
+    /**
+     * Reservation for already taken seat - it checks the seat in all projections of the movie in the shard thread and doesn't change the state.
+     */
+    @Benchmark
+    public ReservationStatus reserve(Shards shards, Booking booking) {
+        return shards.manager.reserve(booking.viewer, booking.movie, (byte) 1);
+    }
+
+}
@@ -0,0 +1,92 @@
+package uni.pld.masters.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.MovieProjectionManager;
+
+/**
+ * 
+ * Benchmark for writing and restoring snapshot of {@linkplain projectionCount} projections, every one of them with one taken seat.
+ * 
+ * @author nstoilov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotBenchmark {
+
+    private static final int PROJECTIONS_PER_MOVIE = 20;
+
+    @Param({ "100000", "1000000" })
+    private int projectionCount;
+
+    private MovieProjectionManager manager;
+    private Path snapshotFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("bench", "viewer");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .plusDays(1L);
+
+        Movie movie = null;
+        for (int index = 0; index < projectionCount; index++) {
+            if (index % PROJECTIONS_PER_MOVIE == 0) {
+                movie = new Movie();
+                movie.setName("Movie " + index / PROJECTIONS_PER_MOVIE);
+            }
+
+            manager.scheduleMovieProjection(movie, projectionTime.plusMinutes(index));
+            if (index % PROJECTIONS_PER_MOVIE == PROJECTIONS_PER_MOVIE - 1) {
+                manager.makeReservation(viewer, movie, (byte) 1);
+            }
+        }
+
+        snapshotFile = Files.createTempFile("schedule", ".snapshot");
+        manager.writeSnapshot(snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public long writeSnapshot() throws IOException {
+        return manager.writeSnapshot(snapshotFile);
+    }
+
+    @Benchmark
+    public MovieProjectionManager restoreSnapshot() throws IOException {
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.restoreSnapshot(snapshotFile);
+
+        return restoredManager;
+    }
+
+}
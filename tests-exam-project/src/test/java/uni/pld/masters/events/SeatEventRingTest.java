@@ -0,0 +1,187 @@
+package uni.pld.masters.events;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieCatalog;
+import uni.pld.masters.model.MovieProjection;
+
+public class SeatEventRingTest {
+
+    /**
+     * Test that tests the back-pressure of {@link SeatEventRing}. Publishing more events than the capacity of the ring, while the consumer doesn't poll.
+     * Expected behavior is the publisher to wait till the consumer processes the old events and the consumer to receive all events in order.
+     */
+    @Test
+    public void publishSeat_RingFull_Test() throws InterruptedException {
+        /*---Setup---*/
+        SeatEventRing ring = new SeatEventRing(4);
+        SeatEventConsumer consumer = ring.addConsumer();
+        MovieProjection[] projections = { createProjection(1L) };
+        CountDownLatch published = new CountDownLatch(1);
+        Thread publisher = new Thread(() -> {
+            for (int seatNumber = 1; seatNumber <= 10; seatNumber++) {
+                ring.publishSeat(SeatEventType.SEATS_RESERVED, projections, seatNumber);
+            }
+            published.countDown();
+        });
+        List<Integer> seatNumbers = new ArrayList<>();
+
+        /*---Call---*/
+        publisher.start();
+        boolean publishedWithoutConsumer = published.await(200L, TimeUnit.MILLISECONDS);
+        while (seatNumbers.size() < 10) {
+            consumer.poll((event, sequence, endOfBatch) -> {
+                for (int seatNumber = 1; seatNumber <= 10; seatNumber++) {
+                    if (event.isSeatIncluded(seatNumber)) {
+                        seatNumbers.add(seatNumber);
+                    }
+                }
+            });
+        }
+        publisher.join();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(publishedWithoutConsumer, Is.is(false));
+        MatcherAssert.assertThat(seatNumbers.size(), Is.is(10));
+        for (int index = 0; index < 10; index++) {
+            MatcherAssert.assertThat(seatNumbers.get(index), Is.is(index + 1));
+        }
+        MatcherAssert.assertThat(consumer.getSequence(), Is.is(9L));
+    }
+
+    /**
+     * Test that publishes more events than the capacity of the ring with one abandoned consumer, which never polls, and one active consumer. Expected
+     * behavior is the publisher to wait for the abandoned consumer at most the maximum wait of the ring, then the abandoned consumer to be removed and to
+     * receive no events and the active consumer to keep receiving the events.
+     */
+    @Test
+    public void publishSeat_AbandonedConsumer_Test() throws InterruptedException {
+        /*---Setup---*/
+        SeatEventRing ring = new SeatEventRing(4, 50L);
+        SeatEventConsumer abandoned = ring.addConsumer();
+        SeatEventConsumer active = ring.addConsumer();
+        MovieProjection[] projections = { createProjection(1L) };
+        List<Integer> seatNumbers = new ArrayList<>();
+        Thread publisher = new Thread(() -> {
+            for (int seatNumber = 1; seatNumber <= 10; seatNumber++) {
+                ring.publishSeat(SeatEventType.SEATS_RESERVED, projections, seatNumber);
+            }
+        });
+
+        /*---Call---*/
+        publisher.start();
+        while (seatNumbers.size() < 10) {
+            active.poll((event, sequence, endOfBatch) -> {
+                for (int seatNumber = 1; seatNumber <= 10; seatNumber++) {
+                    if (event.isSeatIncluded(seatNumber)) {
+                        seatNumbers.add(seatNumber);
+                    }
+                }
+            });
+        }
+        publisher.join(5000L);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(publisher.isAlive(), Is.is(false));
+        MatcherAssert.assertThat(abandoned.isRemoved(), Is.is(true));
+        MatcherAssert.assertThat(abandoned.poll((event, sequence, endOfBatch) -> {
+        }), Is.is(0));
+        MatcherAssert.assertThat(active.isRemoved(), Is.is(false));
+        MatcherAssert.assertThat(active.getSequence(), Is.is(9L));
+    }
+
+    /**
+     * Test that polls full ring with slow consumer, which handler waits for a publisher of more events than the free space of the ring. Expected behavior
+     * is the consumer to be removed while it handles the first event, the polling to stop after it without counting it and the overwritten events not to
+     * be passed to the handler.
+     */
+    @Test
+    public void poll_ConsumerRemovedWhilePolling_Test() throws InterruptedException {
+        /*---Setup---*/
+        SeatEventRing ring = new SeatEventRing(4, 20L);
+        SeatEventConsumer consumer = ring.addConsumer();
+        MovieProjection[] projections = { createProjection(1L) };
+        for (int seatNumber = 1; seatNumber <= 4; seatNumber++) {
+            ring.publishSeat(SeatEventType.SEATS_RESERVED, projections, seatNumber);
+        }
+        Thread publisher = new Thread(() -> {
+            for (int seatNumber = 5; seatNumber <= 8; seatNumber++) {
+                ring.publishSeat(SeatEventType.SEATS_RESERVED, projections, seatNumber);
+            }
+        });
+        List<Long> handledSequences = new ArrayList<>();
+
+        /*---Call---*/
+        int processed = consumer.poll((event, sequence, endOfBatch) -> {
+            handledSequences.add(sequence);
+            if (sequence == 0L) {
+                publisher.start();
+                try {
+                    publisher.join(5000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread()
+                            .interrupt();
+                }
+            }
+        });
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(publisher.isAlive(), Is.is(false));
+        MatcherAssert.assertThat(consumer.isRemoved(), Is.is(true));
+        MatcherAssert.assertThat(processed, Is.is(0));
+        MatcherAssert.assertThat(handledSequences.size(), Is.is(1));
+        MatcherAssert.assertThat(consumer.getSequence(), Is.is(-1L));
+    }
+
+    /**
+     * Test that publishes the changes of two projections of the same seat. Expected behavior is every event to have the number of the changes of its
+     * projection after the change, so the events of one projection are ordered by it.
+     */
+    @Test
+    public void publishSeat_ChangeSequence_Test() {
+        /*---Setup---*/
+        SeatEventRing ring = new SeatEventRing(8);
+        SeatEventConsumer consumer = ring.addConsumer();
+        MovieProjection first = createProjection(1L);
+        MovieProjection second = createProjection(2L);
+        List<Long> changeSequences = new ArrayList<>();
+
+        /*---Call---*/
+        first.tryTakeSeat(1);
+        ring.publishSeat(SeatEventType.SEATS_RESERVED, new MovieProjection[] { first }, 1);
+        first.releaseSeat(1);
+        second.tryTakeSeat(1);
+        ring.publishSeat(SeatEventType.SEATS_RESERVED, new MovieProjection[] { second }, 1);
+        ring.publishSeat(SeatEventType.SEATS_RELEASED, new MovieProjection[] { first }, 1);
+        consumer.poll((event, sequence, endOfBatch) -> changeSequences.add(event.getChangeSequence()));
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(changeSequences.size(), Is.is(3));
+        MatcherAssert.assertThat(changeSequences.get(0), Is.is(1L));
+        MatcherAssert.assertThat(changeSequences.get(1), Is.is(1L));
+        MatcherAssert.assertThat(changeSequences.get(2), Is.is(2L));
+        MatcherAssert.assertThat(first.getSeatMap()
+                .getChangesCount(), Is.is(2L));
+    }
+
+    private static MovieProjection createProjection(long id) {
+        Movie movie = new MovieCatalog().getOrAdd("Test movie");
+        MovieProjection projection = new MovieProjection();
+        projection.setId(id);
+        projection.setMovie(movie);
+        projection.setProjectionStartTime(LocalDateTime.now()
+                .plusHours(3L));
+
+        return projection;
+    }
+
+}
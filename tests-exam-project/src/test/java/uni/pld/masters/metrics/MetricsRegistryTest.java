@@ -0,0 +1,86 @@
+package uni.pld.masters.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    private enum Outcome {
+        OK, FAILED
+    }
+
+    /**
+     * Test that tests the functionality of {@link LatencyHistogram}. Recording the values from 1 to 10000. Expected behavior is every percentile to be
+     * reported with error under 7% and the max and mean to be exact.
+     */
+    @Test
+    public void getValueAtPercentile_UniformValues_Test() {
+        /*---Setup---*/
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        /*---Call---*/
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(snapshot.getCount(), Is.is(10000L));
+        MatcherAssert.assertThat(snapshot.getMaxNanos(), Is.is(10000L));
+        MatcherAssert.assertThat(snapshot.getMeanNanos(), Is.is(5000.5));
+        MatcherAssert.assertThat(snapshot.getValueAtPercentile(100), Is.is(10000L));
+        for (double percentile : new double[] { 1, 10, 50, 90, 99, 99.9 }) {
+            double expected = percentile * 100;
+            long reported = snapshot.getValueAtPercentile(percentile);
+            MatcherAssert.assertThat(reported >= expected && reported <= expected * 1.07, Is.is(true));
+        }
+    }
+
+    /**
+     * Test that tests the functionality of {@link OperationMetrics}. Recording outcomes while the registry is enabled, then disabled, and reading the
+     * operation through JMX. Expected behavior is only the outcomes recorded while enabled to be counted and the JMX attributes to show them.
+     */
+    @Test
+    public void record_EnabledAndDisabled_Test() throws Exception {
+        /*---Setup---*/
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationMetrics<Outcome> metrics = registry.operation("test", Outcome.class);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = MetricsRegistry.objectName("uni.pld.masters.test", "test");
+
+        /*---Call---*/
+        metrics.record(Outcome.OK, metrics.start());
+        metrics.record(Outcome.FAILED, metrics.start());
+        metrics.record(Outcome.FAILED, metrics.start());
+        registry.setEnabled(false);
+        metrics.record(Outcome.OK, metrics.start());
+        registry.registerMBeans("uni.pld.masters.test");
+
+        /*---Assert---*/
+        try {
+            OperationSnapshot<?> snapshot = registry.getSnapshot()
+                    .get("test");
+            MatcherAssert.assertThat(snapshot.getLatency()
+                    .getCount(), Is.is(3L));
+            MatcherAssert.assertThat(metrics.getSnapshot()
+                    .getOutcomeCount(Outcome.OK), Is.is(1L));
+            MatcherAssert.assertThat(metrics.getSnapshot()
+                    .getOutcomeCount(Outcome.FAILED), Is.is(2L));
+            MatcherAssert.assertThat(registry.operation("test", Outcome.class) == metrics, Is.is(true));
+            MatcherAssert.assertThat(server.getAttribute(objectName, "Count"), Is.is(3L));
+            Map<String, Long> outcomes = metrics.getOutcomes();
+            MatcherAssert.assertThat(outcomes.get("FAILED"), Is.is(2L));
+        } finally {
+            registry.unregisterMBeans("uni.pld.masters.test");
+        }
+        MatcherAssert.assertThat(server.isRegistered(objectName), Is.is(false));
+    }
+
+}
@@ -0,0 +1,130 @@
+package uni.pld.masters.model;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class HallLayoutTest {
+
+    /**
+     * Test that tests the functionality of {@link HallLayout.Builder}. Building layout with rows of different lengths, gaps and seat categories. Expected
+     * behavior is the seats to be numbered row by row without the gaps and every seat to have its row, column and category.
+     */
+    @Test
+    public void build_RowsWithGapsAndCategories_Test() {
+        /*---Setup---*/
+        HallLayout.Builder builder = HallLayout.builder("Small hall")
+                .addRows(2, "SS_SSSS_SS")
+                .addRow("PPP__PPP")
+                .addRow("AVVVVA");
+
+        /*---Call---*/
+        HallLayout layout = builder.build();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(layout.getSeatsCount(), Is.is(28));
+        MatcherAssert.assertThat(layout.getRowsCount(), Is.is(4));
+        MatcherAssert.assertThat(layout.getFirstSeatNumber(2), Is.is(17));
+        MatcherAssert.assertThat(layout.getRowSeatsCount(2), Is.is(6));
+        MatcherAssert.assertThat(layout.getRow(8), Is.is(0));
+        MatcherAssert.assertThat(layout.getRow(9), Is.is(1));
+        MatcherAssert.assertThat(layout.getColumn(3), Is.is(3));
+        MatcherAssert.assertThat(layout.getColumn(20), Is.is(5));
+        MatcherAssert.assertThat(layout.getCategory(20), Is.is(SeatCategory.PREMIUM));
+        MatcherAssert.assertThat(layout.getCategory(28), Is.is(SeatCategory.ACCESSIBLE));
+        MatcherAssert.assertThat(layout.isValidSeatNumber(29), Is.is(false));
+    }
+
+    /**
+     * Test that tests the seats of {@link MovieProjection} in a big hall. Taking the last seat of a hall with 5000 seats. Expected behavior is the seat to
+     * be taken only in the projection, which layout has it.
+     */
+    @Test
+    public void tryTakeSeat_InBigHall_Test() {
+        /*---Setup---*/
+        HallLayout layout = HallLayout.rectangular("Arena", 50, 100);
+        MovieProjection projection = new MovieProjection(layout);
+        MovieProjection defaultProjection = new MovieProjection();
+
+        /*---Call---*/
+        boolean taken = projection.tryTakeSeat(5000);
+        boolean takenInDefault = defaultProjection.tryTakeSeats(MovieProjection.toSeatsMask(5000));
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(taken, Is.is(true));
+        MatcherAssert.assertThat(takenInDefault, Is.is(false));
+        MatcherAssert.assertThat(projection.isSeatTaken(5000), Is.is(true));
+        MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(4999));
+        MatcherAssert.assertThat(projection.getSeats()
+                .size(), Is.is(5000));
+    }
+
+    /**
+     * Test that tests the functionality of findBestBlock() method. Searching blocks of 3 and 5 seats in a hall with aisle, which middle row has only 4 free
+     * seats. Expected behavior is the smaller block to be in the free seats of the middle row and the bigger one in the middle of the first row.
+     */
+    @Test
+    public void findBestBlock_MiddleRowAlmostFull_Test() {
+        /*---Setup---*/
+        HallLayout layout = HallLayout.builder("Hall with aisle")
+                .addRows(3, "SSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSS_SSSSSSSSSSSSSSSSSSSSSSSSSSSSSS")
+                .build();
+        MovieProjection projection = new MovieProjection(layout);
+        int middleRowStart = layout.getFirstSeatNumber(1);
+        for (int seatNumber = middleRowStart; seatNumber < middleRowStart + layout.getRowSeatsCount(1); seatNumber++) {
+            if (seatNumber < middleRowStart + 33 || seatNumber > middleRowStart + 36) {
+                projection.tryTakeSeat(seatNumber);
+            }
+        }
+
+        /*---Call---*/
+        int smallBlockSeat = layout.findBestBlock(projection.getTakenSeatsMask(), 3);
+        int bigBlockSeat = layout.findBestBlock(projection.getTakenSeatsMask(), 5);
+        int tooBigBlockSeat = layout.findBestBlock(projection.getTakenSeatsMask(), 39);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(smallBlockSeat, Is.is(middleRowStart + 33));
+        MatcherAssert.assertThat(bigBlockSeat, Is.is(layout.getFirstSeatNumber(0) + 32));
+        MatcherAssert.assertThat(tooBigBlockSeat, Is.is(0));
+    }
+
+    /**
+     * Test that tests the functionality of equals() method. Comparing layouts built twice from the same rows and layouts with other name, rows or
+     * categories. Expected behavior is only the layouts with the same name and seats to be equal and to have the same hash code.
+     */
+    @Test
+    public void equals_LayoutsBuiltTwice_Test() {
+        /*---Setup---*/
+        HallLayout layout = HallLayout.builder("Hall")
+                .addRows(2, "SS_SS")
+                .addRow("PPPP")
+                .build();
+        HallLayout sameLayout = HallLayout.builder("Hall")
+                .addRows(2, "SS_SS")
+                .addRow("PPPP")
+                .build();
+
+        /*---Call---*/
+        boolean same = layout.equals(sameLayout);
+        boolean otherName = layout.equals(HallLayout.builder("Other hall")
+                .addRows(2, "SS_SS")
+                .addRow("PPPP")
+                .build());
+        boolean otherGap = layout.equals(HallLayout.builder("Hall")
+                .addRows(2, "S_SSS")
+                .addRow("PPPP")
+                .build());
+        boolean otherCategory = layout.equals(HallLayout.builder("Hall")
+                .addRows(2, "SS_SS")
+                .addRow("SSSS")
+                .build());
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(same, Is.is(true));
+        MatcherAssert.assertThat(layout.hashCode(), Is.is(sameLayout.hashCode()));
+        MatcherAssert.assertThat(otherName, Is.is(false));
+        MatcherAssert.assertThat(otherGap, Is.is(false));
+        MatcherAssert.assertThat(otherCategory, Is.is(false));
+    }
+
+}
@@ -0,0 +1,50 @@
+package uni.pld.masters.model;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class MovieCatalogTest {
+
+    /**
+     * Test that tests the functionality of {@link MovieCatalog#getOrAdd(String)}. Adding more movies than the initial capacity and adding one of them again.
+     * Expected behavior is every name to have one canonical movie with its own id and a movie with the same name to be resolved to that id.
+     */
+    @Test
+    public void getOrAdd_ManyMovies_Test() {
+        /*---Setup---*/
+        MovieCatalog catalog = new MovieCatalog();
+        for (int i = 1; i <= 40; i++) {
+            catalog.getOrAdd("Movie " + i);
+        }
+        Movie otherMovie = new Movie();
+        otherMovie.setName("Movie 33");
+
+        /*---Call---*/
+        Movie movie = catalog.getOrAdd("Movie 33");
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(catalog.size(), Is.is(40));
+        MatcherAssert.assertThat(movie.getId(), Is.is(33));
+        MatcherAssert.assertThat(catalog.get(33) == movie, Is.is(true));
+        MatcherAssert.assertThat(catalog.get("Movie 33") == movie, Is.is(true));
+        MatcherAssert.assertThat(catalog.getId(otherMovie), Is.is(33));
+        MatcherAssert.assertThat(otherMovie.equals(movie), Is.is(true));
+        MatcherAssert.assertThat(catalog.get(41), Is.is((Movie) null));
+    }
+
+    /**
+     * Test that tests the canonical movies of {@link MovieCatalog}. Renaming a canonical movie. Expected behavior is
+     * {@link UnsupportedOperationException}, because the id of the movie is bound to its name.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void setName_CanonicalMovie_Test() {
+        /*---Setup---*/
+        MovieCatalog catalog = new MovieCatalog();
+        Movie movie = catalog.getOrAdd("Titanic");
+
+        /*---Call---*/
+        movie.setName("Avatar");
+    }
+
+}
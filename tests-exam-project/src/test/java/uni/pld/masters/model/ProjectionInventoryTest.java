@@ -0,0 +1,148 @@
+package uni.pld.masters.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectionInventoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that tests the functionality of {@linkplain ProjectionInventory#get(int)}. Two views over the same slot of direct inventory take seats.
+     * Expected behavior is every view to see the seats taken by the other one, the other slot to stay free and the full inventory to reject new
+     * projections.
+     */
+    @Test
+    public void get_ViewsOverDirectInventory_Test() {
+        /*---Setup---*/
+        MovieCatalog catalog = new MovieCatalog();
+        Movie movie = new Movie();
+        movie.setName("Off-heap movie");
+        LocalDateTime startTime = LocalDateTime.of(2030, 1, 1, 20, 0);
+        ProjectionInventory inventory = ProjectionInventory.allocateDirect(catalog, HallLayout.DEFAULT, 2);
+        int firstSlot = inventory.add(11L, movie, startTime);
+        int secondSlot = inventory.add(12L, movie, startTime.plusHours(3L));
+        MovieProjection firstView = inventory.get(firstSlot);
+        MovieProjection otherView = inventory.get(firstSlot);
+
+        /*---Call---*/
+        boolean taken = firstView.tryTakeSeat(5);
+        boolean takenAgain = otherView.tryTakeSeat(5);
+        boolean groupTaken = otherView.tryTakeSeats(MovieProjection.toSeatsMask(Arrays.asList(6, 30)));
+        firstView.setSeatHeld(6, true);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(taken, Is.is(true));
+        MatcherAssert.assertThat(takenAgain, Is.is(false));
+        MatcherAssert.assertThat(groupTaken, Is.is(true));
+        MatcherAssert.assertThat(firstView.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 3));
+        MatcherAssert.assertThat(otherView.getSeatMap()
+                .isSeatHeld(6), Is.is(true));
+        MatcherAssert.assertThat(otherView.getSeatMap()
+                .isSeatTaken(30), Is.is(true));
+        MatcherAssert.assertThat(firstView.getId(), Is.is(11L));
+        MatcherAssert.assertThat(firstView.getMovie() == catalog.get("Off-heap movie"), Is.is(true));
+        MatcherAssert.assertThat(firstView.getProjectionStartTime(), Is.is(startTime));
+        MatcherAssert.assertThat(inventory.get(secondSlot)
+                .isSeatTaken(5), Is.is(false));
+        MatcherAssert.assertThat(inventory.getFreeSeatsCount(secondSlot), Is.is(MovieProjection.SEATS_COUNT));
+        MatcherAssert.assertThat(inventory.add(13L, movie, startTime), Is.is(ProjectionInventory.NO_SLOT));
+    }
+
+    /**
+     * Test that tests the functionality of {@linkplain ProjectionInventory#get(int)} for the cache of the views. Reading the same slot again, after other
+     * slot took its place in the cache, and changing the seats through the old and the new view. Expected behavior is the same view to be returned till it
+     * is replaced and all views over the slot to report the same seat map versions.
+     */
+    @Test
+    public void get_CachedViewsAndSeatMapVersions_Test() {
+        /*---Setup---*/
+        MovieCatalog catalog = new MovieCatalog();
+        Movie movie = new Movie();
+        movie.setName("Off-heap movie");
+        LocalDateTime startTime = LocalDateTime.of(2030, 1, 1, 20, 0);
+        ProjectionInventory inventory = ProjectionInventory.allocateDirect(catalog, HallLayout.DEFAULT, 2048);
+        for (int index = 0; index < 2048; index++) {
+            inventory.add(index + 1, movie, startTime);
+        }
+        MovieProjection firstView = inventory.get(0);
+        firstView.tryTakeSeat(1);
+        long firstVersion = firstView.getSeatMap()
+                .getVersion();
+
+        /*---Call---*/
+        boolean sameView = inventory.get(0) == firstView;
+        inventory.get(1024);
+        MovieProjection secondView = inventory.get(0);
+        long secondViewVersion = secondView.getSeatMap()
+                .getVersion();
+        secondView.tryTakeSeat(1);
+        long unchangedVersion = secondView.getSeatMap()
+                .getVersion();
+        secondView.tryTakeSeat(2);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(sameView, Is.is(true));
+        MatcherAssert.assertThat(secondView == firstView, Is.is(false));
+        MatcherAssert.assertThat(firstVersion, Is.is(1L));
+        MatcherAssert.assertThat(secondViewVersion, Is.is(1L));
+        MatcherAssert.assertThat(unchangedVersion, Is.is(1L));
+        MatcherAssert.assertThat(secondView.getSeatMap()
+                .getVersion(), Is.is(2L));
+        MatcherAssert.assertThat(firstView.getSeatMap()
+                .getVersion(), Is.is(2L));
+        MatcherAssert.assertThat(firstView.getSeatMap()
+                .isSeatTaken(2), Is.is(true));
+    }
+
+    /**
+     * Test that changes projections in memory-mapped inventory, closes it and opens the file again. Expected behavior is the opened inventory to have the
+     * same projections and taken seats and to accept new projections after them.
+     */
+    @Test
+    public void map_OpenClosedInventory_Test() throws IOException {
+        /*---Setup---*/
+        Path file = folder.getRoot()
+                .toPath()
+                .resolve("projections.inventory");
+        MovieCatalog catalog = new MovieCatalog();
+        Movie movie = new Movie();
+        movie.setName("Mapped movie");
+        LocalDateTime startTime = LocalDateTime.of(2030, 1, 1, 20, 0);
+        HallLayout layout = HallLayout.rectangular("Big hall", 10, 20);
+        try (ProjectionInventory inventory = ProjectionInventory.map(file, catalog, layout, 1000)) {
+            for (int index = 0; index < 100; index++) {
+                inventory.add(index + 1, movie, startTime.plusHours(index));
+            }
+            inventory.get(42)
+                    .tryTakeSeat(150);
+            inventory.get(42)
+                    .setProjectionStartTime(startTime.minusDays(1L));
+        }
+
+        /*---Call---*/
+        try (ProjectionInventory inventory = ProjectionInventory.map(file, catalog, layout, 1000)) {
+
+            /*---Assert---*/
+            MatcherAssert.assertThat(inventory.size(), Is.is(100));
+            MatcherAssert.assertThat(inventory.getProjectionId(99), Is.is(100L));
+            MatcherAssert.assertThat(inventory.get(42)
+                    .isSeatTaken(150), Is.is(true));
+            MatcherAssert.assertThat(inventory.get(42)
+                    .getFreeSeatsCount(), Is.is(199));
+            MatcherAssert.assertThat(inventory.get(42)
+                    .getProjectionStartTime(), Is.is(startTime.minusDays(1L)));
+            MatcherAssert.assertThat(inventory.add(101L, movie, startTime), Is.is(100));
+        }
+    }
+
+}
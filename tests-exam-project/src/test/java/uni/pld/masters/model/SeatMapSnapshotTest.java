@@ -0,0 +1,75 @@
+package uni.pld.masters.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class SeatMapSnapshotTest {
+
+    /**
+     * Test that tests the functionality of {@linkplain MovieProjection#getSeatMap()}. Reading the seat map before and after taking seats and after a
+     * failed take. Expected behavior is the same snapshot to be returned while the seats don't change, the version to grow only when the seats change and
+     * the older snapshot to stay unchanged.
+     */
+    @Test
+    public void getSeatMap_Versions_Test() {
+        /*---Setup---*/
+        MovieProjection projection = new MovieProjection();
+        SeatMapSnapshot first = projection.getSeatMap();
+
+        /*---Call---*/
+        projection.tryTakeSeat(3);
+        projection.tryTakeSeats(MovieProjection.toSeatsMask(Arrays.asList(7, 8)));
+        SeatMapSnapshot second = projection.getSeatMap();
+        projection.tryTakeSeat(3);
+        SeatMapSnapshot third = projection.getSeatMap();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(projection.getSeatMap() == third, Is.is(true));
+        MatcherAssert.assertThat(first.getVersion(), Is.is(0L));
+        MatcherAssert.assertThat(second.getVersion(), Is.is(1L));
+        MatcherAssert.assertThat(third.getVersion(), Is.is(1L));
+        MatcherAssert.assertThat(first.isSeatTaken(3), Is.is(false));
+        MatcherAssert.assertThat(second.isSeatTaken(3), Is.is(true));
+        MatcherAssert.assertThat(second.getFreeSeatsCount(), Is.is(27));
+        MatcherAssert.assertThat(second.getChangedSeatsMask(first)[0], Is.is((1L << 2) | (1L << 6) | (1L << 7)));
+        MatcherAssert.assertThat(projection.getSeatMapIfChanged(1L), Is.is((SeatMapSnapshot) null));
+    }
+
+    /**
+     * Test that tests the consistency of {@link SeatMapSnapshot}. Taking and releasing two seats in different bitmap words at once in one thread, while
+     * other thread reads the seat map. Expected behavior is every snapshot to have both seats taken or both seats free.
+     */
+    @Test
+    public void getSeatMap_ConcurrentGroupChanges_Test() throws InterruptedException {
+        /*---Setup---*/
+        MovieProjection projection = new MovieProjection(HallLayout.rectangular("Two words", 2, 64));
+        long[] seatsMask = MovieProjection.toSeatsMask(Arrays.asList(1, 128));
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                projection.tryTakeSeats(seatsMask);
+                projection.releaseSeats(seatsMask);
+            }
+        });
+        int inconsistentCount = 0;
+
+        /*---Call---*/
+        writer.start();
+        for (int read = 0; read < 100000; read++) {
+            SeatMapSnapshot snapshot = projection.getSeatMap();
+            if (snapshot.isSeatTaken(1) != snapshot.isSeatTaken(128)) {
+                inconsistentCount++;
+            }
+        }
+        running.set(false);
+        writer.join();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(inconsistentCount, Is.is(0));
+    }
+
+}
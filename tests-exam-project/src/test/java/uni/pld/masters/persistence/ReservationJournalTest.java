@@ -0,0 +1,428 @@
+package uni.pld.masters.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.AsyncReservationService;
+import uni.pld.masters.service.CancellationStatus;
+import uni.pld.masters.service.MovieProjectionManager;
+import uni.pld.masters.service.Reservation;
+import uni.pld.masters.service.ReservationStatus;
+import uni.pld.masters.time.TimeSource;
+
+public class ReservationJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that schedules projections and makes reservations with opened journal and then replays the journal to a new {@link MovieProjectionManager}.
+     * Expected behavior is the new manager to have the same projections and taken seats.
+     */
+    @Test
+    public void openJournal_ReplayToNewManager_Test() throws IOException {
+        /*---Setup---*/
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("reservations.journal");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .withNano(0)
+                .plusDays(1L);
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Journaled movie");
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.openJournal(journalFile);
+        manager.scheduleMovieProjection(movie, projectionTime);
+        manager.scheduleMovieProjection(movie, projectionTime.plusHours(3L));
+        manager.makeReservation(viewer, movie, (byte) 7);
+        manager.makeReservation(viewer, movie, (byte) 30);
+        manager.closeJournal();
+
+        /*---Call---*/
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.openJournal(journalFile);
+
+        /*---Assert---*/
+        List<MovieProjection> projections = restoredManager.getNextProjections(movie, 10);
+        MatcherAssert.assertThat(projections.size(), Is.is(2));
+        MatcherAssert.assertThat(projections.get(0)
+                .getProjectionStartTime(), Is.is(projectionTime));
+        for (MovieProjection projection : projections) {
+            MatcherAssert.assertThat(projection.isSeatTaken((byte) 7), Is.is(true));
+            MatcherAssert.assertThat(projection.isSeatTaken((byte) 30), Is.is(true));
+            MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 2));
+        }
+
+        MatcherAssert.assertThat(restoredManager.makeReservation(viewer, movie, (byte) 7), Is.is("Seat is already taken"));
+        restoredManager.closeJournal();
+    }
+
+    /**
+     * Test that makes single, group and best available reservations with journal, which writes fail because the disk is full. Expected behavior is every
+     * reservation to throw the journal failure, also the reservations after the first failure without waiting for the flusher, and the seats to stay
+     * free without reservations in the ledger.
+     */
+    @Test
+    public void reserve_JournalWriteFailed_Test() throws IOException {
+        /*---Setup---*/
+        Path fullDevice = Paths.get("/dev/full");
+        Assume.assumeTrue(Files.isWritable(fullDevice));
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Unjournaled movie");
+        MovieProjectionManager manager = new MovieProjectionManager();
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(2L));
+        manager.openJournal(fullDevice);
+
+        /*---Call---*/
+        List<Runnable> reservations = Arrays.asList(() -> manager.reserve(viewer, movie, 1), () -> manager.reserve(viewer, projectionId, 2),
+                () -> manager.reserveGroup(viewer, movie, new HashSet<>(Arrays.asList(3, 4))), () -> manager.reserveBestAvailable(viewer, movie, 5),
+                () -> manager.reserveBestAvailable(viewer, projectionId, 5));
+        int failedCount = 0;
+        for (Runnable reservation : reservations) {
+            try {
+                reservation.run();
+            } catch (UncheckedIOException e) {
+                failedCount++;
+            }
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(failedCount, Is.is(reservations.size()));
+        for (MovieProjection projection : manager.getNextProjections(movie, 10)) {
+            MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT));
+        }
+        MatcherAssert.assertThat(manager.getReservationLedger()
+                .size(), Is.is(0));
+        manager.closeJournal();
+    }
+
+    /**
+     * Test that cancels reservation with journal, which writes fail because the disk is full. Expected behavior is the cancellation to throw the journal
+     * failure, the seat to stay taken and the reservation to stay in the ledger with the same id, so it could be cancelled later.
+     */
+    @Test
+    public void cancelReservation_JournalWriteFailed_Test() throws IOException {
+        /*---Setup---*/
+        Path fullDevice = Paths.get("/dev/full");
+        Assume.assumeTrue(Files.isWritable(fullDevice));
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Uncancelled movie");
+        MovieProjectionManager manager = new MovieProjectionManager();
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.reserve(viewer, projectionId, 3);
+        long reservationId = manager.getReservationLedger()
+                .getForViewer(viewer)
+                .get(0)
+                .getId();
+        manager.openJournal(fullDevice);
+
+        /*---Call---*/
+        boolean failed = false;
+        try {
+            manager.cancelReservation(reservationId);
+        } catch (UncheckedIOException e) {
+            failed = true;
+        }
+        manager.closeJournal();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(failed, Is.is(true));
+        MatcherAssert.assertThat(manager.getProjection(projectionId)
+                .isSeatTaken(3), Is.is(true));
+        MatcherAssert.assertThat(manager.getReservationLedger()
+                .get(reservationId)
+                .getSeatNumber(), Is.is(3));
+        MatcherAssert.assertThat(manager.cancelReservation(reservationId), Is.is(CancellationStatus.SUCCESS));
+        MatcherAssert.assertThat(manager.getProjection(projectionId)
+                .isSeatTaken(3), Is.is(false));
+    }
+
+    /**
+     * Test that opens journal, which ends with incomplete record(like after crash during writing). Expected behavior is the complete records to be replayed,
+     * the incomplete one to be cut off and the new records to be appended after the last complete one.
+     */
+    @Test
+    public void open_WithIncompleteLastRecord_Test() throws IOException {
+        /*---Setup---*/
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("torn.journal");
+        try (ReservationJournal journal = ReservationJournal.open(journalFile, new RecordingListener())) {
+            journal.awaitDurable(journal.appendSchedule(1L, "First", "Default", 1000L));
+        }
+        long validLength = Files.size(journalFile);
+        Files.write(journalFile, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        /*---Call---*/
+        RecordingListener listener = new RecordingListener();
+        try (ReservationJournal journal = ReservationJournal.open(journalFile, listener)) {
+            MatcherAssert.assertThat(Files.size(journalFile), Is.is(validLength));
+            journal.awaitDurable(journal.appendSchedule(2L, "Second", "Default", 2000L));
+        }
+        RecordingListener secondListener = new RecordingListener();
+        ReservationJournal.open(journalFile, secondListener)
+                .close();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(listener.movieNames.size(), Is.is(1));
+        MatcherAssert.assertThat(secondListener.movieNames.size(), Is.is(2));
+        MatcherAssert.assertThat(secondListener.movieNames.get(1), Is.is("Second"));
+    }
+
+    /**
+     * Test that cancels reservation with opened journal and then replays the journal to a new {@link MovieProjectionManager}. Expected behavior is the
+     * cancelled seat to be free in all projections of the cancelled reservation and the other seats to stay taken.
+     */
+    @Test
+    public void openJournal_ReplayCancellation_Test() throws IOException {
+        /*---Setup---*/
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("cancellations.journal");
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Cancelled movie");
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.openJournal(journalFile);
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusDays(2L));
+        manager.makeReservation(viewer, movie, 5);
+        manager.makeReservation(viewer, movie, 6);
+        manager.cancelReservation(manager.getReservationLedger()
+                .getForViewer(viewer)
+                .stream()
+                .filter(reservation -> reservation.getSeatNumber() == 5)
+                .findFirst()
+                .get()
+                .getId());
+        manager.closeJournal();
+
+        /*---Call---*/
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.openJournal(journalFile);
+
+        /*---Assert---*/
+        List<MovieProjection> projections = restoredManager.getNextProjections(movie, 10);
+        MatcherAssert.assertThat(projections.get(0)
+                .isSeatTaken(5), Is.is(false));
+        MatcherAssert.assertThat(projections.get(1)
+                .isSeatTaken(5), Is.is(false));
+        MatcherAssert.assertThat(projections.get(0)
+                .isSeatTaken(6), Is.is(true));
+        MatcherAssert.assertThat(projections.get(1)
+                .isSeatTaken(6), Is.is(true));
+        restoredManager.closeJournal();
+    }
+
+    /**
+     * Test that cancels reservation with opened journal, reserves the released seat again for other viewer and then replays the journal to a new
+     * {@link MovieProjectionManager}. Expected behavior is the seat to be taken after the replay, because the release is journaled before the new
+     * reservation.
+     */
+    @Test
+    public void openJournal_ReplayCancellationAndReservationAgain_Test() throws IOException {
+        /*---Setup---*/
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("reserved-again.journal");
+        Movie movie = new Movie();
+        movie.setName("Reserved again movie");
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.openJournal(journalFile);
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.reserve(new Viewer("first", "viewer"), projectionId, 7);
+        manager.cancelReservation(manager.getReservationLedger()
+                .getForProjection(projectionId)
+                .get(0)
+                .getId());
+        manager.reserve(new Viewer("second", "viewer"), projectionId, 7);
+        manager.closeJournal();
+
+        /*---Call---*/
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.openJournal(journalFile);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .isSeatTaken(7), Is.is(true));
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 1));
+        restoredManager.closeJournal();
+    }
+
+    /**
+     * Test that restores snapshot, which has only one of the seats of a journaled group reservation, and then replays the journal. Expected behavior is
+     * the other seat of the group to be taken too, because the replay takes the free seats of the record and leaves the already taken ones.
+     */
+    @Test
+    public void openJournal_ReplayOverPartialSnapshot_Test() throws IOException {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("partial.snapshot");
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("partial.journal");
+        HallLayout layout = HallLayout.rectangular("Big hall", 10, 20);
+        Movie movie = new Movie();
+        movie.setName("Partial movie");
+        LocalDateTime startTime = LocalDateTime.now()
+                .plusDays(1L);
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        long projectionId = manager.scheduleProjection(movie, startTime, layout);
+        manager.reserve(new Viewer("tester", "test"), projectionId, 5);
+        manager.writeSnapshot(snapshotFile);
+        try (ReservationJournal journal = ReservationJournal.open(journalFile, new RecordingListener())) {
+            journal.appendSchedule(projectionId, movie.getName(), layout.getName(), TimeSource.toEpochMillis(startTime));
+            journal.awaitDurable(journal.appendReservation(new long[] { projectionId }, MovieProjection.toSeatsMask(Arrays.asList(5, 150))));
+        }
+
+        /*---Call---*/
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.registerLayout(layout);
+        restoredManager.restoreSnapshot(snapshotFile);
+        restoredManager.openJournal(journalFile);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .isSeatTaken(5), Is.is(true));
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .isSeatTaken(150), Is.is(true));
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .getFreeSeatsCount(), Is.is(198));
+        restoredManager.closeJournal();
+    }
+
+    /**
+     * Test that makes single, group and batched reservations with opened journal, cancels one of them and then replays the journal to a new
+     * {@link MovieProjectionManager}. Expected behavior is the restored reservations to be listed by viewer with their seats and projections and to be
+     * cancelled, so the seat is free also after the next replay.
+     */
+    @Test
+    public void openJournal_RestoreReservationsWithViewers_Test() throws IOException {
+        /*---Setup---*/
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("viewers.journal");
+        Viewer viewer = new Viewer("tester", "test");
+        Viewer otherViewer = new Viewer("other", "viewer");
+        Movie movie = new Movie();
+        movie.setName("Ledger movie");
+        Movie batchMovie = new Movie();
+        batchMovie.setName("Batch movie");
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.openJournal(journalFile);
+        long firstProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        long secondProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(2L));
+        long batchProjectionId = manager.scheduleProjection(batchMovie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.reserve(viewer, movie, 5);
+        manager.reserveGroup(otherViewer, firstProjectionId, new HashSet<>(Arrays.asList(8, 9)));
+        manager.cancelReservation(manager.getReservationLedger()
+                .getForViewer(otherViewer)
+                .stream()
+                .filter(reservation -> reservation.getSeatNumber() == 9)
+                .findFirst()
+                .get()
+                .getId());
+        try (AsyncReservationService service = new AsyncReservationService(manager)) {
+            CompletableFuture<ReservationStatus> first = service.reserve(viewer, batchMovie, 1);
+            CompletableFuture<ReservationStatus> second = service.reserve(otherViewer, batchMovie, 2);
+            MatcherAssert.assertThat(first.join(), Is.is(ReservationStatus.SUCCESS));
+            MatcherAssert.assertThat(second.join(), Is.is(ReservationStatus.SUCCESS));
+        }
+        manager.closeJournal();
+
+        /*---Call---*/
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.openJournal(journalFile);
+        List<Reservation> reservations = restoredManager.getReservationLedger()
+                .getForViewer(viewer);
+        List<Reservation> otherReservations = restoredManager.getReservationLedger()
+                .getForViewer(otherViewer);
+        Reservation movieReservation = reservations.stream()
+                .filter(reservation -> reservation.getSeatNumber() == 5)
+                .findFirst()
+                .get();
+        CancellationStatus status = restoredManager.cancelReservation(movieReservation.getId());
+        restoredManager.closeJournal();
+        MovieProjectionManager replayedManager = new MovieProjectionManager();
+        replayedManager.openJournal(journalFile);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(reservations.size(), Is.is(2));
+        MatcherAssert.assertThat(movieReservation.getProjectionIds(), Is.is(new long[] { firstProjectionId, secondProjectionId }));
+        MatcherAssert.assertThat(otherReservations.size(), Is.is(2));
+        MatcherAssert.assertThat(otherReservations.stream()
+                .filter(reservation -> reservation.getSeatNumber() == 8 && reservation.getProjectionId() == firstProjectionId)
+                .count(), Is.is(1L));
+        MatcherAssert.assertThat(otherReservations.stream()
+                .filter(reservation -> reservation.getSeatNumber() == 2 && reservation.getProjectionId() == batchProjectionId)
+                .count(), Is.is(1L));
+        MatcherAssert.assertThat(status, Is.is(CancellationStatus.SUCCESS));
+        MatcherAssert.assertThat(replayedManager.getProjection(firstProjectionId)
+                .isSeatTaken(5), Is.is(false));
+        MatcherAssert.assertThat(replayedManager.getProjection(secondProjectionId)
+                .isSeatTaken(5), Is.is(false));
+        MatcherAssert.assertThat(replayedManager.getReservationLedger()
+                .getForViewer(viewer)
+                .size(), Is.is(1));
+        MatcherAssert.assertThat(replayedManager.getReservationLedger()
+                .size(), Is.is(3));
+        replayedManager.closeJournal();
+    }
+
+    private static class RecordingListener implements JournalListener {
+
+        private final List<String> movieNames = new ArrayList<>();
+
+        @Override
+        public void projectionScheduled(long projectionId, String movieName, String layoutName, long startTimeMillis) {
+            movieNames.add(movieName);
+        }
+
+        @Override
+        public void seatsReserved(long[] projectionIds, long[] seatsMask) {
+        }
+
+    }
+
+}
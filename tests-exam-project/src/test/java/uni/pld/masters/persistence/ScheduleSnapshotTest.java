@@ -0,0 +1,347 @@
+package uni.pld.masters.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+import uni.pld.masters.service.CancellationStatus;
+import uni.pld.masters.service.MovieProjectionManager;
+import uni.pld.masters.service.Reservation;
+
+public class ScheduleSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that writes snapshot of manager with projections for two movies and restores it to a new {@link MovieProjectionManager}. Expected behavior is the
+     * new manager to have the same projections with the same taken seats.
+     */
+    @Test
+    public void restoreSnapshot_ToNewManager_Test() throws IOException {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("schedule.snapshot");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .withNano(0)
+                .plusDays(1L);
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Snapshot movie");
+        Movie otherMovie = new Movie();
+        otherMovie.setName("Other movie");
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.scheduleMovieProjection(movie, projectionTime);
+        manager.scheduleMovieProjection(otherMovie, projectionTime.plusHours(1L));
+        manager.scheduleMovieProjection(movie, projectionTime.plusHours(2L));
+        manager.makeReservation(viewer, movie, (byte) 12);
+        manager.makeReservation(viewer, otherMovie, (byte) 1);
+
+        /*---Call---*/
+        long writtenProjections = manager.writeSnapshot(snapshotFile);
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        long restoredProjections = restoredManager.restoreSnapshot(snapshotFile);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(writtenProjections, Is.is(3L));
+        MatcherAssert.assertThat(restoredProjections, Is.is(3L));
+
+        List<MovieProjection> projections = restoredManager.getNextProjections(movie, 10);
+        MatcherAssert.assertThat(projections.size(), Is.is(2));
+        MatcherAssert.assertThat(projections.get(1)
+                .getProjectionStartTime(), Is.is(projectionTime.plusHours(2L)));
+        MatcherAssert.assertThat(projections.get(1)
+                .isSeatTaken((byte) 12), Is.is(true));
+
+        MovieProjection otherProjection = restoredManager.getNextProjections(otherMovie, 1)
+                .get(0);
+        MatcherAssert.assertThat(otherProjection.isSeatTaken((byte) 1), Is.is(true));
+        MatcherAssert.assertThat(otherProjection.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 1));
+        MatcherAssert.assertThat(restoredManager.scheduleMovieProjection(movie, projectionTime.plusHours(4L)), Is.is("Movie projection scheduled successfully"));
+        MatcherAssert.assertThat(restoredManager.getNextProjections(movie, 10)
+                .get(2)
+                .getId(), Is.is(4L));
+    }
+
+    /**
+     * Test that writes snapshot of manager with projection in a big hall and restores it to a new {@link MovieProjectionManager} with the same registered
+     * layout. Expected behavior is the restored projection to have the layout and the seats after the first 30.
+     */
+    @Test
+    public void restoreSnapshot_WithHallLayout_Test() throws IOException {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("layout.snapshot");
+        HallLayout layout = HallLayout.rectangular("IMAX", 20, 40);
+        Movie movie = new Movie();
+        movie.setName("IMAX movie");
+
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusDays(1L), layout);
+        manager.makeReservation(new Viewer("tester", "test"), movie, 750);
+
+        /*---Call---*/
+        manager.writeSnapshot(snapshotFile);
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.registerLayout(layout);
+        restoredManager.restoreSnapshot(snapshotFile);
+
+        /*---Assert---*/
+        MovieProjection projection = restoredManager.getNextProjections(movie, 1)
+                .get(0);
+        MatcherAssert.assertThat(projection.getLayout(), Is.is(layout));
+        MatcherAssert.assertThat(projection.isSeatTaken(750), Is.is(true));
+        MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(799));
+    }
+
+    /**
+     * Test that writes snapshot of manager with journal, changes the seats, compacts the journal and changes the seats again, then restores the snapshot
+     * and the journal to a new {@link MovieProjectionManager}. Expected behavior is the compaction to remove the records before the snapshot, the new
+     * manager to have all changes and the compacted journal to be rejected without the snapshot.
+     */
+    @Test
+    public void restoreSnapshot_CompactedJournalAfterSnapshot_Test() throws IOException {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("compacted.snapshot");
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("compacted.journal");
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Compacted movie");
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.openJournal(journalFile);
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        for (int seatNumber = 1; seatNumber <= 10; seatNumber++) {
+            manager.reserve(viewer, projectionId, seatNumber);
+        }
+        long journalSize = Files.size(journalFile);
+
+        /*---Call---*/
+        manager.writeSnapshot(snapshotFile);
+        manager.reserve(viewer, projectionId, 20);
+        manager.cancelReservation(manager.getReservationLedger()
+                .getForViewer(viewer)
+                .stream()
+                .filter(reservation -> reservation.getSeatNumber() == 3)
+                .findFirst()
+                .get()
+                .getId());
+        long removedLength = manager.compactJournal();
+        manager.reserve(viewer, projectionId, 21);
+        manager.closeJournal();
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.restoreSnapshot(snapshotFile);
+        restoredManager.openJournal(journalFile);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(removedLength > 0L && removedLength < journalSize, Is.is(true));
+        MovieProjection projection = restoredManager.getProjection(projectionId);
+        MatcherAssert.assertThat(projection.isSeatTaken(3), Is.is(false));
+        MatcherAssert.assertThat(projection.isSeatTaken(20), Is.is(true));
+        MatcherAssert.assertThat(projection.isSeatTaken(21), Is.is(true));
+        MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 11));
+        restoredManager.closeJournal();
+        boolean rejected = false;
+        try {
+            new MovieProjectionManager().openJournal(journalFile);
+        } catch (IOException e) {
+            rejected = true;
+        }
+        MatcherAssert.assertThat(rejected, Is.is(true));
+    }
+
+    /**
+     * Test that writes snapshot of manager with journal and reservations of two viewers, cancels one of them and reserves other seat after the snapshot,
+     * then restores the snapshot and the journal to a new {@link MovieProjectionManager}. Expected behavior is the reservations from the snapshot and from
+     * the journal to be listed by viewer, without the cancelled one, and to be cancelled in the new manager.
+     */
+    @Test
+    public void restoreSnapshot_ReservationsWithViewers_Test() throws IOException {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("viewers.snapshot");
+        Path journalFile = folder.getRoot()
+                .toPath()
+                .resolve("viewers.journal");
+        Viewer viewer = new Viewer("tester", "test");
+        Viewer otherViewer = new Viewer("other", "viewer");
+        Movie movie = new Movie();
+        movie.setName("Ledger snapshot movie");
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.openJournal(journalFile);
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.reserve(viewer, projectionId, 1);
+        manager.reserve(viewer, projectionId, 2);
+        manager.reserve(otherViewer, projectionId, 3);
+
+        /*---Call---*/
+        manager.writeSnapshot(snapshotFile);
+        manager.cancelReservation(manager.getReservationLedger()
+                .getForViewer(viewer)
+                .stream()
+                .filter(reservation -> reservation.getSeatNumber() == 2)
+                .findFirst()
+                .get()
+                .getId());
+        manager.reserve(otherViewer, projectionId, 4);
+        manager.closeJournal();
+        MovieProjectionManager restoredManager = new MovieProjectionManager();
+        restoredManager.restoreSnapshot(snapshotFile);
+        restoredManager.openJournal(journalFile);
+        List<Reservation> reservations = restoredManager.getReservationLedger()
+                .getForViewer(viewer);
+        List<Reservation> otherReservations = restoredManager.getReservationLedger()
+                .getForViewer(otherViewer);
+        CancellationStatus status = restoredManager.cancelReservation(reservations.get(0)
+                .getId());
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(reservations.size(), Is.is(1));
+        MatcherAssert.assertThat(reservations.get(0)
+                .getSeatNumber(), Is.is(1));
+        MatcherAssert.assertThat(otherReservations.size(), Is.is(2));
+        MatcherAssert.assertThat(status, Is.is(CancellationStatus.SUCCESS));
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .isSeatTaken(1), Is.is(false));
+        MatcherAssert.assertThat(restoredManager.getProjection(projectionId)
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 2));
+        MatcherAssert.assertThat(restoredManager.getReservationLedger()
+                .size(), Is.is(2));
+        restoredManager.closeJournal();
+    }
+
+    /**
+     * Test that writes snapshot over existing snapshot, but the writing fails after the first projection. Expected behavior is the write to throw the
+     * exception, the existing snapshot to stay readable with its projections and no temporary file to be left in the directory.
+     */
+    @Test
+    public void write_FailedWriteKeepsPreviousSnapshot_Test() throws IOException {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("kept.snapshot");
+        Movie movie = new Movie();
+        movie.setName("Kept movie");
+        MovieProjectionManager manager = new MovieProjectionManager();
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusDays(2L));
+        manager.writeSnapshot(snapshotFile);
+        Iterator<MovieProjection> projections = manager.getNextProjections(movie, 2)
+                .iterator();
+        Iterable<MovieProjection> failingProjections = () -> new Iterator<MovieProjection>() {
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public MovieProjection next() {
+                if (!projections.hasNext()) {
+                    throw new IllegalStateException("Projections changed");
+                }
+                return projections.next();
+            }
+
+        };
+
+        /*---Call---*/
+        boolean failed = false;
+        try {
+            ScheduleSnapshot.write(snapshotFile, failingProjections);
+        } catch (IllegalStateException e) {
+            failed = true;
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(failed, Is.is(true));
+        MatcherAssert.assertThat(new MovieProjectionManager().restoreSnapshot(snapshotFile), Is.is(2L));
+        try (Stream<Path> files = Files.list(folder.getRoot()
+                .toPath())) {
+            MatcherAssert.assertThat(files.count(), Is.is(1L));
+        }
+    }
+
+    /**
+     * Test that writes snapshots, while other thread makes group reservations for a movie with two projections, which fail because one of the seats is
+     * taken in the second projection. Expected behavior is no snapshot to have the seats, which are taken in the first projection and released again when
+     * the group reservation fails.
+     */
+    @Test
+    public void writeSnapshot_WhileGroupReservationsFail_Test() throws Exception {
+        /*---Setup---*/
+        Path snapshotFile = folder.getRoot()
+                .toPath()
+                .resolve("failing.snapshot");
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Failing group movie");
+        MovieProjectionManager manager = new MovieProjectionManager();
+        long firstProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L));
+        long secondProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(2L));
+        manager.reserve(viewer, secondProjectionId, 2);
+        Set<Integer> seatNumbers = new HashSet<>(Arrays.asList(1, 2));
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread booker = new Thread(() -> {
+            while (running.get()) {
+                manager.reserveGroup(viewer, movie, seatNumbers);
+            }
+        });
+
+        /*---Call---*/
+        int snapshotsWithRolledBackSeats = 0;
+        booker.start();
+        try {
+            for (int attempt = 0; attempt < 200; attempt++) {
+                manager.writeSnapshot(snapshotFile);
+                MovieProjectionManager restoredManager = new MovieProjectionManager();
+                restoredManager.restoreSnapshot(snapshotFile);
+                if (restoredManager.getProjection(firstProjectionId)
+                        .getFreeSeatsCount() != MovieProjection.SEATS_COUNT) {
+                    snapshotsWithRolledBackSeats++;
+                }
+            }
+        } finally {
+            running.set(false);
+            booker.join();
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(snapshotsWithRolledBackSeats, Is.is(0));
+        MatcherAssert.assertThat(manager.getProjection(firstProjectionId)
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT));
+    }
+
+}
@@ -0,0 +1,160 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+
+public class AsyncReservationServiceTest {
+
+    /**
+     * Test that sends many asynchronous reservations for the same seats of a movie with two projections. Expected behavior is every seat to be reserved
+     * successfully exactly once and to be taken in both projections.
+     */
+    @Test
+    public void reserve_ManyRequestsForSameSeats_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Async movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(6L));
+
+        List<CompletableFuture<ReservationStatus>> futures = new ArrayList<>();
+        int[] successfulReservations = new int[MovieProjection.SEATS_COUNT + 1];
+
+        /*---Call---*/
+        try (AsyncReservationService service = new AsyncReservationService(manager)) {
+            for (int round = 0; round < 20; round++) {
+                Viewer viewer = new Viewer("viewer", String.valueOf(round));
+                for (byte seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+                    futures.add(service.reserve(viewer, movie, seatNumber));
+                }
+            }
+
+            for (int index = 0; index < futures.size(); index++) {
+                if (futures.get(index)
+                        .join()
+                        .isSuccessful()) {
+                    successfulReservations[index % MovieProjection.SEATS_COUNT + 1]++;
+                }
+            }
+        }
+
+        /*---Assert---*/
+        for (int seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+            MatcherAssert.assertThat(successfulReservations[seatNumber], Is.is(1));
+        }
+        for (MovieProjection projection : manager.getMovieProjections()) {
+            MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(0));
+        }
+    }
+
+    /**
+     * Test that sends asynchronous reservations with invalid viewer, invalid seat and null movie. Expected behavior is the futures to be completed with the
+     * same statuses as the synchronous reservations.
+     */
+    @Test
+    public void reserve_InvalidRequests_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Async movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+
+        /*---Call---*/
+        try (AsyncReservationService service = new AsyncReservationService(manager)) {
+            ReservationStatus nullViewer = service.reserve(null, movie, (byte) 1)
+                    .join();
+            ReservationStatus invalidSeat = service.reserve(new Viewer("tester", "test"), movie, (byte) 80)
+                    .join();
+            ReservationStatus nullMovie = service.reserve(new Viewer("tester", "test"), null, (byte) 1)
+                    .join();
+
+            /*---Assert---*/
+            MatcherAssert.assertThat(nullViewer, Is.is(ReservationStatus.VIEWER_NULL));
+            MatcherAssert.assertThat(invalidSeat, Is.is(ReservationStatus.INVALID_SEAT));
+            MatcherAssert.assertThat(nullMovie, Is.is(ReservationStatus.MOVIE_NULL));
+        }
+    }
+
+    /**
+     * Test that sends asynchronous reservations to service, which executor rejects the drains. Expected behavior is every future to be completed
+     * exceptionally with the {@linkplain RejectedExecutionException} instead of waiting forever, the seats to stay free and no queue to be kept.
+     */
+    @Test
+    public void reserve_RejectedDrain_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Async movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        AsyncReservationService service = new AsyncReservationService(manager, runnable -> {
+            throw new RejectedExecutionException("Executor is stopped");
+        }, 16);
+
+        /*---Call---*/
+        CompletableFuture<ReservationStatus> first = service.reserve(new Viewer("first", "viewer"), movie, 1);
+        CompletableFuture<ReservationStatus> second = service.reserve(new Viewer("second", "viewer"), movie, 2);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(first.isCompletedExceptionally(), Is.is(true));
+        MatcherAssert.assertThat(second.isCompletedExceptionally(), Is.is(true));
+        MatcherAssert.assertThat(manager.getMovieProjections()
+                .iterator()
+                .next()
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT));
+        MatcherAssert.assertThat(service.getQueuesCount(), Is.is(0));
+    }
+
+    /**
+     * Test that sends asynchronous reservations for many movies and waits for all of them. Expected behavior is the reservations to be successful and
+     * the queues of the drained movies to be removed.
+     */
+    @Test
+    public void reserve_DrainedQueuesRemoved_Test() throws InterruptedException {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        List<Movie> movies = new ArrayList<>();
+        for (int index = 0; index < 50; index++) {
+            Movie movie = new Movie();
+            movie.setName("Async movie " + index);
+            manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                    .plusHours(3L));
+            movies.add(movie);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AsyncReservationService service = new AsyncReservationService(manager, executor, 16);
+
+        /*---Call---*/
+        List<CompletableFuture<ReservationStatus>> futures = new ArrayList<>();
+        for (Movie movie : movies) {
+            futures.add(service.reserve(new Viewer("tester", "test"), movie, 1));
+        }
+        for (CompletableFuture<ReservationStatus> future : futures) {
+            MatcherAssert.assertThat(future.join(), Is.is(ReservationStatus.SUCCESS));
+        }
+        executor.shutdown();
+        executor.awaitTermination(5L, TimeUnit.SECONDS);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(service.getQueuesCount(), Is.is(0));
+    }
+
+}
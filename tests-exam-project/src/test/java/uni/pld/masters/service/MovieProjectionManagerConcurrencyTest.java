@@ -0,0 +1,303 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uni.pld.masters.metrics.OperationSnapshot;
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+
+/**
+ * 
+ * Stress tests for {@link MovieProjectionManager}, which are calling it from many threads at the same time.
+ * 
+ * @author nstoilov
+ *
+ */
+public class MovieProjectionManagerConcurrencyTest {
+
+    private static final int THREADS_COUNT = 16;
+    private static final int ROUNDS = 50;
+
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(THREADS_COUNT);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that calls makeReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Byte} {@linkplain seatNumber}) from many
+     * threads, all of them trying to reserve every seat of the same movie. Expected behavior is every seat to be reserved successfully exactly once and to be
+     * taken in all projections of the movie.
+     */
+    @Test
+    public void makeReservation_ConcurrentReservationsForSameSeats_Test() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            /*---Setup---*/
+            MovieProjectionManager movieProjectionManager = new MovieProjectionManager();
+            Movie movie = new Movie();
+            movie.setName("Premiere");
+            movieProjectionManager.scheduleMovieProjection(movie, LocalDateTime.now()
+                    .plusHours(3L));
+            movieProjectionManager.scheduleMovieProjection(movie, LocalDateTime.now()
+                    .plusHours(5L));
+
+            AtomicIntegerArray successfulReservations = new AtomicIntegerArray(MovieProjection.SEATS_COUNT + 1);
+            CountDownLatch start = new CountDownLatch(1);
+
+            /*---Call---*/
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS_COUNT; thread++) {
+                Viewer viewer = new Viewer("viewer", String.valueOf(thread));
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (byte seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+                        if (movieProjectionManager.reserve(viewer, movie, seatNumber)
+                                .isSuccessful()) {
+                            successfulReservations.incrementAndGet(seatNumber);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            /*---Assert---*/
+            for (int seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+                MatcherAssert.assertThat(successfulReservations.get(seatNumber), Is.is(1));
+            }
+            for (MovieProjection projection : movieProjectionManager.getMovieProjections()) {
+                MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(0));
+            }
+            MatcherAssert.assertThat(movieProjectionManager.getProjectionsWithFreeSeats(movie, 1)
+                    .size(), Is.is(0));
+            MatcherAssert.assertThat(movieProjectionManager.getProjectionsWithFreeSeats(movie, 0)
+                    .size(), Is.is(2));
+        }
+    }
+
+    /**
+     * Test that calls makeReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Byte} {@linkplain seatNumber}) of
+     * {@link ShardedMovieProjectionManager} from many threads, all of them trying to reserve every seat of several movies. Expected behavior is every seat
+     * of every movie to be reserved successfully exactly once.
+     */
+    @Test
+    public void makeReservation_ConcurrentReservationsInShardedManager_Test() throws Exception {
+        /*---Setup---*/
+        int moviesCount = 8;
+        Movie[] movies = new Movie[moviesCount];
+        AtomicIntegerArray successfulReservations = new AtomicIntegerArray(moviesCount * (MovieProjection.SEATS_COUNT + 1));
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ShardedMovieProjectionManager shardedManager = new ShardedMovieProjectionManager(4)) {
+            for (int movieIndex = 0; movieIndex < moviesCount; movieIndex++) {
+                movies[movieIndex] = new Movie();
+                movies[movieIndex].setName("Sharded movie " + movieIndex);
+                shardedManager.scheduleMovieProjection(movies[movieIndex], LocalDateTime.now()
+                        .plusHours(3L));
+            }
+
+            /*---Call---*/
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS_COUNT; thread++) {
+                Viewer viewer = new Viewer("viewer", String.valueOf(thread));
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int movieIndex = 0; movieIndex < moviesCount; movieIndex++) {
+                        for (byte seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+                            if (shardedManager.reserve(viewer, movies[movieIndex], seatNumber)
+                                    .isSuccessful()) {
+                                successfulReservations.incrementAndGet(movieIndex * (MovieProjection.SEATS_COUNT + 1) + seatNumber);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        /*---Assert---*/
+        for (int movieIndex = 0; movieIndex < moviesCount; movieIndex++) {
+            for (int seatNumber = 1; seatNumber <= MovieProjection.SEATS_COUNT; seatNumber++) {
+                MatcherAssert.assertThat(successfulReservations.get(movieIndex * (MovieProjection.SEATS_COUNT + 1) + seatNumber), Is.is(1));
+            }
+        }
+    }
+
+    /**
+     * Test that calls scheduleMovieProjection({@link Movie} {@linkplain movie}, {@link LocalDateTime} {@linkplain projectionTime}) from many threads at the
+     * same time. Expected behavior is all projections to be scheduled.
+     */
+    @Test
+    public void scheduleMovieProjection_ConcurrentScheduling_Test() throws Exception {
+        /*---Setup---*/
+        MovieProjectionManager movieProjectionManager = new MovieProjectionManager();
+        CountDownLatch start = new CountDownLatch(1);
+
+        /*---Call---*/
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS_COUNT; thread++) {
+            Movie movie = new Movie();
+            movie.setName("Movie " + thread % 4);
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                for (int index = 0; index < ROUNDS; index++) {
+                    movieProjectionManager.scheduleMovieProjection(movie, LocalDateTime.now()
+                            .plusDays(1L)
+                            .plusMinutes(index));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(movieProjectionManager.getMovieProjections()
+                .size(), Is.is(THREADS_COUNT * ROUNDS));
+    }
+
+    /**
+     * Test that schedules projections of many movies in {@link ShardedMovieProjectionManager} and reserves a seat in every projection by its id. Expected
+     * behavior is the ids of all projections to be different, every id to find its projection in the shard of its movie, every reservation to be
+     * successful and the merged metrics to count the operations of all shards.
+     */
+    @Test
+    public void reserve_ByProjectionIdInShardedManager_Test() {
+        /*---Setup---*/
+        int moviesCount = 16;
+        List<Long> projectionIds = new ArrayList<>();
+        List<Movie> movies = new ArrayList<>();
+
+        try (ShardedMovieProjectionManager shardedManager = new ShardedMovieProjectionManager(4)) {
+            for (int movieIndex = 0; movieIndex < moviesCount; movieIndex++) {
+                Movie movie = new Movie();
+                movie.setName("Sharded movie " + movieIndex);
+                for (int projectionIndex = 0; projectionIndex < 2; projectionIndex++) {
+                    projectionIds.add(shardedManager.scheduleProjection(movie, LocalDateTime.now()
+                            .plusHours(3L + projectionIndex)));
+                    movies.add(movie);
+                }
+            }
+
+            /*---Call---*/
+            List<ReservationStatus> statuses = new ArrayList<>();
+            for (long projectionId : projectionIds) {
+                statuses.add(shardedManager.reserve(new Viewer("tester", "test"), projectionId, 1));
+            }
+
+            /*---Assert---*/
+            Set<Long> uniqueIds = new HashSet<>(projectionIds);
+            MatcherAssert.assertThat(uniqueIds.size(), Is.is(moviesCount * 2));
+            for (int index = 0; index < projectionIds.size(); index++) {
+                MovieProjection projection = shardedManager.getProjection(projectionIds.get(index));
+                MatcherAssert.assertThat(projection.getMovie()
+                        .getName(), Is.is(movies.get(index)
+                                .getName()));
+                MatcherAssert.assertThat(projection.isSeatTaken(1), Is.is(true));
+                MatcherAssert.assertThat(statuses.get(index), Is.is(ReservationStatus.SUCCESS));
+            }
+            OperationSnapshot<ReservationStatus> reserveMetrics = shardedManager.getMetrics()
+                    .operation(MovieProjectionManager.RESERVE_OPERATION, ReservationStatus.class)
+                    .getSnapshot();
+            MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.SUCCESS), Is.is((long) moviesCount * 2));
+            MatcherAssert.assertThat(shardedManager.getMetrics()
+                    .getSnapshot()
+                    .get(MovieProjectionManager.SCHEDULE_OPERATION)
+                    .getLatency()
+                    .getCount(), Is.is((long) moviesCount * 2));
+        }
+    }
+
+    /**
+     * Test that holds, confirms and cancels seats, reserves best available block and uses the waitlist through {@link ShardedMovieProjectionManager}, then
+     * schedules a projection in different layout with the same name. Expected behavior is every call to be routed to the shard of its projections and
+     * the exception of the shard to be thrown as it is.
+     */
+    @Test
+    public void holdCancelAndWaitlist_InShardedManager_Test() {
+        /*---Setup---*/
+        Viewer viewer = new Viewer("tester", "test");
+        Viewer waitingViewer = new Viewer("waiting", "viewer");
+        HallLayout layout = HallLayout.rectangular("Sharded hall", 1, 10);
+
+        try (ShardedMovieProjectionManager shardedManager = new ShardedMovieProjectionManager(4)) {
+            List<Long> projectionIds = new ArrayList<>();
+            List<Movie> movies = new ArrayList<>();
+            for (int movieIndex = 0; movieIndex < 4; movieIndex++) {
+                Movie movie = new Movie();
+                movie.setName("Routed movie " + movieIndex);
+                projectionIds.add(shardedManager.scheduleProjection(movie, LocalDateTime.now()
+                        .plusHours(3L), layout));
+                movies.add(movie);
+            }
+
+            for (int index = 0; index < movies.size(); index++) {
+                /*---Call---*/
+                long projectionId = projectionIds.get(index);
+                SeatHold hold = shardedManager.holdSeat(viewer, movies.get(index), 1, 60_000L);
+                ReservationStatus confirmed = shardedManager.confirmHold(hold);
+                SeatBlock block = shardedManager.reserveBestAvailable(viewer, projectionId, 3);
+                WaitlistEntry entry = shardedManager.joinWaitlist(waitingViewer, projectionId, 1, 0);
+                Reservation reservation = shardedManager.getReservationsForViewer(viewer)
+                        .stream()
+                        .filter(candidate -> candidate.getProjectionId() == projectionId && candidate.getSeatNumber() == 1)
+                        .findFirst()
+                        .get();
+                CancellationStatus cancelled = shardedManager.cancelReservation(reservation);
+
+                /*---Assert---*/
+                MatcherAssert.assertThat(confirmed, Is.is(ReservationStatus.SUCCESS));
+                MatcherAssert.assertThat(block.getStatus(), Is.is(ReservationStatus.SUCCESS));
+                MatcherAssert.assertThat(cancelled, Is.is(CancellationStatus.SUCCESS));
+                MatcherAssert.assertThat(entry.isPromoted(), Is.is(true));
+                MatcherAssert.assertThat(shardedManager.getProjection(projectionId)
+                        .getFreeSeatsCount(), Is.is(6));
+            }
+            MatcherAssert.assertThat(shardedManager.getReservationsForViewer(waitingViewer)
+                    .size(), Is.is(4));
+
+            boolean rejected = false;
+            try {
+                shardedManager.scheduleProjection(movies.get(0), LocalDateTime.now()
+                        .plusHours(6L), HallLayout.rectangular("Sharded hall", 2, 10));
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            MatcherAssert.assertThat(rejected, Is.is(true));
+        }
+    }
+
+}
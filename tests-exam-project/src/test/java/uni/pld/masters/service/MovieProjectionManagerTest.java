@@ -1,17 +1,39 @@
 package uni.pld.masters.service;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.Is;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import uni.pld.masters.events.SeatEventConsumer;
+import uni.pld.masters.metrics.MetricsRegistry;
+import uni.pld.masters.metrics.OperationSnapshot;
+import uni.pld.masters.model.ArchivedProjection;
+import uni.pld.masters.model.HallLayout;
 import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieCatalog;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.ProjectionInventory;
 import uni.pld.masters.model.Viewer;
+import uni.pld.masters.time.TimeSource;
 
 public class MovieProjectionManagerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static MovieProjectionManager movieProjectionManager = new MovieProjectionManager();
 
     @BeforeClass
@@ -326,7 +348,7 @@ public class MovieProjectionManagerTest {
     /**
      * Test that test the functionality of makeReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Byte}
      * {@linkplain seatNumber}) method. Calling the method with valid viewer and movie, but invalid seatNumber(seat number must be from 1 to 30). Expected
-     * behavior is to return "Invalid seat number, seat number must be from 0 to 30".
+     * behavior is to return "Invalid seat number, seat number must be from 1 to the seats count of the hall".
      */
     @Test
     public void makeReservation_WithNegativeSeatNumber_Test() {
@@ -340,13 +362,13 @@ public class MovieProjectionManagerTest {
         String result = movieProjectionManager.makeReservation(viewer, movie, seatNumber);
 
         /*---Assert---*/
-        MatcherAssert.assertThat(result, Is.is("Invalid seat number, seat number must be from 0 to 30"));
+        MatcherAssert.assertThat(result, Is.is("Invalid seat number, seat number must be from 1 to the seats count of the hall"));
     }
 
     /**
      * Test that test the functionality of makeReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Byte}
      * {@linkplain seatNumber}) method. Calling the method with valid viewer and movie, but invalid seatNumber(seat number must be from 1 to 30). Expected
-     * behavior is to return "Invalid seat number, seat number must be from 0 to 30".
+     * behavior is to return "Invalid seat number, seat number must be from 1 to the seats count of the hall".
      */
     @Test
     public void makeReservation_WithTooHighSeatNumber_Test() {
@@ -360,7 +382,36 @@ public class MovieProjectionManagerTest {
         String result = movieProjectionManager.makeReservation(viewer, movie, seatNumber);
 
         /*---Assert---*/
-        MatcherAssert.assertThat(result, Is.is("Invalid seat number, seat number must be from 0 to 30"));
+        MatcherAssert.assertThat(result, Is.is("Invalid seat number, seat number must be from 1 to the seats count of the hall"));
+    }
+
+    /**
+     * Test that tests the functionality of reserve({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, int {@linkplain seatNumber}) and
+     * reserveBatch methods with seat number 0. Expected behavior is both reservations to be rejected with {@linkplain ReservationStatus#INVALID_SEAT}
+     * and the next seat of the batch to be reserved.
+     */
+    @Test
+    public void reserve_WithZeroSeatNumber_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Zero seat movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        ReservationStatus[] results = new ReservationStatus[2];
+
+        /*---Call---*/
+        ReservationStatus status = manager.reserve(viewer, movie, 0);
+        manager.reserveBatch(movie, new Viewer[] { viewer, viewer }, new int[] { 0, 1 }, 2, results);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(status, Is.is(ReservationStatus.INVALID_SEAT));
+        MatcherAssert.assertThat(results[0], Is.is(ReservationStatus.INVALID_SEAT));
+        MatcherAssert.assertThat(results[1], Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(manager.getNextProjections(movie, 1)
+                .get(0)
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 1));
     }
 
     /**
@@ -425,6 +476,754 @@ public class MovieProjectionManagerTest {
         MatcherAssert.assertThat(result, Is.is("Too late for reservation for this movie"));
     }
 
+    /**
+     * Test that test the functionality of reserve({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Byte} {@linkplain seatNumber})
+     * method. Calling the method with valid viewer and movie, but already taken seatNumber. Expected behavior is to return
+     * {@linkplain ReservationStatus#SEAT_TAKEN}.
+     */
+    @Test
+    public void reserve_WithAlreadyTakenSeat_Test() {
+        /*---Setup---*/
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Test movie");
+        byte seatNumber = (byte) 1;
+
+        /*---Call---*/
+        ReservationStatus result = movieProjectionManager.reserve(viewer, movie, seatNumber);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(result, Is.is(ReservationStatus.SEAT_TAKEN));
+        MatcherAssert.assertThat(result.getMessage(), Is.is("Seat is already taken"));
+    }
+
+    /**
+     * Test that test the functionality of makeReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Byte}
+     * {@linkplain seatNumber}) method with manually moved {@link TimeSource}. Making reservation 61 minutes and 59 minutes before the projection start.
+     * Expected behavior is the first reservation to be successful and the second one to return "Too late for reservation for this movie".
+     */
+    @Test
+    public void makeReservation_WithMovedTimeSource_Test() {
+        /*---Setup---*/
+        LocalDateTime projectionTime = LocalDateTime.of(2030, 5, 10, 20, 0);
+        AtomicLong currentTime = new AtomicLong(TimeSource.toEpochMillis(projectionTime.minusDays(1L)));
+        MovieProjectionManager manager = new MovieProjectionManager(currentTime::get);
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Timed movie");
+        manager.scheduleMovieProjection(movie, projectionTime);
+
+        /*---Call---*/
+        currentTime.set(TimeSource.toEpochMillis(projectionTime.minusMinutes(61L)));
+        String beforeCutoff = manager.makeReservation(viewer, movie, (byte) 1);
+        currentTime.set(TimeSource.toEpochMillis(projectionTime.minusMinutes(59L)));
+        String afterCutoff = manager.makeReservation(viewer, movie, (byte) 2);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(beforeCutoff, Is.is("Reservation was made successfully"));
+        MatcherAssert.assertThat(afterCutoff, Is.is("Too late for reservation for this movie"));
+    }
+
+    /**
+     * Test that tests the functionality of evictStartedProjections() method. Scheduling two projections and moving the time after the start of the first
+     * one. Expected behavior is the first projection to be moved to the archive with its taken seats and the second one to stay in the schedule.
+     */
+    @Test
+    public void evictStartedProjections_OneStartedProjection_Test() {
+        /*---Setup---*/
+        LocalDateTime projectionTime = LocalDateTime.of(2030, 5, 10, 20, 0);
+        AtomicLong currentTime = new AtomicLong(TimeSource.toEpochMillis(projectionTime.minusDays(1L)));
+        MovieProjectionManager manager = new MovieProjectionManager(currentTime::get);
+        Movie movie = new Movie();
+        movie.setName("Evicted movie");
+        manager.scheduleMovieProjection(movie, projectionTime);
+        manager.scheduleMovieProjection(movie, projectionTime.plusDays(1L));
+        manager.makeReservation(new Viewer("tester", "test"), movie, (byte) 9);
+
+        /*---Call---*/
+        currentTime.set(TimeSource.toEpochMillis(projectionTime.plusMinutes(1L)));
+        int evictedCount = manager.evictStartedProjections();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(evictedCount, Is.is(1));
+        MatcherAssert.assertThat(manager.getMovieProjections()
+                .size(), Is.is(1));
+        List<ArchivedProjection> archived = manager.getArchive()
+                .getProjectionsForMovie("Evicted movie");
+        MatcherAssert.assertThat(archived.size(), Is.is(1));
+        MatcherAssert.assertThat(archived.get(0)
+                .getProjectionStartTime(), Is.is(projectionTime));
+        MatcherAssert.assertThat(archived.get(0)
+                .isSeatTaken((byte) 9), Is.is(true));
+        MatcherAssert.assertThat(manager.getArchive()
+                .getProjectionsBetween(projectionTime, projectionTime.plusHours(1L))
+                .size(), Is.is(1));
+    }
+
+    /**
+     * Test that tests the functionality of holdSeat() and expireHolds() methods. Holding a seat and moving the time after the hold expiry. Expected behavior
+     * is the seat to be taken for other viewers while it is held and to be free after the expiry, so the expired hold can't be confirmed.
+     */
+    @Test
+    public void holdSeat_ExpiredHold_Test() {
+        /*---Setup---*/
+        LocalDateTime projectionTime = LocalDateTime.of(2030, 5, 10, 20, 0);
+        AtomicLong currentTime = new AtomicLong(TimeSource.toEpochMillis(projectionTime.minusDays(1L)));
+        MovieProjectionManager manager = new MovieProjectionManager(currentTime::get);
+        Movie movie = new Movie();
+        movie.setName("Held movie");
+        manager.scheduleMovieProjection(movie, projectionTime);
+        SeatHold hold = manager.holdSeat(new Viewer("tester", "test"), movie, (byte) 4, 5L * 60L * 1000L);
+
+        /*---Call---*/
+        String whileHeld = manager.makeReservation(new Viewer("other", "test"), movie, (byte) 4);
+        currentTime.addAndGet(5L * 60L * 1000L + 1L);
+        manager.expireHolds();
+        String afterExpiry = manager.makeReservation(new Viewer("other", "test"), movie, (byte) 4);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(hold.getStatus(), Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(whileHeld, Is.is("Seat is already taken"));
+        MatcherAssert.assertThat(afterExpiry, Is.is("Reservation was made successfully"));
+        MatcherAssert.assertThat(manager.confirmHold(hold), Is.is(ReservationStatus.HOLD_EXPIRED));
+    }
+
+    /**
+     * Test that tests the functionality of confirmHold() method. Holding a seat, confirming it and moving the time after the hold expiry. Expected behavior
+     * is the seat to stay taken and not held after the expiry.
+     */
+    @Test
+    public void confirmHold_BeforeExpiry_Test() {
+        /*---Setup---*/
+        LocalDateTime projectionTime = LocalDateTime.of(2030, 5, 10, 20, 0);
+        AtomicLong currentTime = new AtomicLong(TimeSource.toEpochMillis(projectionTime.minusDays(1L)));
+        MovieProjectionManager manager = new MovieProjectionManager(currentTime::get);
+        Movie movie = new Movie();
+        movie.setName("Confirmed movie");
+        manager.scheduleMovieProjection(movie, projectionTime);
+        SeatHold hold = manager.holdSeat(new Viewer("tester", "test"), movie, (byte) 4, 5L * 60L * 1000L);
+
+        /*---Call---*/
+        currentTime.addAndGet(60L * 1000L);
+        ReservationStatus status = manager.confirmHold(hold);
+        currentTime.addAndGet(10L * 60L * 1000L);
+        manager.expireHolds();
+
+        /*---Assert---*/
+        MovieProjection projection = manager.getMovieProjections()
+                .iterator()
+                .next();
+        MatcherAssert.assertThat(status, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(hold.isConfirmed(), Is.is(true));
+        MatcherAssert.assertThat(projection.isSeatTaken((byte) 4), Is.is(true));
+        MatcherAssert.assertThat(projection.isSeatHeld((byte) 4), Is.is(false));
+    }
+
+    /**
+     * Test that tests the functionality of reserveBestAvailable() method. Reserving blocks of 4 seats in a hall with one row of 10 seats. Expected behavior
+     * is the first block to be in the middle of the row, the second one at its end and the third one to be rejected.
+     */
+    @Test
+    public void reserveBestAvailable_UntilNoAdjacentSeats_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Best available movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusDays(1L), HallLayout.rectangular("Small", 1, 10));
+
+        /*---Call---*/
+        SeatBlock middleBlock = manager.reserveBestAvailable(viewer, movie, 4);
+        SeatBlock sideBlock = manager.reserveBestAvailable(viewer, movie, 3);
+        SeatBlock rejectedBlock = manager.reserveBestAvailable(viewer, movie, 4);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(middleBlock.getSeatNumbers(), Is.is(new int[] { 4, 5, 6, 7 }));
+        MatcherAssert.assertThat(sideBlock.getSeatNumbers(), Is.is(new int[] { 1, 2, 3 }));
+        MatcherAssert.assertThat(rejectedBlock.getStatus(), Is.is(ReservationStatus.NO_ADJACENT_SEATS));
+    }
+
+    /**
+     * Test that tests the functionality of reserveBestAvailable(Viewer {@linkplain viewer}, Movie {@linkplain movie}, int {@linkplain seatsCount}) method.
+     * Reserving a block for a movie with projections in halls with the same seats count, but different rows. Expected behavior is the block to be
+     * rejected, because the seats are not adjacent in both halls, and no seat to be taken.
+     */
+    @Test
+    public void reserveBestAvailable_DifferentLayouts_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Two halls movie");
+        long wideProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L), HallLayout.rectangular("Wide", 1, 12));
+        long narrowProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(2L), HallLayout.rectangular("Narrow", 3, 4));
+
+        /*---Call---*/
+        SeatBlock block = manager.reserveBestAvailable(viewer, movie, 6);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(block.getStatus(), Is.is(ReservationStatus.NO_ADJACENT_SEATS));
+        MatcherAssert.assertThat(manager.getProjection(wideProjectionId)
+                .getFreeSeatsCount(), Is.is(12));
+        MatcherAssert.assertThat(manager.getProjection(narrowProjectionId)
+                .getFreeSeatsCount(), Is.is(12));
+    }
+
+    /**
+     * Test that tests the functionality of reserveBestAvailable(Viewer {@linkplain viewer}, long {@linkplain projectionId}, int {@linkplain seatsCount})
+     * method. Reserving a block in one of two projections of a movie and a block in a missing projection. Expected behavior is the block to be in the
+     * middle of the row of the given projection only, the other projection to stay free and the missing projection to be rejected.
+     */
+    @Test
+    public void reserveBestAvailable_ByProjectionId_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Best available movie");
+        HallLayout layout = HallLayout.rectangular("Small", 1, 10);
+        long firstProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(1L), layout);
+        long secondProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusDays(2L), layout);
+
+        /*---Call---*/
+        SeatBlock block = manager.reserveBestAvailable(viewer, secondProjectionId, 4);
+        SeatBlock missingBlock = manager.reserveBestAvailable(viewer, secondProjectionId + 100L, 4);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(block.getSeatNumbers(), Is.is(new int[] { 4, 5, 6, 7 }));
+        MatcherAssert.assertThat(manager.getProjection(secondProjectionId)
+                .getFreeSeatsCount(), Is.is(6));
+        MatcherAssert.assertThat(manager.getProjection(firstProjectionId)
+                .getFreeSeatsCount(), Is.is(10));
+        MatcherAssert.assertThat(manager.getReservationLedger()
+                .getForProjection(secondProjectionId)
+                .size(), Is.is(4));
+        MatcherAssert.assertThat(missingBlock.getStatus(), Is.is(ReservationStatus.PROJECTION_NOT_FOUND));
+    }
+
+    /**
+     * Test that tests the functionality of schedule(Movie {@linkplain movie}, LocalDateTime {@linkplain projectionTime}, HallLayout {@linkplain layout})
+     * method. Scheduling projections in a layout, in equal layout built again with the same name and in different layout with the same name. Expected
+     * behavior is the equal layout to be accepted and the different one to be rejected.
+     */
+    @Test
+    public void schedule_LayoutBuiltAgain_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Layout movie");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .plusDays(1L);
+        manager.schedule(movie, projectionTime, HallLayout.rectangular("Configured hall", 3, 10));
+
+        /*---Call---*/
+        ScheduleStatus equalLayout = manager.schedule(movie, projectionTime.plusHours(3L), HallLayout.rectangular("Configured hall", 3, 10));
+        boolean differentLayoutRejected = false;
+        try {
+            manager.schedule(movie, projectionTime.plusHours(6L), HallLayout.rectangular("Configured hall", 4, 10));
+        } catch (IllegalArgumentException e) {
+            differentLayoutRejected = true;
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(equalLayout, Is.is(ScheduleStatus.SUCCESS));
+        MatcherAssert.assertThat(differentLayoutRejected, Is.is(true));
+        MatcherAssert.assertThat(manager.getMovieProjections()
+                .size(), Is.is(2));
+    }
+
+    /**
+     * Test that tests the manager created with {@link ProjectionInventory}. Scheduling more projections in the layout of the inventory than its capacity
+     * and one projection in other layout, then reserving seats by movie and by projection id. Expected behavior is the first projections to be in the
+     * slots of the inventory, the others on the heap and the reservations to take the seats in all of them.
+     */
+    @Test
+    public void reserve_ProjectionsInInventory_Test() {
+        /*---Setup---*/
+        HallLayout layout = HallLayout.rectangular("Inventory hall", 5, 10);
+        ProjectionInventory inventory = ProjectionInventory.allocateDirect(new MovieCatalog(), layout, 2);
+        MovieProjectionManager manager = new MovieProjectionManager(TimeSource.system(), new MetricsRegistry(), inventory);
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Off-heap movie");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .plusDays(1L);
+        long firstProjectionId = manager.scheduleProjection(movie, projectionTime, layout);
+        long secondProjectionId = manager.scheduleProjection(movie, projectionTime.plusHours(3L), layout);
+        long heapProjectionId = manager.scheduleProjection(movie, projectionTime.plusHours(6L), layout);
+        Movie otherMovie = new Movie();
+        otherMovie.setName("Heap movie");
+        long otherProjectionId = manager.scheduleProjection(otherMovie, projectionTime);
+
+        /*---Call---*/
+        ReservationStatus byMovie = manager.reserve(viewer, movie, 7);
+        ReservationStatus byProjectionId = manager.reserve(viewer, secondProjectionId, 42);
+        ReservationStatus other = manager.reserve(viewer, otherProjectionId, 3);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(byMovie, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(byProjectionId, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(other, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(inventory.size(), Is.is(2));
+        MatcherAssert.assertThat(inventory.getProjectionId(0), Is.is(firstProjectionId));
+        MatcherAssert.assertThat(inventory.getFreeSeatsCount(0), Is.is(49));
+        MatcherAssert.assertThat(inventory.getFreeSeatsCount(1), Is.is(48));
+        MatcherAssert.assertThat(manager.getProjection(firstProjectionId) == inventory.get(0), Is.is(true));
+        MatcherAssert.assertThat(manager.getProjection(heapProjectionId)
+                .isSeatTaken(7), Is.is(true));
+        MatcherAssert.assertThat(manager.getProjection(otherProjectionId)
+                .isSeatTaken(3), Is.is(true));
+        MatcherAssert.assertThat(manager.getProjectionsWithFreeSeats(movie, 49)
+                .size(), Is.is(2));
+    }
+
+    /**
+     * Test that tests the manager created with memory-mapped {@link ProjectionInventory}, which already has projections. Scheduling two projections and
+     * reserving a seat with one manager, then opening the inventory again for new manager. Expected behavior is the new manager to schedule the projections
+     * of the inventory with their seats, to reserve seats in them and to give greater id to the new projection.
+     */
+    @Test
+    public void reserve_ProjectionsInMappedInventory_Test() throws IOException {
+        /*---Setup---*/
+        HallLayout layout = HallLayout.rectangular("Inventory hall", 5, 10);
+        Path inventoryFile = folder.getRoot()
+                .toPath()
+                .resolve("projections.inventory");
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Off-heap movie");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .plusDays(1L);
+        ProjectionInventory inventory = ProjectionInventory.map(inventoryFile, new MovieCatalog(), layout, 4);
+        MovieProjectionManager manager = new MovieProjectionManager(TimeSource.system(), new MetricsRegistry(), inventory);
+        long firstProjectionId = manager.scheduleProjection(movie, projectionTime, layout);
+        long secondProjectionId = manager.scheduleProjection(movie, projectionTime.plusHours(3L), layout);
+        manager.reserve(viewer, movie, 7);
+        inventory.close();
+        MovieCatalog catalog = new MovieCatalog();
+        catalog.getOrAdd("Off-heap movie");
+        ProjectionInventory reopenedInventory = ProjectionInventory.map(inventoryFile, catalog, layout, 4);
+
+        /*---Call---*/
+        MovieProjectionManager reopenedManager = new MovieProjectionManager(TimeSource.system(), new MetricsRegistry(), reopenedInventory);
+        ReservationStatus takenAgain = reopenedManager.reserve(viewer, movie, 7);
+        ReservationStatus byProjectionId = reopenedManager.reserve(viewer, secondProjectionId, 8);
+        long newProjectionId = reopenedManager.scheduleProjection(movie, projectionTime.plusHours(6L), layout);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(takenAgain, Is.is(ReservationStatus.SEAT_TAKEN));
+        MatcherAssert.assertThat(byProjectionId, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(reopenedManager.getMovieProjections()
+                .size(), Is.is(3));
+        MatcherAssert.assertThat(reopenedManager.getProjection(firstProjectionId)
+                .isSeatTaken(7), Is.is(true));
+        MatcherAssert.assertThat(reopenedInventory.getFreeSeatsCount(1), Is.is(48));
+        MatcherAssert.assertThat(newProjectionId > secondProjectionId, Is.is(true));
+        MatcherAssert.assertThat(reopenedInventory.size(), Is.is(3));
+        MatcherAssert.assertThat(reopenedManager.getProjectionsWithFreeSeats(movie, 49)
+                .size(), Is.is(2));
+        reopenedInventory.close();
+    }
+
+    /**
+     * Test that tests the functionality of getProjectionsWithFreeSeats() method. Scheduling three projections in a hall with 100 seats, filling the first one
+     * and half of the third one. Expected behavior is only the projections with enough free seats to be returned ordered by time, also after a group
+     * reservation is released back to the first projection.
+     */
+    @Test
+    public void getProjectionsWithFreeSeats_PartlyFilledProjections_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Popular movie");
+        LocalDateTime projectionTime = LocalDateTime.now()
+                .plusDays(1L);
+        HallLayout layout = HallLayout.rectangular("Hundred", 10, 10);
+        manager.scheduleMovieProjection(movie, projectionTime.plusHours(2L), layout);
+        manager.scheduleMovieProjection(movie, projectionTime.plusHours(1L), layout);
+        manager.scheduleMovieProjection(movie, projectionTime, layout);
+        List<MovieProjection> projections = manager.getNextProjections(movie, 3);
+        for (int seatNumber = 1; seatNumber <= 100; seatNumber++) {
+            projections.get(0)
+                    .tryTakeSeat(seatNumber);
+            if (seatNumber <= 50) {
+                projections.get(2)
+                        .tryTakeSeat(seatNumber);
+            }
+        }
+
+        /*---Call---*/
+        List<MovieProjection> forSmallGroup = manager.getProjectionsWithFreeSeats(movie, 50);
+        List<MovieProjection> forBigGroup = manager.getProjectionsWithFreeSeats(movie, 51);
+        projections.get(0)
+                .releaseSeats(MovieProjection.toSeatsMask(Arrays.asList(1, 2, 3, 4)));
+        List<MovieProjection> afterRelease = manager.getProjectionsWithFreeSeats(movie, 4);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(forSmallGroup, Is.is(Arrays.asList(projections.get(1), projections.get(2))));
+        MatcherAssert.assertThat(forBigGroup, Is.is(Arrays.asList(projections.get(1))));
+        MatcherAssert.assertThat(afterRelease, Is.is(projections));
+        MatcherAssert.assertThat(projections.get(2)
+                .getFreeSeatsCount(), Is.is(50));
+    }
+
+    /**
+     * Test that test the functionality of makeGroupReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Set}
+     * {@linkplain seatNumbers}) method. Calling the method with valid viewer, movie and free seats. Expected behavior is to return "Reservation was made
+     * successfully" and all seats to be taken.
+     */
+    @Test
+    public void makeGroupReservation_WithFreeSeats_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Family movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+
+        /*---Call---*/
+        String result = manager.makeGroupReservation(viewer, movie, new HashSet<>(Arrays.asList((byte) 3, (byte) 4, (byte) 5)));
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(result, Is.is("Reservation was made successfully"));
+        MovieProjection projection = manager.getMovieProjections()
+                .iterator()
+                .next();
+        MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 3));
+    }
+
+    /**
+     * Test that test the functionality of makeGroupReservation({@link Viewer} {@linkplain viewer}, {@link Movie} {@linkplain movie}, {@link Set}
+     * {@linkplain seatNumbers}) method. Calling the method with seats, from which one is already taken. Expected behavior is to return "Seat is already
+     * taken" and none of the other seats to be taken.
+     */
+    @Test
+    public void makeGroupReservation_WithOneTakenSeat_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Viewer viewer = new Viewer("tester", "test");
+        Movie movie = new Movie();
+        movie.setName("Family movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        manager.makeReservation(viewer, movie, (byte) 5);
+
+        /*---Call---*/
+        String result = manager.makeGroupReservation(viewer, movie, new HashSet<>(Arrays.asList((byte) 3, (byte) 4, (byte) 5)));
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(result, Is.is("Seat is already taken"));
+        MovieProjection projection = manager.getMovieProjections()
+                .iterator()
+                .next();
+        MatcherAssert.assertThat(projection.isSeatTaken((byte) 3), Is.is(false));
+        MatcherAssert.assertThat(projection.isSeatTaken((byte) 4), Is.is(false));
+        MatcherAssert.assertThat(projection.getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 1));
+    }
+
+    /**
+     * Test that tests the functionality of getProjectionsBetween({@link LocalDateTime} {@linkplain from}, {@link LocalDateTime} {@linkplain to}) method.
+     * Scheduling projections in different order than their start times. Expected behavior is to return only the projections in the period ordered by start
+     * time.
+     */
+    @Test
+    public void getProjectionsBetween_ProjectionsScheduledInRandomOrder_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        LocalDateTime base = LocalDateTime.now()
+                .plusDays(1L);
+        Movie movie = new Movie();
+        movie.setName("Ordered movie");
+        manager.scheduleMovieProjection(movie, base.plusHours(5L));
+        manager.scheduleMovieProjection(movie, base.plusHours(1L));
+        manager.scheduleMovieProjection(movie, base.plusHours(9L));
+        manager.scheduleMovieProjection(movie, base.plusHours(3L));
+
+        /*---Call---*/
+        List<MovieProjection> result = manager.getProjectionsBetween(base.plusHours(1L), base.plusHours(9L));
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(result.size(), Is.is(3));
+        MatcherAssert.assertThat(result.get(0)
+                .getProjectionStartTime(), Is.is(base.plusHours(1L)));
+        MatcherAssert.assertThat(result.get(1)
+                .getProjectionStartTime(), Is.is(base.plusHours(3L)));
+        MatcherAssert.assertThat(result.get(2)
+                .getProjectionStartTime(), Is.is(base.plusHours(5L)));
+    }
+
+    /**
+     * Test that tests the functionality of getNextProjections({@link Movie} {@linkplain movie}, int {@linkplain count}) method. Scheduling projections for two
+     * movies. Expected behavior is to return only the first {@linkplain count} projections for the requested movie.
+     */
+    @Test
+    public void getNextProjections_TwoMovies_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        LocalDateTime base = LocalDateTime.now()
+                .plusDays(1L);
+        Movie movie = new Movie();
+        movie.setName("First movie");
+        Movie otherMovie = new Movie();
+        otherMovie.setName("Second movie");
+        manager.scheduleMovieProjection(movie, base.plusHours(4L));
+        manager.scheduleMovieProjection(otherMovie, base.plusHours(1L));
+        manager.scheduleMovieProjection(movie, base.plusHours(2L));
+        manager.scheduleMovieProjection(movie, base.plusHours(6L));
+
+        /*---Call---*/
+        List<MovieProjection> result = manager.getNextProjections(movie, 2);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(result.size(), Is.is(2));
+        MatcherAssert.assertThat(result.get(0)
+                .getProjectionStartTime(), Is.is(base.plusHours(2L)));
+        MatcherAssert.assertThat(result.get(1)
+                .getProjectionStartTime(), Is.is(base.plusHours(4L)));
+    }
+
+    /**
+     * Test that tests the metrics of {@link MovieProjectionManager}. Making reservations, which fail in different validations, and one successful
+     * reservation. Expected behavior is every outcome to be counted in the "reserve" operation and the latency to be recorded for all of them.
+     */
+    @Test
+    public void getMetrics_ReservationOutcomes_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Measured movie");
+        Viewer viewer = new Viewer("test", "test");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+
+        /*---Call---*/
+        manager.makeReservation(null, movie, 1);
+        manager.makeReservation(viewer, new Movie(), 1);
+        manager.makeReservation(viewer, movie, 31);
+        manager.makeReservation(viewer, movie, 1);
+        manager.makeReservation(viewer, movie, 1);
+
+        /*---Assert---*/
+        OperationSnapshot<?> reserve = manager.getMetrics()
+                .getSnapshot()
+                .get(MovieProjectionManager.RESERVE_OPERATION);
+        OperationSnapshot<ReservationStatus> reserveMetrics = manager.getMetrics()
+                .operation(MovieProjectionManager.RESERVE_OPERATION, ReservationStatus.class)
+                .getSnapshot();
+        MatcherAssert.assertThat(reserve.getLatency()
+                .getCount(), Is.is(5L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.VIEWER_NULL), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.MOVIE_NAME_NULL), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.INVALID_SEAT), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.SUCCESS), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.SEAT_TAKEN), Is.is(1L));
+        MatcherAssert.assertThat(manager.getMetrics()
+                .getSnapshot()
+                .get(MovieProjectionManager.SCHEDULE_OPERATION)
+                .getLatency()
+                .getCount(), Is.is(1L));
+    }
+
+    /**
+     * Test that tests the metrics of reserveBatch(Movie {@linkplain movie}, Viewer[] {@linkplain viewers}, int[] {@linkplain seatNumbers}, int
+     * {@linkplain count}, ReservationStatus[] {@linkplain results}) method. Making one batch with successful, taken and invalid reservations. Expected
+     * behavior is the outcome and the latency of every reservation in the batch to be recorded in the "reserve" operation.
+     */
+    @Test
+    public void getMetrics_BatchReservationOutcomes_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Measured movie");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        Viewer[] viewers = { new Viewer("first", "test"), new Viewer("second", "test"), null, new Viewer("third", "test") };
+        int[] seatNumbers = { 1, 1, 2, 31 };
+        ReservationStatus[] results = new ReservationStatus[viewers.length];
+
+        /*---Call---*/
+        manager.reserveBatch(movie, viewers, seatNumbers, viewers.length, results);
+
+        /*---Assert---*/
+        OperationSnapshot<ReservationStatus> reserveMetrics = manager.getMetrics()
+                .operation(MovieProjectionManager.RESERVE_OPERATION, ReservationStatus.class)
+                .getSnapshot();
+        MatcherAssert.assertThat(reserveMetrics.getLatency()
+                .getCount(), Is.is(4L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.SUCCESS), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.SEAT_TAKEN), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.VIEWER_NULL), Is.is(1L));
+        MatcherAssert.assertThat(reserveMetrics.getOutcomeCount(ReservationStatus.INVALID_SEAT), Is.is(1L));
+    }
+
+    /**
+     * Test that tests the metrics of {@link MovieProjectionManager} for best available reservation, holds and cancellations. Making successful and
+     * rejected calls of every operation. Expected behavior is the outcome and the latency of every call to be recorded under its operation.
+     */
+    @Test
+    public void getMetrics_HoldAndCancellationOutcomes_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Measured movie");
+        Viewer viewer = new Viewer("test", "test");
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+
+        /*---Call---*/
+        manager.reserveBestAvailable(viewer, movie, 2);
+        manager.reserveBestAvailable(viewer, movie, 0);
+        SeatHold confirmed = manager.holdSeat(viewer, movie, 10, 60000L);
+        SeatHold released = manager.holdSeat(viewer, movie, 11, 60000L);
+        manager.holdSeat(viewer, movie, 10, 60000L);
+        manager.confirmHold(confirmed);
+        manager.releaseHold(released);
+        manager.releaseHold(released);
+        long reservationId = manager.getReservationLedger()
+                .getForViewer(viewer)
+                .get(0)
+                .getId();
+        manager.cancelReservation(reservationId);
+        manager.cancelReservation(reservationId);
+
+        /*---Assert---*/
+        MetricsRegistry metrics = manager.getMetrics();
+        OperationSnapshot<ReservationStatus> bestAvailable = metrics
+                .operation(MovieProjectionManager.RESERVE_BEST_AVAILABLE_OPERATION, ReservationStatus.class)
+                .getSnapshot();
+        OperationSnapshot<ReservationStatus> hold = metrics.operation(MovieProjectionManager.HOLD_OPERATION, ReservationStatus.class)
+                .getSnapshot();
+        OperationSnapshot<ReservationStatus> confirmHold = metrics.operation(MovieProjectionManager.CONFIRM_HOLD_OPERATION, ReservationStatus.class)
+                .getSnapshot();
+        OperationSnapshot<ReservationStatus> releaseHold = metrics.operation(MovieProjectionManager.RELEASE_HOLD_OPERATION, ReservationStatus.class)
+                .getSnapshot();
+        OperationSnapshot<CancellationStatus> cancel = metrics.operation(MovieProjectionManager.CANCEL_OPERATION, CancellationStatus.class)
+                .getSnapshot();
+        MatcherAssert.assertThat(bestAvailable.getOutcomeCount(ReservationStatus.SUCCESS), Is.is(1L));
+        MatcherAssert.assertThat(bestAvailable.getOutcomeCount(ReservationStatus.SEAT_NUMBERS_EMPTY), Is.is(1L));
+        MatcherAssert.assertThat(hold.getLatency()
+                .getCount(), Is.is(3L));
+        MatcherAssert.assertThat(hold.getOutcomeCount(ReservationStatus.SEAT_TAKEN), Is.is(1L));
+        MatcherAssert.assertThat(confirmHold.getOutcomeCount(ReservationStatus.SUCCESS), Is.is(1L));
+        MatcherAssert.assertThat(releaseHold.getOutcomeCount(ReservationStatus.SUCCESS), Is.is(1L));
+        MatcherAssert.assertThat(releaseHold.getOutcomeCount(ReservationStatus.HOLD_EXPIRED), Is.is(1L));
+        MatcherAssert.assertThat(cancel.getOutcomeCount(CancellationStatus.SUCCESS), Is.is(1L));
+        MatcherAssert.assertThat(cancel.getOutcomeCount(CancellationStatus.RESERVATION_NOT_FOUND), Is.is(1L));
+    }
+
+    /**
+     * Test that tests the functionality of openEventFeed(int {@linkplain capacity}) method. Scheduling two projections of a movie, reserving a seat and
+     * holding and releasing other seat. Expected behavior is the consumer to receive the scheduled projections and the seat changes for every
+     * projection in the order of the changes.
+     */
+    @Test
+    public void openEventFeed_ScheduleReserveAndRelease_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        SeatEventConsumer consumer = manager.openEventFeed(64)
+                .addConsumer();
+        Movie movie = new Movie();
+        movie.setName("Followed movie");
+        Viewer viewer = new Viewer("test", "test");
+        List<String> events = new ArrayList<>();
+
+        /*---Call---*/
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        manager.scheduleMovieProjection(movie, LocalDateTime.now()
+                .plusHours(5L));
+        manager.makeReservation(viewer, movie, 4);
+        manager.releaseHold(manager.holdSeat(viewer, movie, 5, 60000L));
+        manager.makeReservation(viewer, movie, 4);
+        int count = consumer.poll((event, sequence, endOfBatch) -> events.add(event.getType() + " " + event.getProjectionId() + " " + event
+                .getSeatsCount()));
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(count, Is.is(8));
+        MatcherAssert.assertThat(events, Is.is(Arrays.asList("PROJECTION_SCHEDULED 1 0", "PROJECTION_SCHEDULED 2 0", "SEATS_RESERVED 1 1",
+                "SEATS_RESERVED 2 1", "SEATS_HELD 1 1", "SEATS_HELD 2 1", "SEATS_RELEASED 1 1", "SEATS_RELEASED 2 1")));
+    }
+
+    /**
+     * Test that tests the functionality of reserve(Viewer {@linkplain viewer}, long {@linkplain projectionId}, int {@linkplain seatNumber}) method. Two
+     * projections of the same movie are scheduled and the same seat is reserved in both of them by projection id. Expected behavior is both reservations
+     * to be successful, the seat to be taken only in the projection of every reservation and unknown projection id to be rejected.
+     */
+    @Test
+    public void reserve_ByProjectionId_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Projection addressed movie");
+        Viewer viewer = new Viewer("test", "test");
+        long firstProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        long secondProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(5L));
+
+        /*---Call---*/
+        ReservationStatus firstStatus = manager.reserve(viewer, firstProjectionId, 8);
+        boolean takenOnlyInFirst = !manager.getProjection(secondProjectionId)
+                .isSeatTaken(8);
+        ReservationStatus secondStatus = manager.reserve(viewer, secondProjectionId, 8);
+        ReservationStatus repeatedStatus = manager.reserve(viewer, firstProjectionId, 8);
+        ReservationStatus groupStatus = manager.reserveGroup(viewer, secondProjectionId, new HashSet<>(Arrays.asList(9, 10)));
+        ReservationStatus unknownStatus = manager.reserve(viewer, secondProjectionId + 1, 8);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(firstProjectionId, Is.is(1L));
+        MatcherAssert.assertThat(secondProjectionId, Is.is(2L));
+        MatcherAssert.assertThat(takenOnlyInFirst, Is.is(true));
+        MatcherAssert.assertThat(firstStatus, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(secondStatus, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(repeatedStatus, Is.is(ReservationStatus.SEAT_TAKEN));
+        MatcherAssert.assertThat(groupStatus, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(unknownStatus, Is.is(ReservationStatus.PROJECTION_NOT_FOUND));
+        MatcherAssert.assertThat(manager.getProjection(firstProjectionId)
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 1));
+        MatcherAssert.assertThat(manager.getProjection(secondProjectionId)
+                .getFreeSeatsCount(), Is.is(MovieProjection.SEATS_COUNT - 3));
+        MatcherAssert.assertThat(manager.getReservationLedger()
+                .getForProjection(secondProjectionId)
+                .size(), Is.is(3));
+    }
+
+    /**
+     * Test that tests the functionality of reserve(Viewer {@linkplain viewer}, long {@linkplain projectionId}, int {@linkplain seatNumber}) method for
+     * projection, which starts in less than 1 hour, while other projection of the same movie starts later. Expected behavior is only the reservation for the
+     * late projection to be rejected.
+     */
+    @Test
+    public void reserve_ByProjectionIdTooLate_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Soon started movie");
+        Viewer viewer = new Viewer("test", "test");
+        long soonProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        long laterProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(5L));
+        manager.getProjection(soonProjectionId)
+                .setProjectionStartTime(LocalDateTime.now()
+                        .plusMinutes(50L));
+
+        /*---Call---*/
+        ReservationStatus soonStatus = manager.reserve(viewer, soonProjectionId, 1);
+        ReservationStatus laterStatus = manager.reserve(viewer, laterProjectionId, 1);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(soonStatus, Is.is(ReservationStatus.TOO_LATE));
+        MatcherAssert.assertThat(laterStatus, Is.is(ReservationStatus.SUCCESS));
+        MatcherAssert.assertThat(manager.scheduleProjection(movie, LocalDateTime.now()), Is.is(MovieProjectionManager.NO_PROJECTION_ID));
+    }
+
     private void scheduleMovieProjectionForAfter50mins() {
         Movie movie = new Movie();
         movie.setName("Movie after 50 mins");
@@ -0,0 +1,64 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+import uni.pld.masters.model.ArchivedProjection;
+import uni.pld.masters.model.MovieCatalog;
+import uni.pld.masters.model.MovieProjection;
+
+public class ProjectionArchiveTest {
+
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2030, 5, 10, 20, 0);
+
+    /**
+     * Test that archives projections of two movies not in the order of their start times, like concurrent evictions could do. Expected behavior is the
+     * period and the movie queries to return the projections ordered by start time and the taken seats to be counted per movie.
+     */
+    @Test
+    public void add_ProjectionsOutOfOrder_Test() {
+        /*---Setup---*/
+        MovieCatalog catalog = new MovieCatalog();
+        ProjectionArchive archive = new ProjectionArchive();
+        int[] startHours = { 5, 1, 3, 0, 4, 2 };
+
+        /*---Call---*/
+        for (int index = 0; index < startHours.length; index++) {
+            MovieProjection projection = new MovieProjection();
+            projection.setId(index + 1L);
+            projection.setMovie(catalog.getOrAdd(index % 2 == 0 ? "Even movie" : "Odd movie"));
+            projection.setProjectionStartTime(START_TIME.plusHours(startHours[index]));
+            for (int seatNumber = 1; seatNumber <= index + 1; seatNumber++) {
+                projection.tryTakeSeat(seatNumber);
+            }
+            archive.add(projection);
+        }
+
+        /*---Assert---*/
+        List<ArchivedProjection> all = archive.getProjectionsBetween(START_TIME, START_TIME.plusHours(6L));
+        MatcherAssert.assertThat(all.size(), Is.is(6));
+        for (int hour = 0; hour < all.size(); hour++) {
+            MatcherAssert.assertThat(all.get(hour)
+                    .getProjectionStartTime(), Is.is(START_TIME.plusHours(hour)));
+        }
+        MatcherAssert.assertThat(archive.getProjectionsBetween(START_TIME.plusHours(2L), START_TIME.plusHours(4L))
+                .size(), Is.is(2));
+
+        List<ArchivedProjection> even = archive.getProjectionsForMovie("Even movie");
+        MatcherAssert.assertThat(even.size(), Is.is(3));
+        MatcherAssert.assertThat(even.get(0)
+                .getProjectionStartTime(), Is.is(START_TIME.plusHours(3L)));
+        MatcherAssert.assertThat(even.get(1)
+                .getProjectionStartTime(), Is.is(START_TIME.plusHours(4L)));
+        MatcherAssert.assertThat(even.get(2)
+                .getProjectionStartTime(), Is.is(START_TIME.plusHours(5L)));
+        MatcherAssert.assertThat(archive.getTakenSeatsCount("Even movie"), Is.is(1L + 3L + 5L));
+        MatcherAssert.assertThat(archive.getTakenSeatsCount("Odd movie"), Is.is(2L + 4L + 6L));
+        MatcherAssert.assertThat(archive.getTakenSeatsCount("Missing movie"), Is.is(0L));
+    }
+
+}
@@ -0,0 +1,154 @@
+package uni.pld.masters.service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.MovieProjection;
+import uni.pld.masters.model.Viewer;
+
+public class ReservationLedgerTest {
+
+    /**
+     * Test that tests the functionality of cancelReservation(long {@linkplain reservationId}) method. Two viewers reserve seats in a movie with two
+     * projections, then one reservation is cancelled twice. Expected behavior is every viewer to see only its reservations, one reservation for every seat
+     * listed under the later projection, the first cancellation to release the seat in both projections and the second cancellation to be rejected.
+     */
+    @Test
+    public void cancelReservation_ReservationsOfTwoViewers_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Ledger movie");
+        Viewer viewer = new Viewer("first", "viewer");
+        Viewer otherViewer = new Viewer("other", "viewer");
+        long firstProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        long secondProjectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(5L));
+        manager.makeReservation(viewer, movie, 3);
+        manager.makeGroupReservation(otherViewer, movie, new HashSet<>(Arrays.asList(10, 11)));
+        ReservationLedger ledger = manager.getReservationLedger();
+        List<Reservation> reservations = ledger.getForViewer(new Viewer("first", "viewer"));
+
+        /*---Call---*/
+        CancellationStatus status = manager.cancelReservation(reservations.get(0)
+                .getId());
+        CancellationStatus secondStatus = manager.cancelReservation(reservations.get(0)
+                .getId());
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(reservations.size(), Is.is(1));
+        MatcherAssert.assertThat(reservations.get(0)
+                .getProjectionId(), Is.is(secondProjectionId));
+        MatcherAssert.assertThat(reservations.get(0)
+                .getProjectionIds(), Is.is(new long[] { firstProjectionId, secondProjectionId }));
+        MatcherAssert.assertThat(ledger.getForViewer(otherViewer)
+                .size(), Is.is(2));
+        MatcherAssert.assertThat(status, Is.is(CancellationStatus.SUCCESS));
+        MatcherAssert.assertThat(secondStatus, Is.is(CancellationStatus.RESERVATION_NOT_FOUND));
+        MatcherAssert.assertThat(manager.getProjection(firstProjectionId)
+                .isSeatTaken(3), Is.is(false));
+        MatcherAssert.assertThat(manager.getProjection(secondProjectionId)
+                .isSeatTaken(3), Is.is(false));
+        MatcherAssert.assertThat(ledger.getForViewer(viewer)
+                .size(), Is.is(0));
+        MatcherAssert.assertThat(ledger.getForProjection(secondProjectionId)
+                .size(), Is.is(2));
+        MatcherAssert.assertThat(ledger.getForProjection(firstProjectionId)
+                .size(), Is.is(0));
+        MatcherAssert.assertThat(ledger.size(), Is.is(2));
+    }
+
+    /**
+     * Test that tests the functionality of getForViewer(Viewer {@linkplain viewer}) method after many viewers cancel their only reservation and new
+     * viewers reserve in their place, so the ids of the viewers are reused. Expected behavior is every viewer to see only its active reservations.
+     */
+    @Test
+    public void getForViewer_ViewersReplacedAfterCancellations_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Busy movie");
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L), HallLayout.rectangular("Big hall", 20, 50));
+        ReservationLedger ledger = manager.getReservationLedger();
+        for (int index = 0; index < 500; index++) {
+            manager.reserve(new Viewer("viewer", "number" + index), projectionId, index + 1);
+        }
+
+        /*---Call---*/
+        for (int index = 0; index < 500; index += 2) {
+            manager.cancelReservation(ledger.getForViewer(new Viewer("viewer", "number" + index))
+                    .get(0)
+                    .getId());
+        }
+        for (int index = 0; index < 250; index++) {
+            manager.reserve(new Viewer("new viewer", "number" + index), projectionId, index + 501);
+        }
+
+        /*---Assert---*/
+        int mismatchesCount = 0;
+        for (int index = 0; index < 500; index++) {
+            List<Reservation> reservations = ledger.getForViewer(new Viewer("viewer", "number" + index));
+            if (reservations.size() != index % 2 || (index % 2 == 1 && reservations.get(0)
+                    .getSeatNumber() != index + 1)) {
+                mismatchesCount++;
+            }
+        }
+        for (int index = 0; index < 250; index++) {
+            List<Reservation> reservations = ledger.getForViewer(new Viewer("new viewer", "number" + index));
+            if (reservations.size() != 1 || reservations.get(0)
+                    .getSeatNumber() != index + 501) {
+                mismatchesCount++;
+            }
+        }
+        MatcherAssert.assertThat(mismatchesCount, Is.is(0));
+        MatcherAssert.assertThat(ledger.size(), Is.is(500));
+    }
+
+    /**
+     * Test that tests the functionality of {@link LongIntHashMap}. Putting and removing random keys from a small range, so the probe chains are long and
+     * the removals shift many entries. Expected behavior is the map to have always the same entries as {@link HashMap}.
+     */
+    @Test
+    public void longIntHashMap_RandomPutsAndRemoves_Test() {
+        /*---Setup---*/
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7L);
+        int mismatchesCount = 0;
+
+        /*---Call---*/
+        for (int operation = 0; operation < 100000; operation++) {
+            long key = random.nextInt(500) - 10;
+            if (random.nextBoolean()) {
+                map.put(key, operation);
+                expected.put(key, operation);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+
+            long checkedKey = random.nextInt(500) - 10;
+            if (map.get(checkedKey, -1) != expected.getOrDefault(checkedKey, -1)) {
+                mismatchesCount++;
+            }
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(mismatchesCount, Is.is(0));
+        MatcherAssert.assertThat(map.size(), Is.is(expected.size()));
+    }
+
+}
@@ -0,0 +1,235 @@
+package uni.pld.masters.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Assume;
+import org.junit.Test;
+
+import uni.pld.masters.model.HallLayout;
+import uni.pld.masters.model.Movie;
+import uni.pld.masters.model.Viewer;
+
+public class WaitlistTest {
+
+    /**
+     * Test that tests the functionality of joinWaitlist(Viewer {@linkplain viewer}, long {@linkplain projectionId}, int {@linkplain seatNumber}, int
+     * {@linkplain priority}) method for sold out projection. Viewers wait for one seat and for any seat, then reservations are cancelled and a hold is
+     * released. Expected behavior is every released seat to be reserved for the waiting viewer with the highest priority and the earliest joined among the
+     * viewers waiting for this seat or any seat, and the other viewers to keep waiting.
+     */
+    @Test
+    public void joinWaitlist_PromotionOnCancellationAndReleasedHold_Test() throws Exception {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Sold out movie");
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L), HallLayout.rectangular("Small hall", 1, 4));
+        SeatHold hold = manager.holdSeat(new Viewer("hold", "owner"), movie, 3, 60000L);
+        manager.reserveGroup(new Viewer("group", "owner"), projectionId, new HashSet<>(Arrays.asList(1, 2, 4)));
+
+        /*---Call---*/
+        WaitlistEntry firstForSeat = manager.joinWaitlist(new Viewer("first", "waiter"), projectionId, 4);
+        WaitlistEntry priorityForAny = manager.joinWaitlist(new Viewer("priority", "waiter"), projectionId, WaitlistEntry.ANY_SEAT, 5);
+        WaitlistEntry secondForSeat = manager.joinWaitlist(new Viewer("second", "waiter"), projectionId, 4);
+        WaitlistEntry lastForAny = manager.joinWaitlist(new Viewer("last", "waiter"), projectionId, WaitlistEntry.ANY_SEAT);
+        boolean waitingAfterJoin = priorityForAny.isWaiting() && lastForAny.isWaiting();
+        manager.cancelReservation(getReservationId(manager, projectionId, 4));
+        manager.releaseHold(hold);
+        manager.cancelReservation(getReservationId(manager, projectionId, 2));
+        boolean left = manager.leaveWaitlist(secondForSeat);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(waitingAfterJoin, Is.is(true));
+        MatcherAssert.assertThat(priorityForAny.whenFinished()
+                .get(1L, TimeUnit.SECONDS)
+                .getPromotedSeatNumber(), Is.is(4));
+        MatcherAssert.assertThat(lastForAny.isPromoted(), Is.is(true));
+        MatcherAssert.assertThat(lastForAny.getPromotedSeatNumber(), Is.is(3));
+        MatcherAssert.assertThat(firstForSeat.isWaiting(), Is.is(true));
+        MatcherAssert.assertThat(left, Is.is(true));
+        MatcherAssert.assertThat(manager.leaveWaitlist(secondForSeat), Is.is(false));
+        MatcherAssert.assertThat(manager.getWaitlistSize(projectionId), Is.is(1));
+        MatcherAssert.assertThat(manager.getProjection(projectionId)
+                .isSeatTaken(2), Is.is(false));
+        MatcherAssert.assertThat(manager.getReservationLedger()
+                .getForViewer(new Viewer("priority", "waiter"))
+                .get(0)
+                .getSeatNumber(), Is.is(4));
+    }
+
+    /**
+     * Test that leaves the waitlist with entry, which is already removed from the waitlist for promotion, and with entry, which is still in it. Expected
+     * behavior is both entries to leave, the removed entry not to be promoted and not to be added back and the entry in the waitlist not to be polled.
+     */
+    @Test
+    public void leaveWaitlist_WhileRemovedForPromotion_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        ProjectionWaitlist waitlist = new ProjectionWaitlist(4);
+        WaitlistEntry polledEntry = new WaitlistEntry(new Viewer("polled", "waiter"), 1L, 5, 0, waitlist.nextSequence());
+        WaitlistEntry waitingEntry = new WaitlistEntry(new Viewer("waiting", "waiter"), 1L, 5, 0, waitlist.nextSequence());
+        waitlist.add(polledEntry);
+        waitlist.add(waitingEntry);
+
+        /*---Call---*/
+        WaitlistEntry polled = waitlist.pollFor(5);
+        boolean polledLeft = manager.leaveWaitlist(polledEntry);
+        boolean waitingLeft = manager.leaveWaitlist(waitingEntry);
+        boolean promoted = polledEntry.promote(5);
+        boolean restored = waitlist.restore(polledEntry);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(polled == polledEntry, Is.is(true));
+        MatcherAssert.assertThat(polledLeft, Is.is(true));
+        MatcherAssert.assertThat(waitingLeft, Is.is(true));
+        MatcherAssert.assertThat(promoted, Is.is(false));
+        MatcherAssert.assertThat(restored, Is.is(true));
+        MatcherAssert.assertThat(polledEntry.whenFinished()
+                .isDone(), Is.is(true));
+        MatcherAssert.assertThat(waitlist.pollFor(5) == null, Is.is(true));
+        MatcherAssert.assertThat(waitlist.size(), Is.is(0));
+    }
+
+    /**
+     * Test that releases a hold, which seat is waited for, while the journal writes fail because the disk is full. Expected behavior is the release to
+     * succeed without the journal failure, the seat to be free without reservation and the waiting entry to be finished without promotion.
+     */
+    @Test
+    public void releaseHold_PromotionJournalFailed_Test() throws Exception {
+        /*---Setup---*/
+        Path fullDevice = Paths.get("/dev/full");
+        Assume.assumeTrue(Files.isWritable(fullDevice));
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Unjournaled waitlist movie");
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        SeatHold hold = manager.holdSeat(new Viewer("hold", "owner"), movie, 5, 60000L);
+        WaitlistEntry entry = manager.joinWaitlist(new Viewer("first", "waiter"), projectionId, 5);
+        manager.openJournal(fullDevice);
+
+        /*---Call---*/
+        boolean released = manager.releaseHold(hold);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(released, Is.is(true));
+        MatcherAssert.assertThat(entry.whenFinished()
+                .get(1L, TimeUnit.SECONDS)
+                .isPromoted(), Is.is(false));
+        MatcherAssert.assertThat(entry.isWaiting(), Is.is(false));
+        MatcherAssert.assertThat(entry.getPromotedSeatNumber(), Is.is(WaitlistEntry.ANY_SEAT));
+        MatcherAssert.assertThat(manager.getProjection(projectionId)
+                .isSeatTaken(5), Is.is(false));
+        MatcherAssert.assertThat(manager.getReservationLedger()
+                .size(), Is.is(0));
+        MatcherAssert.assertThat(manager.getWaitlistSize(projectionId), Is.is(0));
+        manager.closeJournal();
+    }
+
+    /**
+     * Test that joins the waitlist for a taken seat from many threads at once with more viewers than the capacity of the waitlist. Expected behavior is
+     * exactly {@value MovieProjectionManager#WAITLIST_CAPACITY} viewers to join and the others to be rejected.
+     */
+    @Test
+    public void joinWaitlist_ConcurrentJoinsOverCapacity_Test() throws Exception {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Premiere");
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L));
+        manager.reserve(new Viewer("seat", "owner"), projectionId, 1);
+        int threadsCount = 4;
+        int joinsPerThread = MovieProjectionManager.WAITLIST_CAPACITY / 2;
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+
+        /*---Call---*/
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int thread = 0; thread < threadsCount; thread++) {
+            int threadIndex = thread;
+            results.add(executor.submit(() -> {
+                int joinedCount = 0;
+                for (int index = 0; index < joinsPerThread; index++) {
+                    WaitlistEntry entry = manager.joinWaitlist(new Viewer("viewer" + threadIndex, "number" + index), projectionId, 1);
+                    if (entry.getStatus()
+                            .isSuccessful()) {
+                        joinedCount++;
+                    }
+                }
+                return joinedCount;
+            }));
+        }
+        int joinedCount = 0;
+        for (Future<Integer> result : results) {
+            joinedCount += result.get();
+        }
+        executor.shutdown();
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(joinedCount, Is.is(MovieProjectionManager.WAITLIST_CAPACITY));
+        MatcherAssert.assertThat(manager.getWaitlistSize(projectionId), Is.is(MovieProjectionManager.WAITLIST_CAPACITY));
+        MatcherAssert.assertThat(manager.joinWaitlist(new Viewer("late", "viewer"), projectionId, 1)
+                .getStatus(), Is.is(ReservationStatus.WAITLIST_FULL));
+    }
+
+    /**
+     * Test that tests the functionality of joinWaitlist(Viewer {@linkplain viewer}, long {@linkplain projectionId}, int {@linkplain seatNumber}) method
+     * for any seat in big hall with only two free seats in different words of the seats bitmap. Expected behavior is the viewers to be promoted at once
+     * to the free seats in seat order and the next viewer to wait.
+     */
+    @Test
+    public void joinWaitlist_AnySeatWithFreeSeatsInBigHall_Test() {
+        /*---Setup---*/
+        MovieProjectionManager manager = new MovieProjectionManager();
+        Movie movie = new Movie();
+        movie.setName("Almost sold out movie");
+        long projectionId = manager.scheduleProjection(movie, LocalDateTime.now()
+                .plusHours(3L), HallLayout.rectangular("Big hall", 10, 20));
+        Set<Integer> takenSeats = new HashSet<>();
+        for (int seatNumber = 1; seatNumber <= 200; seatNumber++) {
+            if (seatNumber != 50 && seatNumber != 190) {
+                takenSeats.add(seatNumber);
+            }
+        }
+        manager.reserveGroup(new Viewer("group", "owner"), projectionId, takenSeats);
+
+        /*---Call---*/
+        WaitlistEntry first = manager.joinWaitlist(new Viewer("first", "waiter"), projectionId, WaitlistEntry.ANY_SEAT);
+        WaitlistEntry second = manager.joinWaitlist(new Viewer("second", "waiter"), projectionId, WaitlistEntry.ANY_SEAT);
+        WaitlistEntry third = manager.joinWaitlist(new Viewer("third", "waiter"), projectionId, WaitlistEntry.ANY_SEAT);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(first.getPromotedSeatNumber(), Is.is(50));
+        MatcherAssert.assertThat(second.getPromotedSeatNumber(), Is.is(190));
+        MatcherAssert.assertThat(third.isWaiting(), Is.is(true));
+        MatcherAssert.assertThat(manager.getWaitlistSize(projectionId), Is.is(1));
+        MatcherAssert.assertThat(manager.getProjection(projectionId)
+                .getFreeSeatsCount(), Is.is(0));
+    }
+
+    private static long getReservationId(MovieProjectionManager manager, long projectionId, int seatNumber) {
+        return manager.getReservationLedger()
+                .getForProjection(projectionId)
+                .stream()
+                .filter(reservation -> reservation.getSeatNumber() == seatNumber)
+                .findFirst()
+                .get()
+                .getId();
+    }
+
+}
@@ -0,0 +1,61 @@
+package uni.pld.masters.time;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class CachedTimeSourceTest {
+
+    /**
+     * Test that tests the functionality of currentTimeMillis() and refresh() methods. Moving the source time with tick, which is longer than the test.
+     * Expected behavior is the cached time to be returned till refresh() is called and then the new source time.
+     */
+    @Test
+    public void currentTimeMillis_CachedTillRefresh_Test() {
+        /*---Setup---*/
+        AtomicLong sourceTime = new AtomicLong(1_000L);
+        try (CachedTimeSource timeSource = new CachedTimeSource(sourceTime::get, 60_000L)) {
+
+            /*---Call---*/
+            sourceTime.set(2_000L);
+            long cachedTime = timeSource.currentTimeMillis();
+            timeSource.refresh();
+            long refreshedTime = timeSource.currentTimeMillis();
+
+            /*---Assert---*/
+            MatcherAssert.assertThat(cachedTime, Is.is(1_000L));
+            MatcherAssert.assertThat(refreshedTime, Is.is(2_000L));
+        }
+    }
+
+    /**
+     * Test that tests the refreshing of the cached time on every tick and the functionality of close() method. Moving the source time with short tick.
+     * Expected behavior is the new source time to be returned after a tick and the cached time not to change after the time source is closed.
+     */
+    @Test
+    public void currentTimeMillis_RefreshedOnTickTillClose_Test() throws InterruptedException {
+        /*---Setup---*/
+        AtomicLong sourceTime = new AtomicLong(1_000L);
+        CachedTimeSource timeSource = new CachedTimeSource(sourceTime::get, 5L);
+
+        /*---Call---*/
+        sourceTime.set(2_000L);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (timeSource.currentTimeMillis() != 2_000L && System.nanoTime() < deadline) {
+            Thread.sleep(1L);
+        }
+        long tickedTime = timeSource.currentTimeMillis();
+        timeSource.close();
+        Thread.sleep(20L);
+        long closedTime = timeSource.currentTimeMillis();
+        sourceTime.set(3_000L);
+        Thread.sleep(50L);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(tickedTime, Is.is(2_000L));
+        MatcherAssert.assertThat(timeSource.currentTimeMillis(), Is.is(closedTime));
+    }
+
+}
@@ -0,0 +1,94 @@
+package uni.pld.masters.time;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    /**
+     * Test that tests the functionality of advance() method. Scheduling items with deadlines in different wheels and moving the time step by step. Expected
+     * behavior is every item to expire on the first advance after its deadline, also the items cascaded from the upper wheels.
+     */
+    @Test
+    public void advance_DeadlinesInDifferentWheels_Test() {
+        /*---Setup---*/
+        AtomicLong currentTime = new AtomicLong(1_000_000L);
+        List<Long> expired = new ArrayList<>();
+        TimingWheel<Long> wheel = new TimingWheel<>(currentTime::get, 10L, expired::add);
+        long[] delays = { 5L, 650L, 41_000L, 2_700_000L, 170_000_000L };
+        for (long delay : delays) {
+            wheel.schedule(delay, currentTime.get() + delay);
+        }
+
+        /*---Call---*/
+        List<Long> expiredInTime = new ArrayList<>();
+        long start = currentTime.get();
+        for (long delay : delays) {
+            currentTime.set(start + delay - 10L);
+            wheel.advance();
+            int expiredBefore = expired.size();
+            currentTime.set(start + delay + 9L);
+            wheel.advance();
+            if (expired.size() == expiredBefore + 1) {
+                expiredInTime.add(expired.get(expiredBefore));
+            }
+        }
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(expiredInTime, Is.is(Arrays.asList(5L, 650L, 41_000L, 2_700_000L, 170_000_000L)));
+        MatcherAssert.assertThat(wheel.size(), Is.is(0));
+    }
+
+    /**
+     * Test that tests the functionality of advance() method with slow expiry consumer. Advancing the wheel from other thread, while the consumer of the
+     * first advance still waits. Expected behavior is the wheel not to be locked while the consumer runs, so the other thread schedules, advances and
+     * reads the size without waiting for the consumer.
+     */
+    @Test
+    public void advance_SlowExpiryConsumer_Test() throws InterruptedException {
+        /*---Setup---*/
+        AtomicLong currentTime = new AtomicLong(1_000_000L);
+        CountDownLatch consumerEntered = new CountDownLatch(1);
+        CountDownLatch consumerReleased = new CountDownLatch(1);
+        TimingWheel<Long> wheel = new TimingWheel<>(currentTime::get, 10L, item -> {
+            consumerEntered.countDown();
+            try {
+                consumerReleased.await(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+        });
+        wheel.schedule(1L, currentTime.get() + 10L);
+        currentTime.addAndGet(20L);
+        Thread slowAdvance = new Thread(wheel::advance);
+        slowAdvance.start();
+        consumerEntered.await(5L, TimeUnit.SECONDS);
+
+        /*---Call---*/
+        AtomicInteger otherExpired = new AtomicInteger(-1);
+        Thread otherAdvance = new Thread(() -> {
+            wheel.schedule(2L, currentTime.get() + 1_000L);
+            otherExpired.set(wheel.advance() + wheel.size());
+        });
+        otherAdvance.start();
+        otherAdvance.join(5_000L);
+        int otherExpiredWhileConsumerWaits = otherExpired.get();
+        consumerReleased.countDown();
+        slowAdvance.join(5_000L);
+
+        /*---Assert---*/
+        MatcherAssert.assertThat(otherExpiredWhileConsumerWaits, Is.is(1));
+        MatcherAssert.assertThat(wheel.size(), Is.is(1));
+    }
+
+}